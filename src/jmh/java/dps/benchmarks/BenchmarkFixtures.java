@@ -0,0 +1,231 @@
+package dps.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import dps.designpatternidentifier.CheckPattern;
+import dps.projectparser.ParseProject;
+import dps.projectparser.RunProfile;
+import dps.utils.Diagnostics;
+import dps.utils.Utils;
+
+/**
+ * Inputs shared by the benchmarks, taken from the projects in input/ (run from the
+ * repository root).
+ *
+ * Fact sets come in three sizes: "small" is the smallest project with more than two files,
+ * "medium" the project with the median number of files and "large" a synthetic project of
+ * LARGE_COPIES renamed copies of every project, see getLargeFacts. Facts are parsed once
+ * per JVM with an eager call graph and no summaries.
+ */
+public class BenchmarkFixtures {
+
+    public static final String SMALL = "small";
+    public static final String MEDIUM = "medium";
+    public static final String LARGE = "large";
+
+    // copies of input/ in the large fact set, about 3500 classes
+    private static final int LARGE_COPIES = 5;
+
+    private static final File INPUT = new File("input");
+
+    // project name -> simple-name view of its facts
+    private static final HashMap<String, HashMap<String, HashMap>> facts = new HashMap<>();
+    private static HashMap<String, HashMap> largeFacts = null;
+
+    /**
+     * Projects in input/, by number of Java files and name.
+     */
+    public static List<File> getProjects() {
+        File[] directories = INPUT.listFiles(File::isDirectory);
+        if (directories == null || directories.length == 0)
+            throw new IllegalStateException("No projects in " + INPUT.getAbsolutePath()
+                    + ", run the benchmarks from the repository root");
+        List<File> projects = new ArrayList<>(Arrays.asList(directories));
+        projects.sort(Comparator.comparingInt((File project) -> getJavaFiles(project).size())
+                .thenComparing(File::getName));
+        return projects;
+    }
+
+    /**
+     * The project of a size, small or medium.
+     */
+    public static File getProject(String size) {
+        List<File> projects = getProjects();
+        switch (size) {
+            case SMALL:
+                return projects.stream().filter(project -> getJavaFiles(project).size() > 2).findFirst()
+                        .orElse(projects.get(0));
+            case MEDIUM:
+                return projects.get(projects.size() / 2);
+            default:
+                throw new IllegalArgumentException("No project of size " + size);
+        }
+    }
+
+    public static List<File> getJavaFiles(File directory) {
+        List<File> files = new ArrayList<>();
+        addJavaFiles(directory, files);
+        files.sort(Comparator.comparing(File::getPath));
+        return files;
+    }
+
+    private static void addJavaFiles(File file, List<File> files) {
+        if (file.isDirectory()) {
+            for (File child : file.listFiles()) {
+                addJavaFiles(child, files);
+            }
+        } else if (Utils.getExtension(file).equals("java")) {
+            files.add(file);
+        }
+    }
+
+    /**
+     * Source and lib folders of a project for the symbol solver, as ParseProject finds them.
+     * Falls back to the project directory, as most projects in input/ have no src folder.
+     */
+    public static List<String> getSourcePaths(File directory) {
+        List<String> paths = new ArrayList<>();
+        addFolders(directory, "src", paths);
+        if (paths.isEmpty()) {
+            paths.add(directory.getAbsolutePath());
+        }
+        return paths;
+    }
+
+    public static List<String> getLibPaths(File directory) {
+        List<String> paths = new ArrayList<>();
+        addFolders(directory, "lib", paths);
+        return paths;
+    }
+
+    private static void addFolders(File file, String name, List<String> paths) {
+        if (!file.isDirectory())
+            return;
+        if (file.getName().equals(name)) {
+            paths.add(file.getAbsolutePath());
+        }
+        for (File child : file.listFiles()) {
+            addFolders(child, name, paths);
+        }
+    }
+
+    public static List<String> readSources(List<File> files) throws IOException {
+        List<String> sources = new ArrayList<>();
+        for (File file : files) {
+            sources.add(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+        }
+        return sources;
+    }
+
+    /**
+     * The facts of a size; small and medium are parsed, large is synthetic.
+     */
+    public static HashMap<String, HashMap> getFacts(String size) throws IOException {
+        return size.equals(LARGE) ? getLargeFacts() : getFacts(getProject(size));
+    }
+
+    /**
+     * Simple-name view of the facts of a project, with call edges resolved.
+     */
+    public static synchronized HashMap<String, HashMap> getFacts(File project) throws IOException {
+        HashMap<String, HashMap> projectFacts = facts.get(project.getName());
+        if (projectFacts == null) {
+            RunProfile profile = new RunProfile();
+            profile.set("callgraph", "eager");
+            profile.set("summaries", "false");
+            profile.set("json", RunProfile.JSON_NONE);
+            ParseProject parseProject = new ParseProject();
+            parseProject.setProfile(profile);
+            HashMap<String, Object> parsedProject = parseProject.parseProject(project);
+            Diagnostics.getShared().finishProject(project.getName());
+            projectFacts = (HashMap<String, HashMap>) parsedProject.getOrDefault(project.getName(), new HashMap<>());
+            facts.put(project.getName(), projectFacts);
+        }
+        return projectFacts;
+    }
+
+    /**
+     * LARGE_COPIES copies of the facts of every project in one fact set. The class names of
+     * each copy get the suffix _<project>_<copy>, also where the facts refer to them (types,
+     * call edges), so every copy is a separate project for the detectors.
+     */
+    public static synchronized HashMap<String, HashMap> getLargeFacts() throws IOException {
+        if (largeFacts != null)
+            return largeFacts;
+        largeFacts = new HashMap<>();
+        List<File> projects = getProjects();
+        for (int p = 0; p < projects.size(); p++) {
+            HashMap<String, HashMap> projectFacts = getFacts(projects.get(p));
+            if (projectFacts.isEmpty())
+                continue;
+            Pattern classNames = getNamePattern(projectFacts.keySet());
+            for (int copy = 0; copy < LARGE_COPIES; copy++) {
+                String suffix = "_" + p + "_" + copy;
+                for (Map.Entry<String, HashMap> entry : projectFacts.entrySet()) {
+                    largeFacts.put(rename(entry.getKey(), classNames, suffix),
+                            (HashMap) copy(entry.getValue(), classNames, suffix));
+                }
+            }
+        }
+        return largeFacts;
+    }
+
+    /**
+     * The patterns CheckPattern finds in a fact set.
+     */
+    public static ArrayList<HashMap> detect(HashMap<String, HashMap> fileDetails) {
+        ArrayList<HashMap> designPatterns = new ArrayList<>();
+        new CheckPattern().extractDesignPattern(fileDetails, designPatterns);
+        return designPatterns;
+    }
+
+    // matches the simple names of the given view keys as whole words
+    private static Pattern getNamePattern(Iterable<String> viewKeys) {
+        StringBuilder names = new StringBuilder();
+        for (String viewKey : viewKeys) {
+            if (names.length() > 0) {
+                names.append('|');
+            }
+            names.append(Pattern.quote(viewKey.substring(viewKey.lastIndexOf('.') + 1)));
+        }
+        return Pattern.compile("\\b(" + names + ")\\b");
+    }
+
+    private static String rename(String text, Pattern classNames, String suffix) {
+        Matcher matcher = classNames.matcher(text);
+        return matcher.find() ? matcher.replaceAll("$1" + Matcher.quoteReplacement(suffix)) : text;
+    }
+
+    // deep copy of facts, renaming the class names in every string
+    private static Object copy(Object value, Pattern classNames, String suffix) {
+        if (value instanceof String)
+            return rename((String) value, classNames, suffix);
+        if (value instanceof Map) {
+            Map<Object, Object> map = value instanceof LinkedHashMap ? new LinkedHashMap<>() : new HashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                map.put(copy(entry.getKey(), classNames, suffix), copy(entry.getValue(), classNames, suffix));
+            }
+            return map;
+        }
+        if (value instanceof List) {
+            ArrayList<Object> list = new ArrayList<>();
+            for (Object element : (List<?>) value) {
+                list.add(copy(element, classNames, suffix));
+            }
+            return list;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,98 @@
+package dps.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ParserConfiguration.LanguageLevel;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.symbolsolver.javaparsermodel.JavaParserFacade;
+
+import dps.projectparser.CallGraph;
+import dps.projectparser.ClassOrInterfaceExtr;
+import dps.projectparser.MethodsExtr;
+import dps.projectparser.TypeIndex;
+import dps.utils.SymbolSolverFactory;
+import dps.utils.Utils;
+
+/**
+ * Resolving and merging the call edges of a project, CallGraph.resolveAll (the former
+ * extractCallgraphResults). The facts and the call graph are rebuilt and the solver caches
+ * dropped before each operation, the parsed files are kept.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CallGraphBenchmark {
+
+    @Param({BenchmarkFixtures.SMALL, BenchmarkFixtures.MEDIUM})
+    public String size;
+
+    private List<String> srcPathList;
+    private List<String> libPathList;
+    private List<File> files = new ArrayList<>();
+    private List<CompilationUnit> compilationUnits = new ArrayList<>();
+
+    private CallGraph callGraph;
+
+    @Setup
+    public void setUp() throws IOException {
+        File project = BenchmarkFixtures.getProject(size);
+        srcPathList = BenchmarkFixtures.getSourcePaths(project);
+        libPathList = BenchmarkFixtures.getLibPaths(project);
+        JavaParser javaParser = new JavaParser(new ParserConfiguration()
+                .setLanguageLevel(LanguageLevel.BLEEDING_EDGE)
+                .setSymbolResolver(SymbolSolverFactory.getJavaSymbolSolver(srcPathList, libPathList)));
+        for (File file : BenchmarkFixtures.getJavaFiles(project)) {
+            javaParser.parse(file).getResult().ifPresent(compilationUnit -> {
+                files.add(file);
+                compilationUnits.add(compilationUnit);
+            });
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void register() {
+        JavaParserFacade.clearInstances();
+        HashMap<String, HashMap> parsedFile = new HashMap<>();
+        TypeIndex typeIndex = new TypeIndex();
+        callGraph = new CallGraph(parsedFile, typeIndex, srcPathList, libPathList, new ArrayList<>());
+        for (int i = 0; i < files.size(); i++) {
+            CompilationUnit compilationUnit = compilationUnits.get(i);
+            String fileKey = TypeIndex.getFileKey(compilationUnit, files.get(i));
+            HashMap<String, ArrayList> fileDetails = new HashMap<>();
+            fileDetails.put("METHODDETAIL", new MethodsExtr().getMethodInfo(compilationUnit));
+            fileDetails.put("CLASSORINTERFACEDETAIL", new ClassOrInterfaceExtr().getClassInterfaceInfo(compilationUnit));
+            parsedFile.put(fileKey, fileDetails);
+            typeIndex.addFile(fileKey, Utils.getBaseName(files.get(i).getName()), compilationUnit);
+            callGraph.register(fileKey, compilationUnit);
+        }
+    }
+
+    @Benchmark
+    public CallGraph resolveAll() {
+        callGraph.resolveAll();
+        return callGraph;
+    }
+}
@@ -0,0 +1,65 @@
+package dps.benchmarks;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dps.designpatternidentifier.ClassFeatures;
+import dps.designpatternidentifier.DesignPatterns;
+import dps.designpatternidentifier.PatternRegistry;
+
+/**
+ * checkPattern of each detector on the small, medium and synthetic large fact sets (see
+ * BenchmarkFixtures). The ClassFeatures of a fact set are built once per iteration, as
+ * CheckPattern builds them once per project for all detectors.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DetectorBenchmark {
+
+    @Param({"singleton", "factory_method", "abstract_factory", "adapter", "decorator", "visitor", "facade",
+            "observer", "memento"})
+    public String pattern;
+
+    @Param({BenchmarkFixtures.SMALL, BenchmarkFixtures.MEDIUM, BenchmarkFixtures.LARGE})
+    public String size;
+
+    private DesignPatterns detector;
+    private HashMap<String, HashMap> fileDetails;
+    private ClassFeatures features;
+
+    @Setup
+    public void setUp() throws IOException {
+        detector = PatternRegistry.getPattern(pattern);
+        if (detector == null)
+            throw new IllegalArgumentException("No detector registered for " + pattern);
+        fileDetails = BenchmarkFixtures.getFacts(size);
+    }
+
+    @Setup(Level.Iteration)
+    public void buildFeatures() {
+        features = new ClassFeatures(fileDetails);
+    }
+
+    @Benchmark
+    public HashMap checkPattern() {
+        return detector.checkPattern(fileDetails, features);
+    }
+}
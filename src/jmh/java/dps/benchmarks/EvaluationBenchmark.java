@@ -0,0 +1,110 @@
+package dps.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import dps.utils.Utils;
+import dpsSwum.swum.grammar.SWUMGrammarParser;
+import evaluation.BLEU4Evaluator;
+import evaluation.NISTEvaluator;
+
+/**
+ * The SWUM method name parser on the methods of the medium project, and the BLEU-4 and NIST
+ * scores of summary pairs. The references are the first SUMMARIES summaries of
+ * output/summary-output, the candidates the same summaries with every third word dropped.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class EvaluationBenchmark {
+
+    private static final int SUMMARIES = 100;
+    private static final File SUMMARY_CSV = new File("output/summary-output/project_summary_improved.csv");
+    // "project","file","summary", quotes doubled inside
+    private static final String CSV_FIELD = "\"((?:[^\"]|\"\")*)\"";
+    private static final Pattern CSV_ROW = Pattern.compile("^" + CSV_FIELD + "," + CSV_FIELD + "," + CSV_FIELD + "$");
+
+    private final SWUMGrammarParser swumParser = new SWUMGrammarParser();
+    private final BLEU4Evaluator bleuEvaluator = new BLEU4Evaluator();
+    private final NISTEvaluator nistEvaluator = new NISTEvaluator();
+
+    // method name, class name
+    private final List<String[]> methods = new ArrayList<>();
+    private final List<String> references = new ArrayList<>();
+    private final List<String> candidates = new ArrayList<>();
+
+    @Setup
+    public void setUp() throws IOException {
+        HashMap<String, HashMap> facts = BenchmarkFixtures.getFacts(BenchmarkFixtures.MEDIUM);
+        for (Map.Entry<String, HashMap> fileEntry : facts.entrySet()) {
+            for (HashMap methodDetail : Utils.getMethodDetails(fileEntry.getValue())) {
+                methods.add(new String[] {Utils.getMethodName(methodDetail), fileEntry.getKey()});
+            }
+        }
+
+        for (String line : Files.readAllLines(SUMMARY_CSV.toPath(), StandardCharsets.UTF_8)) {
+            Matcher matcher = CSV_ROW.matcher(line);
+            if (!matcher.matches())
+                continue;
+            String reference = matcher.group(3).replace("\"\"", "\"");
+            String[] words = reference.split(" ");
+            StringBuilder candidate = new StringBuilder();
+            for (int i = 0; i < words.length; i++) {
+                if (i % 3 != 2) {
+                    candidate.append(candidate.length() == 0 ? "" : " ").append(words[i]);
+                }
+            }
+            references.add(reference);
+            candidates.add(candidate.toString());
+            if (references.size() == SUMMARIES)
+                break;
+        }
+        if (references.isEmpty())
+            throw new IllegalStateException("No summaries in " + SUMMARY_CSV);
+    }
+
+    @Benchmark
+    public void parseMethodName(Blackhole blackhole) {
+        for (String[] method : methods) {
+            blackhole.consume(swumParser.parseMethodName(method[0], method[1]));
+        }
+    }
+
+    @Benchmark
+    public void calculateBLEU4(Blackhole blackhole) {
+        for (int i = 0; i < references.size(); i++) {
+            blackhole.consume(bleuEvaluator.calculateBLEU4(candidates.get(i), references.get(i)));
+        }
+    }
+
+    @Benchmark
+    public void calculateNIST(Blackhole blackhole) {
+        for (int i = 0; i < references.size(); i++) {
+            blackhole.consume(nistEvaluator.calculateNIST(candidates.get(i), references.get(i)));
+        }
+    }
+}
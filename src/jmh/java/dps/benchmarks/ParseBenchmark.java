@@ -0,0 +1,119 @@
+package dps.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ParserConfiguration.LanguageLevel;
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+
+import dps.projectparser.ClassOrInterfaceExtr;
+import dps.projectparser.ConstructorExtr;
+import dps.projectparser.FieldExtr;
+import dps.projectparser.MethodsExtr;
+import dps.projectparser.VariableExtr;
+import dps.utils.SymbolSolverFactory;
+
+/**
+ * Parsing the files of a project and each extractor of dps.projectparser over them. Each
+ * operation covers all files of the project.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ParseBenchmark {
+
+    @Param({BenchmarkFixtures.SMALL, BenchmarkFixtures.MEDIUM})
+    public String size;
+
+    private List<String> sources;
+    // parsed with the symbol solver, as ParseProject does
+    private List<CompilationUnit> compilationUnits;
+
+    @Setup
+    public void setUp() throws IOException {
+        File project = BenchmarkFixtures.getProject(size);
+        List<File> files = BenchmarkFixtures.getJavaFiles(project);
+        sources = BenchmarkFixtures.readSources(files);
+        StaticJavaParser.getParserConfiguration().setLanguageLevel(LanguageLevel.BLEEDING_EDGE);
+
+        JavaParser javaParser = new JavaParser(new ParserConfiguration()
+                .setLanguageLevel(LanguageLevel.BLEEDING_EDGE)
+                .setSymbolResolver(SymbolSolverFactory.getJavaSymbolSolver(
+                        BenchmarkFixtures.getSourcePaths(project), BenchmarkFixtures.getLibPaths(project))));
+        compilationUnits = new ArrayList<>();
+        for (File file : files) {
+            ParseResult<CompilationUnit> result = javaParser.parse(file);
+            result.getResult().ifPresent(compilationUnits::add);
+        }
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) {
+        for (String source : sources) {
+            blackhole.consume(StaticJavaParser.parse(source));
+        }
+    }
+
+    @Benchmark
+    public void classOrInterfaceExtr(Blackhole blackhole) {
+        ClassOrInterfaceExtr extractor = new ClassOrInterfaceExtr();
+        for (CompilationUnit compilationUnit : compilationUnits) {
+            blackhole.consume(extractor.getClassInterfaceInfo(compilationUnit));
+        }
+    }
+
+    @Benchmark
+    public void constructorExtr(Blackhole blackhole) {
+        ConstructorExtr extractor = new ConstructorExtr();
+        for (CompilationUnit compilationUnit : compilationUnits) {
+            blackhole.consume(extractor.getConstructorInfo(compilationUnit));
+        }
+    }
+
+    @Benchmark
+    public void fieldExtr(Blackhole blackhole) {
+        FieldExtr extractor = new FieldExtr();
+        for (CompilationUnit compilationUnit : compilationUnits) {
+            blackhole.consume(extractor.getFieldInfo(compilationUnit));
+        }
+    }
+
+    @Benchmark
+    public void methodsExtr(Blackhole blackhole) {
+        MethodsExtr extractor = new MethodsExtr();
+        for (CompilationUnit compilationUnit : compilationUnits) {
+            blackhole.consume(extractor.getMethodInfo(compilationUnit));
+        }
+    }
+
+    @Benchmark
+    public void variableExtr(Blackhole blackhole) {
+        VariableExtr extractor = new VariableExtr();
+        for (CompilationUnit compilationUnit : compilationUnits) {
+            blackhole.consume(extractor.getVariableInfo(compilationUnit));
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package dps.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.collections4.MultiValuedMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import dps.summarygenerator.DesignPatternSummarise;
+import dps.summarygenerator.RealisationCache;
+import dps.summarygenerator.Realisers;
+import dps.summarygenerator.SentenceGenerator;
+import dps.summarygenerator.Summarise;
+import dps.summarygenerator.messages.DesignPatternClassMessage;
+import dps.summarygenerator.messages.DesignPatternInheritClassMessage;
+import dps.summarygenerator.messages.DesignPatternMethodMessage;
+
+/**
+ * Summary generation with each realiser (see Realisers): SentenceGenerator.generateSentence
+ * on three sentence shapes of the detectors, uncached and through the realisation cache,
+ * Summarise.summarise of the medium project with an empty cache, and the file summaries of
+ * the synthetic large project with the sentences indexed by file once (indexByFile) or
+ * looked up per file in the sentences by pattern.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SummaryBenchmark {
+
+    @Param({Realisers.SIMPLENLG, Realisers.TEMPLATE})
+    public String realiser;
+
+    private final SentenceGenerator sentenceGenerator = new SentenceGenerator();
+    // class, method and inherit messages of each sentence shape
+    private final List<Object[]> sentences = new ArrayList<>();
+
+    private String mediumName;
+    private HashMap<String, HashMap> mediumFacts;
+    private ArrayList<HashMap> mediumPatterns;
+
+    private HashMap<String, HashMap> largeFacts;
+    private HashMap<String, MultiValuedMap<String, String>> largeSummary = new HashMap<>();
+
+    // empties the realisation cache before each operation
+    @State(Scope.Thread)
+    public static class ColdCache {
+        @Setup(Level.Invocation)
+        public void clear() {
+            RealisationCache.getShared().clear();
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        Realisers.select(realiser, false);
+        Summarise.setCsvRowSink(row -> {
+        });
+
+        // an adapter target, an abstract product and an observer publisher
+        DesignPatternClassMessage target = new DesignPatternClassMessage("MediaPlayer", "target");
+        target.setRelatedClassDesignPattern("adapter");
+        target.setRelatedClassName("MediaAdapter");
+        ArrayList<DesignPatternMethodMessage> targetMethods = new ArrayList<>();
+        for (String methodName : Arrays.asList("play", "playVideo")) {
+            DesignPatternMethodMessage method = new DesignPatternMethodMessage();
+            method.setMethodVerb("adapt");
+            method.setTarget("MediaAdapter");
+            method.setMethodName(methodName);
+            targetMethods.add(method);
+        }
+        sentences.add(new Object[] {target, targetMethods, null});
+
+        DesignPatternClassMessage product = new DesignPatternClassMessage("Button", "abstract product");
+        product.setRelatedClassName("Button");
+        DesignPatternInheritClassMessage products = new DesignPatternInheritClassMessage();
+        products.setInheritClass("WindowsButton, MacOSButton");
+        sentences.add(new Object[] {product, null, products});
+
+        DesignPatternClassMessage publisher = new DesignPatternClassMessage("EventManager", "publisher");
+        publisher.setRelatedClassDesignPattern("observer");
+        publisher.setRelatedClassName("EventListener");
+        ArrayList<DesignPatternMethodMessage> publisherMethods = new ArrayList<>();
+        for (String[] name : new String[][] {{"notify", "subscribers"}, {"subscribe", null}}) {
+            DesignPatternMethodMessage method = new DesignPatternMethodMessage();
+            method.setMethodVerb(name[0]);
+            if (name[1] != null) {
+                method.setMethodAction(name[1]);
+            }
+            method.setParameter(new ArrayList<>(Arrays.asList("String eventType", "EventListener listener")));
+            publisherMethods.add(method);
+        }
+        DesignPatternInheritClassMessage publishers = new DesignPatternInheritClassMessage();
+        publishers.setInheritClass("Editor");
+        sentences.add(new Object[] {publisher, publisherMethods, publishers});
+
+        File medium = BenchmarkFixtures.getProject(BenchmarkFixtures.MEDIUM);
+        mediumName = medium.getName();
+        mediumFacts = BenchmarkFixtures.getFacts(medium);
+        mediumPatterns = BenchmarkFixtures.detect(mediumFacts);
+
+        largeFacts = BenchmarkFixtures.getLargeFacts();
+        new DesignPatternSummarise().summarise(largeFacts, BenchmarkFixtures.detect(largeFacts), largeSummary);
+    }
+
+    @Benchmark
+    public void realiseSentence(Blackhole blackhole) {
+        for (Object[] sentence : sentences) {
+            blackhole.consume(Realisers.get().realiseSentence((DesignPatternClassMessage) sentence[0],
+                    (ArrayList<DesignPatternMethodMessage>) sentence[1],
+                    (DesignPatternInheritClassMessage) sentence[2]));
+        }
+    }
+
+    @Benchmark
+    public void generateSentence(Blackhole blackhole) {
+        for (Object[] sentence : sentences) {
+            blackhole.consume(sentenceGenerator.generateSentence((DesignPatternClassMessage) sentence[0],
+                    (ArrayList<DesignPatternMethodMessage>) sentence[1],
+                    (DesignPatternInheritClassMessage) sentence[2]));
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public String summarise(ColdCache cold) throws IOException {
+        return new Summarise().summarise(mediumFacts, mediumPatterns, new HashMap<>(), mediumName);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void summariseFilesIndexed(Blackhole blackhole) {
+        Summarise summarise = new Summarise();
+        HashMap<String, LinkedHashMap<String, HashSet<String>>> sentencesByFile = Summarise
+                .indexByFile(largeSummary);
+        for (Map.Entry<String, HashMap> fileEntry : largeFacts.entrySet()) {
+            blackhole.consume(summarise.summariseFile(fileEntry.getKey(), fileEntry.getValue(),
+                    sentencesByFile.getOrDefault(fileEntry.getKey(), new LinkedHashMap<>())));
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void summariseFilesPerFile(Blackhole blackhole) {
+        Summarise summarise = new Summarise();
+        for (Map.Entry<String, HashMap> fileEntry : largeFacts.entrySet()) {
+            blackhole.consume(summarise.summariseFile(fileEntry.getKey(), fileEntry.getValue(), largeSummary));
+        }
+    }
+}
@@ -3,6 +3,7 @@ package dpsSwum.swum;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import dps.utils.MetricsRegistry;
 import evaluation.SummaryEvaluator;
 
 import java.io.File;
@@ -53,6 +54,10 @@ public class SWUMEvaluationPipeline {
             // Step 4: Generate summary report
             System.out.println("\nStep 3: Generating summary report...");
             generateFinalReport();
+
+            // phase timings of the pipeline, next to the evaluation results
+            MetricsRegistry.getShared().write(new File(EVALUATION_OUTPUT_DIR, "run-report.json"),
+                    new File(EVALUATION_OUTPUT_DIR, "dps-swum.prom"));
             
             System.out.println("\n=== Pipeline Complete ===");
             System.out.println("Results saved to: " + EVALUATION_OUTPUT_DIR);
@@ -68,6 +73,7 @@ public class SWUMEvaluationPipeline {
      */
     public void processSingleFile(String inputFilePath, String outputFilePath) throws IOException {
         System.out.println("Processing: " + inputFilePath);
+        long start = System.nanoTime();
         
         // Read original JSON
         JsonNode originalJson = objectMapper.readTree(new File(inputFilePath));
@@ -79,6 +85,8 @@ public class SWUMEvaluationPipeline {
         try (FileWriter writer = new FileWriter(outputFilePath)) {
             objectMapper.writerWithDefaultPrettyPrinter().writeValue(writer, swumJson);
         }
+        MetricsRegistry.getShared().recordPhase(MetricsRegistry.SWUM,
+                new File(inputFilePath).getName().replace(".json", ""), start);
         
         System.out.println("SWUM output saved to: " + outputFilePath);
     }
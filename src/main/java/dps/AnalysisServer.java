@@ -0,0 +1,417 @@
+package dps;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import dps.designpatternidentifier.DetectorMetrics;
+import dps.projectparser.ParseProject;
+import dps.projectparser.RunProfile;
+import dps.summarygenerator.RealisationCache;
+import dps.summarygenerator.Realisers;
+import dps.summarygenerator.Summarise;
+import dps.summarygenerator.SummaryService;
+import dps.utils.Diagnostics;
+import dps.utils.MetricsRegistry;
+
+/**
+ * Long-running HTTP mode (Application --serve=PORT), so that clients calling DPS many times
+ * on small projects don't pay JVM startup, class loading and the SimpleNLG lexicon every
+ * time. Everything loaded once stays warm between requests: classes and JIT, the lexicon,
+ * the detector registry, the realisation cache, the projects opened by /summary, and one
+ * ParseProject with its result cache and the shared JDK and jar type solvers (see
+ * SymbolSolverFactory).
+ *
+ * Endpoints, all answering JSON:
+ * POST /analyse?path=DIR        analyse the project directory DIR on this machine
+ * POST /analyse?name=NAME       analyse the zip archive in the request body
+ * GET  /summary?project=P&class=C  summary of class C of input/P, see SummaryService
+ * GET  /metrics                 request counts and latencies by endpoint
+ * GET  /metrics?format=prometheus  the MetricsRegistry of the server (phases over all the
+ *                               projects analysed, request latencies) as Prometheus text
+ * GET  /health
+ *
+ * /analyse answers with the JSON output of the project as written by a batch run with the
+ * same profile (the facts are left out unless json=full). No files are written. At most
+ * concurrency analyses and summaries run at once; a request that can't start within
+ * waitMillis is answered with 503. Uploaded archives over MAX_UPLOAD_BYTES, or extracting to
+ * more than MAX_EXTRACTED_BYTES or MAX_ENTRIES files, are answered with 413.
+ */
+public class AnalysisServer {
+
+    // limits of an uploaded zip archive and of what it extracts to
+    static final long MAX_UPLOAD_BYTES = 64L * 1024 * 1024;
+    static final long MAX_EXTRACTED_BYTES = 256L * 1024 * 1024;
+    static final int MAX_ENTRIES = 20000;
+
+    private final RunProfile profile;
+    private final ParseProject parseProject = new ParseProject();
+    private final int concurrency;
+    private final long waitMillis;
+    private final SummaryService summaryService;
+    private final Semaphore permits;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    // endpoint -> {requests, errors, rejected, total ms, max ms}
+    private final LinkedHashMap<String, long[]> requestMetrics = new LinkedHashMap<>();
+    private final DetectorMetrics detectorMetrics = new DetectorMetrics();
+    private int inFlight = 0;
+    private final long startMillis = System.currentTimeMillis();
+
+    public AnalysisServer(RunProfile profile, int concurrency, long waitMillis) {
+        this.profile = profile;
+        this.concurrency = concurrency;
+        this.waitMillis = waitMillis;
+        this.summaryService = new SummaryService(new File("input"), profile);
+        this.parseProject.setProfile(profile);
+        this.permits = new Semaphore(concurrency, true);
+        // archive names are unbounded, the phases are reported over all projects
+        MetricsRegistry.getShared().dropLabel("project");
+    }
+
+    /**
+     * Starts the server and returns; requests are handled on a thread pool.
+     */
+    public HttpServer start(String host, int port) throws IOException {
+        // no CSV in server mode, and the lexicon is loaded before the first request
+        Summarise.setCsvRowSink(row -> { });
+        Realisers.select(profile.getRealiser(), profile.isRealiserParity());
+        Realisers.get();
+
+        HttpServer server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        server.createContext("/analyse", exchange -> handle(exchange, "analyse", true));
+        server.createContext("/summary", exchange -> handle(exchange, "summary", true));
+        server.createContext("/metrics", exchange -> handle(exchange, "metrics", false));
+        server.createContext("/health", exchange -> handle(exchange, "health", false));
+        // waiting requests hold a thread, /metrics and /health must still get one
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency * 2 + 2);
+        server.setExecutor(executor);
+        server.start();
+        System.out.println("Serving on http://" + host + ":" + server.getAddress().getPort() + " ("
+                + concurrency + " concurrent analyses)");
+        return server;
+    }
+
+    private void handle(HttpExchange exchange, String endpoint, boolean limited) throws IOException {
+        long start = System.nanoTime();
+        Object response;
+        boolean started = false;
+        try {
+            if (limited && !permits.tryAcquire(waitMillis, TimeUnit.MILLISECONDS)) {
+                response = error(503, "Busy, " + concurrency + " requests running");
+            } else {
+                started = true;
+                synchronized (this) {
+                    inFlight++;
+                }
+                response = respond(exchange, endpoint);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response = error(503, "Interrupted");
+        } catch (Exception | StackOverflowError e) {
+            // e.g. StackOverflowError inside JavaParser: report it and keep serving
+            e.printStackTrace();
+            response = error(500, String.valueOf(e));
+        } finally {
+            if (started) {
+                synchronized (this) {
+                    inFlight--;
+                }
+                if (limited) {
+                    permits.release();
+                }
+            }
+        }
+
+        int status = response instanceof ErrorResponse ? ((ErrorResponse) response).status : 200;
+        byte[] body;
+        if (response instanceof String) {
+            body = ((String) response).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        } else {
+            body = mapper.writeValueAsBytes(response instanceof ErrorResponse ? ((ErrorResponse) response).toMap()
+                    : response);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        }
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+        record(endpoint, status, System.nanoTime() - start);
+    }
+
+    private Object respond(HttpExchange exchange, String endpoint) throws IOException {
+        HashMap<String, String> query = getQuery(exchange);
+        switch (endpoint) {
+            case "analyse":
+                return analyse(exchange, query);
+            case "summary":
+                return summarise(query);
+            case "metrics":
+                return "prometheus".equals(query.get("format")) ? MetricsRegistry.getShared().toPrometheus()
+                        : getMetrics();
+            default:
+                LinkedHashMap<String, Object> health = new LinkedHashMap<>();
+                health.put("status", "ok");
+                return health;
+        }
+    }
+
+    /**
+     * Analyses the project named by the path parameter, or the zip archive in the body.
+     */
+    private Object analyse(HttpExchange exchange, HashMap<String, String> query) throws IOException {
+        if (!exchange.getRequestMethod().equals("POST")) {
+            return error(405, "Use POST");
+        }
+        if (query.containsKey("path")) {
+            File project = new File(query.get("path"));
+            if (!project.isDirectory()) {
+                return error(404, "Not a directory: " + project.getPath());
+            }
+            return analyse(project);
+        }
+
+        String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (contentLength != null && Long.parseLong(contentLength) > MAX_UPLOAD_BYTES) {
+            return error(413, "Archive larger than " + MAX_UPLOAD_BYTES + " bytes");
+        }
+        Path directory = Files.createTempDirectory("dps-");
+        try {
+            String name = query.getOrDefault("name", "project").replaceAll("[^A-Za-z0-9._-]", "_");
+            File project = new File(directory.toFile(), name);
+            if (!unzip(new LimitedInputStream(exchange.getRequestBody(), MAX_UPLOAD_BYTES), project.toPath())) {
+                return error(400, "Expected a path parameter or a zip archive of .java files as the body");
+            }
+            return analyse(project);
+        } catch (ArchiveTooLargeException e) {
+            return error(413, e.getMessage());
+        } finally {
+            try (Stream<Path> paths = Files.walk(directory)) {
+                paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    private Object analyse(File project) throws IOException {
+        // the state of a project lives in the parseProject call, so requests share the parser
+        HashMap<String, Object> parsedProject;
+        try {
+            parsedProject = parseProject.parseProject(project);
+        } finally {
+            Diagnostics.getShared().finishProject(project.getName());
+        }
+        if (parseProject.getLastMetrics() != null) {
+            detectorMetrics.add(parseProject.getLastMetrics());
+        }
+        if (!profile.getJson().equals(RunProfile.JSON_FULL)) {
+            parsedProject.remove(project.getName());
+        }
+        return parsedProject;
+    }
+
+    /**
+     * Extracts a zip archive into directory. Returns false if it holds no .java file;
+     * entries outside directory are skipped. Throws ArchiveTooLargeException past
+     * MAX_ENTRIES entries or MAX_EXTRACTED_BYTES, whatever the entries declare.
+     */
+    static boolean unzip(InputStream in, Path directory) throws IOException {
+        boolean hasSources = false;
+        long extracted = 0;
+        int entries = 0;
+        byte[] buffer = new byte[8192];
+        try (ZipInputStream zip = new ZipInputStream(in)) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (++entries > MAX_ENTRIES) {
+                    throw new ArchiveTooLargeException("Archive has more than " + MAX_ENTRIES + " entries");
+                }
+                Path target = directory.resolve(entry.getName()).normalize();
+                if (!target.startsWith(directory)) {
+                    continue;
+                }
+                if (entry.isDirectory()) {
+                    Files.createDirectories(target);
+                } else {
+                    Files.createDirectories(target.getParent());
+                    try (OutputStream out = Files.newOutputStream(target)) {
+                        int read;
+                        while ((read = zip.read(buffer)) != -1) {
+                            extracted += read;
+                            if (extracted > MAX_EXTRACTED_BYTES) {
+                                throw new ArchiveTooLargeException("Archive extracts to more than "
+                                        + MAX_EXTRACTED_BYTES + " bytes");
+                            }
+                            out.write(buffer, 0, read);
+                        }
+                    }
+                    hasSources |= target.toString().endsWith(".java");
+                }
+            }
+        }
+        return hasSources;
+    }
+
+    // an upload over one of the limits, answered with 413
+    static class ArchiveTooLargeException extends IOException {
+        ArchiveTooLargeException(String message) {
+            super(message);
+        }
+    }
+
+    // the request body, failing once more than limit bytes were read (chunked uploads have no length)
+    private static class LimitedInputStream extends FilterInputStream {
+        private long remaining;
+
+        LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count(read);
+            }
+            return read;
+        }
+
+        private void count(int read) throws ArchiveTooLargeException {
+            remaining -= read;
+            if (remaining < 0) {
+                throw new ArchiveTooLargeException("Archive larger than " + MAX_UPLOAD_BYTES + " bytes");
+            }
+        }
+    }
+
+    private Object summarise(HashMap<String, String> query) throws IOException {
+        String project = query.get("project");
+        String className = query.get("class");
+        if (project == null || className == null) {
+            return error(400, "Expected the project and class parameters");
+        }
+        if (!summaryService.getProjectNames().contains(project)) {
+            return error(404, "Project not found: " + project);
+        }
+        String summary = summaryService.summarise(project, className);
+        if (summary == null) {
+            return error(404, "No class " + className + " in " + project);
+        }
+        LinkedHashMap<String, Object> response = new LinkedHashMap<>();
+        response.put("project", project);
+        response.put("class", className);
+        response.put("summary", summary);
+        response.put("summary_NLG", summaryService.summarisePatterns(project, className));
+        return response;
+    }
+
+    private synchronized void record(String endpoint, int status, long nanos) {
+        long[] counters = requestMetrics.computeIfAbsent(endpoint, key -> new long[5]);
+        counters[0]++;
+        if (status == 503) {
+            counters[2]++;
+        } else if (status >= 400) {
+            counters[1]++;
+        }
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        counters[3] += millis;
+        counters[4] = Math.max(counters[4], millis);
+        MetricsRegistry.getShared().observe("dps_http_request_seconds", nanos / 1e9, "endpoint", endpoint, "status",
+                String.valueOf(status));
+    }
+
+    private synchronized LinkedHashMap<String, Object> getMetrics() {
+        LinkedHashMap<String, Object> endpoints = new LinkedHashMap<>();
+        for (Map.Entry<String, long[]> entry : requestMetrics.entrySet()) {
+            long[] counters = entry.getValue();
+            LinkedHashMap<String, Object> endpoint = new LinkedHashMap<>();
+            endpoint.put("requests", counters[0]);
+            endpoint.put("errors", counters[1]);
+            endpoint.put("rejected", counters[2]);
+            endpoint.put("mean_ms", counters[0] == 0 ? 0 : Math.round(counters[3] * 10.0 / counters[0]) / 10.0);
+            endpoint.put("max_ms", counters[4]);
+            endpoints.put(entry.getKey(), endpoint);
+        }
+        LinkedHashMap<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("uptime_s", (System.currentTimeMillis() - startMillis) / 1000);
+        metrics.put("concurrency", concurrency);
+        // this request included
+        metrics.put("in_flight", inFlight);
+        metrics.put("endpoints", endpoints);
+        metrics.put("detectors", detectorMetrics.toMap());
+        metrics.put("realisation_cache", RealisationCache.getShared().toMap());
+        return metrics;
+    }
+
+    private static HashMap<String, String> getQuery(HttpExchange exchange) throws UnsupportedEncodingException {
+        HashMap<String, String> query = new HashMap<>();
+        String rawQuery = exchange.getRequestURI().getRawQuery();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (String parameter : rawQuery.split("&")) {
+            int separator = parameter.indexOf('=');
+            if (separator > 0) {
+                query.put(URLDecoder.decode(parameter.substring(0, separator), "UTF-8"),
+                        URLDecoder.decode(parameter.substring(separator + 1), "UTF-8"));
+            }
+        }
+        return query;
+    }
+
+    private static ErrorResponse error(int status, String message) {
+        return new ErrorResponse(status, message);
+    }
+
+    // a response without a result, {"status": 404, "message": "..."}
+    private static class ErrorResponse {
+        final int status;
+        final String message;
+
+        ErrorResponse(int status, String message) {
+            this.status = status;
+            this.message = message;
+        }
+
+        LinkedHashMap<String, Object> toMap() {
+            LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+            map.put("status", status);
+            map.put("message", message);
+            return map;
+        }
+    }
+}
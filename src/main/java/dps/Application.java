@@ -2,21 +2,47 @@ package dps;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import com.fasterxml.jackson.core.util.DefaultIndenter;
 import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
 
+import dps.designpatternidentifier.DetectorMetrics;
 import dps.projectparser.ParseProject;
+import dps.projectparser.ProjectSession;
+import dps.projectparser.RunProfile;
+import dps.summarygenerator.ParityRealiser;
+import dps.summarygenerator.RealisationCache;
+import dps.summarygenerator.Realisers;
 import dps.summarygenerator.Summarise;
+import dps.summarygenerator.SummaryService;
+import dps.utils.Diagnostics;
+import dps.utils.MetricsRegistry;
+import dps.utils.PipelineEvents;
 
 public class Application {
 
+    // detector/project pairs at least this slow are flagged in the console summary
+    private static final long SLOW_DETECTOR_MILLIS = 1000;
+
+    // project name -> detector metrics, filled by processProject or the batch coordinator
+    private static final LinkedHashMap<String, DetectorMetrics> projectMetrics = new LinkedHashMap<>();
+
+    // the run report and Prometheus file of the MetricsRegistry, see writeMetrics
+    private static final File RUN_REPORT = new File("output/run-report.json");
+    private static File prometheusFile = new File("output/dps.prom");
+    private static final long startMillis = System.currentTimeMillis();
+
     public static void main(String[] args) {
         try {
-            runApplication();
+            runApplication(args);
         } catch (IOException e) {
             System.err.println("Fatal error during application execution: " + e.getMessage());
             e.printStackTrace();
@@ -28,27 +54,196 @@ public class Application {
         }
     }
     
-    private static void runApplication() throws IOException {
+    private static void runApplication(String[] args) throws IOException {
+        // batch options are handled here, everything else configures the parser and is
+        // forwarded unchanged to worker processes
+        int workers = 0;
+        int maxAttempts = 2;
+        long projectTimeoutMillis = 0;
+        boolean workerMode = false;
+        boolean resume = false;
+        String watchProject = null;
+        String summariseClasses = null;
+        int servePort = -1;
+        String serveHost = "127.0.0.1";
+        int serveConcurrency = Runtime.getRuntime().availableProcessors();
+        long serveWaitMillis = 30000;
+        List<String> jvmOptions = new ArrayList<>();
+        List<String> parserArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--workers=")) {
+                workers = Integer.parseInt(arg.substring("--workers=".length()));
+            } else if (arg.startsWith("--max-attempts=")) {
+                maxAttempts = Integer.parseInt(arg.substring("--max-attempts=".length()));
+            } else if (arg.startsWith("--project-timeout-ms=")) {
+                projectTimeoutMillis = Long.parseLong(arg.substring("--project-timeout-ms=".length()));
+            } else if (arg.startsWith("--worker-jvm-opts=")) {
+                jvmOptions.addAll(Arrays.asList(arg.substring("--worker-jvm-opts=".length()).trim().split("\\s+")));
+            } else if (arg.equals("--worker")) {
+                workerMode = true;
+            } else if (arg.equals("--resume")) {
+                resume = true;
+            } else if (arg.startsWith("--watch=")) {
+                watchProject = arg.substring("--watch=".length());
+            } else if (arg.startsWith("--summarise=")) {
+                summariseClasses = arg.substring("--summarise=".length());
+            } else if (arg.startsWith("--serve=")) {
+                servePort = Integer.parseInt(arg.substring("--serve=".length()));
+            } else if (arg.startsWith("--serve-host=")) {
+                serveHost = arg.substring("--serve-host=".length());
+            } else if (arg.startsWith("--serve-concurrency=")) {
+                serveConcurrency = Integer.parseInt(arg.substring("--serve-concurrency=".length()));
+            } else if (arg.startsWith("--serve-wait-ms=")) {
+                serveWaitMillis = Long.parseLong(arg.substring("--serve-wait-ms=".length()));
+            } else if (arg.startsWith("--prometheus-file=")) {
+                prometheusFile = new File(arg.substring("--prometheus-file=".length()));
+            } else {
+                parserArgs.add(arg);
+            }
+        }
+
         ParseProject parseProject = new ParseProject();
+        applyArguments(parserArgs, parseProject);
+        Diagnostics.getShared().setDirectory(new File("output/diagnostics"));
+
+        if (workerMode) {
+            new BatchWorker().run(parseProject);
+            return;
+        }
+
+        RunProfile profile = parseProject.getProfile();
+        if (summariseClasses != null) {
+            summariseClasses(summariseClasses, profile);
+            return;
+        }
+        System.out.println("Run profile: " + profile.describe());
+        if (servePort >= 0) {
+            // uploads are temporary, their diagnostics only go to the console and the metrics
+            Diagnostics.getShared().setDirectory(null);
+            new AnalysisServer(profile, Math.max(1, serveConcurrency), serveWaitMillis).start(serveHost, servePort);
+            return;
+        }
+        if (!profile.isWriteCsv()) {
+            Summarise.setCsvRowSink(row -> { });
+        }
 
         // Create output and reference Directory if non-existent
         createDirectories();
 
+        if (watchProject != null) {
+            watchProject(new File("input", watchProject), parseProject);
+            return;
+        }
+
         // Gets list of directories (folders) from specified input folder
         File[] projects = new File("input").listFiles(File::isDirectory);
         if (projects == null) {
             throw new IOException("Input directory not found or is not a directory");
         }
         
-        for (File project : projects) {
-            processProject(project, parseProject);
+        // the manifest of this run, and of the run to resume
+        BatchCheckpoint checkpoint = new BatchCheckpoint(new File("output/checkpoint.jsonl"), profile.describe(),
+                resume);
+        if (workers > 0) {
+            jvmOptions.removeIf(String::isEmpty);
+            new BatchCoordinator(workers, maxAttempts, projectTimeoutMillis, parserArgs, jvmOptions, checkpoint,
+                    profile).run(projects);
+        } else {
+            for (File project : projects) {
+                String fingerprint = BatchCheckpoint.getFingerprint(project);
+                HashMap<String, Object> fresh = checkpoint.getFresh(project, fingerprint, getJsonFile(project));
+                if (fresh != null) {
+                    skipProject(project, fresh);
+                    continue;
+                }
+
+                // the rows of a project are written together once it is done
+                StringBuilder rows = new StringBuilder();
+                if (profile.isWriteCsv()) {
+                    Summarise.setCsvRowSink(rows::append);
+                }
+                DetectorMetrics metrics;
+                try {
+                    metrics = processProject(project, parseProject);
+                } catch (Exception e) {
+                    System.err.println("\tError during project " + project.getName() + ": " + e.getMessage());
+                    e.printStackTrace();
+                    checkpoint.record(project, fingerprint, BatchCheckpoint.FAILED, null, "", null);
+                    countProject(BatchCheckpoint.FAILED);
+                    continue; // Continue with next project instead of throwing
+                }
+                writeCsvRows(project, rows.toString());
+                countProject(BatchCheckpoint.DONE);
+                if (metrics != null) {
+                    addProjectMetrics(project.getName(), metrics);
+                }
+                checkpoint.record(project, fingerprint, BatchCheckpoint.DONE, getWrittenJsonFile(project, profile),
+                        rows.toString(), metrics);
+            }
         }
+        checkpoint.close();
         
         // Close the CSV writer to finalize the summary file
         Summarise.closeCsvWriter();
-        System.out.println("\nAll projects processed. CSV summary file has been generated.");
+        writeMetrics();
+        System.out.println("\nAll projects processed."
+                + (profile.isWriteCsv() ? " CSV summary file has been generated." : ""));
     }
     
+    /**
+     * Builds the run profile (see RunProfile for all keys) from the options, in order:
+     * --profile=file           read a properties file of profile keys
+     * --key=value              set a single profile key, e.g. --patterns=singleton,factory_method,
+     *                          --callgraph=lazy, --json=patterns, --csv=false, --shard-by=package,
+     *                          --shard-threads=N, --max-shard-files=N
+     * --lazy-callgraph         same as --callgraph=lazy
+     * --no-summaries           same as --summaries=false, also drops the CSV output
+     * --no-json                same as --json=none
+     * --no-csv                 same as --csv=false
+     * --rule-parity            check the pattern rules against the detectors on every project
+     * --jfr-events             same as --jfr-events=true, emit flight recorder events
+     *
+     * Batch options, read by runApplication:
+     * --workers=N              process projects in N forked worker JVMs
+     * --max-attempts=N         attempts per project when its worker crashes (default 2)
+     * --project-timeout-ms=N   kill a worker that takes longer on a project and retry it,
+     *                          counted against --max-attempts (default 0, no limit)
+     * --worker-jvm-opts="..."  extra JVM options for the workers, e.g. "-Xmx4g -Xss8m"
+     * --resume                 skip the projects done by the last run that are unchanged since,
+     *                          see BatchCheckpoint
+     * --watch=name             keep input/name in memory and update its JSON on every change
+     * --summarise=name:A,B     print the summaries of classes A and B of input/name only
+     * --serve=PORT             answer analyses and summaries over HTTP, see AnalysisServer;
+     *                          with --serve-host (default 127.0.0.1), --serve-concurrency=N
+     *                          (default: available processors) and --serve-wait-ms=N (30000)
+     * --prometheus-file=FILE   where to write the Prometheus metrics (default output/dps.prom)
+     */
+    private static void applyArguments(List<String> args, ParseProject parseProject) throws IOException {
+        RunProfile profile = new RunProfile();
+        for (String arg : args) {
+            if (arg.startsWith("--profile=")) {
+                profile.load(new File(arg.substring("--profile=".length())));
+            } else if (arg.equals("--lazy-callgraph")) {
+                profile.set("callgraph", "lazy");
+            } else if (arg.equals("--no-summaries")) {
+                profile.set("summaries", "false");
+            } else if (arg.equals("--no-json")) {
+                profile.set("json", RunProfile.JSON_NONE);
+            } else if (arg.equals("--no-csv")) {
+                profile.set("csv", "false");
+            } else if (arg.equals("--rule-parity")) {
+                profile.set("rule-parity", "true");
+            } else if (arg.equals("--jfr-events")) {
+                profile.set("jfr-events", "true");
+            } else if (!arg.startsWith("--") || !arg.contains("=")
+                    || !profile.set(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1))) {
+                System.err.println("Ignoring unknown argument: " + arg);
+            }
+        }
+        parseProject.setProfile(profile);
+        PipelineEvents.setEnabled(profile.isJfrEvents());
+    }
+
     private static void createDirectories() throws IOException {
         String[] directories = {"output", "output/json-output", "output/summary-output", "reference"};
         
@@ -60,19 +255,71 @@ public class Application {
         }
     }
     
-    private static void processProject(File project, ParseProject parseProject) throws IOException {
+    /**
+     * Parses and writes a project, returning the cost of its detectors (null if it was
+     * empty). Throws if the project can't be processed.
+     */
+    static DetectorMetrics processProject(File project, ParseProject parseProject) throws IOException {
         System.out.println("\n" + project.getName());
-        HashMap<String, Object> parsedProject;
 
+        // Each directory in input folder is parsed
+        HashMap<String, Object> parsedProject;
         try {
-            // Each directory in input folder is parsed
             parsedProject = parseProject.parseProject(project);
-        } catch (Exception e) {
-            System.err.println("\tError during project " + project.getName() + ": " + e.getMessage());
-            e.printStackTrace();
-            return; // Continue with next project instead of throwing
+        } finally {
+            Diagnostics.getShared().finishProject(project.getName());
         }
 
+        writeProject(project, parsedProject, parseProject.getProfile().getJson());
+        return parseProject.getLastMetrics();
+    }
+
+    /**
+     * Takes over the CSV rows and metrics of a project that is unchanged since the run being
+     * resumed, see BatchCheckpoint.
+     */
+    static void skipProject(File project, HashMap<String, Object> checkpointEntry) throws IOException {
+        System.out.println("\n" + project.getName() + "\n\tUnchanged since the last run, skipped");
+        writeCsvRows(project, (String) checkpointEntry.getOrDefault("rows", ""));
+        countProject("skipped");
+        DetectorMetrics metrics = BatchCheckpoint.getMetrics(checkpointEntry);
+        if (metrics != null) {
+            addProjectMetrics(project.getName(), metrics);
+        }
+    }
+
+    /**
+     * Helper method to append the CSV rows of a project to the summary file, timing the write.
+     */
+    static void writeCsvRows(File project, String rows) throws IOException {
+        if (rows.isEmpty())
+            return;
+        long start = System.nanoTime();
+        Summarise.writeCsvRow(rows);
+        MetricsRegistry.getShared().recordPhase(MetricsRegistry.CSV_WRITE, project.getName(), start);
+        MetricsRegistry.getShared().increment("dps_csv_rows_total", rows.split("\n").length);
+    }
+
+    // status is BatchCheckpoint.DONE, FAILED or "skipped"
+    static void countProject(String status) {
+        MetricsRegistry.getShared().increment("dps_projects_total", 1, "status", status);
+    }
+
+    static File getJsonFile(File project) {
+        return new File("output/json-output/" + project.getName() + ".json");
+    }
+
+    // the JSON output of a project if this run writes one
+    static File getWrittenJsonFile(File project, RunProfile profile) {
+        return profile.getJson().equals(RunProfile.JSON_NONE) ? null : getJsonFile(project);
+    }
+
+    /**
+     * Writes the JSON output of a project, with or without the per-file facts depending on
+     * the json mode of the run profile.
+     */
+    private static void writeProject(File project, HashMap<String, Object> parsedProject, String json)
+            throws IOException {
         ObjectWriter writer = new ObjectMapper()
                 .writer(new DefaultPrettyPrinter().withObjectIndenter(new DefaultIndenter("\t", "\n")));
 
@@ -80,8 +327,133 @@ public class Application {
             System.out.println("\tEmpty");
             return;
         }
-        
-        writer.writeValue(new File("output/json-output/" + project.getName() + ".json"), parsedProject);
+        if (json.equals(RunProfile.JSON_NONE))
+            return;
+        if (json.equals(RunProfile.JSON_PATTERNS)) {
+            parsedProject = new HashMap<>(parsedProject);
+            parsedProject.remove(project.getName());
+        }
+
+        long start = System.nanoTime();
+        writer.writeValue(getJsonFile(project), parsedProject);
+        MetricsRegistry.getShared().recordPhase(MetricsRegistry.JSON_WRITE, project.getName(), start);
     }
-}
 
+    /**
+     * Analyses a project once, then polls its sources every second and only re-analyses
+     * what changed (see ProjectSession), rewriting the JSON output after each update. Runs
+     * until the process is stopped.
+     */
+    private static void watchProject(File project, ParseProject parseProject) throws IOException {
+        if (!project.isDirectory()) {
+            throw new IOException("Project not found: " + project.getPath());
+        }
+        System.out.println("\n" + project.getName());
+        ProjectSession session = parseProject.openSession(project);
+        addProjectMetrics(project.getName(), session.getMetrics());
+        writeProject(project, session.getParsedProject(), parseProject.getProfile().getJson());
+        writeMetrics();
+        System.out.println("\tWatching " + project.getPath() + " for changes");
+
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (!session.refresh().isEmpty()) {
+                writeProject(project, session.getParsedProject(), parseProject.getProfile().getJson());
+                writeMetrics();
+            }
+        }
+    }
+
+    /**
+     * Prints the summaries of a few classes of a project, "Project:ClassA,ClassB", without
+     * summarising the rest of it or writing any output (see SummaryService).
+     */
+    private static void summariseClasses(String request, RunProfile profile) throws IOException {
+        int separator = request.indexOf(':');
+        if (separator < 0) {
+            throw new IOException("Expected --summarise=Project:ClassName[,ClassName...], got " + request);
+        }
+        String project = request.substring(0, separator);
+        SummaryService summaryService = new SummaryService(new File("input"), profile);
+        for (String className : request.substring(separator + 1).split(",")) {
+            String summary = summaryService.summarise(project, className.trim());
+            if (summary == null) {
+                System.out.println(className.trim() + ": no such class in " + project);
+            } else {
+                System.out.println(className.trim() + ".java: " + summary);
+            }
+        }
+    }
+
+    static synchronized void addProjectMetrics(String projectName, DetectorMetrics metrics) {
+        projectMetrics.put(projectName, metrics);
+    }
+
+    /**
+     * Writes the detector metrics of every project and their sum for the run to
+     * output/detector-metrics.json, the MetricsRegistry to output/run-report.json and the
+     * Prometheus file, and prints the slowest detector/project pairs.
+     */
+    private static synchronized void writeMetrics() throws IOException {
+        MetricsRegistry registry = MetricsRegistry.getShared();
+        registry.set("dps_run_start_time_seconds", startMillis / 1000.0);
+        registry.set("dps_run_duration_seconds", (System.currentTimeMillis() - startMillis) / 1000.0);
+        registry.write(RUN_REPORT, prometheusFile);
+
+        DetectorMetrics runMetrics = new DetectorMetrics();
+        LinkedHashMap<String, Object> projects = new LinkedHashMap<>();
+        List<String[]> pairs = new ArrayList<>();
+        for (Map.Entry<String, DetectorMetrics> entry : projectMetrics.entrySet()) {
+            runMetrics.add(entry.getValue());
+            projects.put(entry.getKey(), entry.getValue().toMap());
+            for (String key : entry.getValue().getKeys()) {
+                pairs.add(new String[] {entry.getKey(), key});
+            }
+        }
+
+        LinkedHashMap<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("projects", projects);
+        metrics.put("run", runMetrics.toMap());
+        metrics.put("realisation_cache", RealisationCache.getShared().toMap());
+        ParityRealiser parity = Realisers.getParity();
+        if (parity != null) {
+            metrics.put("realiser_parity", parity.toMap());
+        }
+        new ObjectMapper().writer(new DefaultPrettyPrinter().withObjectIndenter(new DefaultIndenter("\t", "\n")))
+                .writeValue(new File("output/detector-metrics.json"), metrics);
+
+        RealisationCache realisationCache = RealisationCache.getShared();
+        if (realisationCache.getHits() + realisationCache.getMisses() > 0) {
+            System.out.println("\nRealisation cache: " + realisationCache.getHits() + " hits, "
+                    + realisationCache.getMisses() + " misses ("
+                    + Math.round(realisationCache.getHitRate() * 100) + "% hit rate)");
+        }
+        if (parity != null) {
+            LinkedHashMap<String, Object> counters = parity.toMap();
+            System.out.println("Realiser parity: " + parity.getDiffering() + " of " + parity.getRealisations()
+                    + " realisations differ (SimpleNLG " + counters.get("simplenlg_ms") + " ms, template "
+                    + counters.get("template_ms") + " ms)");
+        }
+
+        if (pairs.isEmpty())
+            return;
+        pairs.sort((a, b) -> Long.compare(getWallNanos(b), getWallNanos(a)));
+        System.out.println("\nSlowest detectors (see output/detector-metrics.json):");
+        for (String[] pair : pairs.subList(0, Math.min(5, pairs.size()))) {
+            double millis = DetectorMetrics.toMillis(getWallNanos(pair));
+            System.out.println((millis >= SLOW_DETECTOR_MILLIS ? "  ! " : "\t") + pair[0] + " " + pair[1] + " "
+                    + millis + " ms");
+        }
+    }
+
+    // pair = {project, "phase pattern"}
+    private static long getWallNanos(String[] pair) {
+        String[] key = pair[1].split(" ");
+        return projectMetrics.get(pair[0]).getWallNanos(key[0], key[1]);
+    }
+}
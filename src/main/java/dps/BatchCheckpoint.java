@@ -0,0 +1,179 @@
+package dps;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import dps.designpatternidentifier.DetectorMetrics;
+
+/**
+ * Progress of a batch run, so that a run that died can be resumed (Application --resume).
+ *
+ * output/checkpoint.jsonl gets a line per finished project: its input fingerprint (the path,
+ * size and modification time of every file under it), the run profile, its status, the size
+ * of its JSON output, its CSV rows and its detector metrics. The line is appended after the
+ * project's JSON and CSV rows are written, so a project that was cut off has no line and no
+ * CSV rows. When a project appears more than once the last line counts; a truncated last line
+ * is ignored.
+ *
+ * On resume, a project is skipped if it finished with the same fingerprint and profile and its
+ * JSON output is still there with the recorded size. Its CSV rows and metrics are taken from
+ * the manifest, so the CSV file is complete again although it is rewritten from the start.
+ */
+public class BatchCheckpoint {
+    public static final String DONE = "done";
+    public static final String FAILED = "failed";
+
+    private final File manifest;
+    private final String profileKey;
+    private final ObjectMapper mapper = new ObjectMapper();
+    // project -> last line
+    private final HashMap<String, HashMap<String, Object>> entries = new HashMap<>();
+    private final Writer writer;
+
+    /**
+     * Opens the manifest of a batch run with the given profile (RunProfile.describe). Without
+     * resume, the previous manifest is discarded.
+     */
+    public BatchCheckpoint(File manifest, String profileKey, boolean resume) throws IOException {
+        this.manifest = manifest;
+        this.profileKey = profileKey;
+        if (resume && manifest.isFile()) {
+            load();
+            compact();
+        }
+        this.writer = new OutputStreamWriter(new FileOutputStream(manifest, resume), StandardCharsets.UTF_8);
+    }
+
+    private void load() throws IOException {
+        try (BufferedReader in = new BufferedReader(
+                new InputStreamReader(new FileInputStream(manifest), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                try {
+                    HashMap<String, Object> entry = mapper.readValue(line, HashMap.class);
+                    entries.put((String) entry.get("project"), entry);
+                } catch (IOException e) {
+                    // cut off while it was written
+                }
+            }
+        }
+    }
+
+    // rewrites the manifest with the last line of each project, so it doesn't grow with every resume
+    private void compact() throws IOException {
+        File compacted = new File(manifest.getPath() + ".tmp");
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(compacted), StandardCharsets.UTF_8)) {
+            for (HashMap<String, Object> entry : entries.values()) {
+                out.write(mapper.writeValueAsString(entry) + "\n");
+            }
+        }
+        Files.move(compacted.toPath(), manifest.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Fingerprint of the inputs of a project: SHA-256 over the relative path, size and
+     * modification time of every file under it.
+     */
+    public static String getFingerprint(File project) throws IOException {
+        TreeMap<String, File> files = new TreeMap<>();
+        addFiles(project, "", files);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Map.Entry<String, File> file : files.entrySet()) {
+                digest.update((file.getKey() + "\t" + file.getValue().length() + "\t" + file.getValue().lastModified()
+                        + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static void addFiles(File directory, String prefix, TreeMap<String, File> files) {
+        File[] children = directory.listFiles();
+        if (children == null)
+            return;
+        for (File child : children) {
+            if (child.isDirectory()) {
+                addFiles(child, prefix + child.getName() + "/", files);
+            } else {
+                files.put(prefix + child.getName(), child);
+            }
+        }
+    }
+
+    /**
+     * The manifest line of a project whose inputs, profile and JSON output are unchanged since
+     * it was done, or null if it has to be processed.
+     */
+    public synchronized HashMap<String, Object> getFresh(File project, String fingerprint, File jsonFile) {
+        HashMap<String, Object> entry = entries.get(project.getName());
+        if (entry == null || !DONE.equals(entry.get("status")) || !fingerprint.equals(entry.get("fingerprint"))
+                || !profileKey.equals(entry.get("profile")))
+            return null;
+        Number jsonBytes = (Number) entry.get("json_bytes");
+        if (jsonBytes != null && (!jsonFile.isFile() || jsonFile.length() != jsonBytes.longValue()))
+            return null;
+        return entry;
+    }
+
+    /**
+     * Appends the manifest line of a finished project. jsonFile is the JSON output if one was
+     * written; rows are its CSV rows. metrics is null if the project was empty or failed.
+     */
+    public synchronized void record(File project, String fingerprint, String status, File jsonFile, String rows,
+            DetectorMetrics metrics) throws IOException {
+        LinkedHashMap<String, Object> entry = new LinkedHashMap<>();
+        entry.put("project", project.getName());
+        entry.put("fingerprint", fingerprint);
+        entry.put("profile", profileKey);
+        entry.put("status", status);
+        entry.put("json_bytes", jsonFile != null && jsonFile.isFile() ? jsonFile.length() : null);
+        entry.put("rows", rows);
+        entry.put("metrics", metrics == null ? null : metrics.toRows());
+        writer.write(mapper.writeValueAsString(entry) + "\n");
+        writer.flush();
+        entries.put(project.getName(), new HashMap<>(entry));
+    }
+
+    /**
+     * Helper method to rebuild the detector metrics of a skipped project from its manifest
+     * line, null if it had none.
+     */
+    public static DetectorMetrics getMetrics(HashMap<String, Object> entry) {
+        if (entry.get("metrics") == null)
+            return null;
+        DetectorMetrics metrics = new DetectorMetrics();
+        for (String row : (List<String>) entry.get("metrics")) {
+            metrics.addRow(row);
+        }
+        return metrics;
+    }
+
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,295 @@
+package dps;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import dps.designpatternidentifier.DetectorMetrics;
+import dps.projectparser.RunProfile;
+import dps.utils.MetricsRegistry;
+
+/**
+ * Runs a batch of projects on N forked worker JVMs (see BatchWorker for the protocol).
+ *
+ * Each worker slot hands out projects from a shared queue. If a worker dies while
+ * processing a project (crash, OutOfMemoryError, killed), a fresh worker is started and
+ * the project is queued again until maxAttempts is reached; after that it is marked as
+ * failed. A worker that takes longer than projectTimeoutMillis on a project is killed and
+ * counted the same way. A project that fails inside a healthy worker (an exception or a
+ * StackOverflowError) is marked as failed straight away, because retrying would fail the
+ * same way.
+ *
+ * Projects the checkpoint says are unchanged are not sent to a worker, every other project is
+ * recorded in the checkpoint once it is done or has failed.
+ */
+public class BatchCoordinator {
+
+    private final int workerCount;
+    private final int maxAttempts;
+    private final long projectTimeoutMillis;
+    private final List<String> workerArgs;
+    private final List<String> jvmOptions;
+    private final BatchCheckpoint checkpoint;
+    private final RunProfile profile;
+
+    private final ConcurrentLinkedQueue<File> queue = new ConcurrentLinkedQueue<>();
+    private final ConcurrentHashMap<String, Integer> attempts = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, String> failedProjects = new ConcurrentHashMap<>();
+    // input fingerprints of the queued projects, as of before they were processed
+    private final ConcurrentHashMap<String, String> fingerprints = new ConcurrentHashMap<>();
+    // kills workers over projectTimeoutMillis
+    private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "dps-worker-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * projectTimeoutMillis is the time a worker has for one project, 0 for no limit.
+     */
+    public BatchCoordinator(int workerCount, int maxAttempts, long projectTimeoutMillis, List<String> workerArgs,
+            List<String> jvmOptions, BatchCheckpoint checkpoint, RunProfile profile) {
+        this.workerCount = workerCount;
+        this.maxAttempts = maxAttempts;
+        this.projectTimeoutMillis = projectTimeoutMillis;
+        this.workerArgs = workerArgs;
+        this.jvmOptions = jvmOptions;
+        this.checkpoint = checkpoint;
+        this.profile = profile;
+    }
+
+    public Map<String, String> run(File[] projects) throws IOException {
+        for (File project : projects) {
+            String fingerprint = BatchCheckpoint.getFingerprint(project);
+            HashMap<String, Object> fresh = checkpoint.getFresh(project, fingerprint, Application.getJsonFile(project));
+            if (fresh != null) {
+                Application.skipProject(project, fresh);
+            } else {
+                fingerprints.put(project.getName(), fingerprint);
+                queue.add(project);
+            }
+        }
+
+        List<Thread> slots = new ArrayList<>();
+        for (int i = 0; i < Math.min(workerCount, queue.size()); i++) {
+            Thread slot = new Thread(this::runSlot, "dps-worker-slot-" + i);
+            slot.start();
+            slots.add(slot);
+        }
+        for (Thread slot : slots) {
+            try {
+                slot.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for workers", e);
+            }
+        }
+        watchdog.shutdownNow();
+
+        if (!failedProjects.isEmpty()) {
+            System.out.println("\nFailed projects:");
+            for (Map.Entry<String, String> failed : new TreeMap<>(failedProjects).entrySet()) {
+                System.out.println("\t" + failed.getKey() + ": " + failed.getValue());
+            }
+        }
+        return failedProjects;
+    }
+
+    private void runSlot() {
+        WorkerProcess worker = null;
+        File project;
+        while ((project = queue.poll()) != null) {
+            try {
+                if (worker == null || !worker.isAlive()) {
+                    worker = null;
+                    worker = new WorkerProcess();
+                }
+                String result = worker.process(project);
+                if (result.startsWith("ERROR ")) {
+                    failedProjects.put(project.getName(), result.substring("ERROR ".length()));
+                    recordFailed(project);
+                } else {
+                    Application.countProject(BatchCheckpoint.DONE);
+                }
+            } catch (IOException e) {
+                // worker died or was killed mid-project
+                int attempt = attempts.merge(project.getName(), 1, Integer::sum);
+                String reason = worker == null ? e.getMessage() : worker.describeExit(e);
+                if (attempt < maxAttempts) {
+                    System.err.println("\tWorker failed on " + project.getName() + " (" + reason + "), retrying");
+                    queue.add(project);
+                } else {
+                    System.err.println("\tWorker failed on " + project.getName() + " (" + reason + "), giving up");
+                    failedProjects.put(project.getName(), reason);
+                    recordFailed(project);
+                }
+                if (worker != null) {
+                    worker.destroy();
+                }
+                worker = null;
+            }
+        }
+        if (worker != null) {
+            worker.shutdown();
+        }
+    }
+
+    private void recordFailed(File project) {
+        Application.countProject(BatchCheckpoint.FAILED);
+        try {
+            checkpoint.record(project, fingerprints.get(project.getName()), BatchCheckpoint.FAILED, null, "", null);
+        } catch (IOException e) {
+            System.err.println("\tCould not record " + project.getName() + " in the checkpoint: " + e.getMessage());
+        }
+    }
+
+    /**
+     * One forked JVM running Application in worker mode.
+     */
+    private class WorkerProcess {
+        private final Process process;
+        private final BufferedReader fromWorker;
+        private final BufferedWriter toWorker;
+        private volatile boolean timedOut = false;
+
+        WorkerProcess() throws IOException {
+            List<String> command = new ArrayList<>();
+            command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+            command.add("-XX:+ExitOnOutOfMemoryError");
+            command.addAll(jvmOptions);
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(Application.class.getName());
+            command.add("--worker");
+            command.addAll(workerArgs);
+
+            process = new ProcessBuilder(command)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+            fromWorker = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+            toWorker = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+
+            String ready;
+            try {
+                ready = fromWorker.readLine();
+            } catch (IOException e) {
+                process.destroyForcibly();
+                throw e;
+            }
+            if (!"READY".equals(ready)) {
+                process.destroyForcibly();
+                throw new IOException("worker did not start");
+            }
+        }
+
+        boolean isAlive() {
+            return process.isAlive();
+        }
+
+        /**
+         * Sends a project and collects its CSV and metrics rows until the worker reports DONE
+         * or ERROR. Rows are only taken over once the project is DONE, so a retried project
+         * never leaves partial rows behind. Throws IOException if the worker goes away before that,
+         * also when it is killed for taking longer than projectTimeoutMillis.
+         */
+        String process(File project) throws IOException {
+            ScheduledFuture<?> timeout = null;
+            if (projectTimeoutMillis > 0) {
+                timeout = watchdog.schedule(() -> {
+                    timedOut = true;
+                    process.destroyForcibly();
+                }, projectTimeoutMillis, TimeUnit.MILLISECONDS);
+            }
+            try {
+                return readResult(project);
+            } finally {
+                if (timeout != null) {
+                    timeout.cancel(false);
+                }
+            }
+        }
+
+        private String readResult(File project) throws IOException {
+            toWorker.write("PROJECT " + project.getAbsolutePath());
+            toWorker.newLine();
+            toWorker.flush();
+
+            StringBuilder rows = new StringBuilder();
+            DetectorMetrics metrics = new DetectorMetrics();
+            List<String> registryRows = new ArrayList<>();
+            String line;
+            while ((line = fromWorker.readLine()) != null) {
+                if (line.startsWith("ROW ")) {
+                    rows.append(line.substring("ROW ".length())).append("\n");
+                } else if (line.startsWith("METRICS ")) {
+                    metrics.addRow(line.substring("METRICS ".length()));
+                } else if (line.startsWith("REGISTRY ")) {
+                    registryRows.add(line.substring("REGISTRY ".length()));
+                } else if (line.startsWith("DONE ")) {
+                    addRegistryRows(registryRows);
+                    Application.writeCsvRows(project, rows.toString());
+                    if (!metrics.isEmpty()) {
+                        Application.addProjectMetrics(project.getName(), metrics);
+                    }
+                    checkpoint.record(project, fingerprints.get(project.getName()), BatchCheckpoint.DONE,
+                            Application.getWrittenJsonFile(project, profile), rows.toString(),
+                            metrics.isEmpty() ? null : metrics);
+                    return line;
+                } else if (line.startsWith("ERROR ")) {
+                    addRegistryRows(registryRows);
+                    return line;
+                }
+            }
+            throw new IOException("worker exited");
+        }
+
+        private void addRegistryRows(List<String> registryRows) {
+            for (String row : registryRows) {
+                MetricsRegistry.getShared().addRow(row);
+            }
+        }
+
+        String describeExit(IOException e) {
+            if (timedOut) {
+                return "worker timed out after " + projectTimeoutMillis + " ms";
+            }
+            try {
+                if (process.waitFor(5, TimeUnit.SECONDS)) {
+                    return "worker exited with code " + process.exitValue();
+                }
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return e.getMessage();
+        }
+
+        void shutdown() {
+            try {
+                toWorker.write("EXIT");
+                toWorker.newLine();
+                toWorker.flush();
+                process.waitFor();
+            } catch (IOException e) {
+                process.destroyForcibly();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                process.destroyForcibly();
+            }
+        }
+
+        void destroy() {
+            process.destroyForcibly();
+        }
+    }
+}
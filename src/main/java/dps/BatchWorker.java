@@ -0,0 +1,85 @@
+package dps;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import dps.designpatternidentifier.DetectorMetrics;
+import dps.projectparser.ParseProject;
+import dps.summarygenerator.Summarise;
+import dps.utils.MetricsRegistry;
+
+/**
+ * Worker side of a multi-process batch run (see BatchCoordinator).
+ *
+ * Line protocol over stdin/stdout:
+ * coordinator -> worker:  PROJECT <absolute path> | EXIT
+ * worker -> coordinator:  READY | ROW <csv row> | METRICS <metrics row> | REGISTRY <registry row>
+ *                         | DONE <project> | ERROR <project> <message>
+ *
+ * Everything the pipeline prints goes to stderr, so stdout only carries protocol lines.
+ * Each worker writes its own JSON output; CSV rows are streamed back so that only the
+ * coordinator writes the summary file. The same goes for the detector metrics (see
+ * DetectorMetrics.toRows) and the phase timings (see MetricsRegistry.takeRows).
+ */
+public class BatchWorker {
+
+    private final PrintStream protocol;
+
+    public BatchWorker() {
+        this.protocol = new PrintStream(System.out, true, StandardCharsets.UTF_8);
+        System.setOut(System.err);
+    }
+
+    public void run(ParseProject parseProject) throws IOException {
+        if (parseProject.getProfile().isWriteCsv()) {
+            Summarise.setCsvRowSink(row -> send("ROW " + row.replace("\n", "")));
+        } else {
+            Summarise.setCsvRowSink(row -> { });
+        }
+
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        send("READY");
+
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.equals("EXIT"))
+                break;
+            if (!line.startsWith("PROJECT "))
+                continue;
+
+            File project = new File(line.substring("PROJECT ".length()));
+            try {
+                DetectorMetrics metrics = Application.processProject(project, parseProject);
+                if (metrics != null) {
+                    for (String row : metrics.toRows()) {
+                        send("METRICS " + row);
+                    }
+                }
+                sendRegistryRows();
+                send("DONE " + project.getName());
+            } catch (OutOfMemoryError e) {
+                // heap state can't be trusted anymore, let the coordinator restart us
+                throw e;
+            } catch (Throwable e) {
+                // e.g. StackOverflowError inside JavaParser: report and carry on with the next project
+                e.printStackTrace();
+                sendRegistryRows();
+                send("ERROR " + project.getName() + " " + String.valueOf(e).replace("\n", " "));
+            }
+        }
+    }
+
+    private void sendRegistryRows() {
+        for (String row : MetricsRegistry.getShared().takeRows()) {
+            send("REGISTRY " + row);
+        }
+    }
+
+    private synchronized void send(String message) {
+        protocol.println(message);
+    }
+}
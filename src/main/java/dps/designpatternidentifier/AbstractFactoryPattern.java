@@ -12,6 +12,7 @@ import dps.utils.Utils;
 // Abstract Factory is a creational design pattern that lets
 // you produce families of related objects without specifying their concrete
 // classes.
+@DetectorInfo(name = "abstract_factory", factAspects = ClassFingerprint.TYPES | ClassFingerprint.METHODS)
 public class AbstractFactoryPattern extends DesignPatterns {
 
     public AbstractFactoryPattern() {
@@ -23,8 +24,20 @@ public class AbstractFactoryPattern extends DesignPatterns {
     // Abstract Products created by Abstract Factory
     // Concrete Factories implement Abstract Factory
     // Concrete Products implement/extend Abstract Products
+
     @Override
-    public HashMap checkPattern(HashMap<String, HashMap> fileDetails) {
+    public LinkedHashMap<String, ScoreCheck> getScoreChecks() {
+        LinkedHashMap<String, ScoreCheck> checks = new LinkedHashMap<>();
+        checks.put("interface", (name, details, files, features) -> features.has(name, ClassFeatures.INTERFACE));
+        checks.put("returns project classes",
+                (name, details, files, features) -> features.has(name, ClassFeatures.RETURNS_PROJECT_TYPE));
+        checks.put("has concrete factories",
+                (name, details, files, features) -> !features.getSubtypes(name).isEmpty());
+        return checks;
+    }
+
+    @Override
+    public HashMap checkPattern(HashMap<String, HashMap> fileDetails, ClassFeatures features) {
         // System.out.print("Pattern: \t");
         // System.out.println(patternName);
 
@@ -34,6 +47,9 @@ public class AbstractFactoryPattern extends DesignPatterns {
         for (Map.Entry<String, HashMap> fileEntry : fileDetails.entrySet()) {
 
             // Only an interface can be an abstract factory
+            if (!features.isCandidate(patternName, fileEntry.getKey(),
+                    ClassFeatures.INTERFACE | ClassFeatures.RETURNS_PROJECT_TYPE))
+                continue;
             boolean isInterfaceOrNot = false;
 
             // ION
@@ -133,7 +149,7 @@ public class AbstractFactoryPattern extends DesignPatterns {
                     cm.setDesignPattern("product");
                     cm.setRelatedClassName(abstractFactory);
 
-                    String concreteProductSentence = sentenceGenerator.generateSentence(cm, mmal, null);
+                    String concreteProductSentence = getSentenceGenerator().generateSentence(cm, mmal, null);
                     summary.put(concreteProduct, concreteProductSentence);
                 }
 
@@ -145,7 +161,7 @@ public class AbstractFactoryPattern extends DesignPatterns {
                 DesignPatternInheritClassMessage apicm = new DesignPatternInheritClassMessage();
                 apicm.setInheritClass(concreteProductsAsText);
 
-                String abstractProductSentence = sentenceGenerator.generateSentence(apcm, null, apicm);
+                String abstractProductSentence = getSentenceGenerator().generateSentence(apcm, null, apicm);
                 summary.put(abstractProduct, abstractProductSentence);
             }
 
@@ -175,7 +191,7 @@ public class AbstractFactoryPattern extends DesignPatterns {
                 cm.setDesignPattern("factory");
                 cm.setRelatedClassName(abstractFactory);
 
-                String concreteFactorySentence = sentenceGenerator.generateSentence(cm, mmal, null);
+                String concreteFactorySentence = getSentenceGenerator().generateSentence(cm, mmal, null);
                 summary.put(concreteFactory, concreteFactorySentence);
             }
 
@@ -189,7 +205,7 @@ public class AbstractFactoryPattern extends DesignPatterns {
             DesignPatternInheritClassMessage aficm = new DesignPatternInheritClassMessage();
             aficm.setInheritClass(concreteFactoriesAsText);
 
-            String abstractFactorySentence = sentenceGenerator.generateSentence(afcm, null, aficm);
+            String abstractFactorySentence = getSentenceGenerator().generateSentence(afcm, null, aficm);
             summary.put(abstractFactory, abstractFactorySentence);
         }
     }
@@ -9,13 +9,60 @@ import dps.summarygenerator.messages.DesignPatternMethodMessage;
 import dps.utils.Utils;
 
 // Adapter is a structural design pattern that allows objects with incompatible interfaces to collaborate.
+// Summary describes which target methods are called from the adapter
+@DetectorInfo(name = "adapter", summaryRequiresCallGraph = true,
+        factAspects = ClassFingerprint.TYPES | ClassFingerprint.METHODS | ClassFingerprint.FIELDS)
 public class AdapterPattern extends DesignPatterns {
     public AdapterPattern() {
         super("adapter");
     }
 
     @Override
-    public HashMap checkPattern(HashMap<String, HashMap> fileDetails) {
+    public LinkedHashMap<String, ScoreCheck> getScoreChecks() {
+        LinkedHashMap<String, ScoreCheck> checks = new LinkedHashMap<>();
+        checks.put("implements a project type",
+                (name, details, files, features) -> !getProjectSupertypes(details, files).isEmpty());
+        checks.put("shares a method with it", (name, details, files, features) -> {
+            for (String target : getProjectSupertypes(details, files)) {
+                for (HashMap methodDetail : Utils.getMethodDetails(details)) {
+                    for (HashMap targetMethodDetail : Utils.getMethodDetails(files.get(target))) {
+                        if (Utils.getMethodName(methodDetail).equals(Utils.getMethodName(targetMethodDetail)))
+                            return true;
+                    }
+                }
+            }
+            return false;
+        });
+        checks.put("wraps another project class", (name, details, files, features) -> {
+            for (HashMap fieldDetail : Utils.getFieldDetails(details)) {
+                if (files.containsKey(Utils.getFieldDataType(fieldDetail)))
+                    return true;
+            }
+            return getProjectSupertypes(details, files).size() > 1;
+        });
+        return checks;
+    }
+
+    /**
+     * Helper method to return the project classes a class extends or implements.
+     */
+    private static Set<String> getProjectSupertypes(HashMap classDetails, HashMap<String, HashMap> fileDetails) {
+        Set<String> supertypes = new LinkedHashSet<>();
+        for (HashMap classDetail : Utils.getClassOrInterfaceDetails(classDetails)) {
+            for (String supertype : Utils.getExtendsFrom(classDetail)) {
+                if (fileDetails.containsKey(supertype))
+                    supertypes.add(supertype);
+            }
+            for (String supertype : Utils.getImplementsFrom(classDetail)) {
+                if (fileDetails.containsKey(supertype))
+                    supertypes.add(supertype);
+            }
+        }
+        return supertypes;
+    }
+
+    @Override
+    public HashMap checkPattern(HashMap<String, HashMap> fileDetails, ClassFeatures features) {
         // System.out.print("Pattern: \t");
         // System.out.println(patternName);
 
@@ -25,7 +72,12 @@ public class AdapterPattern extends DesignPatterns {
         for (Map.Entry<String, HashMap> targetEntry : fileDetails.entrySet()) {
 
             String target = targetEntry.getKey();
+            if (!features.isCandidate(patternName, target, ClassFeatures.HAS_METHODS))
+                continue;
             for (Map.Entry<String, HashMap> adapterEntry : fileDetails.entrySet()) {
+                if (!features.isCandidate(patternName, adapterEntry.getKey(),
+                        ClassFeatures.HAS_SUPERTYPE | ClassFeatures.HAS_METHODS))
+                    continue;
                 for (HashMap adapterClassDetail : Utils.getClassOrInterfaceDetails(adapterEntry.getValue())) {
                     if (!Utils.getImplementsFrom(adapterClassDetail).contains(target) && !Utils
                             .getExtendsFrom(adapterClassDetail).contains(target))
@@ -68,7 +120,7 @@ public class AdapterPattern extends DesignPatterns {
                     }
 
                     // Class Adapter
-                    ArrayList<String> possibleAdaptees = Utils.getExtendsFrom(adapterClassDetail);
+                    ArrayList<String> possibleAdaptees = new ArrayList<>(Utils.getExtendsFrom(adapterClassDetail));
                     possibleAdaptees.addAll(Utils.getImplementsFrom(adapterClassDetail));
                     for (String adaptee : possibleAdaptees) {
                         if (fileDetails.containsKey(adaptee) && !adaptee.equals(target)) {
@@ -128,7 +180,7 @@ public class AdapterPattern extends DesignPatterns {
                         mmal.add(mm);
                     }
 
-                    String targetSentence = sentenceGenerator.generateSentence(cm, mmal, null);
+                    String targetSentence = getSentenceGenerator().generateSentence(cm, mmal, null);
                     summary.put(target, targetSentence);
                 }
 
@@ -154,7 +206,7 @@ public class AdapterPattern extends DesignPatterns {
                     adapteeMmal.add(mm);
                 }
 
-                String adapteeSentence = sentenceGenerator.generateSentence(adapteeCm, adapteeMmal, null);
+                String adapteeSentence = getSentenceGenerator().generateSentence(adapteeCm, adapteeMmal, null);
                 summary.put(adaptee, adapteeSentence);
 
                 // generate adapter sentence
@@ -175,7 +227,7 @@ public class AdapterPattern extends DesignPatterns {
 
                     adapterMmal.add(adapterMm);
                 }
-                String adapterSentence = sentenceGenerator.generateSentence(adapterCm, adapterMmal, null);
+                String adapterSentence = getSentenceGenerator().generateSentence(adapterCm, adapterMmal, null);
                 summary.put(adapter, adapterSentence);
             }
         }
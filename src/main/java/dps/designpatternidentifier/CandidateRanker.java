@@ -0,0 +1,121 @@
+package dps.designpatternidentifier;
+
+import java.util.*;
+
+/**
+ * Scoring mode: ranks the classes of a project by how many structural checks they pass for
+ * the role a detector keys its result by (see DesignPatterns.getScoreChecks).
+ *
+ * An exact match of checkPattern has confidence 1. Any other class passing at least one
+ * check gets passed / (checks + 1), the exact match counting as the last check. Only the
+ * best topK candidates per pattern are kept, in a bounded min-heap. Scoring a pattern stops
+ * after maxCandidates classes or budgetMillis (0 for no limit), exact matches are always
+ * kept.
+ */
+public class CandidateRanker {
+    private final int topK;
+    private final int maxCandidates;
+    private final long budgetMillis;
+
+    public CandidateRanker(int topK, int maxCandidates, long budgetMillis) {
+        this.topK = topK;
+        this.maxCandidates = maxCandidates;
+        this.budgetMillis = budgetMillis;
+    }
+
+    /**
+     * Returns the ranked candidates of a pattern: "candidates" (best first, each with its
+     * class, role, confidence and passed checks), "scored" (classes looked at) and
+     * "truncated" (whether the budget ran out).
+     */
+    public LinkedHashMap<String, Object> rank(DesignPatterns pattern, HashMap<String, HashMap> fileDetails,
+            ClassFeatures features, HashMap output) {
+        LinkedHashMap<String, ScoreCheck> checks = pattern.getScoreChecks();
+        Set<String> matches = getRoots(output.get(pattern.getPatternName()));
+
+        // worst candidate at the head: lowest confidence, then last class name
+        PriorityQueue<Object[]> heap = new PriorityQueue<>((a, b) -> {
+            int byConfidence = Double.compare((double) a[0], (double) b[0]);
+            return byConfidence != 0 ? byConfidence : ((String) b[1]).compareTo((String) a[1]);
+        });
+
+        for (String match : matches) {
+            List<String> passed = runChecks(checks, match, fileDetails, features);
+            passed.add("match");
+            offer(heap, new Object[] {1.0, match, passed});
+        }
+
+        long start = System.nanoTime();
+        int scored = matches.size();
+        boolean truncated = false;
+        for (Map.Entry<String, HashMap> fileEntry : fileDetails.entrySet()) {
+            if (matches.contains(fileEntry.getKey()))
+                continue;
+            if ((maxCandidates > 0 && scored >= maxCandidates)
+                    || (budgetMillis > 0 && System.nanoTime() - start > budgetMillis * 1000000)) {
+                truncated = true;
+                break;
+            }
+            scored++;
+            List<String> passed = runChecks(checks, fileEntry.getKey(), fileDetails, features);
+            if (!passed.isEmpty()) {
+                double confidence = (double) passed.size() / (checks.size() + 1);
+                offer(heap, new Object[] {confidence, fileEntry.getKey(), passed});
+            }
+        }
+
+        ArrayList<Object[]> best = new ArrayList<>(heap);
+        best.sort(heap.comparator().reversed());
+        ArrayList<LinkedHashMap<String, Object>> candidates = new ArrayList<>();
+        for (Object[] candidate : best) {
+            LinkedHashMap<String, Object> entry = new LinkedHashMap<>();
+            entry.put("class", candidate[1]);
+            entry.put("role", pattern.getRootRole());
+            entry.put("confidence", Math.round((double) candidate[0] * 100) / 100.0);
+            entry.put("checks", candidate[2]);
+            candidates.add(entry);
+        }
+
+        LinkedHashMap<String, Object> ranked = new LinkedHashMap<>();
+        ranked.put("candidates", candidates);
+        ranked.put("scored", scored);
+        ranked.put("truncated", truncated);
+        return ranked;
+    }
+
+    private void offer(PriorityQueue<Object[]> heap, Object[] candidate) {
+        heap.add(candidate);
+        if (heap.size() > topK)
+            heap.poll();
+    }
+
+    /**
+     * Helper method to return the names of the checks a class passes.
+     */
+    private static List<String> runChecks(LinkedHashMap<String, ScoreCheck> checks, String className,
+            HashMap<String, HashMap> fileDetails, ClassFeatures features) {
+        List<String> passed = new ArrayList<>();
+        if (fileDetails.get(className) == null)
+            return passed;
+        for (Map.Entry<String, ScoreCheck> check : checks.entrySet()) {
+            if (check.getValue().test(className, fileDetails.get(className), fileDetails, features))
+                passed.add(check.getKey());
+        }
+        return passed;
+    }
+
+    /**
+     * The classes a detector result is keyed by (a list for singleton).
+     */
+    private static Set<String> getRoots(Object patternData) {
+        Set<String> roots = new TreeSet<>();
+        if (patternData instanceof Map) {
+            for (Object root : ((Map<?, ?>) patternData).keySet())
+                roots.add(String.valueOf(root));
+        } else if (patternData instanceof Collection) {
+            for (Object root : (Collection<?>) patternData)
+                roots.add(String.valueOf(root));
+        }
+        return roots;
+    }
+}
@@ -2,22 +2,217 @@ package dps.designpatternidentifier;
 
 import java.util.*;
 
+import dps.projectparser.CallGraph;
+import dps.utils.PipelineEvents;
+
 /**
  * Simplified pattern checker that uses the centralized PatternRegistry.
  */
 public class CheckPattern {
-    
+    private final List<DesignPatterns> patterns;
+
+    // when set, every detector call is measured
+    private DetectorMetrics metrics = null;
+
+    // evaluation budget of each detector (see ClassFeatures.setBudget), 0 for no limit
+    private int maxCandidates = 0;
+    private long budgetMillis = 0;
+
+    // scoring mode: ranked candidates by pattern, filled by extractDesignPattern
+    private CandidateRanker ranker = null;
+    private final LinkedHashMap<String, Object> rankedCandidates = new LinkedHashMap<>();
+    // pattern name -> candidates pruned over budget, for the detectors that ran out of it
+    private final LinkedHashMap<String, Integer> truncatedPatterns = new LinkedHashMap<>();
+
+    public CheckPattern() {
+        this(null);
+    }
+
+    /**
+     * @param enabledPatterns names of the detectors to run, null runs all registered patterns
+     */
+    public CheckPattern(Set<String> enabledPatterns) {
+        this.patterns = PatternRegistry.getPatterns(enabledPatterns);
+    }
+
+    public void setMetrics(DetectorMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public void setBudget(int maxCandidates, long budgetMillis) {
+        this.maxCandidates = maxCandidates;
+        this.budgetMillis = budgetMillis;
+    }
+
+    /**
+     * Turns on scoring mode, see CandidateRanker.
+     */
+    public void setRanker(CandidateRanker ranker) {
+        this.ranker = ranker;
+    }
+
+    public LinkedHashMap<String, Object> getRankedCandidates() {
+        return rankedCandidates;
+    }
+
+    /**
+     * The detectors whose budget ran out in the last run, with the number of candidates they
+     * rejected because of it. Empty when every detector finished.
+     */
+    public LinkedHashMap<String, Integer> getTruncatedPatterns() {
+        return truncatedPatterns;
+    }
+
+    // records whether the pattern ran out of budget in its last run
+    private void recordTruncation(DesignPatterns pattern, ClassFeatures features) {
+        String patternName = pattern.getPatternName();
+        truncatedPatterns.remove(patternName);
+        if (features.isExhausted(patternName)) {
+            truncatedPatterns.put(patternName, features.getBudgetPruned(patternName));
+        }
+    }
+
+    public List<String> getPatternNames() {
+        List<String> names = new ArrayList<>();
+        for (DesignPatterns pattern : patterns) {
+            names.add(pattern.getPatternName());
+        }
+        return names;
+    }
+
+    /**
+     * Whether any of the detectors reads call edges.
+     */
+    public boolean requiresCallGraph() {
+        for (DesignPatterns pattern : patterns) {
+            if (pattern.requiresCallGraph())
+                return true;
+        }
+        return false;
+    }
+
     /**
      * Extracts design patterns from file details using all registered patterns.
      */
-    @SuppressWarnings("unchecked")
     public void extractDesignPattern(HashMap fileDetails, ArrayList designPatternArrayList) {
-        for (DesignPatterns pattern : PatternRegistry.getAllPatterns()) {
-            HashMap output = pattern.checkPattern(fileDetails);
+        extractDesignPattern(fileDetails, designPatternArrayList, null);
+    }
+
+    /**
+     * Extracts design patterns, resolving the call graph first only if a detector reads it.
+     */
+    @SuppressWarnings("unchecked")
+    public void extractDesignPattern(HashMap fileDetails, ArrayList designPatternArrayList, CallGraph callGraph) {
+        ClassFeatures features = new ClassFeatures(fileDetails);
+        features.setBudget(maxCandidates, budgetMillis);
+        truncatedPatterns.clear();
+        for (DesignPatterns pattern : patterns) {
+            if (callGraph != null && pattern.requiresCallGraph()) {
+                callGraph.resolveAll();
+            }
+            HashMap output = checkPattern(pattern, fileDetails, features);
+            recordTruncation(pattern, features);
             if (!output.isEmpty()) {
                 designPatternArrayList.add(output);
             }
+            if (ranker != null) {
+                rankedCandidates.put(pattern.getPatternName(), rank(pattern, fileDetails, features, output));
+            }
         }
+        System.out.println("\tCandidates pruned: " + features.getPruneReport());
     }
-}
 
+    /**
+     * Re-runs only the detectors that read an aspect changed in some class and replaces their
+     * entries of designPatternArrayList in place, keeping the registration order of a full run.
+     * changedAspects maps every added, removed or edited class to its changed ClassFingerprint
+     * aspects. Returns the names of the patterns whose result changed.
+     */
+    @SuppressWarnings("unchecked")
+    public Set<String> updateDesignPattern(HashMap fileDetails, ArrayList designPatternArrayList,
+            HashMap<String, Integer> changedAspects, CallGraph callGraph) {
+        int changedMask = 0;
+        for (int aspects : changedAspects.values()) {
+            changedMask |= aspects;
+        }
+
+        Set<String> changedPatterns = new LinkedHashSet<>();
+        List<String> rerunPatterns = new ArrayList<>();
+        ClassFeatures features = null;
+        int position = 0;
+        for (DesignPatterns pattern : patterns) {
+            HashMap previous = null;
+            if (position < designPatternArrayList.size()
+                    && ((HashMap) designPatternArrayList.get(position)).containsKey(pattern.getPatternName())) {
+                previous = (HashMap) designPatternArrayList.get(position);
+            }
+
+            if ((pattern.getFactAspects() & changedMask) != 0) {
+                if (features == null) {
+                    features = new ClassFeatures(fileDetails);
+                    features.setBudget(maxCandidates, budgetMillis);
+                }
+                if (callGraph != null && pattern.requiresCallGraph()) {
+                    callGraph.resolveAll();
+                }
+                HashMap output = checkPattern(pattern, fileDetails, features);
+                recordTruncation(pattern, features);
+                rerunPatterns.add(pattern.getPatternName());
+                if (!output.equals(previous == null ? new HashMap() : previous)) {
+                    changedPatterns.add(pattern.getPatternName());
+                    if (previous != null) {
+                        designPatternArrayList.remove(position);
+                    }
+                    if (!output.isEmpty()) {
+                        designPatternArrayList.add(position, output);
+                    }
+                    previous = output.isEmpty() ? null : output;
+                }
+            }
+
+            if (previous != null) {
+                position++;
+            }
+        }
+        System.out.println("\tRe-ran detectors: " + (rerunPatterns.isEmpty() ? "none" : String.join(", ", rerunPatterns))
+                + "; changed: " + (changedPatterns.isEmpty() ? "none" : String.join(", ", changedPatterns)));
+        return changedPatterns;
+    }
+
+    /**
+     * Helper method to rank the candidates of a detector, recording the cost in the metrics
+     * if set.
+     */
+    private LinkedHashMap<String, Object> rank(DesignPatterns pattern, HashMap fileDetails, ClassFeatures features,
+            HashMap output) {
+        long[] start = metrics == null ? null : DetectorMetrics.sample();
+        LinkedHashMap<String, Object> ranked = ranker.rank(pattern, fileDetails, features, output);
+        if (metrics != null) {
+            metrics.record(DetectorMetrics.RANK, pattern.getPatternName(), start, (int) ranked.get("scored"),
+                    ((List) ranked.get("candidates")).size());
+        }
+        return ranked;
+    }
+
+    /**
+     * Helper method to run a detector, recording its cost in the metrics if set and as a
+     * flight recorder event if enabled.
+     */
+    private HashMap checkPattern(DesignPatterns pattern, HashMap fileDetails, ClassFeatures features) {
+        PipelineEvents.DetectorEvent event = PipelineEvents.beginDetector();
+        if (metrics == null && event == null)
+            return pattern.checkPattern(fileDetails, features);
+        int tested = features.getCandidatesTested(pattern.getPatternName());
+        long[] start = metrics == null ? null : DetectorMetrics.sample();
+        HashMap output = pattern.checkPattern(fileDetails, features);
+        int candidates = features.getCandidatesTested(pattern.getPatternName()) - tested;
+        int matches = DetectorMetrics.countInstances(output.get(pattern.getPatternName()));
+        if (metrics != null) {
+            metrics.record(DetectorMetrics.DETECT, pattern.getPatternName(), start, candidates, matches);
+        }
+        if (event != null) {
+            event.finish(pattern.getPatternName(), candidates, matches);
+        }
+        return output;
+    }
+}
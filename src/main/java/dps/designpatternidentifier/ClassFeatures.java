@@ -0,0 +1,341 @@
+package dps.designpatternidentifier;
+
+import java.util.*;
+
+import dps.utils.Utils;
+
+/**
+ * Role features of every class of a project, computed in one pass over the extracted facts.
+ *
+ * Each class gets a bitset of the predicates the detectors test over and over (is an
+ * interface, has a private static field of its own type, ...). A detector rejects a class
+ * that can't play a role with a single mask test instead of scanning its raw lists, and
+ * the features count how many candidates each detector pruned that way.
+ */
+public class ClassFeatures {
+
+    public static final int INTERFACE = 1;
+    public static final int HAS_SUPERTYPE = 1 << 1;
+    public static final int HAS_METHODS = 1 << 2;
+    public static final int HAS_FIELDS = 1 << 3;
+    public static final int HAS_VARIABLES = 1 << 4;
+    // private static field of the class's own type
+    public static final int SELF_TYPED_STATIC_FIELD = 1 << 5;
+    // no constructor that isn't private
+    public static final int PRIVATE_CONSTRUCTORS = 1 << 6;
+    // public static method returning the class's own type
+    public static final int STATIC_SELF_FACTORY = 1 << 7;
+    // non-public field whose type is an interface of the project
+    public static final int INTERFACE_TYPED_FIELD = 1 << 8;
+    // method parameter whose type is a class of the project
+    public static final int PROJECT_TYPED_PARAMETER = 1 << 9;
+    // method returning a class of the project
+    public static final int RETURNS_PROJECT_TYPE = 1 << 10;
+
+    private final HashMap<String, Integer> features = new HashMap<>();
+
+    // pattern name -> {candidates tested, candidates pruned, of those pruned over budget}
+    private final LinkedHashMap<String, int[]> pruneCounts = new LinkedHashMap<>();
+
+    private final HashMap<String, HashMap> fileDetails;
+
+    // evaluation budget of each pattern, 0 for no limit: role tests and time since its first test
+    private int maxCandidates = 0;
+    private long budgetNanos = 0;
+    private final HashMap<String, Long> budgetStarts = new HashMap<>();
+    private final LinkedHashSet<String> exhaustedPatterns = new LinkedHashSet<>();
+
+    // built on first use: type name -> classes naming it in extends or implements
+    private HashMap<String, LinkedHashSet<String>> subtypes = null;
+    // built on first use: method return type -> classes with a method returning it
+    private HashMap<String, LinkedHashSet<String>> classesByReturnType = null;
+    // built on first use: field type -> classes declaring a field of that type
+    private LinkedHashMap<String, LinkedHashSet<String>> classesByFieldType = null;
+
+    // built on first use from the call edges: class name <-> id, and per class the ids of the
+    // project classes it calls and of the classes calling it
+    private HashMap<String, Integer> classIds = null;
+    private ArrayList<String> classNames;
+    private HashMap<String, BitSet> calleeClasses;
+    private HashMap<String, BitSet> callerClasses;
+
+    public ClassFeatures(HashMap<String, HashMap> fileDetails) {
+        this.fileDetails = fileDetails;
+        for (Map.Entry<String, HashMap> fileEntry : fileDetails.entrySet()) {
+            features.put(fileEntry.getKey(), getClassFeatures(fileEntry.getKey(), fileEntry.getValue(), fileDetails));
+        }
+
+        // needs the interface bit of the field types
+        for (Map.Entry<String, HashMap> fileEntry : fileDetails.entrySet()) {
+            for (HashMap fieldDetail : Utils.getFieldDetails(fileEntry.getValue())) {
+                if (has(Utils.getFieldDataType(fieldDetail), INTERFACE)
+                        && !Utils.getFieldModifierType(fieldDetail).contains("public")) {
+                    features.merge(fileEntry.getKey(), INTERFACE_TYPED_FIELD, (a, b) -> a | b);
+                    break;
+                }
+            }
+        }
+    }
+
+    private static int getClassFeatures(String className, HashMap classDetails, HashMap<String, HashMap> fileDetails) {
+        int bits = 0;
+
+        for (HashMap classDetail : Utils.getClassOrInterfaceDetails(classDetails)) {
+            if (Utils.isInterfaceOrNot(classDetail))
+                bits |= INTERFACE;
+            if (!Utils.getExtendsFrom(classDetail).isEmpty() || !Utils.getImplementsFrom(classDetail).isEmpty())
+                bits |= HAS_SUPERTYPE;
+        }
+
+        if (!Utils.getVariableDetails(classDetails).isEmpty())
+            bits |= HAS_VARIABLES;
+
+        for (HashMap fieldDetail : Utils.getFieldDetails(classDetails)) {
+            bits |= HAS_FIELDS;
+            if (Utils.getFieldDataType(fieldDetail).equals(className)
+                    && Utils.getFieldModifierType(fieldDetail).contains("private")
+                    && Utils.getFieldModifierType(fieldDetail).contains("static"))
+                bits |= SELF_TYPED_STATIC_FIELD;
+        }
+
+        bits |= PRIVATE_CONSTRUCTORS;
+        for (HashMap constructorDetail : Utils.getConstructorDetails(classDetails)) {
+            if (!Utils.getConstructorModifier(constructorDetail).contains("private")) {
+                bits &= ~PRIVATE_CONSTRUCTORS;
+                break;
+            }
+        }
+
+        for (HashMap methodDetail : Utils.getMethodDetails(classDetails)) {
+            bits |= HAS_METHODS;
+            String methodReturnType = Utils.getMethodReturnType(methodDetail);
+            if (fileDetails.containsKey(methodReturnType))
+                bits |= RETURNS_PROJECT_TYPE;
+            if (methodReturnType.equals(className)
+                    && Utils.getMethodModifierType(methodDetail).contains("public")
+                    && Utils.getMethodModifierType(methodDetail).contains("static"))
+                bits |= STATIC_SELF_FACTORY;
+            for (HashMap parameter : Utils.getMethodParameters(methodDetail)) {
+                if (fileDetails.containsKey(Utils.getParameterType(parameter)))
+                    bits |= PROJECT_TYPED_PARAMETER;
+            }
+        }
+        return bits;
+    }
+
+    public int get(String className) {
+        return features.getOrDefault(className, 0);
+    }
+
+    public boolean has(String className, int mask) {
+        return (get(className) & mask) == mask;
+    }
+
+    /**
+     * Returns the classes that name typeName in an extends or implements clause.
+     */
+    public Set<String> getSubtypes(String typeName) {
+        if (subtypes == null) {
+            subtypes = new HashMap<>();
+            for (Map.Entry<String, HashMap> fileEntry : fileDetails.entrySet()) {
+                for (HashMap classDetail : Utils.getClassOrInterfaceDetails(fileEntry.getValue())) {
+                    for (String supertype : Utils.getExtendsFrom(classDetail)) {
+                        subtypes.computeIfAbsent(supertype, key -> new LinkedHashSet<>()).add(fileEntry.getKey());
+                    }
+                    for (String supertype : Utils.getImplementsFrom(classDetail)) {
+                        subtypes.computeIfAbsent(supertype, key -> new LinkedHashSet<>()).add(fileEntry.getKey());
+                    }
+                }
+            }
+        }
+        return subtypes.getOrDefault(typeName, new LinkedHashSet<>());
+    }
+
+    /**
+     * Returns the classes with a method returning typeName.
+     */
+    public Set<String> getClassesReturning(String typeName) {
+        if (classesByReturnType == null) {
+            classesByReturnType = new HashMap<>();
+            for (Map.Entry<String, HashMap> fileEntry : fileDetails.entrySet()) {
+                for (HashMap methodDetail : Utils.getMethodDetails(fileEntry.getValue())) {
+                    classesByReturnType.computeIfAbsent(Utils.getMethodReturnType(methodDetail),
+                            key -> new LinkedHashSet<>()).add(fileEntry.getKey());
+                }
+            }
+        }
+        return classesByReturnType.getOrDefault(typeName, new LinkedHashSet<>());
+    }
+
+    /**
+     * Returns the classes with a field whose type contains typeName, e.g. List<Memento> for
+     * Memento. Only the distinct field types of the project are scanned.
+     */
+    public Set<String> getClassesWithFieldTypeContaining(String typeName) {
+        if (classesByFieldType == null) {
+            classesByFieldType = new LinkedHashMap<>();
+            for (Map.Entry<String, HashMap> fileEntry : fileDetails.entrySet()) {
+                for (HashMap fieldDetail : Utils.getFieldDetails(fileEntry.getValue())) {
+                    classesByFieldType.computeIfAbsent(Utils.getFieldDataType(fieldDetail),
+                            key -> new LinkedHashSet<>()).add(fileEntry.getKey());
+                }
+            }
+        }
+        LinkedHashSet<String> classes = new LinkedHashSet<>();
+        for (Map.Entry<String, LinkedHashSet<String>> entry : classesByFieldType.entrySet()) {
+            if (entry.getKey().contains(typeName))
+                classes.addAll(entry.getValue());
+        }
+        return classes;
+    }
+
+    /**
+     * Helper method to collect the distinct callee and caller classes of every class once,
+     * so call-graph detectors compare class sets instead of walking the edges. Project
+     * classes get the first ids, callers from outside the project are numbered as they come.
+     * Call edges must be resolved before the first use.
+     */
+    private void indexCalls() {
+        classIds = new HashMap<>();
+        classNames = new ArrayList<>();
+        calleeClasses = new HashMap<>();
+        callerClasses = new HashMap<>();
+        for (String className : fileDetails.keySet()) {
+            getOrAddClassId(className);
+        }
+        for (Map.Entry<String, HashMap> fileEntry : fileDetails.entrySet()) {
+            BitSet callees = new BitSet(classNames.size());
+            BitSet callers = new BitSet(classNames.size());
+            for (HashMap methodDetail : Utils.getMethodDetails(fileEntry.getValue())) {
+                for (HashMap outgoingMethod : Utils.getOutgoingMethod(methodDetail)) {
+                    String outgoingMethodClass = Utils.getOutgoingMethodClass(outgoingMethod);
+                    if (fileDetails.containsKey(outgoingMethodClass) && !outgoingMethodClass.equals(fileEntry.getKey()))
+                        callees.set(classIds.get(outgoingMethodClass));
+                }
+                for (HashMap incomingMethod : Utils.getIncomingMethod(methodDetail)) {
+                    callers.set(getOrAddClassId(Utils.getIncomingMethodClass(incomingMethod)));
+                }
+            }
+            calleeClasses.put(fileEntry.getKey(), callees);
+            callerClasses.put(fileEntry.getKey(), callers);
+        }
+    }
+
+    private int getOrAddClassId(String className) {
+        Integer id = classIds.get(className);
+        if (id == null) {
+            id = classNames.size();
+            classIds.put(className, id);
+            classNames.add(className);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the id of a class in the call sets, -1 if it neither is a project class nor
+     * calls one.
+     */
+    public int getClassId(String className) {
+        if (classIds == null)
+            indexCalls();
+        return classIds.getOrDefault(className, -1);
+    }
+
+    public String getClassName(int classId) {
+        if (classIds == null)
+            indexCalls();
+        return classNames.get(classId);
+    }
+
+    /**
+     * Returns the ids of the other project classes a class calls. Shared, not to be modified.
+     */
+    public BitSet getCalleeClasses(String className) {
+        if (classIds == null)
+            indexCalls();
+        return calleeClasses.getOrDefault(className, new BitSet());
+    }
+
+    /**
+     * Returns the ids of the classes calling a class, itself included. Shared, not to be
+     * modified.
+     */
+    public BitSet getCallerClasses(String className) {
+        if (classIds == null)
+            indexCalls();
+        return callerClasses.getOrDefault(className, new BitSet());
+    }
+
+    /**
+     * Limits the role tests of each pattern to maxCandidates, or to budgetMillis from its
+     * first test (0 for no limit). Once over budget, isCandidate rejects every class, so
+     * the detector finishes with what it found until then.
+     */
+    public void setBudget(int maxCandidates, long budgetMillis) {
+        this.maxCandidates = maxCandidates;
+        this.budgetNanos = budgetMillis * 1000000;
+    }
+
+    public boolean isExhausted(String patternName) {
+        return exhaustedPatterns.contains(patternName);
+    }
+
+    /**
+     * Mask test used by the detectors, counted in the prune report of the pattern.
+     */
+    public boolean isCandidate(String patternName, String className, int mask) {
+        int[] counts = pruneCounts.computeIfAbsent(patternName, key -> new int[3]);
+        counts[0]++;
+        if (isOverBudget(patternName, counts[0])) {
+            counts[1]++;
+            counts[2]++;
+            return false;
+        }
+        if (has(className, mask))
+            return true;
+        counts[1]++;
+        return false;
+    }
+
+    private boolean isOverBudget(String patternName, int tested) {
+        if (maxCandidates == 0 && budgetNanos == 0)
+            return false;
+        if (exhaustedPatterns.contains(patternName))
+            return true;
+        long start = budgetStarts.computeIfAbsent(patternName, key -> System.nanoTime());
+        if ((maxCandidates > 0 && tested > maxCandidates)
+                || (budgetNanos > 0 && System.nanoTime() - start > budgetNanos)) {
+            exhaustedPatterns.add(patternName);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Number of mask tests the pattern made so far.
+     */
+    public int getCandidatesTested(String patternName) {
+        int[] counts = pruneCounts.get(patternName);
+        return counts == null ? 0 : counts[0];
+    }
+
+    /**
+     * Number of mask tests the pattern failed only because it was over budget.
+     */
+    public int getBudgetPruned(String patternName) {
+        int[] counts = pruneCounts.get(patternName);
+        return counts == null ? 0 : counts[2];
+    }
+
+    /**
+     * Returns "pattern pruned/tested" for every detector that used the features.
+     */
+    public String getPruneReport() {
+        ArrayList<String> report = new ArrayList<>();
+        for (Map.Entry<String, int[]> entry : pruneCounts.entrySet()) {
+            report.add(entry.getKey() + " " + entry.getValue()[1] + "/" + entry.getValue()[0]
+                    + (exhaustedPatterns.contains(entry.getKey()) ? " (out of budget)" : ""));
+        }
+        return String.join(", ", report);
+    }
+}
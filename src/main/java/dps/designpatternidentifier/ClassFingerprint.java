@@ -0,0 +1,80 @@
+package dps.designpatternidentifier;
+
+import java.util.*;
+
+import dps.utils.Utils;
+
+/**
+ * Snapshot of the facts of one class, split into the aspects the detectors read.
+ *
+ * Incremental re-detection compares the fingerprints of a changed class before and after
+ * the change: a detector only runs again when an aspect it reads differs (see
+ * DesignPatterns.getFactAspects). Adding or removing a class changes every aspect, since
+ * the detectors also look up which class names exist.
+ */
+public class ClassFingerprint {
+
+    // class and interface declarations: kind, modifiers, extends and implements
+    public static final int TYPES = 1;
+    // method signatures: name, return type, modifiers, parameters, @Override
+    public static final int METHODS = 1 << 1;
+    public static final int FIELDS = 1 << 2;
+    public static final int CONSTRUCTORS = 1 << 3;
+    // method bodies: local variables and the incoming/outgoing call edges
+    public static final int BODY = 1 << 4;
+    public static final int ALL = TYPES | METHODS | FIELDS | CONSTRUCTORS | BODY;
+
+    private final String[] aspects = new String[5];
+
+    public ClassFingerprint(HashMap classDetails) {
+        StringBuilder types = new StringBuilder();
+        for (HashMap classDetail : Utils.getClassOrInterfaceDetails(classDetails)) {
+            types.append(Utils.getClassName(classDetail)).append(Utils.isInterfaceOrNot(classDetail))
+                    .append(Utils.getClassModifierType(classDetail)).append(Utils.getExtendsFrom(classDetail))
+                    .append(Utils.getImplementsFrom(classDetail)).append(';');
+        }
+
+        StringBuilder methods = new StringBuilder();
+        StringBuilder body = new StringBuilder();
+        for (HashMap methodDetail : Utils.getMethodDetails(classDetails)) {
+            methods.append(Utils.getMethodName(methodDetail)).append(Utils.getMethodReturnType(methodDetail))
+                    .append(Utils.getMethodModifierType(methodDetail)).append(Utils.isMethodOverride(methodDetail))
+                    .append(Utils.getMethodParameters(methodDetail)).append(';');
+            body.append(Utils.getOutgoingMethod(methodDetail)).append(Utils.getIncomingMethod(methodDetail)).append(';');
+        }
+        body.append(Utils.getVariableDetails(classDetails).size());
+
+        StringBuilder fields = new StringBuilder();
+        for (HashMap fieldDetail : Utils.getFieldDetails(classDetails)) {
+            fields.append(Utils.getFieldDataType(fieldDetail)).append(Utils.getFieldModifierType(fieldDetail))
+                    .append(';');
+        }
+
+        StringBuilder constructors = new StringBuilder();
+        for (HashMap constructorDetail : Utils.getConstructorDetails(classDetails)) {
+            constructors.append(Utils.getConstructorModifier(constructorDetail));
+            constructors.append(Utils.getConstructorParameters(constructorDetail)).append(';');
+        }
+
+        aspects[0] = types.toString();
+        aspects[1] = methods.toString();
+        aspects[2] = fields.toString();
+        aspects[3] = constructors.toString();
+        aspects[4] = body.toString();
+    }
+
+    /**
+     * Returns the aspects that differ between two fingerprints of a class, ALL when the class
+     * was added or removed (either fingerprint null).
+     */
+    public static int getChangedAspects(ClassFingerprint before, ClassFingerprint after) {
+        if (before == null || after == null)
+            return before == after ? 0 : ALL;
+        int changed = 0;
+        for (int i = 0; i < before.aspects.length; i++) {
+            if (!before.aspects[i].equals(after.aspects[i]))
+                changed |= 1 << i;
+        }
+        return changed;
+    }
+}
@@ -12,19 +12,65 @@ import dps.utils.Utils;
 // Decorator is a structural design pattern that lets you attach new behaviors
 // to objects by placing these objects inside special wrapper objects that
 // contain the behaviors.
+@DetectorInfo(name = "decorator", factAspects = ClassFingerprint.ALL & ~ClassFingerprint.BODY)
 public class DecoratorPattern extends DesignPatterns {
     public DecoratorPattern() {
         super("decorator");
     }
 
     @Override
-    public HashMap checkPattern(HashMap<String, HashMap> fileDetails) {
+    public LinkedHashMap<String, ScoreCheck> getScoreChecks() {
+        LinkedHashMap<String, ScoreCheck> checks = new LinkedHashMap<>();
+        checks.put("implements a project interface",
+                (name, details, files, features) -> !getComponents(details, features).isEmpty());
+        checks.put("keeps the component in a non-public field", (name, details, files, features) -> {
+            Set<String> components = getComponents(details, features);
+            for (HashMap fieldDetail : Utils.getFieldDetails(details)) {
+                if (components.contains(Utils.getFieldDataType(fieldDetail))
+                        && !Utils.getFieldModifierType(fieldDetail).contains("public"))
+                    return true;
+            }
+            return false;
+        });
+        checks.put("takes the component in a public constructor", (name, details, files, features) -> {
+            Set<String> components = getComponents(details, features);
+            for (HashMap constructorDetail : Utils.getConstructorDetails(details)) {
+                for (HashMap constructorParameter : Utils.getConstructorParameters(constructorDetail)) {
+                    if (components.contains(Utils.getParameterType(constructorParameter))
+                            && Utils.getConstructorModifier(constructorDetail).contains("public"))
+                        return true;
+                }
+            }
+            return false;
+        });
+        checks.put("has concrete decorators", (name, details, files, features) -> !features.getSubtypes(name).isEmpty());
+        return checks;
+    }
+
+    /**
+     * Helper method to return the project interfaces a class implements.
+     */
+    private static Set<String> getComponents(HashMap classDetails, ClassFeatures features) {
+        Set<String> components = new LinkedHashSet<>();
+        for (HashMap classDetail : Utils.getClassOrInterfaceDetails(classDetails)) {
+            for (String component : Utils.getImplementsFrom(classDetail)) {
+                if (features.has(component, ClassFeatures.INTERFACE))
+                    components.add(component);
+            }
+        }
+        return components;
+    }
+
+    @Override
+    public HashMap checkPattern(HashMap<String, HashMap> fileDetails, ClassFeatures features) {
         HashMap output = new HashMap<>();
         HashMap decorators = new HashMap<>();
 
         // Find component (has to be an interface)
         for (Map.Entry<String, HashMap> fileEntry : fileDetails.entrySet()) {
 
+            if (!features.isCandidate(patternName, fileEntry.getKey(), ClassFeatures.INTERFACE))
+                continue;
             boolean hasInterface = false;
             for (HashMap classDetail : Utils.getClassOrInterfaceDetails(fileEntry.getValue())) {
                 if (Utils.isInterfaceOrNot(classDetail)) {
@@ -49,6 +95,9 @@ public class DecoratorPattern extends DesignPatterns {
 
                     if (Utils.getImplementsFrom(classDetail).contains(component)) {
                         possibleConcreteComponents.add(possibleConcreteComponentOrDecorator.getKey());
+                        if (!features.isCandidate(patternName, possibleConcreteComponentOrDecorator.getKey(),
+                                ClassFeatures.INTERFACE_TYPED_FIELD))
+                            continue;
 
                         // Decorator must have a non-public field of type Component
                         boolean hasField = false;
@@ -176,7 +225,7 @@ public class DecoratorPattern extends DesignPatterns {
                     mmal.add(mm);
                 }
 
-                String concreteDecoratorSentence = sentenceGenerator.generateSentence(cm, mmal, null);
+                String concreteDecoratorSentence = getSentenceGenerator().generateSentence(cm, mmal, null);
                 summary.put(concreteDecorator, concreteDecoratorSentence);
             }
 
@@ -203,7 +252,7 @@ public class DecoratorPattern extends DesignPatterns {
                         mmal.add(mm);
                     }
 
-                    String concreteComponentSentence = sentenceGenerator.generateSentence(cm, mmal, null);
+                    String concreteComponentSentence = getSentenceGenerator().generateSentence(cm, mmal, null);
                     summary.put(concreteComponent, concreteComponentSentence);
                 }
 
@@ -216,7 +265,7 @@ public class DecoratorPattern extends DesignPatterns {
                 DesignPatternInheritClassMessage cicm = new DesignPatternInheritClassMessage();
                 cicm.setInheritClass(concreteComponents);
 
-                String componentSentence = sentenceGenerator.generateSentence(ccm, null, cicm);
+                String componentSentence = getSentenceGenerator().generateSentence(ccm, null, cicm);
                 summary.put(component, componentSentence);
             }
 
@@ -231,7 +280,7 @@ public class DecoratorPattern extends DesignPatterns {
             DesignPatternInheritClassMessage dicm = new DesignPatternInheritClassMessage();
             dicm.setInheritClass(concreteDecorators);
 
-            String decoratorSentence = sentenceGenerator.generateSentence(dcm, null, dicm);
+            String decoratorSentence = getSentenceGenerator().generateSentence(dcm, null, dicm);
             summary.put(decorator, decoratorSentence);
         }
     }
@@ -10,7 +10,7 @@ public abstract class DesignPatterns {
     protected String patternName;
     protected String patternNameAsText;
 
-    protected SentenceGenerator sentenceGenerator = new SentenceGenerator();
+    private final SentenceGenerator sentenceGenerator = new SentenceGenerator();
 
     public DesignPatterns(String patternName) {
         this.patternName = patternName;
@@ -21,7 +21,61 @@ public abstract class DesignPatterns {
         return patternName;
     }
 
-    public abstract HashMap checkPattern(HashMap<String, HashMap> fileDetails);
+    protected SentenceGenerator getSentenceGenerator() {
+        return sentenceGenerator;
+    }
+
+    /**
+     * Whether checkPattern reads INCOMINGMETHOD/OUTGOINGMETHOD. Detectors that don't can run
+     * without any symbol solving. Taken from DetectorInfo, false without it.
+     */
+    public boolean requiresCallGraph() {
+        DetectorInfo info = getClass().getAnnotation(DetectorInfo.class);
+        return info != null && info.requiresCallGraph();
+    }
+
+    /**
+     * Whether summarise reads INCOMINGMETHOD/OUTGOINGMETHOD.
+     */
+    public boolean summaryRequiresCallGraph() {
+        DetectorInfo info = getClass().getAnnotation(DetectorInfo.class);
+        return requiresCallGraph() || (info != null && info.summaryRequiresCallGraph());
+    }
+
+    /**
+     * The ClassFingerprint aspects checkPattern reads. Incremental re-detection keeps the
+     * previous result when none of them changed in any class. Taken from DetectorInfo, all
+     * aspects without it.
+     */
+    public int getFactAspects() {
+        DetectorInfo info = getClass().getAnnotation(DetectorInfo.class);
+        return info != null ? info.factAspects() : ClassFingerprint.ALL;
+    }
+
+    /**
+     * Role of the classes checkPattern keys its result by, e.g. "adapter".
+     */
+    public String getRootRole() {
+        return patternName;
+    }
+
+    /**
+     * Structural checks by name of a class playing the root role, used to rank near misses
+     * in scoring mode (see CandidateRanker). Detectors without checks only rank exact matches.
+     */
+    public LinkedHashMap<String, ScoreCheck> getScoreChecks() {
+        return new LinkedHashMap<>();
+    }
+
+    public HashMap checkPattern(HashMap<String, HashMap> fileDetails) {
+        return checkPattern(fileDetails, new ClassFeatures(fileDetails));
+    }
+
+    /**
+     * @param features role features of the classes in fileDetails, used to skip classes
+     *                 that can't play a role before scanning their details
+     */
+    public abstract HashMap checkPattern(HashMap<String, HashMap> fileDetails, ClassFeatures features);
 
     public abstract void summarise(HashMap<String, HashMap> fileDetails,
             HashMap designPatternDetails, MultiValuedMap<String, String> summary);
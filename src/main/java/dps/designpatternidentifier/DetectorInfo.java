@@ -0,0 +1,28 @@
+package dps.designpatternidentifier;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Describes a detector to PatternRegistry without creating it, so detectors the run doesn't
+ * enable are never instantiated and the pipeline can plan its phases from this metadata.
+ * Also the default of the matching DesignPatterns methods.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface DetectorInfo {
+
+    /** Pattern name, as passed to the DesignPatterns constructor. */
+    String name();
+
+    /** The ClassFingerprint aspects checkPattern reads. */
+    int factAspects() default ClassFingerprint.ALL;
+
+    /** Whether checkPattern reads INCOMINGMETHOD/OUTGOINGMETHOD. */
+    boolean requiresCallGraph() default false;
+
+    /** Whether summarise reads INCOMINGMETHOD/OUTGOINGMETHOD, implied by requiresCallGraph. */
+    boolean summaryRequiresCallGraph() default false;
+}
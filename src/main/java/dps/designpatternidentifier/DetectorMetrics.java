@@ -0,0 +1,149 @@
+package dps.designpatternidentifier;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+
+/**
+ * Wall time, CPU time, allocated bytes, candidates and matches of the detector calls of a
+ * project (or of a whole run, see add).
+ *
+ * Counters are kept by phase and pattern name. In the DETECT phase candidates are the role
+ * tests a detector made on classes (see ClassFeatures.isCandidate) and matches the pattern
+ * instances it found; in the SUMMARISE phase candidates are the instances summarised and
+ * matches the classes that got sentences; in the RANK phase (scoring mode) candidates are
+ * the classes scored and matches the ranked candidates kept.
+ */
+public class DetectorMetrics {
+
+    public static final String DETECT = "detect";
+    public static final String SUMMARISE = "summarise";
+    public static final String RANK = "rank";
+
+    // calls, wall ns, cpu ns, allocated bytes, candidates, matches
+    private static final int CALLS = 0, WALL = 1, CPU = 2, ALLOCATED = 3, CANDIDATES = 4, MATCHES = 5;
+
+    private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+    // phase + " " + pattern name -> counters
+    private final LinkedHashMap<String, long[]> counters = new LinkedHashMap<>();
+
+    /**
+     * Helper method to read the clocks of the current thread, passed back to record once
+     * the measured call returned. CPU time and allocated bytes are 0 when the JVM can't
+     * measure them.
+     */
+    public static long[] sample() {
+        long cpu = threadBean.isCurrentThreadCpuTimeSupported() ? threadBean.getCurrentThreadCpuTime() : 0;
+        long allocated = 0;
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+            if (allocationBean.isThreadAllocatedMemorySupported() && allocationBean.isThreadAllocatedMemoryEnabled())
+                allocated = allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return new long[] {System.nanoTime(), cpu, allocated};
+    }
+
+    public synchronized void record(String phase, String patternName, long[] start, long candidates, long matches) {
+        long[] end = sample();
+        long[] values = counters.computeIfAbsent(phase + " " + patternName, key -> new long[6]);
+        values[CALLS]++;
+        values[WALL] += end[0] - start[0];
+        values[CPU] += Math.max(0, end[1] - start[1]);
+        values[ALLOCATED] += Math.max(0, end[2] - start[2]);
+        values[CANDIDATES] += candidates;
+        values[MATCHES] += matches;
+    }
+
+    /**
+     * Adds the counters of another project, e.g. to sum up a run.
+     */
+    public synchronized void add(DetectorMetrics other) {
+        for (String row : other.toRows()) {
+            addRow(row);
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        return counters.isEmpty();
+    }
+
+    public synchronized long getWallNanos(String phase, String patternName) {
+        return counters.getOrDefault(phase + " " + patternName, new long[6])[WALL];
+    }
+
+    public synchronized long getMatches(String phase, String patternName) {
+        return counters.getOrDefault(phase + " " + patternName, new long[6])[MATCHES];
+    }
+
+    /**
+     * Returns "phase pattern" for every measured detector, in first-call order.
+     */
+    public synchronized List<String> getKeys() {
+        return new ArrayList<>(counters.keySet());
+    }
+
+    /**
+     * Helper method to turn the counters into lines of "phase pattern calls wall cpu allocated
+     * candidates matches", as streamed back by batch workers.
+     */
+    public synchronized List<String> toRows() {
+        List<String> rows = new ArrayList<>();
+        for (Map.Entry<String, long[]> entry : counters.entrySet()) {
+            StringBuilder row = new StringBuilder(entry.getKey());
+            for (long value : entry.getValue()) {
+                row.append(' ').append(value);
+            }
+            rows.add(row.toString());
+        }
+        return rows;
+    }
+
+    /**
+     * Adds a line written by toRows.
+     */
+    public synchronized void addRow(String row) {
+        String[] parts = row.trim().split(" ");
+        if (parts.length != 8)
+            throw new IllegalArgumentException("Malformed metrics row: " + row);
+        long[] values = counters.computeIfAbsent(parts[0] + " " + parts[1], key -> new long[6]);
+        for (int i = 0; i < values.length; i++) {
+            values[i] += Long.parseLong(parts[i + 2]);
+        }
+    }
+
+    /**
+     * Helper method to build the JSON structure phase -> pattern -> counters, times in ms.
+     */
+    public synchronized LinkedHashMap<String, LinkedHashMap<String, Object>> toMap() {
+        LinkedHashMap<String, LinkedHashMap<String, Object>> map = new LinkedHashMap<>();
+        for (Map.Entry<String, long[]> entry : counters.entrySet()) {
+            String[] key = entry.getKey().split(" ");
+            long[] values = entry.getValue();
+            LinkedHashMap<String, Object> pattern = new LinkedHashMap<>();
+            pattern.put("calls", values[CALLS]);
+            pattern.put("wall_ms", toMillis(values[WALL]));
+            pattern.put("cpu_ms", toMillis(values[CPU]));
+            pattern.put("allocated_bytes", values[ALLOCATED]);
+            pattern.put("candidates", values[CANDIDATES]);
+            pattern.put("matches", values[MATCHES]);
+            map.computeIfAbsent(key[0], phase -> new LinkedHashMap<>()).put(key[1], pattern);
+        }
+        return map;
+    }
+
+    public static double toMillis(long nanos) {
+        return Math.round(nanos / 1000.0) / 1000.0;
+    }
+
+    /**
+     * Number of instances in the data a detector found, e.g. the size of its map of roots.
+     */
+    public static int countInstances(Object patternData) {
+        if (patternData instanceof Collection)
+            return ((Collection<?>) patternData).size();
+        if (patternData instanceof Map)
+            return ((Map<?, ?>) patternData).size();
+        return patternData == null ? 0 : 1;
+    }
+}
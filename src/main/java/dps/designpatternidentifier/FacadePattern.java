@@ -9,34 +9,55 @@ import dps.summarygenerator.messages.DesignPatternMethodMessage;
 import dps.utils.Utils;
 
 // Facade is a structural design pattern that provides a simplified interface to a library, a framework, or any other complex set of classes.
+// Subsystems are found through outgoing calls, exclusivity through incoming calls
+@DetectorInfo(name = "facade", requiresCallGraph = true,
+        factAspects = ClassFingerprint.METHODS | ClassFingerprint.BODY)
 public class FacadePattern extends DesignPatterns {
     public FacadePattern() {
         super("facade");
     }
 
     @Override
-    public HashMap checkPattern(HashMap<String, HashMap> fileDetails) {
+    public LinkedHashMap<String, ScoreCheck> getScoreChecks() {
+        LinkedHashMap<String, ScoreCheck> checks = new LinkedHashMap<>();
+        checks.put("methods without local variables", (name, details, files, features) ->
+                features.has(name, ClassFeatures.HAS_METHODS) && !features.has(name, ClassFeatures.HAS_VARIABLES));
+        checks.put("calls other project classes",
+                (name, details, files, features) -> !features.getCalleeClasses(name).isEmpty());
+        checks.put("calls several project classes",
+                (name, details, files, features) -> features.getCalleeClasses(name).cardinality() > 1);
+        checks.put("only caller of a subsystem", (name, details, files, features) -> {
+            BitSet calleeClasses = features.getCalleeClasses(name);
+            int facadeId = features.getClassId(name);
+            for (int id = calleeClasses.nextSetBit(0); id >= 0; id = calleeClasses.nextSetBit(id + 1)) {
+                BitSet callerClasses = features.getCallerClasses(features.getClassName(id));
+                if (callerClasses.cardinality() == 1 && callerClasses.get(facadeId))
+                    return true;
+            }
+            return false;
+        });
+        return checks;
+    }
+
+    @Override
+    public HashMap checkPattern(HashMap<String, HashMap> fileDetails, ClassFeatures features) {
         HashMap output = new HashMap<>();
         HashMap possibleFacades = new HashMap<>();
 
         for (Map.Entry<String, HashMap> fileEntry : fileDetails.entrySet()) {
 
             // Facade can not be the main system
-            if (!Utils.getVariableDetails(fileEntry.getValue()).isEmpty())
+            if (!features.isCandidate(patternName, fileEntry.getKey(), ClassFeatures.HAS_METHODS)
+                    || features.has(fileEntry.getKey(), ClassFeatures.HAS_VARIABLES))
                 continue;
 
-            for (HashMap methodDetail : Utils.getMethodDetails(fileEntry.getValue())) {
-                for (HashMap outgoingMethod : (ArrayList<HashMap>) Utils.getOutgoingMethod(methodDetail)) {
-
-                    String outgoingMethodClass = Utils.getOutgoingMethodClass(outgoingMethod);
-                    if (fileDetails.containsKey(outgoingMethodClass)
-                            && !outgoingMethodClass.equals(fileEntry.getKey())) {
-
-                        if (!possibleFacades.containsKey(fileEntry.getKey()))
-                            possibleFacades.put(fileEntry.getKey(), new HashSet<String>());
-                        ((Set) possibleFacades.get(fileEntry.getKey())).add(outgoingMethodClass);
-                    }
+            BitSet calleeClasses = features.getCalleeClasses(fileEntry.getKey());
+            if (!calleeClasses.isEmpty()) {
+                HashSet<String> subsystems = new HashSet<>();
+                for (int id = calleeClasses.nextSetBit(0); id >= 0; id = calleeClasses.nextSetBit(id + 1)) {
+                    subsystems.add(features.getClassName(id));
                 }
+                possibleFacades.put(fileEntry.getKey(), subsystems);
             }
 
             // Needs to call/create multiple classes
@@ -61,20 +82,13 @@ public class FacadePattern extends DesignPatterns {
         for (Map.Entry<String, Set<String>> facadeDetails : ((HashMap<String, Set<String>>) possibleFacades)
                 .entrySet()) {
             String facade = facadeDetails.getKey();
+            int facadeId = features.getClassId(facade);
             ArrayList<String> exclusiveSubsystems = new ArrayList<>();
             for (String subsystem : facadeDetails.getValue()) {
 
-                HashMap subsystemDetails = fileDetails.get(subsystem);
-                boolean isExclusiveSubsystem = true;
-                for (HashMap methodDetail : Utils.getMethodDetails(subsystemDetails)) {
-                    for (HashMap incomingMethod : (ArrayList<HashMap>) Utils.getIncomingMethod(methodDetail)) {
-                        if (!Utils.getIncomingMethodClass(incomingMethod).equals(facade)) {
-                            isExclusiveSubsystem = false;
-                            break;
-                        }
-                    }
-                }
-                if (isExclusiveSubsystem)
+                // every call into the subsystem comes from the facade
+                BitSet callerClasses = features.getCallerClasses(subsystem);
+                if (callerClasses.isEmpty() || (callerClasses.cardinality() == 1 && callerClasses.get(facadeId)))
                     exclusiveSubsystems.add(subsystem);
             }
             if (exclusiveSubsystems.size() > 0)
@@ -124,7 +138,7 @@ public class FacadePattern extends DesignPatterns {
                     ssmmal.add(mm);
                 }
 
-                String subsystemSentence = sentenceGenerator.generateSentence(sscm, ssmmal, null);
+                String subsystemSentence = getSentenceGenerator().generateSentence(sscm, ssmmal, null);
                 summary.put(subsystem, subsystemSentence);
             }
 
@@ -151,7 +165,7 @@ public class FacadePattern extends DesignPatterns {
                 mm.setCalledMethodArr(outgoingMethods);
                 fmmal.add(mm);
             }
-            String facadeSentence = sentenceGenerator.generateSentence(fcm, fmmal, null);
+            String facadeSentence = getSentenceGenerator().generateSentence(fcm, fmmal, null);
             summary.put(facade, facadeSentence);
         }
     }
@@ -11,6 +11,7 @@ import dps.utils.Utils;
 
 // Factory Method is a creational design pattern that provides an interface for 
 // creating objects in a superclass, but allows subclasses to alter the type of objects that will be created.
+@DetectorInfo(name = "factory_method", factAspects = ClassFingerprint.TYPES | ClassFingerprint.METHODS)
 public class FactoryPattern extends DesignPatterns {
 
     public FactoryPattern() {
@@ -23,8 +24,36 @@ public class FactoryPattern extends DesignPatterns {
     // Creator class declares Factory method and returns Product
     // Concrete creators override factory method to return different Concrete
     // Products
+
+    @Override
+    public String getRootRole() {
+        return "creator";
+    }
+
+    @Override
+    public LinkedHashMap<String, ScoreCheck> getScoreChecks() {
+        LinkedHashMap<String, ScoreCheck> checks = new LinkedHashMap<>();
+        checks.put("returns a project interface", (name, details, files, features) -> {
+            for (HashMap methodDetail : Utils.getMethodDetails(details)) {
+                if (features.has(Utils.getMethodReturnType(methodDetail), ClassFeatures.INTERFACE))
+                    return true;
+            }
+            return false;
+        });
+        checks.put("returned interface is implemented", (name, details, files, features) -> {
+            for (HashMap methodDetail : Utils.getMethodDetails(details)) {
+                String product = Utils.getMethodReturnType(methodDetail);
+                if (features.has(product, ClassFeatures.INTERFACE) && !features.getSubtypes(product).isEmpty())
+                    return true;
+            }
+            return false;
+        });
+        checks.put("has concrete creators", (name, details, files, features) -> !features.getSubtypes(name).isEmpty());
+        return checks;
+    }
+
     @Override
-    public HashMap checkPattern(HashMap<String, HashMap> fileDetails) {
+    public HashMap checkPattern(HashMap<String, HashMap> fileDetails, ClassFeatures features) {
 
         HashMap factories = new HashMap<>();
 
@@ -32,6 +61,8 @@ public class FactoryPattern extends DesignPatterns {
         for (Map.Entry<String, HashMap> fileEntry : fileDetails.entrySet()) {
 
             // Only an interface can be a Product
+            if (!features.isCandidate(patternName, fileEntry.getKey(), ClassFeatures.INTERFACE))
+                continue;
             boolean isInterfaceOrNot = false;
 
             // ION
@@ -131,7 +162,7 @@ public class FactoryPattern extends DesignPatterns {
                 cm.setDesignPattern("product");
                 cm.setRelatedClassName(factory);
 
-                String concreteProductSentence = sentenceGenerator.generateSentence(cm, mmal, null);
+                String concreteProductSentence = getSentenceGenerator().generateSentence(cm, mmal, null);
                 summary.put(concreteProduct, concreteProductSentence);
             }
 
@@ -156,7 +187,7 @@ public class FactoryPattern extends DesignPatterns {
                 cm.setDesignPattern("factory");
                 cm.setRelatedClassName(factory);
 
-                String concreteFactorySentence = sentenceGenerator.generateSentence(cm, mmal, null);
+                String concreteFactorySentence = getSentenceGenerator().generateSentence(cm, mmal, null);
                 summary.put(concreteFactory, concreteFactorySentence);
             }
 
@@ -173,7 +204,7 @@ public class FactoryPattern extends DesignPatterns {
             DesignPatternInheritClassMessage apicm = new DesignPatternInheritClassMessage();
             apicm.setInheritClass(concreteProductsAsText);
 
-            String abstractProductSentence = sentenceGenerator.generateSentence(apcm, null, apicm);
+            String abstractProductSentence = getSentenceGenerator().generateSentence(apcm, null, apicm);
             summary.put(abstractProduct, abstractProductSentence);
 
             // for abstract factory
@@ -183,7 +214,7 @@ public class FactoryPattern extends DesignPatterns {
             DesignPatternInheritClassMessage aficm = new DesignPatternInheritClassMessage();
             aficm.setInheritClass(concreteFactoriesAsText);
 
-            String factoryMethodSentence = sentenceGenerator.generateSentence(afcm, null, aficm);
+            String factoryMethodSentence = getSentenceGenerator().generateSentence(afcm, null, aficm);
             summary.put(factory, factoryMethodSentence);
         }
     }
@@ -10,21 +10,41 @@ import dps.summarygenerator.messages.DesignPatternMethodMessage;
 import dps.utils.Utils;
 
 // Memento is a behavioral design pattern that lets you save and restore the previous state of an object without revealing the details of its implementation
+@DetectorInfo(name = "memento",
+        factAspects = ClassFingerprint.TYPES | ClassFingerprint.METHODS | ClassFingerprint.FIELDS)
 public class MementoPattern extends DesignPatterns {
     public MementoPattern() {
         super("memento");
     }
 
     @Override
-    public HashMap checkPattern(HashMap<String, HashMap> fileDetails) {
+    public LinkedHashMap<String, ScoreCheck> getScoreChecks() {
+        LinkedHashMap<String, ScoreCheck> checks = new LinkedHashMap<>();
+        checks.put("returned by another class", (name, details, files, features) -> {
+            Set<String> originators = features.getClassesReturning(name);
+            return originators.size() > (originators.contains(name) ? 1 : 0);
+        });
+        checks.put("methods without parameters", (name, details, files, features) -> isParameterless(details));
+        checks.put("has fields", (name, details, files, features) -> features.has(name, ClassFeatures.HAS_FIELDS));
+        return checks;
+    }
+
+    @Override
+    public HashMap checkPattern(HashMap<String, HashMap> fileDetails, ClassFeatures features) {
 
         HashMap output = new HashMap<>();
         HashMap mementos = new HashMap<>();
 
+        // per class, filled on first use
+        HashMap<String, FieldShape> fieldShapes = new HashMap<>();
+        HashMap<String, Boolean> parameterlessClasses = new HashMap<>();
+
         // originator has method returning type Memento
         for (Map.Entry<String, HashMap> originatorEntry : fileDetails.entrySet()) {
 
             String originator = originatorEntry.getKey();
+            if (!features.isCandidate(patternName, originator, ClassFeatures.RETURNS_PROJECT_TYPE))
+                continue;
             for (HashMap methodDetail : Utils.getMethodDetails(originatorEntry.getValue())) {
 
                 // originator must have a method returning type Memento
@@ -33,81 +53,36 @@ public class MementoPattern extends DesignPatterns {
                     continue;
 
                 // No Memento methods can have parameters
-                boolean hasParameters = false;
-                HashMap mementoClassDetail = fileDetails.getOrDefault(methodReturnType, new HashMap<>());
-                for (HashMap mementoMethodDetail : Utils.getMethodDetails(mementoClassDetail)) {
-                    if (Utils.getMethodParameters(mementoMethodDetail).size() > 0) {
-                        hasParameters = true;
-                        break;
-                    }
-                }
-                if (hasParameters)
+                if (!parameterlessClasses.computeIfAbsent(methodReturnType,
+                        key -> isParameterless(fileDetails.get(key))))
                     continue;
 
                 // All fields in Memento must match all fields in originator
-                ArrayList<String> mementoFields = new ArrayList<>();
-                for (HashMap fieldDetail : Utils.getFieldDetails(mementoClassDetail)) {
-                    mementoFields.add(Utils.getFieldDataType(fieldDetail));
-                }
-                ArrayList<String> originatorFields = new ArrayList<>();
-                for (HashMap fieldDetail : Utils.getFieldDetails(originatorEntry.getValue())) {
-                    originatorFields.add(Utils.getFieldDataType(fieldDetail));
-                }
-
-                if (!(mementoFields.size() == originatorFields.size()
-                        && mementoFields.containsAll(originatorFields)))
+                FieldShape mementoFields = fieldShapes.computeIfAbsent(methodReturnType,
+                        key -> new FieldShape(fileDetails.get(key)));
+                FieldShape originatorFields = fieldShapes.computeIfAbsent(originator,
+                        key -> new FieldShape(originatorEntry.getValue()));
+                if (!mementoFields.covers(originatorFields))
                     continue;
 
                 String memento = methodReturnType;
-                mementos.putIfAbsent(memento, new HashMap<>());
-                ((HashMap) mementos.get(memento)).putIfAbsent("originator", new HashMap<>());
-                ((HashMap) mementos.get(memento)).putIfAbsent("concrete_memento", new HashSet());
-                ((HashMap) mementos.get(memento)).putIfAbsent("caretaker", new HashMap<>());
-
-                ((HashMap) ((HashMap) mementos.get(memento)).get("originator")).putIfAbsent(originator,
-                        new HashSet<>());
-
-                for (Map.Entry<String, HashMap> fileEntry : fileDetails.entrySet()) {
-
-                    // caretaker stores Memento
-                    for (HashMap fieldDetail : Utils.getFieldDetails(fileEntry.getValue())) {
-                        if (Utils.getFieldDataType(fieldDetail).contains(memento)) {
-                            ((HashMap) ((HashMap) mementos.get(memento)).get("caretaker")).putIfAbsent(
-                                    fileEntry.getKey(), new HashSet());
-
-                        }
-                    }
-
-                    // Find concrete memento and concrete originator
-                    for (HashMap classDetail : Utils.getClassOrInterfaceDetails(fileEntry.getValue())) {
-                        if (Utils.getImplementsFrom(classDetail).contains(memento)
-                                || Utils.getExtendsFrom(classDetail).contains(memento)) {
-                            ((HashSet) ((HashMap) mementos.get(memento)).get("concrete_memento"))
-                                    .add(fileEntry.getKey());
-                        }
-
-                        if (Utils.getImplementsFrom(classDetail).contains(originator)
-                                || Utils.getExtendsFrom(classDetail).contains(originator)) {
-                            ((HashSet) ((HashMap) ((HashMap) mementos.get(memento)).get("originator")).get(originator))
-                                    .add(fileEntry.getKey());
-                        }
-                    }
-                }
-
-                // Find concrete caretaker
-                for (Map.Entry<String, HashSet> caretaker : ((HashMap<String, HashSet>) ((HashMap) mementos
-                        .get(memento)).get("caretaker")).entrySet()) {
-                    for (Map.Entry<String, HashMap> fileEntry : fileDetails.entrySet()) {
-                        for (HashMap classDetail : Utils.getClassOrInterfaceDetails(fileEntry.getValue())) {
-                            if (Utils.getImplementsFrom(classDetail).contains(caretaker.getKey())
-                                    || Utils.getExtendsFrom(classDetail).contains(caretaker.getKey())) {
-                                caretaker.getValue().add(fileEntry.getKey());
-                            }
-                        }
-
+                if (!mementos.containsKey(memento)) {
+                    HashMap mementoDetails = new HashMap<>();
+                    mementoDetails.put("originator", new HashMap<>());
+
+                    // caretaker stores Memento, concrete caretakers implement a caretaker
+                    HashMap<String, HashSet> caretakers = new HashMap<>();
+                    for (String caretaker : features.getClassesWithFieldTypeContaining(memento)) {
+                        caretakers.put(caretaker, new HashSet<>(features.getSubtypes(caretaker)));
                     }
+                    mementoDetails.put("caretaker", caretakers);
+                    mementoDetails.put("concrete_memento", new HashSet<>(features.getSubtypes(memento)));
+                    mementos.put(memento, mementoDetails);
                 }
 
+                // concrete originators implement the originator
+                ((HashMap) ((HashMap) mementos.get(memento)).get("originator")).putIfAbsent(originator,
+                        new HashSet<>(features.getSubtypes(originator)));
             }
         }
 
@@ -137,6 +112,39 @@ public class MementoPattern extends DesignPatterns {
         return output;
     }
 
+    /**
+     * Helper method to check that no method of a class takes parameters.
+     */
+    private static boolean isParameterless(HashMap classDetails) {
+        for (HashMap methodDetail : Utils.getMethodDetails(classDetails)) {
+            if (Utils.getMethodParameters(methodDetail).size() > 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Field types of a class, reduced to what the originator and memento comparison reads:
+     * their number and the distinct types.
+     */
+    private static class FieldShape {
+        private final int size;
+        private final HashSet<String> types = new HashSet<>();
+
+        FieldShape(HashMap classDetails) {
+            ArrayList<HashMap> fieldDetails = Utils.getFieldDetails(classDetails);
+            size = fieldDetails.size();
+            for (HashMap fieldDetail : fieldDetails) {
+                types.add(Utils.getFieldDataType(fieldDetail));
+            }
+        }
+
+        // same number of fields, and every field type of other is one of ours
+        boolean covers(FieldShape other) {
+            return size == other.size && types.containsAll(other.types);
+        }
+    }
+
     @Override
     public void summarise(HashMap<String, HashMap> fileDetails, HashMap designPatternDetails,
             MultiValuedMap<String, String> summary) {
@@ -178,7 +186,7 @@ public class MementoPattern extends DesignPatterns {
                         cmmmal.add(mm);
                     }
 
-                    String concreteMementoSentence = sentenceGenerator.generateSentence(cmcm, cmmmal, null);
+                    String concreteMementoSentence = getSentenceGenerator().generateSentence(cmcm, cmmmal, null);
                     summary.put(concreteMemento, concreteMementoSentence);
                 }
             }
@@ -226,7 +234,7 @@ public class MementoPattern extends DesignPatterns {
                             cctmmal.add(mm);
                         }
 
-                        String concretecaretakerSentence = sentenceGenerator.generateSentence(cctcm, cctmmal, null);
+                        String concretecaretakerSentence = getSentenceGenerator().generateSentence(cctcm, cctmmal, null);
                         summary.put(concretecaretaker, concretecaretakerSentence);
                     }
                 }
@@ -267,10 +275,10 @@ public class MementoPattern extends DesignPatterns {
                     ctmmal.add(mm);
                 }
 
-                String caretakerSentence = sentenceGenerator.generateSentence(ctcm, ctmmal, null);
+                String caretakerSentence = getSentenceGenerator().generateSentence(ctcm, ctmmal, null);
                 if (concretecaretakerClasses.length() != 0) {
                     DesignPatternInheritClassMessage cicm = new DesignPatternInheritClassMessage();
-                    caretakerSentence = sentenceGenerator.generateSentence(ctcm, ctmmal, cicm);
+                    caretakerSentence = getSentenceGenerator().generateSentence(ctcm, ctmmal, cicm);
                 }
                 summary.put(caretaker, caretakerSentence);
             }
@@ -350,7 +358,7 @@ public class MementoPattern extends DesignPatterns {
                             }
                         }
 
-                        String concreteoriginatorSentence = sentenceGenerator.generateSentence(cocm, commal, null);
+                        String concreteoriginatorSentence = getSentenceGenerator().generateSentence(cocm, commal, null);
                         summary.put(concreteoriginator, concreteoriginatorSentence);
                     }
                 }
@@ -420,10 +428,10 @@ public class MementoPattern extends DesignPatterns {
                     }
                 }
 
-                String originatorSentence = sentenceGenerator.generateSentence(ocm, ommal, null);
+                String originatorSentence = getSentenceGenerator().generateSentence(ocm, ommal, null);
                 if (concreteoriginatorClasses.length() != 0) {
                     DesignPatternInheritClassMessage cicm = new DesignPatternInheritClassMessage();
-                    originatorSentence = sentenceGenerator.generateSentence(ocm, ommal, cicm);
+                    originatorSentence = getSentenceGenerator().generateSentence(ocm, ommal, cicm);
                 }
                 summary.put(originator, originatorSentence);
             }
@@ -463,10 +471,10 @@ public class MementoPattern extends DesignPatterns {
                 DesignPatternInheritClassMessage micm = new DesignPatternInheritClassMessage();
                 micm.setInheritClass(concreteMementosAsText);
 
-                String mementoSentence = sentenceGenerator.generateSentence(mcm, mmmal, micm);
+                String mementoSentence = getSentenceGenerator().generateSentence(mcm, mmmal, micm);
                 summary.put(memento, mementoSentence);
             } else {
-                String mementoSentence = sentenceGenerator.generateSentence(mcm, mmmal, null);
+                String mementoSentence = getSentenceGenerator().generateSentence(mcm, mmmal, null);
                 summary.put(memento, mementoSentence);
             }
         }
@@ -10,13 +10,27 @@ import dps.summarygenerator.messages.DesignPatternMethodMessage;
 import dps.utils.Utils;
 
 // Observer is a behavioral design pattern that lets you define a subscription mechanism to notify multiple objects about any events that happen to the object they’re observing.
+@DetectorInfo(name = "observer",
+        factAspects = ClassFingerprint.TYPES | ClassFingerprint.METHODS | ClassFingerprint.FIELDS)
 public class ObserverPattern extends DesignPatterns {
     public ObserverPattern() {
         super("observer");
     }
 
     @Override
-    public HashMap checkPattern(HashMap<String, HashMap> fileDetails) {
+    public LinkedHashMap<String, ScoreCheck> getScoreChecks() {
+        LinkedHashMap<String, ScoreCheck> checks = new LinkedHashMap<>();
+        checks.put("interface", (name, details, files, features) -> features.has(name, ClassFeatures.INTERFACE));
+        checks.put("has concrete observers", (name, details, files, features) -> !features.getSubtypes(name).isEmpty());
+        checks.put("stored by another class", (name, details, files, features) -> {
+            Set<String> publishers = features.getClassesWithFieldTypeContaining(name);
+            return publishers.size() > (publishers.contains(name) ? 1 : 0);
+        });
+        return checks;
+    }
+
+    @Override
+    public HashMap checkPattern(HashMap<String, HashMap> fileDetails, ClassFeatures features) {
 
         HashMap output = new HashMap<>();
         HashMap observers = new HashMap<>();
@@ -25,6 +39,9 @@ public class ObserverPattern extends DesignPatterns {
 
             // Publisher needs to have method that has Subscriber as parameter
             String publisher = publisherEntry.getKey();
+            if (!features.isCandidate(patternName, publisher,
+                    ClassFeatures.PROJECT_TYPED_PARAMETER | ClassFeatures.HAS_FIELDS))
+                continue;
 
             for (HashMap methodDetail : Utils.getMethodDetails(publisherEntry.getValue())) {
                 for (HashMap parameter : (ArrayList<HashMap>) Utils.getMethodParameters(methodDetail)) {
@@ -71,7 +88,7 @@ public class ObserverPattern extends DesignPatterns {
 
                     // Check if publisher itself is a concrete publisher
                     for (HashMap classDetail : Utils.getClassOrInterfaceDetails(publisherEntry.getValue())) {
-                        ArrayList<String> parentClassList = Utils.getExtendsFrom(classDetail);
+                        ArrayList<String> parentClassList = new ArrayList<>(Utils.getExtendsFrom(classDetail));
                         parentClassList.addAll(Utils.getImplementsFrom(classDetail));
                         for (String parent : parentClassList) {
                             if (!fileDetails.containsKey(parent))
@@ -150,7 +167,7 @@ public class ObserverPattern extends DesignPatterns {
                         csmmal.add(mm);
                     }
 
-                    String concretePublisherSentence = sentenceGenerator.generateSentence(cscm, csmmal, null);
+                    String concretePublisherSentence = getSentenceGenerator().generateSentence(cscm, csmmal, null);
                     summary.put(concretePublisher, concretePublisherSentence);
                 }
 
@@ -193,7 +210,7 @@ public class ObserverPattern extends DesignPatterns {
                 DesignPatternInheritClassMessage sicm = new DesignPatternInheritClassMessage();
                 sicm.setInheritClass(concretePublishers);
 
-                String publisherSentence = sentenceGenerator.generateSentence(scm, smmal, sicm);
+                String publisherSentence = getSentenceGenerator().generateSentence(scm, smmal, sicm);
                 summary.put(publisher, publisherSentence);
             }
 
@@ -231,7 +248,7 @@ public class ObserverPattern extends DesignPatterns {
                     commal.add(mm);
                 }
 
-                String concreteObserverSentence = sentenceGenerator.generateSentence(cocm, commal, null);
+                String concreteObserverSentence = getSentenceGenerator().generateSentence(cocm, commal, null);
                 summary.put(concreteObserver, concreteObserverSentence);
             }
 
@@ -275,7 +292,7 @@ public class ObserverPattern extends DesignPatterns {
             DesignPatternInheritClassMessage oicm = new DesignPatternInheritClassMessage();
             oicm.setInheritClass(concreteObservers);
 
-            String observerSentence = sentenceGenerator.generateSentence(ocm, ommal, oicm);
+            String observerSentence = getSentenceGenerator().generateSentence(ocm, ommal, oicm);
             summary.put(observer, observerSentence);
         }
     }
@@ -1,49 +1,108 @@
 package dps.designpatternidentifier;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
+import java.util.*;
 
 /**
- * Centralized registry for all design pattern instances.
+ * Centralized registry for all design pattern detectors.
  * Eliminates duplication between CheckPattern and DesignPatternSummarise.
+ *
+ * Detectors are DesignPatterns subclasses found with ServiceLoader, i.e. listed in
+ * META-INF/services/dps.designpatternidentifier.DesignPatterns of any jar on the classpath,
+ * so other detectors can be added without touching this class. A detector is created on
+ * first use and then shared; detectors annotated with DetectorInfo are known by name and
+ * metadata before that, the others are created at startup to learn their name.
  */
 public class PatternRegistry {
-    private static final List<DesignPatterns> PATTERN_INSTANCES = createPatternInstances();
-    
+
+    // detectors created so far, by pattern name
+    private static final HashMap<String, DesignPatterns> INSTANCES = new HashMap<>();
+
+    // every detector found, by pattern name, in the order of the service files
+    private static final LinkedHashMap<String, ServiceLoader.Provider<DesignPatterns>> PROVIDERS = findProviders();
+
+    private static LinkedHashMap<String, ServiceLoader.Provider<DesignPatterns>> findProviders() {
+        LinkedHashMap<String, ServiceLoader.Provider<DesignPatterns>> providers = new LinkedHashMap<>();
+        ServiceLoader.load(DesignPatterns.class).stream().forEach(provider -> {
+            DetectorInfo info = provider.type().getAnnotation(DetectorInfo.class);
+            String patternName;
+            if (info != null) {
+                patternName = info.name();
+            } else {
+                DesignPatterns pattern = provider.get();
+                patternName = pattern.getPatternName();
+                INSTANCES.putIfAbsent(patternName, pattern);
+            }
+            if (providers.containsKey(patternName)) {
+                System.out.println("Duplicate detector for " + patternName + ", keeping "
+                        + providers.get(patternName).type().getName());
+            } else {
+                providers.put(patternName, provider);
+            }
+        });
+        return providers;
+    }
+
     /**
-     * Creates all design pattern instances in one place.
-     * This is the single source of truth for available patterns.
+     * Names of all registered patterns, in registration order. Creates no detector.
      */
-    private static List<DesignPatterns> createPatternInstances() {
-        List<DesignPatterns> patterns = new ArrayList<>();
-        patterns.add(new SingletonPattern());
-        patterns.add(new FactoryPattern());
-        patterns.add(new AbstractFactoryPattern());
-        patterns.add(new AdapterPattern());
-        patterns.add(new DecoratorPattern());
-        patterns.add(new VisitorPattern());
-        patterns.add(new FacadePattern());
-        patterns.add(new ObserverPattern());
-        patterns.add(new MementoPattern());
-        return patterns;
+    public static List<String> getPatternNames() {
+        return new ArrayList<>(PROVIDERS.keySet());
+    }
+
+    /**
+     * Returns the detector of a pattern, creating it on first use. Null for an unknown name.
+     */
+    public static synchronized DesignPatterns getPattern(String patternName) {
+        DesignPatterns pattern = INSTANCES.get(patternName);
+        if (pattern == null && PROVIDERS.containsKey(patternName)) {
+            pattern = PROVIDERS.get(patternName).get();
+            if (!pattern.getPatternName().equals(patternName))
+                throw new IllegalStateException(pattern.getClass().getName() + " is registered as " + patternName
+                        + " but named " + pattern.getPatternName());
+            INSTANCES.put(patternName, pattern);
+        }
+        return pattern;
     }
-    
+
     /**
      * Returns a list of all pattern instances for checking patterns.
      */
     public static List<DesignPatterns> getAllPatterns() {
-        return new ArrayList<>(PATTERN_INSTANCES);
+        return getPatterns(null);
     }
-    
+
+    /**
+     * Returns the pattern instances whose names are enabled, in registration order.
+     * A null set enables every pattern. Only these detectors are created.
+     */
+    public static List<DesignPatterns> getPatterns(Set<String> enabledPatterns) {
+        if (enabledPatterns != null) {
+            for (String patternName : enabledPatterns) {
+                if (!PROVIDERS.containsKey(patternName))
+                    System.out.println("No detector registered for " + patternName);
+            }
+        }
+        List<DesignPatterns> patterns = new ArrayList<>();
+        for (String patternName : PROVIDERS.keySet()) {
+            if (enabledPatterns == null || enabledPatterns.contains(patternName)) {
+                patterns.add(getPattern(patternName));
+            }
+        }
+        return patterns;
+    }
+
     /**
-     * Returns a map of pattern name to pattern instance for summarization.
+     * The ClassFingerprint aspects the enabled detectors read, from their DetectorInfo
+     * where present. A null set enables every pattern.
      */
-    public static HashMap<String, DesignPatterns> getPatternMap() {
-        HashMap<String, DesignPatterns> patternMap = new HashMap<>();
-        for (DesignPatterns pattern : PATTERN_INSTANCES) {
-            patternMap.put(pattern.getPatternName(), pattern);
+    public static int getFactAspects(Set<String> enabledPatterns) {
+        int factAspects = 0;
+        for (Map.Entry<String, ServiceLoader.Provider<DesignPatterns>> entry : PROVIDERS.entrySet()) {
+            if (enabledPatterns != null && !enabledPatterns.contains(entry.getKey()))
+                continue;
+            DetectorInfo info = entry.getValue().type().getAnnotation(DetectorInfo.class);
+            factAspects |= info != null ? info.factAspects() : getPattern(entry.getKey()).getFactAspects();
         }
-        return patternMap;
+        return factAspects;
     }
 }
@@ -0,0 +1,11 @@
+package dps.designpatternidentifier;
+
+import java.util.HashMap;
+
+/**
+ * One structural check of a candidate class in scoring mode, see DesignPatterns.getScoreChecks.
+ */
+public interface ScoreCheck {
+    boolean test(String className, HashMap classDetails, HashMap<String, HashMap> fileDetails,
+            ClassFeatures features);
+}
@@ -4,13 +4,15 @@ import java.util.*;
 
 import org.apache.commons.collections4.MultiValuedMap;
 
-import dps.summarygenerator.SentenceGenerator;
 import dps.summarygenerator.messages.DesignPatternClassMessage;
 import dps.summarygenerator.messages.DesignPatternMethodMessage;
 import dps.utils.Utils;
 
 // Singleton is a creational design pattern that lets you ensure that a 
 // class has only one instance, while providing a global access point to this instance.
+// Summary describes the callers of the creation method
+@DetectorInfo(name = "singleton", summaryRequiresCallGraph = true,
+        factAspects = ClassFingerprint.METHODS | ClassFingerprint.FIELDS | ClassFingerprint.CONSTRUCTORS)
 public class SingletonPattern extends DesignPatterns {
     public SingletonPattern() {
         super("singleton");
@@ -20,8 +22,22 @@ public class SingletonPattern extends DesignPatterns {
     // All constructors must be private
     // Static creation method acting as a constructor and returns instance
     // Static private field storing instance
+
+    @Override
+    public LinkedHashMap<String, ScoreCheck> getScoreChecks() {
+        LinkedHashMap<String, ScoreCheck> checks = new LinkedHashMap<>();
+        checks.put("private static instance field",
+                (name, details, files, features) -> features.has(name, ClassFeatures.SELF_TYPED_STATIC_FIELD));
+        checks.put("only private constructors",
+                (name, details, files, features) -> !features.has(name, ClassFeatures.INTERFACE)
+                        && features.has(name, ClassFeatures.PRIVATE_CONSTRUCTORS));
+        checks.put("public static accessor",
+                (name, details, files, features) -> features.has(name, ClassFeatures.STATIC_SELF_FACTORY));
+        return checks;
+    }
+
     @Override
-    public HashMap checkPattern(HashMap<String, HashMap> fileDetails) {
+    public HashMap checkPattern(HashMap<String, HashMap> fileDetails, ClassFeatures features) {
 
         ArrayList<String> matchedClasses = new ArrayList<>();
 
@@ -30,6 +46,10 @@ public class SingletonPattern extends DesignPatterns {
 
             // CN
             String classInterfaceName = fileEntry.getKey();
+            if (!features.isCandidate(patternName, classInterfaceName, ClassFeatures.SELF_TYPED_STATIC_FIELD
+                    | ClassFeatures.PRIVATE_CONSTRUCTORS | ClassFeatures.STATIC_SELF_FACTORY))
+                continue;
+
             // Must have atleast one private static field that contains object of same type
             // as class
             boolean hasClassInstance = false;
@@ -127,8 +147,7 @@ public class SingletonPattern extends DesignPatterns {
                 }
             }
 
-            SentenceGenerator singletonSentenceGenerator = new SentenceGenerator();
-            String singletonSentence = singletonSentenceGenerator.generateSentence(cm, mmal, null);
+            String singletonSentence = getSentenceGenerator().generateSentence(cm, mmal, null);
             summary.put(singleton, singletonSentence);
         }
     }
@@ -10,19 +10,54 @@ import dps.summarygenerator.messages.DesignPatternMethodMessage;
 import dps.utils.Utils;
 
 // Visitor is a behavioral design pattern that lets you separate algorithms from the objects on which they operate.
+@DetectorInfo(name = "visitor", factAspects = ClassFingerprint.TYPES | ClassFingerprint.METHODS)
 public class VisitorPattern extends DesignPatterns {
     public VisitorPattern() {
         super("visitor");
     }
 
     @Override
-    public HashMap checkPattern(HashMap<String, HashMap> fileDetails) {
+    public String getRootRole() {
+        return "element";
+    }
+
+    @Override
+    public LinkedHashMap<String, ScoreCheck> getScoreChecks() {
+        LinkedHashMap<String, ScoreCheck> checks = new LinkedHashMap<>();
+        checks.put("interface", (name, details, files, features) -> features.has(name, ClassFeatures.INTERFACE));
+        checks.put("accepts a project interface", (name, details, files, features) -> {
+            for (HashMap methodDetail : Utils.getMethodDetails(details)) {
+                for (HashMap parameter : Utils.getMethodParameters(methodDetail)) {
+                    if (features.has(Utils.getParameterType(parameter), ClassFeatures.INTERFACE))
+                        return true;
+                }
+            }
+            return false;
+        });
+        checks.put("accepted interface is implemented", (name, details, files, features) -> {
+            for (HashMap methodDetail : Utils.getMethodDetails(details)) {
+                for (HashMap parameter : Utils.getMethodParameters(methodDetail)) {
+                    String visitor = Utils.getParameterType(parameter);
+                    if (features.has(visitor, ClassFeatures.INTERFACE) && !features.getSubtypes(visitor).isEmpty())
+                        return true;
+                }
+            }
+            return false;
+        });
+        checks.put("has concrete elements", (name, details, files, features) -> !features.getSubtypes(name).isEmpty());
+        return checks;
+    }
+
+    @Override
+    public HashMap checkPattern(HashMap<String, HashMap> fileDetails, ClassFeatures features) {
 
         HashMap output = new HashMap<>();
         HashMap visitors = new HashMap<>();
 
         for (Map.Entry<String, HashMap> visitorEntry : fileDetails.entrySet()) {
 
+            if (!features.isCandidate(patternName, visitorEntry.getKey(), ClassFeatures.INTERFACE))
+                continue;
             boolean isInterfaceOrNot = false;
             for (HashMap classDetail : Utils.getClassOrInterfaceDetails(visitorEntry.getValue())) {
                 if (Utils.isInterfaceOrNot(classDetail)) {
@@ -68,6 +103,9 @@ public class VisitorPattern extends DesignPatterns {
 
             for (Map.Entry<String, HashMap> elementEntry : fileDetails.entrySet()) {
 
+                if (!features.isCandidate(patternName, elementEntry.getKey(),
+                        ClassFeatures.INTERFACE | ClassFeatures.HAS_METHODS))
+                    continue;
                 boolean isInterfaceOrNotElement = false;
                 for (HashMap classDetail : Utils.getClassOrInterfaceDetails(elementEntry.getValue())) {
                     if (Utils.isInterfaceOrNot(classDetail)) {
@@ -219,7 +257,7 @@ public class VisitorPattern extends DesignPatterns {
                     cvcm.setRelatedClassDesignPattern("element");
                     cvcm.setRelatedClassName(element);
 
-                    String concreteVisitorSentence = sentenceGenerator.generateSentence(cvcm, cvmmal, null);
+                    String concreteVisitorSentence = getSentenceGenerator().generateSentence(cvcm, cvmmal, null);
 
                     summary.put(concreteVisitor, concreteVisitorSentence);
                 }
@@ -263,7 +301,7 @@ public class VisitorPattern extends DesignPatterns {
                 DesignPatternInheritClassMessage vicm = new DesignPatternInheritClassMessage();
                 vicm.setInheritClass(concreteVisitorClasses);
 
-                String visitorSentence = sentenceGenerator.generateSentence(vcm, vmmal, vicm);
+                String visitorSentence = getSentenceGenerator().generateSentence(vcm, vmmal, vicm);
                 summary.put(visitor, visitorSentence);
 
                 // generate base element sentence
@@ -303,7 +341,7 @@ public class VisitorPattern extends DesignPatterns {
                 DesignPatternInheritClassMessage eicm = new DesignPatternInheritClassMessage();
                 eicm.setInheritClass(concreteElementClasses);
 
-                elementSentence = sentenceGenerator.generateSentence(ecm, emmal, eicm);
+                elementSentence = getSentenceGenerator().generateSentence(ecm, emmal, eicm);
             }
 
             summary.put(element, elementSentence);
@@ -0,0 +1,77 @@
+package dps.designpatternidentifier.rules;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A predicate applied to terms, e.g. implements(C, "Visitor"). Variables start with an
+ * upper case letter or an underscore, constants are quoted in the rule text.
+ * A body atom can be negated ("not p(X)") or a built-in ("X != Y", "I < J" on numbers,
+ * "contains(X, Y)").
+ */
+public class Atom {
+    public static final String NOT_EQUAL = "!=";
+    public static final String LESS_THAN = "<";
+    public static final String CONTAINS = "contains";
+
+    private final String predicate;
+    private final String[] terms;
+    private final boolean[] variables;
+    private final boolean negated;
+
+    public Atom(String predicate, List<String> terms, List<Boolean> variables, boolean negated) {
+        this.predicate = predicate;
+        this.terms = terms.toArray(new String[0]);
+        this.variables = new boolean[terms.size()];
+        for (int i = 0; i < terms.size(); i++) {
+            this.variables[i] = variables.get(i);
+        }
+        this.negated = negated;
+    }
+
+    public String getPredicate() {
+        return predicate;
+    }
+
+    public int getArity() {
+        return terms.length;
+    }
+
+    public String getTerm(int position) {
+        return terms[position];
+    }
+
+    public boolean isVariable(int position) {
+        return variables[position];
+    }
+
+    public boolean isNegated() {
+        return negated;
+    }
+
+    public boolean isBuiltIn() {
+        return predicate.equals(NOT_EQUAL) || predicate.equals(LESS_THAN) || predicate.equals(CONTAINS);
+    }
+
+    public Set<String> getVariables() {
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i < terms.length; i++) {
+            if (variables[i])
+                result.add(terms[i]);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        List<String> parts = new ArrayList<>();
+        for (int i = 0; i < terms.length; i++) {
+            parts.add(variables[i] ? terms[i] : "\"" + terms[i] + "\"");
+        }
+        if (predicate.equals(NOT_EQUAL) || predicate.equals(LESS_THAN))
+            return parts.get(0) + " " + predicate + " " + parts.get(1);
+        return (negated ? "not " : "") + predicate + "(" + String.join(", ", parts) + ")";
+    }
+}
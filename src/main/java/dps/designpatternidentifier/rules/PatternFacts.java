@@ -0,0 +1,89 @@
+package dps.designpatternidentifier.rules;
+
+import java.util.*;
+
+import dps.utils.Utils;
+
+/**
+ * Turns the extracted file details of a project into base facts for the rule engine.
+ *
+ * type(C)                       every class of fileDetails
+ * position(C, "3")              iteration order of fileDetails, as seen by the detectors
+ * interface(C)
+ * implements(C, P), extends(C, P)
+ * declaration(C, D), declarationSupertype(D, P)  per class/interface declared in the file
+ * method(C, M, Name, ReturnType) M identifies the method, e.g. "Foo#2"
+ * methodModifier(M, Modifier), methodModifiers(M, "public static"), override(M), param(M, Type)
+ * field(C, F, Type), fieldModifier(F, Modifier), fieldCount(C, "2")
+ * constructor(C, K), constructorModifier(K, Modifier), constructorParam(K, Type)
+ * hasVariables(C)
+ * calls(C, CalleeClass), calledBy(C, CallerClass)
+ */
+public class PatternFacts {
+
+    public static void addTo(RuleEngine engine, HashMap<String, HashMap> fileDetails) {
+        int position = 0;
+        for (Map.Entry<String, HashMap> fileEntry : fileDetails.entrySet()) {
+            String className = fileEntry.getKey();
+            HashMap classDetails = fileEntry.getValue();
+            engine.addFact("type", className);
+            engine.addFact("position", className, String.valueOf(position++));
+
+            int index = 0;
+            for (HashMap classDetail : Utils.getClassOrInterfaceDetails(classDetails)) {
+                String declaration = className + "#t" + index++;
+                engine.addFact("declaration", className, declaration);
+                if (Utils.isInterfaceOrNot(classDetail))
+                    engine.addFact("interface", className);
+                for (String parent : Utils.getImplementsFrom(classDetail)) {
+                    engine.addFact("implements", className, parent);
+                    engine.addFact("declarationSupertype", declaration, parent);
+                }
+                for (String parent : Utils.getExtendsFrom(classDetail)) {
+                    engine.addFact("extends", className, parent);
+                    engine.addFact("declarationSupertype", declaration, parent);
+                }
+            }
+
+            index = 0;
+            for (HashMap methodDetail : Utils.getMethodDetails(classDetails)) {
+                String method = className + "#" + index++;
+                engine.addFact("method", className, method, Utils.getMethodName(methodDetail),
+                        Utils.getMethodReturnType(methodDetail));
+                engine.addFact("methodModifiers", method, String.join(" ", Utils.getMethodModifierType(methodDetail)));
+                for (String modifier : Utils.getMethodModifierType(methodDetail))
+                    engine.addFact("methodModifier", method, modifier);
+                if (Utils.isMethodOverride(methodDetail))
+                    engine.addFact("override", method);
+                for (HashMap parameter : Utils.getMethodParameters(methodDetail))
+                    engine.addFact("param", method, Utils.getParameterType(parameter));
+                for (HashMap outgoingMethod : Utils.getOutgoingMethod(methodDetail))
+                    engine.addFact("calls", className, Utils.getOutgoingMethodClass(outgoingMethod));
+                for (HashMap incomingMethod : Utils.getIncomingMethod(methodDetail))
+                    engine.addFact("calledBy", className, Utils.getIncomingMethodClass(incomingMethod));
+            }
+
+            index = 0;
+            for (HashMap fieldDetail : Utils.getFieldDetails(classDetails)) {
+                String field = className + "#f" + index++;
+                engine.addFact("field", className, field, Utils.getFieldDataType(fieldDetail));
+                for (String modifier : Utils.getFieldModifierType(fieldDetail))
+                    engine.addFact("fieldModifier", field, modifier);
+            }
+            engine.addFact("fieldCount", className, String.valueOf(index));
+
+            index = 0;
+            for (HashMap constructorDetail : Utils.getConstructorDetails(classDetails)) {
+                String constructor = className + "#c" + index++;
+                engine.addFact("constructor", className, constructor);
+                for (String modifier : Utils.getConstructorModifier(constructorDetail))
+                    engine.addFact("constructorModifier", constructor, modifier);
+                for (HashMap parameter : Utils.getConstructorParameters(constructorDetail))
+                    engine.addFact("constructorParam", constructor, Utils.getParameterType(parameter));
+            }
+
+            if (!Utils.getVariableDetails(classDetails).isEmpty())
+                engine.addFact("hasVariables", className);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package dps.designpatternidentifier.rules;
+
+import java.util.*;
+
+/**
+ * Set of tuples of one predicate, with hash indexes on the column combinations that joins
+ * look up. An index is built the first time a combination is asked for and then kept up
+ * to date as tuples are added.
+ */
+public class Relation {
+    private final String name;
+    private final LinkedHashSet<List<String>> tuples = new LinkedHashSet<>();
+
+    // bitmask of bound columns -> values of those columns -> matching tuples
+    private final HashMap<Integer, HashMap<List<String>, List<List<String>>>> indexes = new HashMap<>();
+
+    public Relation(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int size() {
+        return tuples.size();
+    }
+
+    public Set<List<String>> getTuples() {
+        return Collections.unmodifiableSet(tuples);
+    }
+
+    public boolean contains(List<String> tuple) {
+        return tuples.contains(tuple);
+    }
+
+    public boolean add(List<String> tuple) {
+        if (!tuples.add(tuple))
+            return false;
+        for (Map.Entry<Integer, HashMap<List<String>, List<List<String>>>> index : indexes.entrySet()) {
+            index.getValue().computeIfAbsent(getKey(tuple, index.getKey()), key -> new ArrayList<>()).add(tuple);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the tuples whose bound columns (bits of boundColumns) have the given values,
+     * in column order.
+     */
+    public Collection<List<String>> lookup(int boundColumns, List<String> values) {
+        if (boundColumns == 0)
+            return tuples;
+        HashMap<List<String>, List<List<String>>> index = indexes.get(boundColumns);
+        if (index == null) {
+            index = new HashMap<>();
+            for (List<String> tuple : tuples) {
+                index.computeIfAbsent(getKey(tuple, boundColumns), key -> new ArrayList<>()).add(tuple);
+            }
+            indexes.put(boundColumns, index);
+        }
+        return index.getOrDefault(values, Collections.emptyList());
+    }
+
+    private static List<String> getKey(List<String> tuple, int boundColumns) {
+        List<String> key = new ArrayList<>();
+        for (int i = 0; i < tuple.size(); i++) {
+            if ((boundColumns & (1 << i)) != 0)
+                key.add(tuple.get(i));
+        }
+        return key;
+    }
+}
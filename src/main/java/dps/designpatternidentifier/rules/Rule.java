@@ -0,0 +1,36 @@
+package dps.designpatternidentifier.rules;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * head :- body. A rule without body atoms is a fact.
+ */
+public class Rule {
+    private final Atom head;
+    private final List<Atom> body;
+
+    public Rule(Atom head, List<Atom> body) {
+        this.head = head;
+        this.body = body;
+    }
+
+    public Atom getHead() {
+        return head;
+    }
+
+    public List<Atom> getBody() {
+        return body;
+    }
+
+    @Override
+    public String toString() {
+        if (body.isEmpty())
+            return head + ".";
+        List<String> parts = new ArrayList<>();
+        for (Atom atom : body) {
+            parts.add(atom.toString());
+        }
+        return head + " :- " + String.join(", ", parts) + ".";
+    }
+}
@@ -0,0 +1,279 @@
+package dps.designpatternidentifier.rules;
+
+import java.util.*;
+
+/**
+ * Bottom-up evaluation of Datalog rules with stratified negation.
+ *
+ * Rules are grouped into strata so that a negated predicate is complete before it is
+ * used. Each stratum is evaluated semi-naively: after the first round, a rule is only
+ * re-joined with one of its recursive body atoms reading the tuples derived in the
+ * previous round, so nothing is joined twice against the same facts. For every join a
+ * simple planner orders the body: the delta atom first, then repeatedly the atom with the
+ * most bound columns (the smaller relation on ties), looked up through a hash index on
+ * those columns. Negations and built-ins run as soon as their variables are bound.
+ */
+public class RuleEngine {
+    private final HashMap<String, Relation> relations = new HashMap<>();
+    private final List<Rule> rules = new ArrayList<>();
+
+    public void addRules(List<Rule> newRules) {
+        for (Rule rule : newRules) {
+            if (rule.getBody().isEmpty()) {
+                getRelation(rule.getHead().getPredicate()).add(getConstants(rule.getHead()));
+            } else {
+                rules.add(rule);
+            }
+        }
+    }
+
+    public void addFact(String predicate, String... values) {
+        getRelation(predicate).add(Arrays.asList(values));
+    }
+
+    public Relation getRelation(String predicate) {
+        return relations.computeIfAbsent(predicate, Relation::new);
+    }
+
+    public void evaluate() {
+        for (List<Rule> stratum : stratify()) {
+            evaluateStratum(stratum);
+        }
+    }
+
+    private void evaluateStratum(List<Rule> stratum) {
+        Set<String> recursivePredicates = new HashSet<>();
+        for (Rule rule : stratum) {
+            recursivePredicates.add(rule.getHead().getPredicate());
+        }
+
+        // first round joins the full relations
+        HashMap<String, Relation> delta = new HashMap<>();
+        for (Rule rule : stratum) {
+            evaluateRule(rule, -1, null, delta);
+        }
+
+        while (!addAll(delta)) {
+            HashMap<String, Relation> previousDelta = delta;
+            delta = new HashMap<>();
+            for (Rule rule : stratum) {
+                List<Atom> body = rule.getBody();
+                for (int i = 0; i < body.size(); i++) {
+                    Atom atom = body.get(i);
+                    if (!atom.isNegated() && !atom.isBuiltIn() && recursivePredicates.contains(atom.getPredicate())
+                            && previousDelta.containsKey(atom.getPredicate())) {
+                        evaluateRule(rule, i, previousDelta.get(atom.getPredicate()), delta);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the derived tuples to the full relations and keeps only the new ones in delta.
+     * Returns true when nothing new was derived.
+     */
+    private boolean addAll(HashMap<String, Relation> delta) {
+        boolean fixpoint = true;
+        for (Relation derived : delta.values()) {
+            Relation fresh = new Relation(derived.getName());
+            for (List<String> tuple : derived.getTuples()) {
+                if (getRelation(derived.getName()).add(tuple))
+                    fresh.add(tuple);
+            }
+            delta.put(derived.getName(), fresh);
+            if (fresh.size() > 0)
+                fixpoint = false;
+        }
+        return fixpoint;
+    }
+
+    private void evaluateRule(Rule rule, int deltaPosition, Relation deltaRelation, HashMap<String, Relation> output) {
+        List<Atom> plan = plan(rule, deltaPosition);
+        Atom head = rule.getHead();
+        Relation target = output.computeIfAbsent(head.getPredicate(), Relation::new);
+        Atom deltaAtom = deltaPosition == -1 ? null : rule.getBody().get(deltaPosition);
+
+        join(plan, 0, new HashMap<>(), deltaAtom, deltaRelation, binding -> {
+            List<String> tuple = new ArrayList<>();
+            for (int i = 0; i < head.getArity(); i++) {
+                tuple.add(head.isVariable(i) ? binding.get(head.getTerm(i)) : head.getTerm(i));
+            }
+            if (!getRelation(head.getPredicate()).contains(tuple))
+                target.add(tuple);
+        });
+    }
+
+    private interface BindingConsumer {
+        void accept(HashMap<String, String> binding);
+    }
+
+    private void join(List<Atom> plan, int step, HashMap<String, String> binding, Atom deltaAtom,
+            Relation deltaRelation, BindingConsumer consumer) {
+        if (step == plan.size()) {
+            consumer.accept(binding);
+            return;
+        }
+        Atom atom = plan.get(step);
+
+        if (atom.isBuiltIn()) {
+            if (evaluateBuiltIn(atom, binding))
+                join(plan, step + 1, binding, deltaAtom, deltaRelation, consumer);
+            return;
+        }
+
+        if (atom.isNegated()) {
+            if (!getRelation(atom.getPredicate()).contains(getValues(atom, binding)))
+                join(plan, step + 1, binding, deltaAtom, deltaRelation, consumer);
+            return;
+        }
+
+        int boundColumns = 0;
+        List<String> key = new ArrayList<>();
+        for (int i = 0; i < atom.getArity(); i++) {
+            String value = atom.isVariable(i) ? binding.get(atom.getTerm(i)) : atom.getTerm(i);
+            if (value != null) {
+                boundColumns |= 1 << i;
+                key.add(value);
+            }
+        }
+
+        Relation relation = atom == deltaAtom ? deltaRelation : getRelation(atom.getPredicate());
+        for (List<String> tuple : relation.lookup(boundColumns, key)) {
+            HashMap<String, String> extended = extend(atom, tuple, binding);
+            if (extended != null)
+                join(plan, step + 1, extended, deltaAtom, deltaRelation, consumer);
+        }
+    }
+
+    // binds the free variables of atom to tuple, null if a variable repeats with another value
+    private static HashMap<String, String> extend(Atom atom, List<String> tuple, HashMap<String, String> binding) {
+        HashMap<String, String> extended = new HashMap<>(binding);
+        for (int i = 0; i < atom.getArity(); i++) {
+            if (!atom.isVariable(i))
+                continue;
+            String previous = extended.putIfAbsent(atom.getTerm(i), tuple.get(i));
+            if (previous != null && !previous.equals(tuple.get(i)))
+                return null;
+        }
+        return extended;
+    }
+
+    private static boolean evaluateBuiltIn(Atom atom, HashMap<String, String> binding) {
+        List<String> values = getValues(atom, binding);
+        if (atom.getPredicate().equals(Atom.NOT_EQUAL))
+            return !values.get(0).equals(values.get(1));
+        if (atom.getPredicate().equals(Atom.LESS_THAN))
+            return Integer.parseInt(values.get(0)) < Integer.parseInt(values.get(1));
+        return values.get(0).contains(values.get(1));
+    }
+
+    private static List<String> getValues(Atom atom, HashMap<String, String> binding) {
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < atom.getArity(); i++) {
+            values.add(atom.isVariable(i) ? binding.get(atom.getTerm(i)) : atom.getTerm(i));
+        }
+        return values;
+    }
+
+    private static List<String> getConstants(Atom atom) {
+        return getValues(atom, new HashMap<>());
+    }
+
+    /**
+     * Orders the body of a rule for a join, see the class comment.
+     */
+    private List<Atom> plan(Rule rule, int deltaPosition) {
+        List<Atom> remaining = new ArrayList<>(rule.getBody());
+        List<Atom> plan = new ArrayList<>();
+        Set<String> bound = new HashSet<>();
+
+        if (deltaPosition != -1) {
+            Atom deltaAtom = rule.getBody().get(deltaPosition);
+            remaining.remove(deltaAtom);
+            plan.add(deltaAtom);
+            bound.addAll(deltaAtom.getVariables());
+        }
+        addFilters(remaining, plan, bound);
+
+        while (true) {
+            Atom best = null;
+            int bestBound = -1;
+            for (Atom atom : remaining) {
+                if (atom.isNegated() || atom.isBuiltIn())
+                    continue;
+                int boundTerms = 0;
+                for (int i = 0; i < atom.getArity(); i++) {
+                    if (!atom.isVariable(i) || bound.contains(atom.getTerm(i)))
+                        boundTerms++;
+                }
+                if (best == null || boundTerms > bestBound || (boundTerms == bestBound
+                        && getRelation(atom.getPredicate()).size() < getRelation(best.getPredicate()).size())) {
+                    best = atom;
+                    bestBound = boundTerms;
+                }
+            }
+            if (best == null)
+                break;
+            remaining.remove(best);
+            plan.add(best);
+            bound.addAll(best.getVariables());
+            addFilters(remaining, plan, bound);
+        }
+
+        if (!remaining.isEmpty())
+            throw new IllegalArgumentException("Unsafe rule, unbound variables in " + remaining + ": " + rule);
+        return plan;
+    }
+
+    // negations and built-ins whose variables are all bound
+    private static void addFilters(List<Atom> remaining, List<Atom> plan, Set<String> bound) {
+        for (Iterator<Atom> iterator = remaining.iterator(); iterator.hasNext();) {
+            Atom atom = iterator.next();
+            if ((atom.isNegated() || atom.isBuiltIn()) && bound.containsAll(atom.getVariables())) {
+                plan.add(atom);
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Groups the rules so that every predicate used negatively is computed in an earlier
+     * stratum than the rules using it.
+     */
+    private List<List<Rule>> stratify() {
+        HashMap<String, Integer> strata = new HashMap<>();
+        for (Rule rule : rules) {
+            strata.put(rule.getHead().getPredicate(), 0);
+        }
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Rule rule : rules) {
+                String head = rule.getHead().getPredicate();
+                int stratum = strata.get(head);
+                for (Atom atom : rule.getBody()) {
+                    if (atom.isBuiltIn() || !strata.containsKey(atom.getPredicate()))
+                        continue;
+                    int required = strata.get(atom.getPredicate()) + (atom.isNegated() ? 1 : 0);
+                    if (required > stratum)
+                        stratum = required;
+                }
+                if (stratum > strata.size())
+                    throw new IllegalArgumentException("Rules are not stratifiable, " + head
+                            + " depends negatively on itself");
+                if (stratum != strata.get(head)) {
+                    strata.put(head, stratum);
+                    changed = true;
+                }
+            }
+        }
+
+        TreeMap<Integer, List<Rule>> grouped = new TreeMap<>();
+        for (Rule rule : rules) {
+            grouped.computeIfAbsent(strata.get(rule.getHead().getPredicate()), key -> new ArrayList<>()).add(rule);
+        }
+        return new ArrayList<>(grouped.values());
+    }
+}
@@ -0,0 +1,132 @@
+package dps.designpatternidentifier.rules;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Compares the roles derived by the pattern rules with the output of the hand-written
+ * detectors, for --rule-parity runs.
+ *
+ * Both sides are projected onto the role tuples the detector output carries, e.g. the
+ * singleton classes or the (adapter, target) pairs, so the nested result maps don't have
+ * to be rebuilt from the rules.
+ */
+public class RuleParity {
+    public static final String RULES = "/rules/patterns.rules";
+
+    private static List<Rule> rules;
+
+    private static synchronized List<Rule> getRules() throws IOException {
+        if (rules == null)
+            rules = RuleParser.parseResource(RULES);
+        return rules;
+    }
+
+    /**
+     * Evaluates the rules on fileDetails and returns one line per differing role tuple,
+     * "+" for tuples only the rules derive and "-" for tuples only the detectors report.
+     * fileDetails must be the same map the detectors ran on.
+     */
+    public static List<String> compare(HashMap<String, HashMap> fileDetails, ArrayList designPatternArrayList,
+            Collection<String> patternNames) throws IOException {
+        RuleEngine engine = new RuleEngine();
+        engine.addRules(getRules());
+        PatternFacts.addTo(engine, fileDetails);
+        engine.evaluate();
+
+        HashMap<String, Object> detected = new HashMap<>();
+        for (Object output : designPatternArrayList) {
+            detected.putAll((HashMap<String, Object>) output);
+        }
+
+        List<String> differences = new ArrayList<>();
+        for (String patternName : patternNames) {
+            HashMap<String, Set<List<String>>> expected = getRoles(patternName, detected.get(patternName));
+            for (Map.Entry<String, Set<List<String>>> role : expected.entrySet()) {
+                Set<List<String>> derived = engine.getRelation(role.getKey()).getTuples();
+                for (List<String> tuple : derived) {
+                    if (!role.getValue().contains(tuple))
+                        differences.add("+ " + role.getKey() + tuple);
+                }
+                for (List<String> tuple : role.getValue()) {
+                    if (!derived.contains(tuple))
+                        differences.add("- " + role.getKey() + tuple);
+                }
+            }
+        }
+        return differences;
+    }
+
+    // rule relation -> role tuples reported by the detector
+    private static HashMap<String, Set<List<String>>> getRoles(String patternName, Object output) {
+        HashMap<String, Set<List<String>>> roles = new HashMap<>();
+        Map<String, Object> patternMap = output instanceof Map ? (Map<String, Object>) output : new HashMap<>();
+
+        switch (patternName) {
+            case "singleton":
+                Set<List<String>> singletons = addRole(roles, "singleton");
+                if (output instanceof Collection)
+                    for (Object singleton : (Collection) output)
+                        singletons.add(Arrays.asList((String) singleton));
+                break;
+            case "factory_method":
+                Set<List<String>> products = addRole(roles, "factoryProduct");
+                for (Object factory : patternMap.values())
+                    products.add(Arrays.asList((String) ((Map) factory).get("abstract_product")));
+                break;
+            case "abstract_factory":
+                addKeys(addRole(roles, "abstractFactory"), patternMap);
+                break;
+            case "adapter":
+                Set<List<String>> targets = addRole(roles, "adapterTargetRole");
+                Set<List<String>> adaptees = addRole(roles, "adapterAdapteeRole");
+                for (Map.Entry<String, Object> adapter : patternMap.entrySet()) {
+                    addPairs(targets, adapter.getKey(), (Collection) ((Map) adapter.getValue()).get("target"));
+                    addPairs(adaptees, adapter.getKey(), (Collection) ((Map) adapter.getValue()).get("adaptee"));
+                }
+                break;
+            case "decorator":
+                addKeys(addRole(roles, "decorator"), patternMap);
+                break;
+            case "visitor":
+                Set<List<String>> elements = addRole(roles, "visitorElement");
+                for (Map.Entry<String, Object> element : patternMap.entrySet())
+                    addPairs(elements, element.getKey(), ((Map) ((Map) element.getValue()).get("visitor")).keySet());
+                break;
+            case "facade":
+                Set<List<String>> facades = addRole(roles, "facade");
+                for (Map.Entry<String, Object> facade : patternMap.entrySet())
+                    addPairs(facades, facade.getKey(), (Collection) facade.getValue());
+                break;
+            case "observer":
+                addKeys(addRole(roles, "observer"), patternMap);
+                Set<List<String>> concreteObservers = addRole(roles, "concreteObserver");
+                for (Map.Entry<String, Object> observer : patternMap.entrySet())
+                    addPairs(concreteObservers, observer.getKey(),
+                            (Collection) ((Map) observer.getValue()).get("concrete_observer"));
+                break;
+            case "memento":
+                addKeys(addRole(roles, "memento"), patternMap);
+                break;
+            default:
+                break;
+        }
+        return roles;
+    }
+
+    private static Set<List<String>> addRole(HashMap<String, Set<List<String>>> roles, String relation) {
+        return roles.computeIfAbsent(relation, key -> new HashSet<>());
+    }
+
+    private static void addKeys(Set<List<String>> role, Map<String, Object> patternMap) {
+        for (String key : patternMap.keySet())
+            role.add(Arrays.asList(key));
+    }
+
+    private static void addPairs(Set<List<String>> role, String first, Collection seconds) {
+        if (seconds == null)
+            return;
+        for (Object second : seconds)
+            role.add(Arrays.asList(first, (String) second));
+    }
+}
@@ -0,0 +1,199 @@
+package dps.designpatternidentifier.rules;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Parses rule text:
+ *
+ * % comment
+ * singleton(C) :- field(C, F, C), fieldModifier(F, "private"), not nonPrivateConstructor(C).
+ * adapter(A, T, E) :- adapterTarget(A, T), supertype(A, E), T != E.
+ * earlier(X, Y) :- position(X, I), position(Y, J), I < J.
+ *
+ * Each "_" is a fresh variable.
+ */
+public class RuleParser {
+    private final String text;
+    private int position = 0;
+    private int wildcards = 0;
+
+    private RuleParser(String text) {
+        this.text = text;
+    }
+
+    public static List<Rule> parse(String text) {
+        return new RuleParser(text).parseRules();
+    }
+
+    public static List<Rule> parseResource(String resource) throws IOException {
+        InputStream stream = RuleParser.class.getResourceAsStream(resource);
+        if (stream == null)
+            throw new IOException("Rule file not found: " + resource);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            return parse(reader.lines().collect(Collectors.joining("\n")));
+        }
+    }
+
+    private List<Rule> parseRules() {
+        List<Rule> rules = new ArrayList<>();
+        skipWhitespace();
+        while (position < text.length()) {
+            Atom head = parseAtom();
+            List<Atom> body = new ArrayList<>();
+            skipWhitespace();
+            if (text.startsWith(":-", position)) {
+                position += 2;
+                do {
+                    body.add(parseBodyAtom());
+                    skipWhitespace();
+                } while (accept(','));
+            }
+            expect('.');
+            rules.add(new Rule(head, body));
+            skipWhitespace();
+        }
+        return rules;
+    }
+
+    private Atom parseBodyAtom() {
+        skipWhitespace();
+        if (text.startsWith("not ", position)) {
+            position += 4;
+            Atom atom = parseAtom();
+            return new Atom(atom.getPredicate(), getTerms(atom), getVariableFlags(atom), true);
+        }
+
+        int start = position;
+        if (position >= text.length())
+            throw error("atom expected");
+        if (text.charAt(position) != '"') {
+            parseIdentifier();
+            boolean isAtom = accept('(');
+            position = start;
+            if (isAtom)
+                return parseAtom();
+        }
+
+        // X != Y, I < J
+        List<String> terms = new ArrayList<>();
+        List<Boolean> variables = new ArrayList<>();
+        parseTerm(terms, variables);
+        skipWhitespace();
+        String operator;
+        if (text.startsWith(Atom.NOT_EQUAL, position))
+            operator = Atom.NOT_EQUAL;
+        else if (text.startsWith(Atom.LESS_THAN, position))
+            operator = Atom.LESS_THAN;
+        else
+            throw error("'!=' or '<' expected");
+        position += operator.length();
+        parseTerm(terms, variables);
+        return new Atom(operator, terms, variables, false);
+    }
+
+    private Atom parseAtom() {
+        skipWhitespace();
+        String predicate = parseIdentifier();
+        List<String> terms = new ArrayList<>();
+        List<Boolean> variables = new ArrayList<>();
+        expect('(');
+        do {
+            parseTerm(terms, variables);
+            skipWhitespace();
+        } while (accept(','));
+        expect(')');
+        return new Atom(predicate, terms, variables, false);
+    }
+
+    private void parseTerm(List<String> terms, List<Boolean> variables) {
+        skipWhitespace();
+        if (accept('"')) {
+            int end = text.indexOf('"', position);
+            if (end == -1)
+                throw error("unterminated string");
+            terms.add(text.substring(position, end));
+            variables.add(false);
+            position = end + 1;
+            return;
+        }
+        String identifier = parseIdentifier();
+        if (identifier.equals("_"))
+            identifier = "_" + (++wildcards);
+        if (!Character.isUpperCase(identifier.charAt(0)) && identifier.charAt(0) != '_')
+            throw error("constants must be quoted: " + identifier);
+        terms.add(identifier);
+        variables.add(true);
+    }
+
+    private String parseIdentifier() {
+        skipWhitespace();
+        int start = position;
+        while (position < text.length()
+                && (Character.isLetterOrDigit(text.charAt(position)) || text.charAt(position) == '_')) {
+            position++;
+        }
+        if (start == position)
+            throw error("identifier expected");
+        return text.substring(start, position);
+    }
+
+    private boolean accept(char c) {
+        skipWhitespace();
+        if (position < text.length() && text.charAt(position) == c) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char c) {
+        if (!accept(c))
+            throw error("'" + c + "' expected");
+    }
+
+    private void skipWhitespace() {
+        while (position < text.length()) {
+            char c = text.charAt(position);
+            if (c == '%') {
+                while (position < text.length() && text.charAt(position) != '\n')
+                    position++;
+            } else if (Character.isWhitespace(c)) {
+                position++;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        int line = 1;
+        for (int i = 0; i < position && i < text.length(); i++) {
+            if (text.charAt(i) == '\n')
+                line++;
+        }
+        return new IllegalArgumentException("Rule syntax error at line " + line + ": " + message);
+    }
+
+    private static List<String> getTerms(Atom atom) {
+        List<String> terms = new ArrayList<>();
+        for (int i = 0; i < atom.getArity(); i++) {
+            terms.add(atom.getTerm(i));
+        }
+        return terms;
+    }
+
+    private static List<Boolean> getVariableFlags(Atom atom) {
+        List<Boolean> variables = new ArrayList<>();
+        for (int i = 0; i < atom.getArity(); i++) {
+            variables.add(atom.isVariable(i));
+        }
+        return variables;
+    }
+}
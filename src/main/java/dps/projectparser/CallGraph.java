@@ -0,0 +1,548 @@
+package dps.projectparser;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
+import com.github.javaparser.resolution.declarations.ResolvedMethodDeclaration;
+import com.github.javaparser.symbolsolver.JavaSymbolSolver;
+import com.github.javaparser.symbolsolver.javaparsermodel.declarations.JavaParserMethodDeclaration;
+
+import dps.utils.Diagnostics;
+import dps.utils.MetricsRegistry;
+import dps.utils.PipelineEvents;
+import dps.utils.SymbolSolverFactory;
+import dps.utils.Utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Call graph of a single project, resolved on demand.
+ *
+ * Compilation units are registered while the project is parsed, but method calls are
+ * only symbol-solved when a consumer asks for the edges of a class. Each caller class is
+ * resolved at most once and its edges are merged into the parsed file details
+ * (OUTGOINGMETHOD of the caller, INCOMINGMETHOD of the callee), so later reads are free.
+ */
+public class CallGraph {
+
+    private final HashMap<String, HashMap> parsedFile;
+    private final TypeIndex typeIndex;
+    private final List<String> srcPathList;
+    private final List<String> libPathList;
+    private final List<Pattern> skipPatterns;
+
+    // registered compilation units by file key, in parse order
+    private final LinkedHashMap<String, CompilationUnit> compilationUnits = new LinkedHashMap<>();
+
+    // caller classes whose method calls have already been resolved and merged
+    private final HashSet<String> resolvedCallers = new HashSet<>();
+
+    // name of every called method -> classes containing such a call (no symbol solving needed)
+    private HashMap<String, LinkedHashSet<String>> callersByMethodName;
+
+    // edges of eagerly resolved classes, merged on the next resolve call
+    private final HashMap<String, ArrayList<String>> pendingCallerCallees = new HashMap<>();
+
+    private JavaSymbolSolver symbolSolver;
+
+    // set by ProjectSession: merged edges are kept so the edges of a changed class can be
+    // removed and linked again without resolving the unchanged classes a second time
+    private boolean retainEdges = false;
+    private final HashMap<String, HashMap<String, ArrayList<String>>> edgesByCaller = new HashMap<>();
+    private final HashMap<String, ArrayList<IncomingEdge>> incomingByCaller = new HashMap<>();
+    private final LinkedHashSet<String> touchedFileKeys = new LinkedHashSet<>();
+
+    // set when results are cached by fact hash: method calls of every registered class, see
+    // getCallSketch
+    private HashMap<String, String> callSketches = null;
+
+    // time spent by phase (MetricsRegistry.PARSE, EXTRACT, RESOLVE, MERGE), including shards
+    private final HashMap<String, Long> phaseNanos = new HashMap<>();
+    private int parseFailures = 0;
+
+    // an INCOMINGMETHOD entry a caller added to a method of another class
+    private static class IncomingEdge {
+        private final String calleeFileKey;
+        private final HashMap calleeMethodDetail;
+        private final HashMap<String, String> incoming;
+
+        private IncomingEdge(String calleeFileKey, HashMap calleeMethodDetail, HashMap<String, String> incoming) {
+            this.calleeFileKey = calleeFileKey;
+            this.calleeMethodDetail = calleeMethodDetail;
+            this.incoming = incoming;
+        }
+    }
+
+    public CallGraph(HashMap<String, HashMap> parsedFile, TypeIndex typeIndex, List<String> srcPathList,
+            List<String> libPathList, List<Pattern> skipPatterns) {
+        this.parsedFile = parsedFile;
+        this.typeIndex = typeIndex;
+        this.srcPathList = srcPathList;
+        this.libPathList = libPathList;
+        this.skipPatterns = skipPatterns;
+    }
+
+    public void register(String className, CompilationUnit compilationUnit) {
+        compilationUnits.put(className, compilationUnit);
+        callersByMethodName = null;
+        recordCallSketch(className, compilationUnit);
+    }
+
+    /**
+     * Resolves the method calls of a compilation unit straight away instead of keeping the
+     * AST around. The edges are merged together with the next resolve call.
+     */
+    public void registerResolved(String className, CompilationUnit compilationUnit) {
+        if (resolvedCallers.add(className)) {
+            extract(compilationUnit, pendingCallerCallees);
+        }
+        recordCallSketch(className, compilationUnit);
+    }
+
+    public void setRecordCallSketches(boolean recordCallSketches) {
+        callSketches = recordCallSketches ? new HashMap<>() : null;
+    }
+
+    /**
+     * Returns the unresolved method calls of a registered class, one line per method with the
+     * scope, name and argument count of each call, so classes with the same calls can be told
+     * apart before any edge is resolved. Null unless recorded, see setRecordCallSketches.
+     */
+    public String getCallSketch(String fileKey) {
+        return callSketches == null ? null : callSketches.get(fileKey);
+    }
+
+    /**
+     * Records the call sketch of a class that isn't registered, e.g. because no consumer
+     * reads call edges.
+     */
+    void recordCallSketch(String className, CompilationUnit compilationUnit) {
+        if (callSketches == null)
+            return;
+        StringBuilder sketch = new StringBuilder();
+        for (MethodDeclaration methodDeclaration : compilationUnit.findAll(MethodDeclaration.class)) {
+            sketch.append(methodDeclaration.getDeclarationAsString(false, false, false)).append(':');
+            for (MethodCallExpr call : methodDeclaration.findAll(MethodCallExpr.class)) {
+                call.getScope().ifPresent(scope -> sketch.append(scope).append('.'));
+                sketch.append(call.getNameAsString()).append('/').append(call.getArguments().size()).append(' ');
+            }
+            sketch.append('\n');
+        }
+        callSketches.put(className, sketch.toString());
+    }
+
+    public HashMap<String, HashMap> getParsedFile() {
+        return parsedFile;
+    }
+
+    public TypeIndex getTypeIndex() {
+        return typeIndex;
+    }
+
+    public void setRetainEdges(boolean retainEdges) {
+        this.retainEdges = retainEdges;
+    }
+
+    /**
+     * Returns the file keys whose OUTGOINGMETHOD or INCOMINGMETHOD lists changed since the
+     * last call. Only tracked while edges are retained.
+     */
+    public Set<String> takeTouchedFileKeys() {
+        Set<String> touched = new LinkedHashSet<>(touchedFileKeys);
+        touchedFileKeys.clear();
+        return touched;
+    }
+
+    /**
+     * Forgets changed files before they are parsed again: their compilation units are
+     * dropped, and the incoming entries their calls added to other classes are removed.
+     * Needs retained edges. Call relink once the new facts are in place.
+     */
+    public void remove(Set<String> fileKeys) {
+        for (String fileKey : fileKeys) {
+            compilationUnits.remove(fileKey);
+            resolvedCallers.remove(fileKey);
+            edgesByCaller.remove(fileKey);
+            for (IncomingEdge edge : incomingByCaller.getOrDefault(fileKey, new ArrayList<>())) {
+                if (fileKeys.contains(edge.calleeFileKey))
+                    continue;
+                ArrayList<HashMap> incomingMethods = Utils.getIncomingMethod(edge.calleeMethodDetail);
+                incomingMethods.remove(edge.incoming);
+                edge.calleeMethodDetail.put("NUMBEROFINCOMINGMETHODS", incomingMethods.size());
+                touchedFileKeys.add(edge.calleeFileKey);
+            }
+            incomingByCaller.remove(fileKey);
+        }
+        // entries in the replaced facts are gone with them
+        for (ArrayList<IncomingEdge> edges : incomingByCaller.values()) {
+            edges.removeIf(edge -> fileKeys.contains(edge.calleeFileKey));
+        }
+
+        // the type solver caches the old sources
+        symbolSolver = null;
+        callersByMethodName = null;
+    }
+
+    /**
+     * Links the retained calls of unchanged classes into files that were parsed again. The
+     * changed files themselves are resolved on the next resolve call.
+     */
+    public void relink(Set<String> fileKeys) {
+        for (Map.Entry<String, HashMap<String, ArrayList<String>>> callerEntry : edgesByCaller.entrySet()) {
+            HashMap callerClassDetails = parsedFile.get(callerEntry.getKey());
+            if (callerClassDetails == null)
+                continue;
+            for (Map.Entry<String, ArrayList<String>> edge : callerEntry.getValue().entrySet()) {
+                String callerMethodName = extractCallgraphMethodName(edge.getKey());
+                for (HashMap parsedCalledMethod : Utils.getMethodDetails(callerClassDetails)) {
+                    if (!Utils.getMethodName(parsedCalledMethod).equals(callerMethodName))
+                        continue;
+                    for (String callee : edge.getValue()) {
+                        String calleeFileKey = typeIndex.getFileKeyForType(extractCallgraphQualifiedClass(callee));
+                        if (calleeFileKey != null && fileKeys.contains(calleeFileKey)) {
+                            linkIncoming(callerEntry.getKey(), edge.getKey(), callee);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes over the compilation units and not yet linked edges of a shard's call graph.
+     * The shard's facts must already be merged into this graph's parsed files.
+     */
+    public void absorb(CallGraph shard) {
+        typeIndex.addAll(shard.typeIndex);
+        compilationUnits.putAll(shard.compilationUnits);
+        resolvedCallers.addAll(shard.resolvedCallers);
+        for (Map.Entry<String, ArrayList<String>> entry : shard.pendingCallerCallees.entrySet()) {
+            pendingCallerCallees.computeIfAbsent(entry.getKey(), key -> new ArrayList<>()).addAll(entry.getValue());
+        }
+        shard.pendingCallerCallees.clear();
+        callersByMethodName = null;
+        if (callSketches != null && shard.callSketches != null) {
+            callSketches.putAll(shard.callSketches);
+        }
+        shard.phaseNanos.forEach(this::addPhaseNanos);
+        parseFailures += shard.parseFailures;
+    }
+
+    public void addPhaseNanos(String phase, long nanos) {
+        phaseNanos.merge(phase, nanos, Long::sum);
+    }
+
+    /**
+     * Returns the time spent in each phase and starts again from zero.
+     */
+    public HashMap<String, Long> takePhaseNanos() {
+        HashMap<String, Long> nanos = new HashMap<>(phaseNanos);
+        phaseNanos.clear();
+        return nanos;
+    }
+
+    // files of the project that could not be parsed
+    void addParseFailure() {
+        parseFailures++;
+    }
+
+    public int getParseFailures() {
+        return parseFailures;
+    }
+
+    public boolean isFullyResolved() {
+        return resolvedCallers.containsAll(compilationUnits.keySet());
+    }
+
+    /**
+     * Resolves every remaining caller class. Used by consumers that walk the whole graph,
+     * such as the facade detector.
+     */
+    public void resolveAll() {
+        if (pendingCallerCallees.isEmpty() && isFullyResolved())
+            return;
+        HashMap<String, ArrayList<String>> callerCallees = takePendingCallerCallees();
+        for (Map.Entry<String, CompilationUnit> entry : compilationUnits.entrySet()) {
+            if (resolvedCallers.add(entry.getKey())) {
+                extract(entry.getValue(), callerCallees);
+            }
+        }
+        mergeCallgraphResults(callerCallees);
+    }
+
+    /**
+     * Makes both the outgoing and the incoming edges of a class available. Only the class
+     * itself and the classes that call a method with a matching name are resolved.
+     * className is a file key or a key of the simple-name view.
+     */
+    public void resolveClass(String className) {
+        if (pendingCallerCallees.isEmpty() && isFullyResolved())
+            return;
+        String fileKey = typeIndex.getFileKey(className);
+        HashSet<String> callers = new LinkedHashSet<>();
+        callers.add(fileKey);
+
+        HashMap classDetails = parsedFile.get(fileKey);
+        if (classDetails != null && Utils.getMethodDetails(classDetails) != null) {
+            HashMap<String, LinkedHashSet<String>> index = getCallersByMethodName();
+            for (HashMap methodDetail : Utils.getMethodDetails(classDetails)) {
+                callers.addAll(index.getOrDefault(Utils.getMethodName(methodDetail), new LinkedHashSet<>()));
+            }
+        }
+
+        HashMap<String, ArrayList<String>> callerCallees = takePendingCallerCallees();
+        for (String caller : callers) {
+            CompilationUnit compilationUnit = compilationUnits.get(caller);
+            if (compilationUnit != null && resolvedCallers.add(caller)) {
+                extract(compilationUnit, callerCallees);
+            }
+        }
+        mergeCallgraphResults(callerCallees);
+    }
+
+    private HashMap<String, ArrayList<String>> takePendingCallerCallees() {
+        HashMap<String, ArrayList<String>> callerCallees = new HashMap<>(pendingCallerCallees);
+        pendingCallerCallees.clear();
+        return callerCallees;
+    }
+
+    private HashMap<String, LinkedHashSet<String>> getCallersByMethodName() {
+        if (callersByMethodName == null) {
+            callersByMethodName = new HashMap<>();
+            for (Map.Entry<String, CompilationUnit> entry : compilationUnits.entrySet()) {
+                for (MethodCallExpr methodCall : entry.getValue().findAll(MethodCallExpr.class)) {
+                    callersByMethodName.computeIfAbsent(methodCall.getNameAsString(), key -> new LinkedHashSet<>())
+                            .add(entry.getKey());
+                }
+            }
+        }
+        return callersByMethodName;
+    }
+
+    /**
+     * The symbol solver of the project, built on first use. Its type solvers cache the types
+     * of the source roots and jars, so the shards of a project share one, see setSymbolSolver.
+     */
+    JavaSymbolSolver getSymbolSolver() {
+        if (symbolSolver == null) {
+            try {
+                symbolSolver = SymbolSolverFactory.getJavaSymbolSolver(srcPathList, libPathList);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return symbolSolver;
+    }
+
+    // used by the shards' call graphs, null builds one on first use
+    void setSymbolSolver(JavaSymbolSolver symbolSolver) {
+        this.symbolSolver = symbolSolver;
+    }
+
+    private void mergeCallgraphResults(HashMap<String, ArrayList<String>> callerCallees) {
+        long start = System.nanoTime();
+        for (HashMap.Entry mapElement : callerCallees.entrySet()) {
+            String caller = (String) mapElement.getKey();
+            ArrayList<String> callees = callerCallees.get(caller);
+
+            String callerMethodName = extractCallgraphMethodName(caller);
+
+            // facts are looked up by qualified name, the edges keep the simple class names
+            String callerFileKey = typeIndex.getFileKeyForType(extractCallgraphQualifiedClass(caller));
+            if (callerFileKey != null && parsedFile.containsKey(callerFileKey)) {
+                if (retainEdges) {
+                    edgesByCaller.computeIfAbsent(callerFileKey, key -> new HashMap<>()).put(caller, callees);
+                    touchedFileKeys.add(callerFileKey);
+                }
+                HashMap<String, ArrayList> parsedCallerClass = parsedFile.get(callerFileKey);
+                ArrayList<HashMap> parsedCalledMethods = Utils.getMethodDetails(parsedCallerClass);
+                for (HashMap parsedCalledMethod : parsedCalledMethods) {
+
+                    // need parameter comparison also
+                    if (Utils.getMethodName(parsedCalledMethod).equals(callerMethodName)) {
+                        for (String callee : callees) {
+
+                            String calleeClass = extractCallgraphClass(callee);
+                            String calleeMethodName = extractCallgraphMethodName(callee);
+
+                            HashMap<String, String> newOutgoing = new HashMap<>();
+                            newOutgoing.put("CALLEECLASS", calleeClass);
+                            newOutgoing.put("CALLEEMETHODNAME", calleeMethodName);
+
+                            Utils.getOutgoingMethod(parsedCalledMethod).add(newOutgoing);
+
+                            // add incoming method for the method in caller class
+                            linkIncoming(callerFileKey, caller, callee);
+                        }
+                    }
+                }
+            }
+        }
+        addPhaseNanos(MetricsRegistry.MERGE, System.nanoTime() - start);
+    }
+
+    private void linkIncoming(String callerFileKey, String caller, String callee) {
+        String callerClass = extractCallgraphClass(caller);
+        String callerMethodName = extractCallgraphMethodName(caller);
+        String calleeMethodName = extractCallgraphMethodName(callee);
+
+        String calleeFileKey = typeIndex.getFileKeyForType(extractCallgraphQualifiedClass(callee));
+        HashMap<String, ArrayList> parsedCalleeClass = calleeFileKey == null ? null : parsedFile.get(calleeFileKey);
+        if (parsedCalleeClass == null) {
+            return;
+        }
+        ArrayList<HashMap> parsedCallingMethods = Utils.getMethodDetails(parsedCalleeClass);
+
+        for (HashMap parsedCallingMethod : parsedCallingMethods) {
+
+            if (Utils.getMethodName(parsedCallingMethod).equals(calleeMethodName)) {
+
+                HashMap<String, String> newIncoming = new HashMap<>();
+                newIncoming.put("CALLEDCLASS", callerClass);
+                newIncoming.put("CALLEDMETHODNAME", callerMethodName);
+
+                Utils.getIncomingMethod(parsedCallingMethod).add(newIncoming);
+
+                // Update number of incoming calls
+                parsedCallingMethod.put("NUMBEROFINCOMINGMETHODS",
+                        Utils.getIncomingMethod(parsedCallingMethod).size());
+
+                if (retainEdges) {
+                    incomingByCaller.computeIfAbsent(callerFileKey, key -> new ArrayList<>())
+                            .add(new IncomingEdge(calleeFileKey, parsedCallingMethod, newIncoming));
+                    touchedFileKeys.add(calleeFileKey);
+                }
+            }
+        }
+    }
+
+    private String extractCallgraphClass(String caller) {
+        String filteredCaller = caller.replaceAll("\\(.*\\)", "");
+        return Utils.splitByDot(filteredCaller, 2);
+    }
+
+    private String extractCallgraphQualifiedClass(String caller) {
+        String filteredCaller = caller.replaceAll("\\(.*\\)", "");
+        int index = filteredCaller.lastIndexOf('.');
+        return index == -1 ? filteredCaller : filteredCaller.substring(0, index);
+    }
+
+    private String extractCallgraphMethodName(String caller) {
+        String filteredCaller = caller.replaceAll("\\(.*\\)", "");
+        return Utils.splitByDot(filteredCaller, 1);
+    }
+
+    // referenced from Java Callgraph
+    private void extract(CompilationUnit compilationUnit, HashMap<String, ArrayList<String>> callerCallees) {
+        long start = System.nanoTime();
+
+        // compilation units parsed without a resolver get the project solver on first use
+        if (!compilationUnit.containsData(Node.SYMBOL_RESOLVER_KEY)) {
+            compilationUnit.setData(Node.SYMBOL_RESOLVER_KEY, getSymbolSolver());
+        }
+
+        // 获取到方法声明，并进行遍历
+        List<MethodDeclaration> all = compilationUnit.findAll(MethodDeclaration.class);
+        for (MethodDeclaration methodDeclaration : all) {
+            ArrayList<String> curCallees = new ArrayList<>();
+
+            // 对每个方法声明内容进行遍历，查找内部调用的其他方法
+            methodDeclaration.accept(new MethodCallVisitor(skipPatterns), curCallees);
+            String caller = getQualifiedSignature(methodDeclaration);
+            assert caller != null;
+
+            // // 如果map中还没有key，则添加key
+            if (!callerCallees.containsKey(caller) && !Utils.shouldSkip(caller, skipPatterns)) {
+                callerCallees.put(caller, new ArrayList<>());
+            }
+
+            if (!Utils.shouldSkip(caller, skipPatterns)) {
+                callerCallees.get(caller).addAll(curCallees);
+            }
+
+        }
+        addPhaseNanos(MetricsRegistry.RESOLVE, System.nanoTime() - start);
+    }
+
+    // 遍历源码文件时，只关注方法调用的Visitor， 然后提取存放到第二个参数collector中
+    private static class MethodCallVisitor extends VoidVisitorAdapter<List<String>> {
+
+        private List<Pattern> skipPatterns = new ArrayList<Pattern>();
+
+        public MethodCallVisitor(List<Pattern> skipPatterns) {
+            if (skipPatterns != null) {
+                this.skipPatterns = skipPatterns;
+
+            }
+        }
+
+        @Override
+        public void visit(MethodCallExpr n, List<String> collector) {
+            // 提取方法调用
+            String signature = CallGraph.getResolvedMethodSignature(n);
+            if (signature != null && !Utils.shouldSkip(signature, skipPatterns)) {
+                ResolvedMethodDeclaration resolvedMethodDeclaration;
+                try {
+                    resolvedMethodDeclaration = n.resolve();
+                    if (resolvedMethodDeclaration instanceof JavaParserMethodDeclaration) {
+                        collector.add(signature);
+                    }
+                } catch (Exception e) {
+                    // Continue execution - just log the issue
+                }
+            }
+            // Don't forget to call super, it may find more method calls inside the
+            // arguments of this method call, for example.
+            super.visit(n, collector);
+        }
+    }
+
+    /**
+     * Helper method to get qualified signature with fallback handling
+     * @param methodDeclaration The method declaration
+     * @return qualified signature or simple signature as fallback
+     */
+    private String getQualifiedSignature(MethodDeclaration methodDeclaration) {
+        try {
+            return methodDeclaration.resolve().getQualifiedSignature();
+        } catch (Exception e) {
+            String fallback = methodDeclaration.getSignature().asString();
+            resolutionFailed(Diagnostics.UNRESOLVED_DECLARATION, methodDeclaration, fallback, e);
+            return fallback;
+        }
+    }
+
+    /**
+     * Helper method to get resolved method signature with error handling
+     * @param methodCall The method call expression
+     * @return qualified signature or null if resolution fails
+     */
+    private static String getResolvedMethodSignature(MethodCallExpr methodCall) {
+        try {
+            return methodCall.resolve().getQualifiedSignature();
+        } catch (Exception e) {
+            resolutionFailed(Diagnostics.UNRESOLVED_CALL, methodCall, methodCall.getNameAsString(), e);
+            return null;
+        }
+    }
+
+    // reports a failed resolution to the Diagnostics, and as a flight recorder event if enabled
+    private static void resolutionFailed(String kind, Node node, String symbol, Exception e) {
+        Optional<CompilationUnit.Storage> storage = node.findCompilationUnit().flatMap(CompilationUnit::getStorage);
+        int line = node.getBegin().map(begin -> begin.line).orElse(-1);
+        Diagnostics.getShared().report(kind, symbol + ": " + e.getMessage(),
+                storage.map(s -> s.getFileName()).orElse("?") + ":" + line);
+        if (!PipelineEvents.isEnabled())
+            return;
+        String className = node.findAncestor(TypeDeclaration.class).map(TypeDeclaration::getNameAsString)
+                .orElse(null);
+        PipelineEvents.symbolResolutionFailed(storage.map(s -> s.getPath().toString()).orElse(null), className,
+                line, symbol, e.getMessage());
+    }
+}
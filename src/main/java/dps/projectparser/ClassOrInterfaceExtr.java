@@ -6,6 +6,7 @@ import com.github.javaparser.ast.body.EnumDeclaration;
 import com.github.javaparser.ast.expr.MethodCallExpr;
 import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
 
+import dps.utils.SymbolTable;
 import dps.utils.Utils;
 
 import java.util.ArrayList;
@@ -25,12 +26,12 @@ public class ClassOrInterfaceExtr extends VoidVisitorAdapter<Void> {
                 HashMap<String, Object> classInterfaceInfo = new HashMap<>();
 
                 // CN
-                classInterfaceInfo.put("CLASSNAME", cid.getName().toString());
+                classInterfaceInfo.put("CLASSNAME", SymbolTable.intern(cid.getName().toString()));
                 classInterfaceInfo.put("CLASSTYPEPARAMS", Utils.nodeListToArrayList(cid.getTypeParameters()));
 
                 // CMT
                 classInterfaceInfo.put("CLASSMODIFIERTYPE", Utils.nodeListToArrayList(cid.getModifiers()));
-                classInterfaceInfo.put("CLASSACCESSSPECIFIER", cid.getAccessSpecifier().toString());
+                classInterfaceInfo.put("CLASSACCESSSPECIFIER", SymbolTable.intern(cid.getAccessSpecifier().toString()));
 
                 // IMF
                 classInterfaceInfo.put("IMPLEMENTSFROM",
@@ -57,12 +58,12 @@ public class ClassOrInterfaceExtr extends VoidVisitorAdapter<Void> {
                 HashMap<String, Object> enumInfo = new HashMap<>();
 
                 // CN
-                enumInfo.put("CLASSNAME", ed.getName().toString());
+                enumInfo.put("CLASSNAME", SymbolTable.intern(ed.getName().toString()));
                 enumInfo.put("CLASSTYPEPARAMS", new ArrayList<>()); // Enums don't have type parameters
 
                 // CMT
                 enumInfo.put("CLASSMODIFIERTYPE", Utils.nodeListToArrayList(ed.getModifiers()));
-                enumInfo.put("CLASSACCESSSPECIFIER", ed.getAccessSpecifier().toString());
+                enumInfo.put("CLASSACCESSSPECIFIER", SymbolTable.intern(ed.getAccessSpecifier().toString()));
 
                 // IMF
                 enumInfo.put("IMPLEMENTSFROM", Utils.nodeListToArrayList(ed.getImplementedTypes()));
@@ -4,6 +4,8 @@ import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.body.FieldDeclaration;
 import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
 
+import dps.utils.Diagnostics;
+import dps.utils.SymbolTable;
 import dps.utils.Utils;
 
 import java.util.ArrayList;
@@ -26,17 +28,17 @@ public class FieldExtr extends VoidVisitorAdapter<Void> {
                     fieldInfo.put("FIELDDECLARATION", Utils.nodeListToArrayList(fd.getVariables()));
 
                     // FDT
-                    fieldInfo.put("FIELDDATATYPE", fd.getElementType().toString());
-                    fieldInfo.put("FIELDCOMMONTYPE", fd.getCommonType().toString());
-                    fieldInfo.put("FIELDACCESSSPECIFIER", fd.getAccessSpecifier().toString());
+                    fieldInfo.put("FIELDDATATYPE", SymbolTable.intern(fd.getElementType().toString()));
+                    fieldInfo.put("FIELDCOMMONTYPE", SymbolTable.intern(fd.getCommonType().toString()));
+                    fieldInfo.put("FIELDACCESSSPECIFIER", SymbolTable.intern(fd.getAccessSpecifier().toString()));
 
                     // FMT
                     fieldInfo.put("FIELDMODIFIERTYPE", Utils.nodeListToArrayList(fd.getModifiers()));
 
                     fieldInfoHashArray.add(fieldInfo);
                 } catch (AssertionError e) {
-                    System.err.println("Skipping field declaration due to type mismatch: " + fd);
-                    // Optionally log e.getMessage()
+                    Diagnostics.getShared().report(Diagnostics.FIELD_TYPE_MISMATCH,
+                            "Skipping field declaration due to type mismatch: " + fd, null);
                 }
             }
         }, null);
@@ -6,6 +6,7 @@ import com.github.javaparser.ast.expr.MethodCallExpr;
 import com.github.javaparser.ast.stmt.Statement;
 import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
 
+import dps.utils.SymbolTable;
 import dps.utils.Utils;
 
 import java.util.ArrayList;
@@ -25,10 +26,10 @@ public class MethodsExtr extends VoidVisitorAdapter<Void> {
                 HashMap<String, Object> methodInfo = new HashMap<>();
 
                 // MN
-                methodInfo.put("METHODNAME", md.getName().asString());
+                methodInfo.put("METHODNAME", SymbolTable.intern(md.getName().asString()));
 
                 // MRT
-                methodInfo.put("METHODRETURNTYPE", md.getType().asString());
+                methodInfo.put("METHODRETURNTYPE", SymbolTable.intern(md.getType().asString()));
 
                 // MMT
                 methodInfo.put("METHODMODIFIERTYPE", Utils.nodeListToArrayList(md.getModifiers()));
@@ -1,16 +1,20 @@
 package dps.projectparser;
 
-import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseProblemException;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParserConfiguration;
 import com.github.javaparser.ParserConfiguration.LanguageLevel;
 import com.github.javaparser.ast.CompilationUnit;
-import com.github.javaparser.ast.body.MethodDeclaration;
-import com.github.javaparser.ast.expr.MethodCallExpr;
-import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
-import com.github.javaparser.resolution.declarations.ResolvedMethodDeclaration;
 import com.github.javaparser.symbolsolver.JavaSymbolSolver;
-import com.github.javaparser.symbolsolver.javaparsermodel.declarations.JavaParserMethodDeclaration;
 
+import dps.designpatternidentifier.CandidateRanker;
 import dps.designpatternidentifier.CheckPattern;
+import dps.designpatternidentifier.ClassFingerprint;
+import dps.designpatternidentifier.DetectorMetrics;
+import dps.designpatternidentifier.PatternRegistry;
+import dps.designpatternidentifier.rules.RuleParity;
+import dps.summarygenerator.Realisers;
 import dps.summarygenerator.Summarise;
 import dps.utils.*;
 
@@ -18,6 +22,10 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 
 import org.apache.commons.collections4.MultiValuedMap;
@@ -28,7 +36,71 @@ public class ParseProject {
     // 需要跳过的pattern列表
     private List<Pattern> skipPatterns = new ArrayList<Pattern>();
 
+    // detectors, call graph, outputs and sharding of the run
+    private RunProfile profile = new RunProfile();
+
+    // detector cost of the last project parsed by each thread, null if it failed; one
+    // ParseProject can analyse several projects at once (AnalysisServer)
+    private final ThreadLocal<DetectorMetrics> lastMetrics = new ThreadLocal<>();
+
+    // created on first use when the profile enables the cache
+    private ResultCache resultCache = null;
+
+    // ClassFingerprint aspects extracted by parseFiles, see getRequiredFactAspects
+    private int factAspects = ClassFingerprint.ALL;
+
+    public void setProfile(RunProfile profile) {
+        this.profile = profile;
+    }
+
+    public RunProfile getProfile() {
+        return profile;
+    }
+
+    public DetectorMetrics getLastMetrics() {
+        return lastMetrics.get();
+    }
+
+    /**
+     * The facts a run needs: all of them when they are written to the JSON or read by the
+     * summaries, ranking or rule parity, otherwise only the aspects the enabled detectors
+     * read (see DetectorInfo). Class declarations are always extracted.
+     */
+    private int getRequiredFactAspects() {
+        if (profile.getJson().equals(RunProfile.JSON_FULL) || profile.isGenerateSummaries() || profile.isRanking()
+                || profile.isRuleParity())
+            return ClassFingerprint.ALL;
+        return ClassFingerprint.TYPES | PatternRegistry.getFactAspects(profile.getEnabledPatterns());
+    }
+
+    private synchronized ResultCache getResultCache() {
+        if (resultCache == null) {
+            resultCache = new ResultCache(new File(profile.getCacheDir()), profile.getCacheSize());
+        }
+        return resultCache;
+    }
+
+    /**
+     * Analyses a project with its own SymbolTable, which is dropped when done; its size goes
+     * to the MetricsRegistry.
+     */
     public HashMap<String, Object> parseProject(File directory) throws FileNotFoundException, IOException {
+        SymbolTable symbolTable = new SymbolTable();
+        SymbolTable.setCurrent(symbolTable);
+        try {
+            return analyseProject(directory);
+        } finally {
+            SymbolTable.setCurrent(null);
+            MetricsRegistry.getShared().set("dps_symbol_table_symbols", symbolTable.size(), "project",
+                    directory.getName());
+        }
+    }
+
+    private HashMap<String, Object> analyseProject(File directory) throws IOException {
+        lastMetrics.remove();
+        factAspects = getRequiredFactAspects();
+        PipelineEvents.setProject(directory.getName());
+        PipelineEvents.ProjectEvent projectEvent = PipelineEvents.beginProject();
 
         ArrayList<File> fileArrayList = new ArrayList<>();
 
@@ -38,100 +110,131 @@ public class ParseProject {
 
         // names of all files in directory added to fileArrayList (list not tree)
         // srcPathList and libPathList consist of abs paths of src and lib folders
+        long start = System.nanoTime();
         fetchFiles(directory, fileArrayList, srcPathList, libPathList);
+        MetricsRegistry.getShared().recordPhase(MetricsRegistry.DISCOVERY, directory.getName(), start);
 
-        // referenced from Java Callgraph
-        JavaSymbolSolver symbolSolver = SymbolSolverFactory.getJavaSymbolSolver(srcPathList, libPathList);
-        StaticJavaParser.getParserConfiguration().setSymbolResolver(symbolSolver);
-        StaticJavaParser.getParserConfiguration().setLanguageLevel(LanguageLevel.BLEEDING_EDGE);
-
-        // referenced from Java callgraph
-        // 获取src目录中的全部java文件，并进行解析
-        HashMap<String, ArrayList<String>> callerCallees = new HashMap<>();
-
+        // facts by file key (qualified name of the file's primary type), see TypeIndex
         HashMap<String, HashMap> parsedFile = new HashMap<>();
-        CheckPattern checkPattern = new CheckPattern();
+        TypeIndex typeIndex = new TypeIndex();
+        CallGraph callGraph = new CallGraph(parsedFile, typeIndex, srcPathList, libPathList, skipPatterns);
+        callGraph.setRecordCallSketches(profile.isCache());
+        CheckPattern checkPattern = new CheckPattern(profile.getEnabledPatterns());
         Summarise summarise = new Summarise();
+        DetectorMetrics metrics = new DetectorMetrics();
+        checkPattern.setMetrics(metrics);
+        checkPattern.setBudget(profile.getMaxCandidates(), profile.getDetectorBudgetMillis());
+        if (profile.isRanking()) {
+            checkPattern.setRanker(new CandidateRanker(profile.getTopK(), profile.getMaxCandidates(),
+                    profile.getDetectorBudgetMillis()));
+        }
+        summarise.setMetrics(metrics);
 
         ArrayList designPatternArrayList = new ArrayList<>();
 
         HashMap<String, MultiValuedMap<String, String>> summaries = new HashMap<>();
-        HashMap<String, HashMap<String, HashSet<String>>> summaryMap = new HashMap<String, HashMap<String, HashSet<String>>>();
         String finalSummary = "";
 
-        // go through all files under the project
-        for (File file : fileArrayList) {
-            HashMap<String, ArrayList> fileDetails = new HashMap<>();
-            CompilationUnit compilationUnit = parseFileToCompilationUnit(file);
-            
-            if (compilationUnit != null) {
-                // File parsed successfully - extract detailed information
-                MethodsExtr methodsExtr = new MethodsExtr();
-                FieldExtr fieldExtr = new FieldExtr();
-                ConstructorExtr constructorExtr = new ConstructorExtr();
-                VariableExtr variableExtr = new VariableExtr();
-                ClassOrInterfaceExtr classOrInterfaceExtr = new ClassOrInterfaceExtr();
-
-                fileDetails.put("FIELDDETAIL", fieldExtr.getFieldInfo(compilationUnit));
-                fileDetails.put("CONSTRUCTORDETAIL", constructorExtr.getConstructorInfo(compilationUnit));
-                fileDetails.put("VARIABLEDETAIL", variableExtr.getVariableInfo(compilationUnit));
-                fileDetails.put("METHODDETAIL", methodsExtr.getMethodInfo(compilationUnit));
-                fileDetails.put("CLASSORINTERFACEDETAIL", classOrInterfaceExtr.getClassInterfaceInfo(compilationUnit));
-                extract(compilationUnit, callerCallees, skipPatterns);
-            } else {
-                // File couldn't be parsed - create empty details but still include in summary
-                fileDetails.put("FIELDDETAIL", new ArrayList<>());
-                fileDetails.put("CONSTRUCTORDETAIL", new ArrayList<>());
-                fileDetails.put("VARIABLEDETAIL", new ArrayList<>());
-                fileDetails.put("METHODDETAIL", new ArrayList<>());
-                fileDetails.put("CLASSORINTERFACEDETAIL", new ArrayList<>());
-                // Note: Can't extract call graph info for unparseable files
-            }
-
-            // Always add file to parsedFile map for summary generation
-            parsedFile.put(Utils.getBaseName(file.getName()), fileDetails);
+        if (profile.getShardBy() == null) {
+            parseFiles(fileArrayList, srcPathList, libPathList, parsedFile, callGraph, profile.isLazyCallGraph());
+        } else {
+            parseShards(directory, fileArrayList, srcPathList, libPathList, parsedFile, callGraph);
         }
 
-        // merge the features with the callgraph
+        // merge the features with the callgraph; in lazy mode edges are merged as consumers need them
         HashMap<String, Object> parsedProject = new HashMap<>();
-        HashMap extractedCallGraph = extractCallgraphResults(parsedFile, callerCallees);
+        if (!profile.isLazyCallGraph()) {
+            callGraph.resolveAll();
+        }
 
         // Only return empty if no files were processed at all
-        if (parsedFile.isEmpty())
+        if (parsedFile.isEmpty()) {
+            recordMetrics(directory.getName(), fileArrayList.size(), callGraph, null);
+            if (projectEvent != null) {
+                projectEvent.finish(fileArrayList.size(), "empty");
+            }
             return new HashMap<>();
-        
-        // Extract design patterns only if call graph information is available
-        if (!extractedCallGraph.isEmpty()) {
-            checkPattern.extractDesignPattern(extractedCallGraph, designPatternArrayList);
         }
 
-        // Decide which data to summarise/store: prefer call graph enriched data if available
-        HashMap dataToStore = extractedCallGraph.isEmpty() ? parsedFile : extractedCallGraph;
-
-        // Always run the summariser so that every parsed file gets a CSV row (even if there are no
-        // detected design patterns). The Summarise class internally skips design-pattern-specific
-        // processing when designPatternArrayList is empty and will still produce class/method
-        // summaries for files without patterns.
-        finalSummary = summarise.summarise(dataToStore, designPatternArrayList, summaries, directory.getName());
-
-        // Only populate the structured summaryMap if any design-pattern summaries were produced
-        if (!summaries.isEmpty()) {
-            for (String designPattern : summaries.keySet()) {
-                summaryMap.put(designPattern, new HashMap<>());
-                for (String classString : summaries.get(designPattern).keySet()) {
-                    HashSet<String> summarySet = new HashSet<String>();
-                    for (String summary : summaries.get(designPattern).get(classString)) {
-                        summarySet.add(summary);
-                    }
-                    summaryMap.get(designPattern).put(classString, summarySet);
+        // detectors, summaries and the JSON output use simple names
+        HashMap<String, HashMap> dataToStore = typeIndex.getSimpleNameView(parsedFile);
+
+        // a structurally identical project seen before is answered from the cache
+        String cacheKey = profile.isCache() ? getResultCache().getKey(dataToStore, callGraph, profile) : null;
+        LinkedHashMap<String, Object> cached = cacheKey == null ? null : getResultCache().get(cacheKey);
+        if (cached != null) {
+            System.out.println("\tAnswered from the result cache");
+            parsedProject.put(directory.getName(), dataToStore);
+            parsedProject.put("design_pattern", cached.get("design_pattern"));
+            parsedProject.put("summary_NLG", cached.get("summary_NLG"));
+            Map<String, String> fileSummaries = (Map<String, String>) cached.get("file_summaries");
+            parsedProject.put("final_summary", profile.isGenerateSummaries()
+                    ? Summarise.writeFileSummaries(directory.getName(), fileSummaries) : "");
+            if (profile.isRanking()) {
+                parsedProject.put("ranked_candidates", cached.get("ranked_candidates"));
+            }
+            recordTruncation(directory.getName(), parsedProject, (Map<String, Integer>) cached.get("budget_pruned"));
+            recordMetrics(directory.getName(), fileArrayList.size(), callGraph, metrics);
+            if (projectEvent != null) {
+                projectEvent.finish(fileArrayList.size(), "cached");
+            }
+            lastMetrics.set(metrics);
+            return parsedProject;
+        }
+
+        checkPattern.extractDesignPattern(dataToStore, designPatternArrayList, callGraph);
+
+        if (profile.isRuleParity()) {
+            List<String> differences = RuleParity.compare(dataToStore, designPatternArrayList,
+                    checkPattern.getPatternNames());
+            System.out.println("\tRule parity: " + (differences.isEmpty() ? "ok" : differences.size() + " differences"));
+            for (String difference : differences) {
+                System.out.println("\t\t" + difference);
+            }
+        }
+
+        // Unless disabled, always run the summariser so that every parsed file gets a CSV row (even
+        // if there are no detected design patterns). The Summarise class internally skips
+        // design-pattern-specific processing when designPatternArrayList is empty and will still
+        // produce class/method summaries for files without patterns.
+        if (profile.isGenerateSummaries()) {
+            Realisers.select(profile.getRealiser(), profile.isRealiserParity());
+            start = System.nanoTime();
+            finalSummary = summarise.summarise(dataToStore, designPatternArrayList, summaries, directory.getName(),
+                    callGraph);
+            MetricsRegistry.getShared().recordPhase(MetricsRegistry.SUMMARISE, directory.getName(), start);
+            if (Realisers.getParity() != null) {
+                List<String> differences = Realisers.getParity().takeDifferences();
+                System.out.println("\tRealiser parity: "
+                        + (differences.isEmpty() ? "ok" : differences.size() + " differences"));
+                for (String difference : differences) {
+                    System.out.println("\t\t" + difference);
                 }
             }
         }
 
         parsedProject.put(directory.getName(), dataToStore);
         parsedProject.put("design_pattern", designPatternArrayList);
-        parsedProject.put("summary_NLG", summaryMap);
+        parsedProject.put("summary_NLG", getSummaryMap(summaries));
         parsedProject.put("final_summary", finalSummary);
+        if (profile.isRanking()) {
+            parsedProject.put("ranked_candidates", checkPattern.getRankedCandidates());
+        }
+        recordTruncation(directory.getName(), parsedProject, checkPattern.getTruncatedPatterns());
+        if (cacheKey != null) {
+            LinkedHashMap<String, Object> entry = new LinkedHashMap<>();
+            entry.put("design_pattern", designPatternArrayList);
+            entry.put("summary_NLG", parsedProject.get("summary_NLG"));
+            entry.put("file_summaries", summarise.getFileSummaries());
+            entry.put("ranked_candidates", parsedProject.get("ranked_candidates"));
+            entry.put("budget_pruned", new LinkedHashMap<>(checkPattern.getTruncatedPatterns()));
+            getResultCache().put(cacheKey, entry);
+        }
+        recordMetrics(directory.getName(), fileArrayList.size(), callGraph, metrics);
+        if (projectEvent != null) {
+            projectEvent.finish(fileArrayList.size(), "done");
+        }
+        lastMetrics.set(metrics);
 
         // return the result, which contains all files of the project, stored in the
         // hashmap, the key is file name, the value is the details.
@@ -139,204 +242,275 @@ public class ParseProject {
     }
 
     /**
-     * Helper method to parse file to CompilationUnit with proper exception handling
-     * @param file The file to parse
-     * @return CompilationUnit or null if parsing fails
+     * Helper method to add the files, the parse phases measured by the call graph and the
+     * detector metrics of a project to the run's MetricsRegistry.
      */
-    private CompilationUnit parseFileToCompilationUnit(File file) {
-        try {
-            return StaticJavaParser.parse(file);
-        } catch (Exception e) {
-            System.out.println("Skipping file due to parse error: " + file.getName() + ", " + e.getMessage());
-            return null;
-        } catch (Error e) {
-            System.out.println("Skipping file due to parse error: " + file.getName() + ", " + e.getMessage());
-            return null;
+    private static void recordMetrics(String project, int files, CallGraph callGraph, DetectorMetrics metrics) {
+        MetricsRegistry registry = MetricsRegistry.getShared();
+        registry.increment("dps_files_total", files, "project", project);
+        registry.increment("dps_parse_failures_total", callGraph.getParseFailures(), "project", project);
+        for (Map.Entry<String, Long> phase : callGraph.takePhaseNanos().entrySet()) {
+            registry.observe(MetricsRegistry.PHASE_SECONDS, phase.getValue() / 1e9, "project", project, "phase",
+                    phase.getKey());
+        }
+        if (metrics == null)
+            return;
+        for (String key : metrics.getKeys()) {
+            String phase = key.substring(0, key.indexOf(' '));
+            String patternName = key.substring(key.indexOf(' ') + 1);
+            registry.observe(MetricsRegistry.DETECTOR_SECONDS, metrics.getWallNanos(phase, patternName) / 1e9,
+                    "project", project, "phase", phase, "pattern", patternName);
+            if (phase.equals(DetectorMetrics.DETECT)) {
+                registry.increment("dps_pattern_instances_total", metrics.getMatches(phase, patternName),
+                        "project", project, "pattern", patternName);
+            }
         }
     }
 
-    private HashMap<String, HashMap> extractCallgraphResults(HashMap<String, HashMap> parsedFile,
-            HashMap<String, ArrayList<String>> callerCallees) {
-        Set<String> classNames = parsedFile.keySet();
-
-        for (HashMap.Entry mapElement : callerCallees.entrySet()) {
-            String caller = (String) mapElement.getKey();
-            ArrayList<String> callees = callerCallees.get(caller);
-
-            String callerClass = extractCallgraphClass(caller);
-            String callerMethodName = extractCallgraphMethodName(caller);
-
-            if (classNames.contains(callerClass)) {
-                HashMap<String, ArrayList> parsedCallerClass = parsedFile.get(callerClass);
-                ArrayList<HashMap> parsedCalledMethods = Utils.getMethodDetails(parsedCallerClass);
-                for (HashMap parsedCalledMethod : parsedCalledMethods) {
-
-                    // need parameter comparison also
-                    if (Utils.getMethodName(parsedCalledMethod).equals(callerMethodName)) {
-                        for (String callee : callees) {
-
-                            String calleeClass = extractCallgraphClass(callee);
-                            String calleeMethodName = extractCallgraphMethodName(callee);
-
-                            HashMap<String, String> newOutgoing = new HashMap<>();
-                            newOutgoing.put("CALLEECLASS", calleeClass);
-                            newOutgoing.put("CALLEEMETHODNAME", calleeMethodName);
-
-                            Utils.getOutgoingMethod(parsedCalledMethod).add(newOutgoing);
-
-                            // add incoming method for the method in caller class
-                            HashMap<String, ArrayList> parsedCalleeClass = parsedFile.get(calleeClass);
-                            if (parsedCalleeClass == null) {
-                                continue;
-                            }
-                            ArrayList<HashMap> parsedCallingMethods = Utils.getMethodDetails(parsedCalleeClass);
-
-                            for (HashMap parsedCallingMethod : parsedCallingMethods) {
-
-                                if (Utils.getMethodName(parsedCallingMethod).equals(calleeMethodName)) {
-
-                                    HashMap<String, String> newIncoming = new HashMap<>();
-                                    newIncoming.put("CALLEDCLASS", callerClass);
-                                    newIncoming.put("CALLEDMETHODNAME", callerMethodName);
-
-                                    Utils.getIncomingMethod(parsedCallingMethod).add(newIncoming);
-
-                                    // Update number of incoming calls
-                                    parsedCallingMethod.put("NUMBEROFINCOMINGMETHODS",
-                                            Utils.getIncomingMethod(parsedCallingMethod).size());
-                                }
-                            }
-                        }
-                    }
-                }
-            }
+    /**
+     * Marks a project whose detection ran out of budget (max-candidates, detector-budget-ms):
+     * "truncated" and the candidates each truncated detector rejected over budget go into its
+     * JSON and the MetricsRegistry, as its results can miss patterns.
+     */
+    private static void recordTruncation(String project, HashMap<String, Object> parsedProject,
+            Map<String, Integer> budgetPruned) {
+        if (budgetPruned == null || budgetPruned.isEmpty())
+            return;
+        putTruncation(parsedProject, budgetPruned);
+        System.out.println("\tDetection truncated, candidates pruned over budget: " + budgetPruned);
+
+        MetricsRegistry registry = MetricsRegistry.getShared();
+        registry.increment("dps_truncated_projects_total", 1);
+        for (Map.Entry<String, Integer> pattern : budgetPruned.entrySet()) {
+            registry.increment("dps_budget_pruned_total", pattern.getValue(), "project", project, "pattern",
+                    pattern.getKey());
         }
-        return parsedFile;
     }
 
-    private String extractCallgraphClass(String caller) {
-        String filteredCaller = caller.replaceAll("\\(.*\\)", "");
-        return Utils.splitByDot(filteredCaller, 2);
+    // the JSON part of recordTruncation, nothing if no detector was truncated
+    static void putTruncation(HashMap<String, Object> parsedProject, Map<String, Integer> budgetPruned) {
+        if (budgetPruned.isEmpty())
+            return;
+        parsedProject.put("truncated", true);
+        parsedProject.put("budget_pruned", new LinkedHashMap<>(budgetPruned));
     }
 
-    private String extractCallgraphMethodName(String caller) {
-        String filteredCaller = caller.replaceAll("\\(.*\\)", "");
-        return Utils.splitByDot(filteredCaller, 1);
+    /**
+     * Keeps the analysis of a project in memory so it can be updated after files change,
+     * see ProjectSession.
+     */
+    public ProjectSession openSession(File directory) throws IOException {
+        return openSession(directory, false);
     }
 
-    private void fetchFiles(File dir, ArrayList<File> fileList, ArrayList<String> srcPathList,
-            ArrayList<String> libPathList) {
-        if (dir.getName().equals("src")) {
-            srcPathList.add(dir.getAbsolutePath());
+    /**
+     * Same as above. With lazySummaries, summaries are generated when asked for and always
+     * available, whatever the profile says (see SummaryService).
+     */
+    public ProjectSession openSession(File directory, boolean lazySummaries) throws IOException {
+        factAspects = ClassFingerprint.ALL;
+        boolean generateSummaries = lazySummaries || profile.isGenerateSummaries();
+        if (generateSummaries) {
+            Realisers.select(profile.getRealiser(), profile.isRealiserParity());
         }
-
-        if (dir.getName().equals("lib")) {
-            libPathList.add(dir.getAbsolutePath());
+        CheckPattern checkPattern = new CheckPattern(profile.getEnabledPatterns());
+        checkPattern.setBudget(profile.getMaxCandidates(), profile.getDetectorBudgetMillis());
+        // the session keeps its facts, and so its own symbol table, until it is closed
+        SymbolTable symbolTable = new SymbolTable();
+        SymbolTable.setCurrent(symbolTable);
+        try {
+            return new ProjectSession(this, directory, checkPattern, generateSummaries, lazySummaries, skipPatterns,
+                    symbolTable);
+        } finally {
+            SymbolTable.setCurrent(null);
         }
+    }
 
-        if (dir.isDirectory()) {
-            for (File file1 : dir.listFiles()) {
-                fetchFiles(file1, fileList, srcPathList, libPathList);
+    /**
+     * Helper method to convert the pattern summaries into the summary_NLG structure of the
+     * JSON output: pattern -> class -> sentences.
+     */
+    static HashMap<String, HashMap<String, HashSet<String>>> getSummaryMap(
+            HashMap<String, MultiValuedMap<String, String>> summaries) {
+        HashMap<String, HashMap<String, HashSet<String>>> summaryMap = new HashMap<String, HashMap<String, HashSet<String>>>();
+        for (String designPattern : summaries.keySet()) {
+            summaryMap.put(designPattern, new HashMap<>());
+            for (String classString : summaries.get(designPattern).keySet()) {
+                HashSet<String> summarySet = new HashSet<String>();
+                for (String summary : summaries.get(designPattern).get(classString)) {
+                    summarySet.add(summary);
+                }
+                summaryMap.get(designPattern).put(classString, summarySet);
             }
-        } else if (Utils.getExtension(dir).equals("java")) {
-            fileList.add(dir);
         }
-
+        return summaryMap;
     }
 
-    // referenced from Java Callgraph
-    private void extract(CompilationUnit compilationUnit, HashMap<String, ArrayList<String>> callerCallees,
-            List<Pattern> skipPatterns) {
+    /**
+     * Parses a list of files and extracts their facts into parsedFile. Each call uses its own
+     * parser, so shards can run concurrently; the symbol solver is the call graph's, which is
+     * shared by the shards of a project. Returns the file key of every file, in the order of
+     * files.
+     */
+    ArrayList<String> parseFiles(List<File> files, List<String> srcPathList, List<String> libPathList,
+            HashMap<String, HashMap> parsedFile, CallGraph callGraph, boolean lazy) throws IOException {
 
-        // 获取到方法声明，并进行遍历
-        List<MethodDeclaration> all = compilationUnit.findAll(MethodDeclaration.class);
-        for (MethodDeclaration methodDeclaration : all) {
-            ArrayList<String> curCallees = new ArrayList<>();
+        // referenced from Java Callgraph
+        // In lazy mode the symbol solver is only built once a consumer asks for call edges
+        ArrayList<String> fileKeys = new ArrayList<>();
+        JavaSymbolSolver symbolSolver = lazy ? null : callGraph.getSymbolSolver();
+        ParserConfiguration parserConfiguration = new ParserConfiguration()
+                .setLanguageLevel(LanguageLevel.BLEEDING_EDGE)
+                .setSymbolResolver(symbolSolver);
+        JavaParser javaParser = new JavaParser(parserConfiguration);
 
-            // 对每个方法声明内容进行遍历，查找内部调用的其他方法
-            methodDeclaration.accept(new MethodCallVisitor(skipPatterns), curCallees);
-            String caller = getQualifiedSignature(methodDeclaration);
-            assert caller != null;
+        // go through all files under the project
+        for (File file : files) {
+            HashMap<String, ArrayList> fileDetails = new HashMap<>();
+            PipelineEvents.FileParseEvent fileEvent = PipelineEvents.beginFileParse();
+            long start = System.nanoTime();
+            CompilationUnit compilationUnit = parseFileToCompilationUnit(javaParser, file);
+            String fileKey = TypeIndex.getFileKey(compilationUnit, file);
+            callGraph.addPhaseNanos(MetricsRegistry.PARSE, System.nanoTime() - start);
+            start = System.nanoTime();
 
-            // // 如果map中还没有key，则添加key
-            if (!callerCallees.containsKey(caller) && !Utils.shouldSkip(caller, skipPatterns)) {
-                callerCallees.put(caller, new ArrayList<>());
-            }
+            if (compilationUnit != null) {
+                // File parsed successfully - extract detailed information
+                MethodsExtr methodsExtr = new MethodsExtr();
+                FieldExtr fieldExtr = new FieldExtr();
+                ConstructorExtr constructorExtr = new ConstructorExtr();
+                VariableExtr variableExtr = new VariableExtr();
+                ClassOrInterfaceExtr classOrInterfaceExtr = new ClassOrInterfaceExtr();
 
-            if (!Utils.shouldSkip(caller, skipPatterns)) {
-                callerCallees.get(caller).addAll(curCallees);
+                // facts no enabled detector or output reads are left empty
+                fileDetails.put("FIELDDETAIL", (factAspects & ClassFingerprint.FIELDS) == 0 ? new ArrayList<>()
+                        : fieldExtr.getFieldInfo(compilationUnit));
+                fileDetails.put("CONSTRUCTORDETAIL", (factAspects & ClassFingerprint.CONSTRUCTORS) == 0
+                        ? new ArrayList<>() : constructorExtr.getConstructorInfo(compilationUnit));
+                fileDetails.put("VARIABLEDETAIL", (factAspects & ClassFingerprint.BODY) == 0 ? new ArrayList<>()
+                        : variableExtr.getVariableInfo(compilationUnit));
+                fileDetails.put("METHODDETAIL", (factAspects & (ClassFingerprint.METHODS | ClassFingerprint.BODY)) == 0
+                        ? new ArrayList<>() : methodsExtr.getMethodInfo(compilationUnit));
+                fileDetails.put("CLASSORINTERFACEDETAIL", classOrInterfaceExtr.getClassInterfaceInfo(compilationUnit));
+                callGraph.addPhaseNanos(MetricsRegistry.EXTRACT, System.nanoTime() - start);
+                if ((factAspects & ClassFingerprint.BODY) == 0) {
+                    callGraph.recordCallSketch(fileKey, compilationUnit);
+                } else if (lazy) {
+                    callGraph.register(fileKey, compilationUnit);
+                } else {
+                    callGraph.registerResolved(fileKey, compilationUnit);
+                }
+            } else {
+                // File couldn't be parsed - create empty details but still include in summary
+                fileDetails.put("FIELDDETAIL", new ArrayList<>());
+                fileDetails.put("CONSTRUCTORDETAIL", new ArrayList<>());
+                fileDetails.put("VARIABLEDETAIL", new ArrayList<>());
+                fileDetails.put("METHODDETAIL", new ArrayList<>());
+                fileDetails.put("CLASSORINTERFACEDETAIL", new ArrayList<>());
+                // Note: Can't extract call graph info for unparseable files
+                callGraph.addParseFailure();
             }
 
+            // Always add file to parsedFile map for summary generation
+            parsedFile.put(fileKey, fileDetails);
+            callGraph.getTypeIndex().addFile(fileKey, Utils.getBaseName(file.getName()), compilationUnit);
+            fileKeys.add(fileKey);
+            if (fileEvent != null) {
+                fileEvent.finish(file.getPath(), fileKey, compilationUnit != null);
+            }
         }
+        return fileKeys;
     }
 
-    // 遍历源码文件时，只关注方法调用的Visitor， 然后提取存放到第二个参数collector中
-    private static class MethodCallVisitor extends VoidVisitorAdapter<List<String>> {
-
-        private List<Pattern> skipPatterns = new ArrayList<Pattern>();
-
-        public MethodCallVisitor(List<Pattern> skipPatterns) {
-            if (skipPatterns != null) {
-                this.skipPatterns = skipPatterns;
-
+    /**
+     * Splits the project into shards (see ProjectSharder), parses and extracts each shard
+     * independently on a thread pool, then merges the shard facts and unresolved call edges
+     * into the global index. Call-graph linking happens afterwards on the merged index, so
+     * edges between shards are kept.
+     */
+    private void parseShards(File directory, List<File> files, List<String> srcPathList, List<String> libPathList,
+            HashMap<String, HashMap> parsedFile, CallGraph callGraph) throws IOException {
+
+        List<List<File>> shards = ProjectSharder.partition(directory, files, profile.getShardBy(),
+                profile.getMaxShardFiles());
+        System.out.println("\tSplit into " + shards.size() + " shards by " + profile.getShardBy());
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(profile.getShardThreads(), shards.size())));
+        SymbolTable symbolTable = SymbolTable.getCurrent();
+        // one symbol solver for all shards, so the source roots are parsed and cached once
+        JavaSymbolSolver symbolSolver = profile.isLazyCallGraph() ? null : callGraph.getSymbolSolver();
+        try {
+            List<Future<CallGraph>> results = new ArrayList<>();
+            for (List<File> shard : shards) {
+                results.add(executor.submit(() -> {
+                    PipelineEvents.setProject(directory.getName());
+                    SymbolTable.setCurrent(symbolTable);
+                    HashMap<String, HashMap> shardFile = new HashMap<>();
+                    CallGraph shardCallGraph = new CallGraph(shardFile, new TypeIndex(), srcPathList, libPathList,
+                            skipPatterns);
+                    shardCallGraph.setRecordCallSketches(profile.isCache());
+                    shardCallGraph.setSymbolSolver(symbolSolver);
+                    parseFiles(shard, srcPathList, libPathList, shardFile, shardCallGraph,
+                            profile.isLazyCallGraph());
+                    return shardCallGraph;
+                }));
             }
-        }
 
-        @Override
-        public void visit(MethodCallExpr n, List<String> collector) {
-            // 提取方法调用
-            String signature = ParseProject.getResolvedMethodSignature(n);
-            if (signature != null && !Utils.shouldSkip(signature, skipPatterns)) {
-                ResolvedMethodDeclaration resolvedMethodDeclaration;
-                try {
-                    resolvedMethodDeclaration = n.resolve();
-                    if (resolvedMethodDeclaration instanceof JavaParserMethodDeclaration) {
-                        collector.add(signature);
-                    }
-                } catch (Exception e) {
-                    // Continue execution - just log the issue
-                }
+            // merge in shard order so the result doesn't depend on thread scheduling
+            for (Future<CallGraph> result : results) {
+                CallGraph shardCallGraph = result.get();
+                parsedFile.putAll(shardCallGraph.getParsedFile());
+                callGraph.absorb(shardCallGraph);
             }
-            // Don't forget to call super, it may find more method calls inside the
-            // arguments of this method call, for example.
-            super.visit(n, collector);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while parsing shards of " + directory.getName(), e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to parse a shard of " + directory.getName(), e.getCause());
+        } finally {
+            executor.shutdownNow();
         }
     }
 
     /**
-     * Helper method to get qualified signature with fallback handling
-     * @param methodDeclaration The method declaration
-     * @return qualified signature or simple signature as fallback
+     * Helper method to parse file to CompilationUnit with proper exception handling
+     * @param javaParser The parser to use
+     * @param file The file to parse
+     * @return CompilationUnit or null if parsing fails
      */
-    private String getQualifiedSignature(MethodDeclaration methodDeclaration) {
+    private CompilationUnit parseFileToCompilationUnit(JavaParser javaParser, File file) {
         try {
-            return methodDeclaration.resolve().getQualifiedSignature();
-        } catch (Exception e) {
-            String fallback = methodDeclaration.getSignature().asString();
-            System.out.println("Use " + fallback + " instead of qualified signature, cause: " + e.getMessage());
-            return fallback;
+            ParseResult<CompilationUnit> result = javaParser.parse(file);
+            if (result.isSuccessful() && result.getResult().isPresent()) {
+                return result.getResult().get();
+            }
+            throw new ParseProblemException(result.getProblems());
+        } catch (Exception | Error e) {
+            Diagnostics.getShared().report(Diagnostics.PARSE_ERROR,
+                    "Skipping file due to parse error: " + e.getMessage(), file.getName());
+            return null;
         }
     }
 
-    /**
-     * Helper method to get resolved method signature with error handling
-     * @param methodCall The method call expression
-     * @return qualified signature or null if resolution fails
-     */
-    private static String getResolvedMethodSignature(MethodCallExpr methodCall) {
-        try {
-            return methodCall.resolve().getQualifiedSignature();
-        } catch (Exception e) {
-            System.out.print("Line ");
-            System.out.print(methodCall.getRange().get().begin.line);
-            System.out.print(", ");
-            System.out.print(
-                    methodCall.getNameAsString() + methodCall.getArguments()
-                            .toString().replace("[", "(").replace("]", ")"));
-            System.out.print(" cannot resolve some symbol, because ");
-            System.out.println(e.getMessage());
-            return null;
+    void fetchFiles(File dir, ArrayList<File> fileList, ArrayList<String> srcPathList,
+            ArrayList<String> libPathList) {
+        if (dir.getName().equals("src")) {
+            srcPathList.add(dir.getAbsolutePath());
         }
+
+        if (dir.getName().equals("lib")) {
+            libPathList.add(dir.getAbsolutePath());
+        }
+
+        if (dir.isDirectory()) {
+            for (File file1 : dir.listFiles()) {
+                fetchFiles(file1, fileList, srcPathList, libPathList);
+            }
+        } else if (Utils.getExtension(dir).equals("java")) {
+            fileList.add(dir);
+        }
+
     }
 
 }
@@ -0,0 +1,497 @@
+package dps.projectparser;
+
+import dps.designpatternidentifier.CheckPattern;
+import dps.designpatternidentifier.ClassFingerprint;
+import dps.designpatternidentifier.DetectorMetrics;
+import dps.summarygenerator.DesignPatternSummarise;
+import dps.summarygenerator.Summarise;
+import dps.utils.Diagnostics;
+import dps.utils.MetricsRegistry;
+import dps.utils.PipelineEvents;
+import dps.utils.SymbolTable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.regex.Pattern;
+
+import org.apache.commons.collections4.MultiValuedMap;
+
+/**
+ * Analysis of a single project kept in memory, so it can be brought up to date after source
+ * files change without running the whole pipeline again (see Application --watch).
+ *
+ * An update parses only the changed files. Their call edges are unlinked and resolved
+ * again, the edges between unchanged classes are kept (CallGraph.remove/relink). A detector
+ * runs again only if an aspect it reads (ClassFingerprint) differs in a changed class,
+ * otherwise its result is kept. Pattern sentences are regenerated for the patterns whose
+ * result changed or that name a changed class, file summaries for the changed classes and the
+ * classes whose pattern sentences changed. design_pattern, summary_NLG and final_summary are
+ * patched in place.
+ *
+ * A session always uses a lazy call graph, parses the project as one unit and writes no CSV.
+ *
+ * With lazy summaries (see SummaryService) nothing is summarised up front. The pattern
+ * sentences of a pattern are generated when a class it names is first asked for, the summary
+ * of a file when it is asked for, and both are kept until an update changes what they read.
+ */
+public class ProjectSession {
+
+    private final ParseProject parseProject;
+    private final File directory;
+    private final CheckPattern checkPattern;
+    private final boolean generateSummaries;
+    // summaries generated on request only, see getFileSummary
+    private final boolean lazySummaries;
+    // whether call edges are read at all, by the summaries or a detector
+    private final boolean resolveCalls;
+
+    private final ArrayList<String> srcPathList = new ArrayList<>();
+    private final ArrayList<String> libPathList = new ArrayList<>();
+    private final HashMap<String, HashMap> parsedFile = new HashMap<>();
+    private final TypeIndex typeIndex = new TypeIndex();
+    private final CallGraph callGraph;
+    // names interned by the session's parses, bound to the thread while parsing
+    private final SymbolTable symbolTable;
+
+    private final Summarise summarise = new Summarise();
+    private final DesignPatternSummarise designPatternSummarise = new DesignPatternSummarise();
+    // detector cost of the initial analysis and all updates
+    private final DetectorMetrics metrics = new DetectorMetrics();
+
+    // absolute path -> file key and last modification time, as of the last update
+    private final HashMap<String, String> fileKeysByPath = new HashMap<>();
+    private final HashMap<String, Long> lastModified = new HashMap<>();
+
+    // simple-name view, as used by the detectors, summaries and the JSON output
+    private HashMap<String, HashMap> view;
+    private final HashMap<String, ClassFingerprint> fingerprints = new HashMap<>();
+    private final ArrayList designPatternArrayList = new ArrayList<>();
+    // pattern -> classes named in its result, the only classes its summary reads
+    private final HashMap<String, HashSet<String>> participants = new HashMap<>();
+    private final HashMap<String, MultiValuedMap<String, String>> summaries = new HashMap<>();
+    private final HashMap<String, String> fileSummaries = new HashMap<>();
+
+    ProjectSession(ParseProject parseProject, File directory, CheckPattern checkPattern, boolean generateSummaries,
+            boolean lazySummaries, List<Pattern> skipPatterns, SymbolTable symbolTable) throws IOException {
+        this.parseProject = parseProject;
+        this.directory = directory;
+        this.symbolTable = symbolTable;
+        this.checkPattern = checkPattern;
+        this.generateSummaries = generateSummaries;
+        this.lazySummaries = lazySummaries;
+        this.resolveCalls = generateSummaries || checkPattern.requiresCallGraph();
+        this.callGraph = new CallGraph(parsedFile, typeIndex, srcPathList, libPathList, skipPatterns);
+        callGraph.setRetainEdges(true);
+        checkPattern.setMetrics(metrics);
+        designPatternSummarise.setMetrics(metrics);
+        PipelineEvents.setProject(directory.getName());
+
+        ArrayList<File> files = new ArrayList<>();
+        parseProject.fetchFiles(directory, files, srcPathList, libPathList);
+        recordFiles(files, parseProject.parseFiles(files, srcPathList, libPathList, parsedFile, callGraph, true));
+
+        view = typeIndex.getSimpleNameView(parsedFile);
+        checkPattern.extractDesignPattern(view, designPatternArrayList, callGraph);
+
+        if (generateSummaries && !lazySummaries) {
+            for (Object identifiedDesignPattern : designPatternArrayList) {
+                String patternName = getPatternName((HashMap) identifiedDesignPattern);
+                summaries.put(patternName, designPatternSummarise.summarisePattern(view,
+                        (HashMap) identifiedDesignPattern, patternName, callGraph));
+            }
+            for (String className : view.keySet()) {
+                summariseFile(className);
+            }
+        }
+
+        for (Object identifiedDesignPattern : designPatternArrayList) {
+            recordParticipants((HashMap) identifiedDesignPattern);
+        }
+        for (Map.Entry<String, HashMap> fileEntry : view.entrySet()) {
+            fingerprints.put(fileEntry.getKey(), new ClassFingerprint(fileEntry.getValue()));
+        }
+        callGraph.takeTouchedFileKeys();
+        Diagnostics.getShared().finishProject(directory.getName());
+        recordSymbolTable();
+    }
+
+    private void recordSymbolTable() {
+        MetricsRegistry.getShared().set("dps_symbol_table_symbols", symbolTable.size(), "project",
+                directory.getName());
+    }
+
+    public DetectorMetrics getMetrics() {
+        return metrics;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Names of the classes and interfaces of the project, as used by getFileSummary.
+     */
+    public List<String> getClassNames() {
+        return new ArrayList<>(view.keySet());
+    }
+
+    /**
+     * Returns the summary of a class as in final_summary, without the file name. Null if the
+     * project has no such class, empty if the file has no class or interface.
+     */
+    public String getFileSummary(String className) {
+        if (!generateSummaries || !view.containsKey(className))
+            return null;
+        if (!fileSummaries.containsKey(className)) {
+            summarisePatternsOf(className);
+            summariseFile(className);
+        }
+        return fileSummaries.get(className);
+    }
+
+    /**
+     * Returns the sentences of every design pattern the class takes part in, as in
+     * summary_NLG. Null if the project has no such class.
+     */
+    public LinkedHashMap<String, HashSet<String>> getPatternSentences(String className) {
+        if (!generateSummaries || !view.containsKey(className))
+            return null;
+        summarisePatternsOf(className);
+        LinkedHashMap<String, HashSet<String>> patternSentences = new LinkedHashMap<>();
+        for (Map.Entry<String, MultiValuedMap<String, String>> patternEntry : summaries.entrySet()) {
+            Collection<String> sentences = patternEntry.getValue().get(className);
+            if (!sentences.isEmpty())
+                patternSentences.put(patternEntry.getKey(), new HashSet<>(sentences));
+        }
+        return patternSentences;
+    }
+
+    /**
+     * Returns the project in the shape of ParseProject.parseProject.
+     */
+    public HashMap<String, Object> getParsedProject() {
+        HashMap<String, Object> parsedProject = new HashMap<>();
+        if (parsedFile.isEmpty())
+            return parsedProject;
+
+        if (lazySummaries) {
+            for (String className : view.keySet()) {
+                getFileSummary(className);
+            }
+        }
+
+        StringBuilder finalSummary = new StringBuilder();
+        for (String className : view.keySet()) {
+            String fileSummary = fileSummaries.getOrDefault(className, "");
+            if (!fileSummary.isEmpty()) {
+                finalSummary.append(className).append(".java: ").append(fileSummary).append("\n");
+            }
+        }
+
+        parsedProject.put(directory.getName(), view);
+        parsedProject.put("design_pattern", designPatternArrayList);
+        parsedProject.put("summary_NLG", ParseProject.getSummaryMap(summaries));
+        parsedProject.put("final_summary", finalSummary.toString());
+        ParseProject.putTruncation(parsedProject, checkPattern.getTruncatedPatterns());
+        return parsedProject;
+    }
+
+    /**
+     * Looks for added, modified and deleted source files and updates the project if there are
+     * any. Returns the changed files.
+     */
+    public List<File> refresh() throws IOException {
+        PipelineEvents.setProject(directory.getName());
+        ArrayList<File> files = new ArrayList<>();
+        parseProject.fetchFiles(directory, files, new ArrayList<>(), new ArrayList<>());
+
+        List<File> changedFiles = new ArrayList<>();
+        Set<String> paths = new HashSet<>();
+        for (File file : files) {
+            paths.add(file.getAbsolutePath());
+            Long modified = lastModified.get(file.getAbsolutePath());
+            if (modified == null || modified != file.lastModified()) {
+                changedFiles.add(file);
+            }
+        }
+        for (String path : lastModified.keySet()) {
+            if (!paths.contains(path)) {
+                changedFiles.add(new File(path));
+            }
+        }
+
+        if (!changedFiles.isEmpty()) {
+            update(changedFiles);
+        }
+        return changedFiles;
+    }
+
+    /**
+     * Brings the project up to date after the given files were added, modified or deleted.
+     */
+    public void update(Collection<File> changedFiles) throws IOException {
+        SymbolTable.setCurrent(symbolTable);
+        try {
+            updateFiles(changedFiles);
+        } finally {
+            SymbolTable.setCurrent(null);
+            recordSymbolTable();
+        }
+    }
+
+    private void updateFiles(Collection<File> changedFiles) throws IOException {
+        long start = System.currentTimeMillis();
+
+        ArrayList<File> files = new ArrayList<>();
+        parseProject.fetchFiles(directory, files, new ArrayList<>(), new ArrayList<>());
+
+        // drop the old facts and edges of the changed files and parse them again
+        Set<String> changedPaths = new HashSet<>();
+        for (File file : changedFiles) {
+            changedPaths.add(file.getAbsolutePath());
+        }
+        Set<String> changedFileKeys = new LinkedHashSet<>();
+        List<String> parsedFileKeys = parseAgain(files, changedPaths, changedFileKeys);
+
+        // files declaring a file key again are all parsed together, the last one wins as in a fresh run
+        Set<String> duplicatePaths = getPathsWithFileKeys(new HashSet<>(parsedFileKeys));
+        duplicatePaths.removeAll(changedPaths);
+        if (!duplicatePaths.isEmpty()) {
+            changedPaths.addAll(duplicatePaths);
+            parsedFileKeys = parseAgain(files, changedPaths, changedFileKeys);
+        }
+        changedFileKeys.addAll(parsedFileKeys);
+        callGraph.relink(changedFileKeys);
+
+        // same file order, and so the same simple-name view, as a fresh run
+        List<String> fileKeys = new ArrayList<>();
+        for (File file : files) {
+            fileKeys.add(fileKeysByPath.get(file.getAbsolutePath()));
+        }
+        typeIndex.sortFiles(fileKeys);
+
+        // classes whose facts were replaced, added or removed
+        HashMap<String, HashMap> previousView = view;
+        view = typeIndex.getSimpleNameView(parsedFile);
+        Set<String> changedClasses = new LinkedHashSet<>();
+        for (String className : view.keySet()) {
+            if (previousView.get(className) != view.get(className))
+                changedClasses.add(className);
+        }
+        for (String className : previousView.keySet()) {
+            if (!view.containsKey(className))
+                changedClasses.add(className);
+        }
+
+        // new edges of the changed classes, and the classes on the other end of changed edges
+        if (resolveCalls) {
+            for (String className : changedClasses) {
+                if (view.containsKey(className))
+                    callGraph.resolveClass(className);
+            }
+        }
+        for (String fileKey : callGraph.takeTouchedFileKeys()) {
+            String className = typeIndex.getViewKey(fileKey);
+            if (view.containsKey(className))
+                changedClasses.add(className);
+        }
+
+        HashMap<String, Integer> changedAspects = new HashMap<>();
+        for (String className : changedClasses) {
+            ClassFingerprint fingerprint = view.containsKey(className) ? new ClassFingerprint(view.get(className))
+                    : null;
+            int aspects = ClassFingerprint.getChangedAspects(fingerprints.get(className), fingerprint);
+            if (fingerprint == null) {
+                fingerprints.remove(className);
+            } else {
+                fingerprints.put(className, fingerprint);
+            }
+            if (aspects != 0)
+                changedAspects.put(className, aspects);
+        }
+
+        Set<String> changedPatterns = checkPattern.updateDesignPattern(view, designPatternArrayList, changedAspects,
+                callGraph);
+
+        if (lazySummaries) {
+            dropSummaries(changedClasses, changedPatterns);
+        } else if (generateSummaries) {
+            updateSummaries(changedClasses, changedPatterns);
+        }
+        for (String patternName : changedPatterns) {
+            participants.remove(patternName);
+        }
+        for (Object identifiedDesignPattern : designPatternArrayList) {
+            if (changedPatterns.contains(getPatternName((HashMap) identifiedDesignPattern)))
+                recordParticipants((HashMap) identifiedDesignPattern);
+        }
+        // classes that only take part in a pattern after the update
+        if (lazySummaries) {
+            dropSummaries(changedClasses, changedPatterns);
+        }
+
+        System.out.println("\tUpdated " + changedFiles.size() + " files (" + changedAspects.size()
+                + " classes changed) in " + (System.currentTimeMillis() - start) + " ms");
+        Diagnostics.getShared().finishProject(directory.getName());
+    }
+
+    /**
+     * Drops the facts of the given files and of every file sharing a file key with them, then
+     * parses the ones still present in the order of files. The dropped file keys are added to
+     * droppedFileKeys, the file keys of the parsed files returned.
+     */
+    private List<String> parseAgain(List<File> files, Set<String> paths, Set<String> droppedFileKeys)
+            throws IOException {
+        Set<String> fileKeys = new HashSet<>();
+        for (String path : paths) {
+            if (fileKeysByPath.containsKey(path))
+                fileKeys.add(fileKeysByPath.get(path));
+        }
+        paths.addAll(getPathsWithFileKeys(fileKeys));
+
+        for (String path : paths) {
+            String fileKey = fileKeysByPath.remove(path);
+            lastModified.remove(path);
+            if (fileKey != null) {
+                droppedFileKeys.add(fileKey);
+                parsedFile.remove(fileKey);
+                typeIndex.removeFile(fileKey);
+            }
+        }
+        callGraph.remove(droppedFileKeys);
+
+        List<File> existingFiles = new ArrayList<>();
+        for (File file : files) {
+            if (paths.contains(file.getAbsolutePath()))
+                existingFiles.add(file);
+        }
+        List<String> parsedFileKeys = parseProject.parseFiles(existingFiles, srcPathList, libPathList, parsedFile,
+                callGraph, true);
+        recordFiles(existingFiles, parsedFileKeys);
+        return parsedFileKeys;
+    }
+
+    private Set<String> getPathsWithFileKeys(Set<String> fileKeys) {
+        Set<String> paths = new HashSet<>();
+        for (Map.Entry<String, String> entry : fileKeysByPath.entrySet()) {
+            if (fileKeys.contains(entry.getValue()))
+                paths.add(entry.getKey());
+        }
+        return paths;
+    }
+
+    private void updateSummaries(Set<String> changedClasses, Set<String> changedPatterns) {
+        Set<String> changedSummaries = new HashSet<>(changedClasses);
+
+        for (Map.Entry<String, HashSet<String>> patternEntry : participants.entrySet()) {
+            if (!Collections.disjoint(patternEntry.getValue(), changedClasses))
+                changedPatterns.add(patternEntry.getKey());
+        }
+        for (String patternName : new ArrayList<>(changedPatterns)) {
+            HashMap identifiedDesignPattern = getDesignPattern(patternName);
+            MultiValuedMap<String, String> previous = summaries.remove(patternName);
+            MultiValuedMap<String, String> current = identifiedDesignPattern == null ? null
+                    : designPatternSummarise.summarisePattern(view, identifiedDesignPattern, patternName, callGraph);
+            if (current != null) {
+                summaries.put(patternName, current);
+            }
+
+            Set<String> classNames = new HashSet<>();
+            if (previous != null)
+                classNames.addAll(previous.keySet());
+            if (current != null)
+                classNames.addAll(current.keySet());
+            for (String className : classNames) {
+                Collection<String> before = previous == null ? null : previous.get(className);
+                Collection<String> after = current == null ? null : current.get(className);
+                if (before == null || after == null || !before.equals(after))
+                    changedSummaries.add(className);
+            }
+        }
+
+        for (String className : changedSummaries) {
+            if (view.containsKey(className)) {
+                summariseFile(className);
+            } else {
+                fileSummaries.remove(className);
+            }
+        }
+    }
+
+    /**
+     * Drops the kept summaries that read a changed class or the result of a changed pattern,
+     * they are generated again when asked for. Lazy summaries only.
+     */
+    private void dropSummaries(Set<String> changedClasses, Set<String> changedPatterns) {
+        for (Map.Entry<String, HashSet<String>> patternEntry : participants.entrySet()) {
+            if (!Collections.disjoint(patternEntry.getValue(), changedClasses))
+                changedPatterns.add(patternEntry.getKey());
+        }
+        for (String patternName : changedPatterns) {
+            MultiValuedMap<String, String> previous = summaries.remove(patternName);
+            if (previous != null)
+                fileSummaries.keySet().removeAll(previous.keySet());
+            fileSummaries.keySet().removeAll(participants.getOrDefault(patternName, new HashSet<>()));
+        }
+        fileSummaries.keySet().removeAll(changedClasses);
+    }
+
+    // the pattern sentences a file summary of the class reads, lazy summaries only
+    private void summarisePatternsOf(String className) {
+        if (!lazySummaries)
+            return;
+        for (Object identifiedDesignPattern : designPatternArrayList) {
+            String patternName = getPatternName((HashMap) identifiedDesignPattern);
+            if (!summaries.containsKey(patternName)
+                    && participants.getOrDefault(patternName, new HashSet<>()).contains(className)) {
+                summaries.put(patternName, designPatternSummarise.summarisePattern(view,
+                        (HashMap) identifiedDesignPattern, patternName, callGraph));
+            }
+        }
+    }
+
+    private void summariseFile(String className) {
+        callGraph.resolveClass(className);
+        fileSummaries.put(className, summarise.summariseFile(className, view.get(className), summaries));
+    }
+
+    private void recordFiles(List<File> files, List<String> fileKeys) {
+        for (int i = 0; i < files.size(); i++) {
+            fileKeysByPath.put(files.get(i).getAbsolutePath(), fileKeys.get(i));
+            lastModified.put(files.get(i).getAbsolutePath(), files.get(i).lastModified());
+        }
+    }
+
+    private void recordParticipants(HashMap identifiedDesignPattern) {
+        HashSet<String> classNames = new HashSet<>();
+        addClassNames(identifiedDesignPattern.values(), classNames);
+        participants.put(getPatternName(identifiedDesignPattern), classNames);
+    }
+
+    // every class named as a key or value anywhere in a pattern result
+    private void addClassNames(Object value, HashSet<String> classNames) {
+        if (value instanceof Map) {
+            addClassNames(((Map) value).keySet(), classNames);
+            addClassNames(((Map) value).values(), classNames);
+        } else if (value instanceof Collection) {
+            for (Object element : (Collection) value) {
+                addClassNames(element, classNames);
+            }
+        } else if (value instanceof String && view.containsKey(value)) {
+            classNames.add((String) value);
+        }
+    }
+
+    private HashMap getDesignPattern(String patternName) {
+        for (Object identifiedDesignPattern : designPatternArrayList) {
+            if (((HashMap) identifiedDesignPattern).containsKey(patternName))
+                return (HashMap) identifiedDesignPattern;
+        }
+        return null;
+    }
+
+    private static String getPatternName(HashMap identifiedDesignPattern) {
+        return (String) identifiedDesignPattern.keySet().iterator().next();
+    }
+}
@@ -0,0 +1,63 @@
+package dps.projectparser;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Partitions the java files of a project into shards that can be parsed independently.
+ *
+ * "package" groups files by their directory relative to the project (source folders
+ * mirror the package structure), "source-root" groups them by their enclosing src folder.
+ * Small groups are packed together up to maxShardFiles so tiny packages don't each pay for
+ * their own parser and symbol solver; a group larger than the limit is split.
+ */
+public class ProjectSharder {
+
+    public static List<List<File>> partition(File projectDirectory, List<File> files, String shardBy,
+            int maxShardFiles) {
+        LinkedHashMap<String, List<File>> groups = new LinkedHashMap<>();
+        for (File file : files) {
+            groups.computeIfAbsent(getShardKey(projectDirectory, file, shardBy), key -> new ArrayList<>()).add(file);
+        }
+
+        List<List<File>> shards = new ArrayList<>();
+        List<File> currentShard = new ArrayList<>();
+        for (List<File> group : groups.values()) {
+            if (!currentShard.isEmpty() && currentShard.size() + group.size() > maxShardFiles) {
+                shards.add(currentShard);
+                currentShard = new ArrayList<>();
+            }
+            for (File file : group) {
+                if (currentShard.size() >= maxShardFiles) {
+                    shards.add(currentShard);
+                    currentShard = new ArrayList<>();
+                }
+                currentShard.add(file);
+            }
+        }
+        if (!currentShard.isEmpty()) {
+            shards.add(currentShard);
+        }
+        return shards;
+    }
+
+    private static String getShardKey(File projectDirectory, File file, String shardBy) {
+        String relativePath = projectDirectory.toPath().relativize(file.getParentFile().toPath()).toString();
+        if (shardBy.equals("package")) {
+            return relativePath;
+        }
+        if (shardBy.equals("source-root")) {
+            // nearest enclosing "src" folder, same convention as ParseProject.fetchFiles
+            for (File parent = file.getParentFile(); parent != null && !parent.equals(projectDirectory);
+                    parent = parent.getParentFile()) {
+                if (parent.getName().equals("src")) {
+                    return projectDirectory.toPath().relativize(parent.toPath()).toString();
+                }
+            }
+            return "";
+        }
+        throw new IllegalArgumentException("Unknown shard mode: " + shardBy);
+    }
+}
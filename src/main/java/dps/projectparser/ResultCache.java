@@ -0,0 +1,153 @@
+package dps.projectparser;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * On-disk cache of the detected patterns and summaries of a project, keyed by a hash of its
+ * structural facts, so forks and vendored copies of a project seen before are answered
+ * without running the detectors and the summariser again.
+ *
+ * The key covers the facts of every file (call edges left out, they depend on how far the
+ * call graph was resolved), the unresolved method calls of every class (see
+ * CallGraph.getCallSketch) and the profile settings that change the results. Entries are
+ * JSON files named by key; a hit marks its file as used, and the least recently used
+ * entries are deleted once there are more than maxEntries. Clear the directory after
+ * changing a detector or the summaries.
+ */
+public class ResultCache {
+
+    // part of every key, bump when the cached results change shape
+    private static final String VERSION = "1";
+
+    // facts filled in by the call graph
+    private static final Set<String> EDGE_KEYS = new HashSet<>(Arrays.asList("OUTGOINGMETHOD",
+            "INCOMINGMETHOD", "NUMBEROFOUTGOINGMETHODS", "NUMBEROFINCOMINGMETHODS"));
+
+    // keys are hashed with sorted maps, entries keep the order of the results
+    private static final ObjectMapper keyMapper = new ObjectMapper()
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final File directory;
+    private final int maxEntries;
+
+    public ResultCache(File directory, int maxEntries) {
+        this.directory = directory;
+        this.maxEntries = maxEntries;
+        directory.mkdirs();
+    }
+
+    /**
+     * Returns the key of a project: dataToStore is the simple-name view of its facts. Null
+     * when the results can't be cached, i.e. when a detector time budget makes them depend
+     * on the machine.
+     */
+    public String getKey(HashMap<String, HashMap> dataToStore, CallGraph callGraph, RunProfile profile) {
+        if (profile.getDetectorBudgetMillis() > 0)
+            return null;
+
+        TreeMap<String, Object> canonical = new TreeMap<>();
+        for (Map.Entry<String, HashMap> entry : dataToStore.entrySet()) {
+            canonical.put(entry.getKey(), canonicalise(entry.getValue()));
+            String callSketch = callGraph.getCallSketch(callGraph.getTypeIndex().getFileKey(entry.getKey()));
+            canonical.put(entry.getKey() + " calls", callSketch == null ? "" : callSketch);
+        }
+        canonical.put(" profile", VERSION
+                + " patterns=" + (profile.getEnabledPatterns() == null ? "all"
+                        : new TreeSet<>(profile.getEnabledPatterns()))
+                + " summaries=" + profile.isGenerateSummaries()
+                + " realiser=" + (profile.isRealiserParity() ? "simplenlg" : profile.getRealiser())
+                + " ranking=" + (profile.isRanking() ? profile.getTopK() : 0)
+                + " max-candidates=" + profile.getMaxCandidates());
+
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(keyMapper.writeValueAsBytes(canonical));
+            StringBuilder key = new StringBuilder();
+            for (byte b : digest) {
+                key.append(String.format("%02x", b));
+            }
+            return key.toString();
+        } catch (IOException | NoSuchAlgorithmException e) {
+            System.out.println("Can't hash the facts for the result cache: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Helper method to copy facts without the call edges, maps sorted by key.
+     */
+    private static Object canonicalise(Object value) {
+        if (value instanceof Map) {
+            TreeMap<String, Object> map = new TreeMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (!EDGE_KEYS.contains(String.valueOf(entry.getKey())))
+                    map.put(String.valueOf(entry.getKey()), canonicalise(entry.getValue()));
+            }
+            return map;
+        }
+        if (value instanceof Collection) {
+            ArrayList<Object> list = new ArrayList<>();
+            for (Object element : (Collection<?>) value) {
+                list.add(canonicalise(element));
+            }
+            return list;
+        }
+        return value;
+    }
+
+    /**
+     * Returns the cached results of a key, or null on a miss.
+     */
+    public LinkedHashMap<String, Object> get(String key) {
+        File file = new File(directory, key + ".json");
+        if (!file.isFile())
+            return null;
+        try {
+            LinkedHashMap<String, Object> entry = mapper.readValue(file, LinkedHashMap.class);
+            file.setLastModified(System.currentTimeMillis());
+            return entry;
+        } catch (IOException e) {
+            // e.g. written by a crashed worker, computed again and overwritten
+            System.out.println("Ignoring unreadable result cache entry " + file.getName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stores the results of a key, then evicts the least recently used entries. Written to a
+     * temporary file first, so batch workers sharing the directory never read half an entry.
+     */
+    public void put(String key, Map<String, Object> entry) {
+        File file = new File(directory, key + ".json");
+        try {
+            File temporary = File.createTempFile(key, ".tmp", directory);
+            Files.write(temporary.toPath(), mapper.writeValueAsString(entry).getBytes(StandardCharsets.UTF_8));
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.out.println("Can't write result cache entry " + file.getName() + ": " + e.getMessage());
+            return;
+        }
+        evict();
+    }
+
+    private void evict() {
+        File[] entries = directory.listFiles((dir, name) -> name.endsWith(".json"));
+        if (entries == null || entries.length <= maxEntries)
+            return;
+        Arrays.sort(entries, Comparator.comparingLong(File::lastModified));
+        for (int i = 0; i < entries.length - maxEntries; i++) {
+            entries[i].delete();
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package dps.projectparser;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+/**
+ * What a run does: which detectors run, how call edges are resolved, which outputs are
+ * written, and how projects are parsed. Read from a properties file (--profile=file) and
+ * from command-line flags, later values overriding earlier ones.
+ *
+ * Phases no enabled output needs are skipped: call edges are only resolved up front when
+ * the JSON output includes the per-file facts, otherwise just for the detectors and summaries
+ * reading them; summaries are only generated when the JSON or the CSV output takes them.
+ *
+ * Keys (all optional, defaults first):
+ * patterns=all|singleton,factory_method,...   detectors to run (names as in PatternRegistry)
+ * callgraph=auto|eager|lazy   auto is eager when the JSON includes facts, lazy otherwise
+ * summaries=true|false
+ * json=full|patterns|none     patterns writes design_pattern and summaries without the facts
+ * csv=true|false
+ * shard-by=none|package|source-root
+ * shard-threads=N             (default: available processors)
+ * max-shard-files=500
+ * rule-parity=false|true
+ * ranking=false|true          also rank near misses by confidence (ranked_candidates in the JSON)
+ * top-k=10                    ranked candidates kept per pattern
+ * max-candidates=0            role tests per detector and classes ranked per pattern, 0 for no limit
+ * detector-budget-ms=0        time per detector and per ranking, 0 for no limit
+ * cache=false|true            answer structurally identical projects from the result cache
+ * cache-dir=output/result-cache
+ * cache-size=1000             entries kept, least recently used ones are evicted
+ * realiser=simplenlg|template fill sentence templates instead of realising SimpleNLG phrase trees
+ * realiser-parity=false|true  realise with both, print the differences and use the SimpleNLG text
+ * jfr-events=false|true       emit flight recorder events, see PipelineEvents (not part of describe,
+ *                             the outputs don't depend on it)
+ */
+public class RunProfile {
+
+    public static final String JSON_FULL = "full";
+    public static final String JSON_PATTERNS = "patterns";
+    public static final String JSON_NONE = "none";
+
+    // names of the detectors to run, null runs every registered detector
+    private Set<String> enabledPatterns = null;
+    private String callGraph = "auto";
+    private boolean summaries = true;
+    private String json = JSON_FULL;
+    private boolean csv = true;
+
+    // shard projects by "package" or "source-root", null parses each as a single unit
+    private String shardBy = null;
+    private int shardThreads = Runtime.getRuntime().availableProcessors();
+    private int maxShardFiles = 500;
+
+    // compare the pattern rules with the detectors after detection
+    private boolean ruleParity = false;
+
+    // scoring mode and the evaluation budget of each detector
+    private boolean ranking = false;
+    private int topK = 10;
+    private int maxCandidates = 0;
+    private long detectorBudgetMillis = 0;
+
+    // on-disk result cache, see ResultCache
+    private boolean cache = false;
+    private String cacheDir = "output/result-cache";
+    private int cacheSize = 1000;
+
+    // summary realiser, see Realisers
+    private String realiser = "simplenlg";
+    private boolean realiserParity = false;
+
+    private boolean jfrEvents = false;
+
+    /**
+     * Applies every key of a profile file.
+     */
+    public void load(File file) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            properties.load(in);
+        }
+        for (String key : new TreeSet<>(properties.stringPropertyNames())) {
+            if (!set(key, properties.getProperty(key).trim())) {
+                throw new IllegalArgumentException("Unknown profile key in " + file + ": " + key);
+            }
+        }
+    }
+
+    /**
+     * Sets one key, returns false if the key is unknown. Throws IllegalArgumentException for
+     * an invalid value.
+     */
+    public boolean set(String key, String value) {
+        switch (key) {
+            case "patterns":
+                enabledPatterns = value.isEmpty() || value.equals("all") ? null
+                        : new LinkedHashSet<>(Arrays.asList(value.split("\\s*,\\s*")));
+                break;
+            case "callgraph":
+                callGraph = checkValue(key, value, "auto", "eager", "lazy");
+                break;
+            case "summaries":
+                summaries = parseBoolean(key, value);
+                break;
+            case "json":
+                json = checkValue(key, value, JSON_FULL, JSON_PATTERNS, JSON_NONE);
+                break;
+            case "csv":
+                csv = parseBoolean(key, value);
+                break;
+            case "shard-by":
+                shardBy = checkValue(key, value, "none", "package", "source-root");
+                if (shardBy.equals("none"))
+                    shardBy = null;
+                break;
+            case "shard-threads":
+                shardThreads = Integer.parseInt(value);
+                break;
+            case "max-shard-files":
+                maxShardFiles = Integer.parseInt(value);
+                break;
+            case "rule-parity":
+                ruleParity = parseBoolean(key, value);
+                break;
+            case "ranking":
+                ranking = parseBoolean(key, value);
+                break;
+            case "top-k":
+                topK = Integer.parseInt(value);
+                break;
+            case "max-candidates":
+                maxCandidates = Integer.parseInt(value);
+                break;
+            case "detector-budget-ms":
+                detectorBudgetMillis = Long.parseLong(value);
+                break;
+            case "cache":
+                cache = parseBoolean(key, value);
+                break;
+            case "cache-dir":
+                cacheDir = value;
+                break;
+            case "cache-size":
+                cacheSize = Integer.parseInt(value);
+                break;
+            case "realiser":
+                realiser = checkValue(key, value, "simplenlg", "template");
+                break;
+            case "realiser-parity":
+                realiserParity = parseBoolean(key, value);
+                break;
+            case "jfr-events":
+                jfrEvents = parseBoolean(key, value);
+                break;
+            default:
+                return false;
+        }
+        return true;
+    }
+
+    private static String checkValue(String key, String value, String... allowed) {
+        if (!Arrays.asList(allowed).contains(value))
+            throw new IllegalArgumentException("Unknown " + key + " value: " + value);
+        return value;
+    }
+
+    private static boolean parseBoolean(String key, String value) {
+        return Boolean.parseBoolean(checkValue(key, value, "true", "false"));
+    }
+
+    public Set<String> getEnabledPatterns() {
+        return enabledPatterns;
+    }
+
+    /**
+     * Whether call edges are resolved only when a detector or summary reads them.
+     */
+    public boolean isLazyCallGraph() {
+        if (callGraph.equals("auto"))
+            return !json.equals(JSON_FULL);
+        return callGraph.equals("lazy");
+    }
+
+    public boolean isGenerateSummaries() {
+        return summaries && (csv || !json.equals(JSON_NONE));
+    }
+
+    public String getJson() {
+        return json;
+    }
+
+    public boolean isWriteCsv() {
+        return csv && isGenerateSummaries();
+    }
+
+    public String getShardBy() {
+        return shardBy;
+    }
+
+    public int getShardThreads() {
+        return shardThreads;
+    }
+
+    public int getMaxShardFiles() {
+        return maxShardFiles;
+    }
+
+    public boolean isRuleParity() {
+        return ruleParity;
+    }
+
+    public boolean isRanking() {
+        return ranking;
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    public int getMaxCandidates() {
+        return maxCandidates;
+    }
+
+    public long getDetectorBudgetMillis() {
+        return detectorBudgetMillis;
+    }
+
+    public boolean isCache() {
+        return cache;
+    }
+
+    public String getCacheDir() {
+        return cacheDir;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    public String getRealiser() {
+        return realiser;
+    }
+
+    public boolean isRealiserParity() {
+        return realiserParity;
+    }
+
+    public boolean isJfrEvents() {
+        return jfrEvents;
+    }
+
+    /**
+     * One line with the effective settings, for the console.
+     */
+    public String describe() {
+        return "patterns=" + (enabledPatterns == null ? "all" : String.join(",", enabledPatterns))
+                + " callgraph=" + (isLazyCallGraph() ? "lazy" : "eager")
+                + " summaries=" + isGenerateSummaries() + " json=" + json + " csv=" + isWriteCsv()
+                + (shardBy == null ? "" : " shard-by=" + shardBy)
+                + (ruleParity ? " rule-parity=true" : "")
+                + (ranking ? " ranking=true top-k=" + topK : "")
+                + (maxCandidates > 0 ? " max-candidates=" + maxCandidates : "")
+                + (detectorBudgetMillis > 0 ? " detector-budget-ms=" + detectorBudgetMillis : "")
+                + (cache ? " cache=" + cacheDir : "")
+                + (realiser.equals("simplenlg") ? "" : " realiser=" + realiser)
+                + (realiserParity ? " realiser-parity=true" : "");
+    }
+}
@@ -0,0 +1,168 @@
+package dps.projectparser;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.TypeDeclaration;
+
+import dps.utils.Diagnostics;
+import dps.utils.Utils;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * Index of the types declared in a project, filled once while the files are parsed.
+ *
+ * The fact store is keyed by file key: the fully qualified name of the file's primary type
+ * (package + file name), so two Foo.java in different packages no longer overwrite each
+ * other. Every type declared in a file (nested types and additional top-level types
+ * included) is indexed by qualified and by simple name, pointing back at the file key.
+ * The detectors and summaries still work on simple names, see getSimpleNameView.
+ */
+public class TypeIndex {
+
+    // file key -> simple file name, in parse order
+    private final LinkedHashMap<String, String> fileNames = new LinkedHashMap<>();
+
+    // qualified name of every declared type -> file key
+    private final HashMap<String, String> fileKeysByType = new HashMap<>();
+
+    // simple name of every declared type -> file keys declaring it
+    private final HashMap<String, LinkedHashSet<String>> fileKeysBySimpleName = new HashMap<>();
+
+    // key used in the simple-name view -> file key, filled by getSimpleNameView
+    private final HashMap<String, String> fileKeysByViewKey = new HashMap<>();
+
+    public static String getFileKey(CompilationUnit compilationUnit, File file) {
+        String fileName = Utils.getBaseName(file.getName());
+        if (compilationUnit == null || !compilationUnit.getPackageDeclaration().isPresent())
+            return fileName;
+        return compilationUnit.getPackageDeclaration().get().getNameAsString() + "." + fileName;
+    }
+
+    /**
+     * Adds a parsed file. compilationUnit is null for files that could not be parsed, which
+     * are only known by their file name.
+     */
+    public void addFile(String fileKey, String fileName, CompilationUnit compilationUnit) {
+        if (fileNames.containsKey(fileKey)) {
+            Diagnostics.getShared().report(Diagnostics.DUPLICATE_DEFINITION,
+                    "Duplicate definition of " + fileKey + ", keeping the last one", null);
+            fileNames.remove(fileKey);
+        }
+        fileNames.put(fileKey, fileName);
+        addType(fileKey, fileKey);
+
+        if (compilationUnit == null)
+            return;
+        for (TypeDeclaration<?> typeDeclaration : compilationUnit.findAll(TypeDeclaration.class)) {
+            // local classes have no qualified name and can't be referenced from outside
+            typeDeclaration.getFullyQualifiedName().ifPresent(qualifiedName -> addType(qualifiedName, fileKey));
+        }
+    }
+
+    private void addType(String qualifiedName, String fileKey) {
+        fileKeysByType.put(qualifiedName, fileKey);
+        fileKeysBySimpleName.computeIfAbsent(Utils.splitByDot(qualifiedName, 1), key -> new LinkedHashSet<>())
+                .add(fileKey);
+    }
+
+    /**
+     * Drops a file and the types it declares, e.g. before it is parsed again.
+     */
+    public void removeFile(String fileKey) {
+        fileNames.remove(fileKey);
+        fileKeysByType.values().removeIf(fileKey::equals);
+        fileKeysBySimpleName.values().removeIf(fileKeys -> fileKeys.remove(fileKey) && fileKeys.isEmpty());
+    }
+
+    /**
+     * Puts the files into the given parse order, so that files parsed again after a change
+     * get the same simple-name view as in a fresh run. Unlisted files keep their place at
+     * the end.
+     */
+    public void sortFiles(List<String> fileKeys) {
+        LinkedHashMap<String, String> sorted = new LinkedHashMap<>();
+        for (String fileKey : fileKeys) {
+            // a file key declared twice takes the later place, as in addFile
+            if (fileNames.containsKey(fileKey)) {
+                sorted.remove(fileKey);
+                sorted.put(fileKey, fileNames.get(fileKey));
+            }
+        }
+        for (Map.Entry<String, String> entry : fileNames.entrySet()) {
+            sorted.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+        fileNames.clear();
+        fileNames.putAll(sorted);
+    }
+
+    /**
+     * Returns the key of a file in the last simple-name view.
+     */
+    public String getViewKey(String fileKey) {
+        String fileName = fileNames.get(fileKey);
+        return fileName != null && fileKey.equals(fileKeysByViewKey.get(fileName)) ? fileName : fileKey;
+    }
+
+    /**
+     * Takes over the entries of a shard's index, after the ones already present.
+     */
+    public void addAll(TypeIndex shard) {
+        for (Map.Entry<String, String> entry : shard.fileNames.entrySet()) {
+            fileNames.remove(entry.getKey());
+            fileNames.put(entry.getKey(), entry.getValue());
+        }
+        fileKeysByType.putAll(shard.fileKeysByType);
+        for (Map.Entry<String, LinkedHashSet<String>> entry : shard.fileKeysBySimpleName.entrySet()) {
+            fileKeysBySimpleName.computeIfAbsent(entry.getKey(), key -> new LinkedHashSet<>())
+                    .addAll(entry.getValue());
+        }
+    }
+
+    /**
+     * Returns the file key declaring a type. A qualified name has to match exactly, so a
+     * library class is never mistaken for a project class with the same simple name; an
+     * unqualified name is accepted when only one file declares it.
+     */
+    public String getFileKeyForType(String typeName) {
+        String fileKey = fileKeysByType.get(typeName);
+        if (fileKey != null || typeName.contains("."))
+            return fileKey;
+        Set<String> fileKeys = getFileKeysBySimpleName(typeName);
+        return fileKeys.size() == 1 ? fileKeys.iterator().next() : null;
+    }
+
+    public Set<String> getFileKeysBySimpleName(String simpleName) {
+        return fileKeysBySimpleName.getOrDefault(simpleName, new LinkedHashSet<>());
+    }
+
+    /**
+     * Returns the file key behind a key of the simple-name view (or a file key itself).
+     */
+    public String getFileKey(String viewKey) {
+        return fileKeysByViewKey.getOrDefault(viewKey, viewKey);
+    }
+
+    /**
+     * Helper method to re-key the fact store by simple file name, as used by the detectors,
+     * summaries and the JSON output. When several files share a simple name, the last parsed
+     * one keeps it (as before qualified keys) and the others stay under their qualified key,
+     * so no facts are dropped. The values are shared with the fact store.
+     */
+    public HashMap<String, HashMap> getSimpleNameView(HashMap<String, HashMap> parsedFile) {
+        HashMap<String, String> lastFileKeys = new HashMap<>();
+        for (Map.Entry<String, String> entry : fileNames.entrySet()) {
+            lastFileKeys.put(entry.getValue(), entry.getKey());
+        }
+
+        HashMap<String, HashMap> view = new HashMap<>();
+        fileKeysByViewKey.clear();
+        for (Map.Entry<String, String> entry : fileNames.entrySet()) {
+            String fileKey = entry.getKey();
+            String viewKey = lastFileKeys.get(entry.getValue()).equals(fileKey) ? entry.getValue() : fileKey;
+            view.put(viewKey, parsedFile.get(fileKey));
+            fileKeysByViewKey.put(viewKey, fileKey);
+        }
+        return view;
+    }
+}
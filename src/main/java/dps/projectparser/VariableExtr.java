@@ -4,6 +4,7 @@ import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.expr.VariableDeclarationExpr;
 import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
 
+import dps.utils.SymbolTable;
 import dps.utils.Utils;
 
 import java.util.ArrayList;
@@ -23,8 +24,8 @@ public class VariableExtr extends VoidVisitorAdapter<Void> {
                 HashMap<String, Object> variableInfo = new HashMap<>();
 
                 variableInfo.put("VARIABLEDECLARATION", Utils.nodeListToArrayList(vde.getVariables()));
-                variableInfo.put("VARIABLEELEMENTTYPE", vde.getElementType().toString());
-                variableInfo.put("VARIABLECOMMONTYPE", vde.getCommonType().toString());
+                variableInfo.put("VARIABLEELEMENTTYPE", SymbolTable.intern(vde.getElementType().toString()));
+                variableInfo.put("VARIABLECOMMONTYPE", SymbolTable.intern(vde.getCommonType().toString()));
 
                 variableInfoHashArray.add(variableInfo);
             }
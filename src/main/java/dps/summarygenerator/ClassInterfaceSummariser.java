@@ -1,18 +1,15 @@
 package dps.summarygenerator;
 
-import simplenlg.framework.CoordinatedPhraseElement;
-import simplenlg.framework.NLGFactory;
-import simplenlg.phrasespec.*;
-import simplenlg.realiser.english.Realiser;
 import dps.utils.Utils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 
 public class ClassInterfaceSummariser {
-    public String generateClassDescription(NLGFactory nlgFactory, Realiser realiser, HashMap classDetail,
-            HashSet<String> designPatternDescriptionCollect) {
+    public String generateClassDescription(HashMap classDetail, HashSet<String> designPatternDescriptionCollect) {
 
         // retrieve the details from the json file
         String classModifier = retrieveModifiers(classDetail);
@@ -21,54 +18,10 @@ public class ClassInterfaceSummariser {
         String classImplements = retrieveImplements(classDetail);
         boolean isInterfaceOrNot = Utils.isInterfaceOrNot(classDetail);
 
-        SPhraseSpec classDescription = nlgFactory.createClause();
-        VPPhraseSpec verbBe = nlgFactory.createVerbPhrase("be");
-
-        NPPhraseSpec classType;
-
-        // if it is an interface
-        if (isInterfaceOrNot) {
-            classType = nlgFactory.createNounPhrase("interface");
-        } else {
-            classType = nlgFactory.createNounPhrase("class");
-        }
-
-        // add details to the sentence
-        classType.addPreModifier(classModifier);
-        classType.setDeterminer("a");
-        classDescription.setSubject("It");
-        classDescription.setVerb(verbBe);
-        classDescription.setObject(classType);
-
-        CoordinatedPhraseElement implementsAndExtends = nlgFactory.createCoordinatedPhrase();
-
-        // if the class is extended from another class, add the base class
-        if (!classExtends.equals("")) {
-            SPhraseSpec classExtendsPhrase = nlgFactory.createClause();
-
-            VPPhraseSpec verbExtend = nlgFactory.createVerbPhrase("extend");
-            NPPhraseSpec objectExtend = nlgFactory.createNounPhrase(classExtends);
-
-            classExtendsPhrase.setVerb(verbExtend);
-            classExtendsPhrase.setObject(objectExtend);
-            implementsAndExtends.addCoordinate(classExtendsPhrase);
-        }
-
-        // if the class implements an interface, add the interface details
-        if (!classImplements.equals("")) {
-            SPhraseSpec classImplementsPhrase = nlgFactory.createClause();
-
-            VPPhraseSpec verbImplement = nlgFactory.createVerbPhrase("implement");
-            NPPhraseSpec objectImplement = nlgFactory.createNounPhrase(classImplements);
-
-            classImplementsPhrase.setVerb(verbImplement);
-            classImplementsPhrase.setObject(objectImplement);
-            implementsAndExtends.addCoordinate(classImplementsPhrase);
-        }
-
-        classDescription.addComplement(implementsAndExtends);
-
-        String classDescriptionSentence = realiser.realiseSentence(classDescription);
+        // "It is a public class that ..." doesn't name the class, so it is shared by many classes
+        List<Object> key = Arrays.asList("class", classModifier, classExtends, classImplements, isInterfaceOrNot);
+        String classDescriptionSentence = RealisationCache.getShared().get(key, () -> Realisers.get()
+                .realiseClassDescription(classModifier, classExtends, classImplements, isInterfaceOrNot));
 
         // add design pattern description
         String designPatternDescriptions = String.join(" ", designPatternDescriptionCollect);
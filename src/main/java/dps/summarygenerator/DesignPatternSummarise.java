@@ -8,25 +8,54 @@ import org.apache.commons.collections4.MultiValuedMap;
 import org.apache.commons.collections4.multimap.HashSetValuedHashMap;
 
 import dps.designpatternidentifier.*;
+import dps.projectparser.CallGraph;
 
 /**
  * Simplified design pattern summarizer that uses the centralized PatternRegistry.
  */
 public class DesignPatternSummarise {
-    private HashMap<String, DesignPatterns> patternList;
 
-    public DesignPatternSummarise() {
-        patternList = PatternRegistry.getPatternMap();
+    // when set, every summarise call is measured
+    private DetectorMetrics metrics = null;
+
+    public void setMetrics(DetectorMetrics metrics) {
+        this.metrics = metrics;
     }
 
     public void summarise(HashMap<String, HashMap> fileDetails,
             ArrayList<HashMap> designPatternDetails, HashMap<String, MultiValuedMap<String, String>> summary) {
+        summarise(fileDetails, designPatternDetails, summary, null);
+    }
+
+    public void summarise(HashMap<String, HashMap> fileDetails,
+            ArrayList<HashMap> designPatternDetails, HashMap<String, MultiValuedMap<String, String>> summary,
+            CallGraph callGraph) {
         for (HashMap<String, Object> identifiedDesignPattern : designPatternDetails)
             for (Map.Entry<String, Object> designPatternEntry : identifiedDesignPattern.entrySet()) {
-                summary.put(designPatternEntry.getKey(), new HashSetValuedHashMap<String, String>());
-                patternList.get(designPatternEntry.getKey()).summarise(fileDetails,
-                        identifiedDesignPattern, summary.get(designPatternEntry.getKey()));
+                summary.put(designPatternEntry.getKey(), summarisePattern(fileDetails, identifiedDesignPattern,
+                        designPatternEntry.getKey(), callGraph));
             }
     }
+
+    /**
+     * Sentences of a single detected pattern by class, identifiedDesignPattern being its entry
+     * of the design pattern list.
+     */
+    public MultiValuedMap<String, String> summarisePattern(HashMap<String, HashMap> fileDetails,
+            HashMap<String, Object> identifiedDesignPattern, String patternName, CallGraph callGraph) {
+        DesignPatterns pattern = PatternRegistry.getPattern(patternName);
+        if (callGraph != null && pattern.summaryRequiresCallGraph()) {
+            callGraph.resolveAll();
+        }
+        MultiValuedMap<String, String> patternSummary = new HashSetValuedHashMap<String, String>();
+        long[] start = metrics == null ? null : DetectorMetrics.sample();
+        pattern.summarise(fileDetails, identifiedDesignPattern, patternSummary);
+        if (metrics != null) {
+            metrics.record(DetectorMetrics.SUMMARISE, patternName, start,
+                    DetectorMetrics.countInstances(identifiedDesignPattern.get(patternName)),
+                    patternSummary.keySet().size());
+        }
+        return patternSummary;
+    }
 }
 
@@ -1,178 +1,68 @@
 package dps.summarygenerator;
 
-import simplenlg.features.Feature;
-import simplenlg.features.NumberAgreement;
-import simplenlg.framework.CoordinatedPhraseElement;
-import simplenlg.framework.DocumentElement;
-import simplenlg.framework.NLGElement;
-import simplenlg.framework.NLGFactory;
-import simplenlg.phrasespec.NPPhraseSpec;
-import simplenlg.phrasespec.PPPhraseSpec;
-import simplenlg.phrasespec.SPhraseSpec;
-import simplenlg.phrasespec.VPPhraseSpec;
-import simplenlg.realiser.english.Realiser;
 import dps.utils.Utils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 
 public class MethodSummariser {
-    public String generateMethodDescription(NLGFactory nlgFactory, Realiser realiser,
-            ArrayList<HashMap> methodDetails) {
-
-        List<DocumentElement> methodDescriptions = new ArrayList<DocumentElement>();
-
-        for (HashMap method : methodDetails) {
-            NLGElement methodUsageDescription = generateMethodUsage(nlgFactory, realiser, method);
-            DocumentElement methodDescriptionSentence = nlgFactory.createSentence(methodUsageDescription);
-            methodDescriptions.add(methodDescriptionSentence);
-        }
-        DocumentElement methodDescriptionParagraph = nlgFactory.createParagraph(methodDescriptions);
-        String methodDescription = realiser.realise(methodDescriptionParagraph).getRealisation();
-
-        return methodDescription;
-    }
 
     // summarise the usage of methods, look into the incoming/outgoing methods, as
     // well as the classes that these method belongs to
-    public NLGElement generateMethodUsage(NLGFactory nlgFactory, Realiser realiser, HashMap methodDetail) {
-
-        NPPhraseSpec methodName = nlgFactory.createNounPhrase();
-        methodName.setNoun(Utils.getMethodName(methodDetail).toString());
-
-        SPhraseSpec methodOutgoing = nlgFactory.createClause();
-        VPPhraseSpec verbCall = nlgFactory.createVerbPhrase("call");
-        methodOutgoing.setSubject(methodName);
-        methodOutgoing.setVerb(verbCall);
-
-        /* Outgoing methods */
-        CoordinatedPhraseElement outgoingList = nlgFactory.createCoordinatedPhrase();
-
-        ArrayList<HashMap> outgoingMethodsArray = Utils.getOutgoingMethod(methodDetail);
-        HashSet<HashMap> outgoingMethodsSet = new HashSet<>(outgoingMethodsArray);
-        Integer numOutgoing = outgoingMethodsSet.size();
-        NPPhraseSpec outgoingCount = nlgFactory.createNounPhrase();
-        outgoingCount.setNoun("method");
-
-        if (numOutgoing == 0) {
-            outgoingCount.setFeature(Feature.NUMBER, NumberAgreement.PLURAL);
-            outgoingCount.addPreModifier("no");
-        } else if (numOutgoing > 1) {
-            outgoingCount.setFeature(Feature.NUMBER, NumberAgreement.PLURAL);
-            outgoingCount.addPreModifier(numOutgoing.toString());
-            outgoingList.addPreModifier(":");
-
-        } else {
-            outgoingCount.addPreModifier("only one");
-            outgoingList.addPreModifier(":");
-        }
-
-        /* actual list of methods */
-        for (HashMap outgoing : outgoingMethodsSet) {
-            NPPhraseSpec outgoingName = nlgFactory.createNounPhrase();
-
-            String outgoingMethodName = Utils.getOutgoingMethodName(outgoing).toString();
-            String outgoingClassName = Utils.getOutgoingMethodClass(outgoing).toString();
-
-            outgoingName.setNoun(outgoingMethodName + " method of class " + outgoingClassName);
-            outgoingList.addCoordinate(outgoingName);
+    public String generateMethodDescription(ArrayList<HashMap> methodDetails) {
+        List<String> methodNames = new ArrayList<>();
+        List<List<String>> outgoingMethods = new ArrayList<>();
+        List<List<String>> incomingMethods = new ArrayList<>();
+        List<Object> key = new ArrayList<>();
+        key.add("usage");
+        for (HashMap method : methodDetails) {
+            methodNames.add(Utils.getMethodName(method).toString());
+            outgoingMethods.add(getOutgoingMethods(method));
+            incomingMethods.add(getIncomingMethods(method));
+            key.add(Arrays.asList(methodNames.get(methodNames.size() - 1),
+                    outgoingMethods.get(outgoingMethods.size() - 1), incomingMethods.get(incomingMethods.size() - 1)));
         }
+        return RealisationCache.getShared().get(key,
+                () -> Realisers.get().realiseMethodUsage(methodNames, outgoingMethods, incomingMethods));
+    }
 
-        outgoingCount.addPostModifier(outgoingList);
-        methodOutgoing.setObject(outgoingCount);
-
-        /* coordinate clause: Incoming methods */
-        SPhraseSpec methodIncoming = nlgFactory.createClause();
-        methodIncoming.setObject(methodName);
-        methodIncoming.setVerb(verbCall);
-
-        CoordinatedPhraseElement incomingList = nlgFactory.createCoordinatedPhrase();
-
-        ArrayList<HashMap> incomingMethodsArray = Utils.getIncomingMethod(methodDetail);
-        HashSet<HashMap> incomingMethodsSet = new HashSet<>(incomingMethodsArray);
-        Integer numIncoming = incomingMethodsSet.size();
-        NPPhraseSpec incomingCount = nlgFactory.createNounPhrase();
-        incomingCount.setNoun("method");
-
-        if (numIncoming == 0) {
-            incomingCount.setFeature(Feature.NUMBER, NumberAgreement.PLURAL);
-            incomingCount.addPreModifier("no");
-        } else if (numIncoming > 1) {
-            incomingCount.setFeature(Feature.NUMBER, NumberAgreement.PLURAL);
-            incomingCount.addPreModifier(numIncoming.toString());
-            incomingList.addPreModifier("(");
-            incomingList.addPostModifier(")");
-        } else {
-            incomingCount.addPreModifier("only one");
-            incomingList.addPreModifier("(");
-            incomingList.addPostModifier(")");
+    // distinct outgoing calls of a method as "name method of class C"
+    private static List<String> getOutgoingMethods(HashMap methodDetail) {
+        List<String> outgoing = new ArrayList<>();
+        for (HashMap outgoingMethod : new HashSet<HashMap>(Utils.getOutgoingMethod(methodDetail))) {
+            outgoing.add(Utils.getOutgoingMethodName(outgoingMethod) + " method of class "
+                    + Utils.getOutgoingMethodClass(outgoingMethod));
         }
+        return outgoing;
+    }
 
-        /* actual list of methods */
-        for (HashMap incoming : incomingMethodsSet) {
-            NPPhraseSpec incomingName = nlgFactory.createNounPhrase();
-
-            String incomingMethodName = Utils.getIncomingMethodName(incoming).toString();
-            String incomingClassName = Utils.getIncomingMethodClass(incoming).toString();
-
-            incomingName.setNoun(incomingMethodName + " method of class " + incomingClassName);
-            incomingList.addCoordinate(incomingName);
+    // distinct incoming calls of a method as "name method of class C"
+    private static List<String> getIncomingMethods(HashMap methodDetail) {
+        List<String> incoming = new ArrayList<>();
+        for (HashMap incomingMethod : new HashSet<HashMap>(Utils.getIncomingMethod(methodDetail))) {
+            incoming.add(Utils.getIncomingMethodName(incomingMethod) + " method of class "
+                    + Utils.getIncomingMethodClass(incomingMethod));
         }
-        incomingCount.addPostModifier(incomingList);
-        methodIncoming.setSubject(incomingCount);
-
-        CoordinatedPhraseElement methodUsage = nlgFactory.createCoordinatedPhrase();
-        methodUsage.addCoordinate(methodIncoming);
-        methodUsage.addCoordinate(methodOutgoing);
-
-        return methodUsage;
+        return incoming;
     }
 
     /* generates a short summary of all the methods of a class */
-    public String generateMethodsSummary(NLGFactory nlgFactory, Realiser realiser, ArrayList<HashMap> methodDetails,
-            String className) {
-
-        /* Method summary */
-        SPhraseSpec methodSummary = nlgFactory.createClause();
-        VPPhraseSpec verbBe = nlgFactory.createVerbPhrase("be");
-        NPPhraseSpec methodCount = nlgFactory.createNounPhrase();
-        CoordinatedPhraseElement methodList = nlgFactory.createCoordinatedPhrase();
-
-        /* Subject: the ... methods of ... */
-        Integer numMethods = methodDetails.size();
-
-        methodCount.setDeterminer("the");
-        methodCount.setNoun("method");
-
-        if (numMethods > 1) {
-            methodCount.setFeature(Feature.NUMBER, NumberAgreement.PLURAL);
-            methodCount.addPreModifier(numMethods.toString());
-        } else {
-            methodCount.addPreModifier("only");
-        }
-
-        PPPhraseSpec genitiveClass = nlgFactory.createPrepositionPhrase("of");
-        genitiveClass.addComplement(className);
-        methodCount.addComplement(genitiveClass);
-
+    public String generateMethodsSummary(ArrayList<HashMap> methodDetails, String className) {
+        List<String> methodNames = new ArrayList<>();
+        List<String> returnTypes = new ArrayList<>();
+        List<String> key = new ArrayList<>();
+        key.add("methods");
+        key.add(className);
         for (HashMap methodDetail : methodDetails) {
-            NPPhraseSpec methodName = nlgFactory.createNounPhrase();
-
-            methodName.setNoun(Utils.getMethodName(methodDetail).toString());
-            methodName.addPostModifier("(" + Utils.getMethodReturnType(methodDetail) + ")");
-
-            methodList.addCoordinate(methodName);
-
+            methodNames.add(Utils.getMethodName(methodDetail).toString());
+            returnTypes.add(String.valueOf(Utils.getMethodReturnType(methodDetail)));
+            key.add(Utils.getMethodName(methodDetail) + "(" + Utils.getMethodReturnType(methodDetail) + ")");
         }
-        methodSummary.setSubject(methodCount);
-        methodSummary.setVerb(verbBe);
-        methodSummary.setObject(methodList);
-        String methodSummaryOutput = realiser.realiseSentence(methodSummary);
-
-        return methodSummaryOutput;
+        return RealisationCache.getShared().get(key,
+                () -> Realisers.get().realiseMethodsSummary(className, methodNames, returnTypes));
     }
 
 }
-
@@ -0,0 +1,112 @@
+package dps.summarygenerator;
+
+import dps.summarygenerator.messages.DesignPatternClassMessage;
+import dps.summarygenerator.messages.DesignPatternInheritClassMessage;
+import dps.summarygenerator.messages.DesignPatternMethodMessage;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Realises every summary with a reference and a candidate realiser, for realiser-parity
+ * runs. The text of the reference is used; every differing text is kept until
+ * takeDifferences, and the time spent in each realiser is counted.
+ */
+public class ParityRealiser implements SummaryRealiser {
+    private final SummaryRealiser reference;
+    private final SummaryRealiser candidate;
+
+    private final List<String> differences = new ArrayList<>();
+    private long realisations = 0;
+    private long differing = 0;
+    private long referenceNanos = 0;
+    private long candidateNanos = 0;
+
+    public ParityRealiser(SummaryRealiser reference, SummaryRealiser candidate) {
+        this.reference = reference;
+        this.candidate = candidate;
+    }
+
+    @Override
+    public String getName() {
+        return reference.getName() + "+" + candidate.getName();
+    }
+
+    @Override
+    public String realiseSentence(DesignPatternClassMessage cm, ArrayList<DesignPatternMethodMessage> mmal,
+            DesignPatternInheritClassMessage icm) {
+        return compare("sentence", () -> reference.realiseSentence(cm, mmal, icm),
+                () -> candidate.realiseSentence(cm, mmal, icm));
+    }
+
+    @Override
+    public String realiseClassDescription(String classModifier, String classExtends, String classImplements,
+            boolean isInterface) {
+        return compare("class", () -> reference.realiseClassDescription(classModifier, classExtends,
+                classImplements, isInterface), () -> candidate.realiseClassDescription(classModifier, classExtends,
+                        classImplements, isInterface));
+    }
+
+    @Override
+    public String realiseMethodsSummary(String className, List<String> methodNames, List<String> returnTypes) {
+        return compare("methods", () -> reference.realiseMethodsSummary(className, methodNames, returnTypes),
+                () -> candidate.realiseMethodsSummary(className, methodNames, returnTypes));
+    }
+
+    @Override
+    public String realiseMethodUsage(List<String> methodNames, List<List<String>> outgoingMethods,
+            List<List<String>> incomingMethods) {
+        return compare("usage", () -> reference.realiseMethodUsage(methodNames, outgoingMethods, incomingMethods),
+                () -> candidate.realiseMethodUsage(methodNames, outgoingMethods, incomingMethods));
+    }
+
+    private String compare(String shape, Supplier<String> realiseReference, Supplier<String> realiseCandidate) {
+        long start = System.nanoTime();
+        String expected = realiseReference.get();
+        long middle = System.nanoTime();
+        String actual = realiseCandidate.get();
+        long end = System.nanoTime();
+
+        synchronized (this) {
+            realisations++;
+            referenceNanos += middle - start;
+            candidateNanos += end - middle;
+            if (!expected.equals(actual)) {
+                differing++;
+                differences.add(shape + ": " + expected.trim() + " | " + actual.trim());
+            }
+        }
+        return expected;
+    }
+
+    /**
+     * Returns the differences found since the last call, as "shape: reference | candidate".
+     */
+    public synchronized List<String> takeDifferences() {
+        List<String> taken = new ArrayList<>(differences);
+        differences.clear();
+        return taken;
+    }
+
+    public synchronized long getRealisations() {
+        return realisations;
+    }
+
+    public synchronized long getDiffering() {
+        return differing;
+    }
+
+    /**
+     * Helper method to build the JSON structure of the counters, see Application.writeMetrics.
+     */
+    public synchronized LinkedHashMap<String, Object> toMap() {
+        LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+        map.put("realisations", realisations);
+        map.put("differing", differing);
+        map.put(reference.getName() + "_ms", Math.round(referenceNanos / 1000.0) / 1000.0);
+        map.put(candidate.getName() + "_ms", Math.round(candidateNanos / 1000.0) / 1000.0);
+        return map;
+    }
+}
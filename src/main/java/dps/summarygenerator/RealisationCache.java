@@ -0,0 +1,95 @@
+package dps.summarygenerator;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import dps.utils.PipelineEvents;
+
+/**
+ * Realised text by the normalised content it was built from, shared by the summarisers.
+ * The same shapes ("It is a public class.", "the only method of X is ...") come up thousands
+ * of times across a corpus, and building and realising the SimpleNLG phrase trees is the
+ * bulk of the summary cost. Realisation only depends on the content, so a hit skips both.
+ *
+ * Bounded: the least recently used entries are dropped beyond maxEntries. Safe to use from
+ * several threads; two threads missing the same key both realise it.
+ */
+public class RealisationCache {
+
+    private static final RealisationCache SHARED = new RealisationCache(20000);
+
+    private final int maxEntries;
+    private final LinkedHashMap<Object, String> entries;
+    private long hits = 0;
+    private long misses = 0;
+
+    public RealisationCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<Object, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, String> eldest) {
+                return size() > RealisationCache.this.maxEntries;
+            }
+        };
+    }
+
+    public static RealisationCache getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the text cached for key, or realises and caches it. The key must be immutable
+     * and hold everything the realised text depends on.
+     */
+    public String get(Object key, Supplier<String> realise) {
+        synchronized (this) {
+            String text = entries.get(key);
+            if (text != null) {
+                hits++;
+                return text;
+            }
+            misses++;
+        }
+        PipelineEvents.RealisationEvent event = PipelineEvents.beginRealisation();
+        String text = realise.get();
+        if (event != null) {
+            event.finish(key, text);
+        }
+        synchronized (this) {
+            entries.put(key, text);
+        }
+        return text;
+    }
+
+    /**
+     * Drops every entry, e.g. when the realiser changes. The counters are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized double getHitRate() {
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    /**
+     * Helper method to build the JSON structure of the counters, see Application.writeMetrics.
+     */
+    public synchronized LinkedHashMap<String, Object> toMap() {
+        LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+        map.put("hits", hits);
+        map.put("misses", misses);
+        map.put("hit_rate", Math.round(getHitRate() * 1000) / 1000.0);
+        map.put("entries", entries.size());
+        return map;
+    }
+}
@@ -0,0 +1,61 @@
+package dps.summarygenerator;
+
+/**
+ * The realiser of the summaries, chosen by the realiser key of the run profile:
+ * "simplenlg" builds and realises SimpleNLG phrase trees, "template" fills the equivalent
+ * sentence templates (see TemplateRealiser). With parity, both realise every summary and the
+ * SimpleNLG text is used, see ParityRealiser.
+ */
+public class Realisers {
+    public static final String SIMPLENLG = "simplenlg";
+    public static final String TEMPLATE = "template";
+
+    // created on first use, loading the lexicon is slow
+    private static SimpleNLGRealiser simpleNlg = null;
+    private static final TemplateRealiser template = new TemplateRealiser();
+
+    private static SummaryRealiser current = null;
+
+    /**
+     * Sets the realiser used from now on. The realisation cache is cleared when the choice
+     * changes, it holds the text of the previous realiser.
+     */
+    public static synchronized void select(String name, boolean parity) {
+        SummaryRealiser selected;
+        if (parity) {
+            selected = current instanceof ParityRealiser ? current : new ParityRealiser(getSimpleNlg(), template);
+        } else if (name.equals(TEMPLATE)) {
+            selected = template;
+        } else if (name.equals(SIMPLENLG)) {
+            selected = getSimpleNlg();
+        } else {
+            throw new IllegalArgumentException("Unknown realiser: " + name);
+        }
+        if (selected != current) {
+            current = selected;
+            RealisationCache.getShared().clear();
+        }
+    }
+
+    /**
+     * The selected realiser, SimpleNLG unless select was called.
+     */
+    public static synchronized SummaryRealiser get() {
+        if (current == null)
+            current = getSimpleNlg();
+        return current;
+    }
+
+    /**
+     * The parity realiser when parity is selected, otherwise null.
+     */
+    public static synchronized ParityRealiser getParity() {
+        return current instanceof ParityRealiser ? (ParityRealiser) current : null;
+    }
+
+    private static SimpleNLGRealiser getSimpleNlg() {
+        if (simpleNlg == null)
+            simpleNlg = new SimpleNLGRealiser();
+        return simpleNlg;
+    }
+}
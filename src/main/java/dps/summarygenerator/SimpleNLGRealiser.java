@@ -0,0 +1,440 @@
+package dps.summarygenerator;
+
+import simplenlg.features.Feature;
+import simplenlg.features.NumberAgreement;
+import simplenlg.framework.CoordinatedPhraseElement;
+import simplenlg.framework.DocumentElement;
+import simplenlg.framework.NLGElement;
+import simplenlg.framework.NLGFactory;
+import simplenlg.lexicon.Lexicon;
+import simplenlg.phrasespec.NPPhraseSpec;
+import simplenlg.phrasespec.PPPhraseSpec;
+import simplenlg.phrasespec.SPhraseSpec;
+import simplenlg.phrasespec.VPPhraseSpec;
+import simplenlg.realiser.english.Realiser;
+import dps.summarygenerator.messages.DesignPatternClassMessage;
+import dps.summarygenerator.messages.DesignPatternInheritClassMessage;
+import dps.summarygenerator.messages.DesignPatternMethodMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds a SimpleNLG phrase tree per summary and realises it with the default lexicon. The
+ * lexicon and realiser are shared, so one summary is realised at a time.
+ */
+public class SimpleNLGRealiser implements SummaryRealiser {
+    private Lexicon lexicon = Lexicon.getDefaultLexicon();
+    private NLGFactory nlgFactory = new NLGFactory(lexicon);
+    private Realiser realiser = new Realiser(lexicon);
+
+    @Override
+    public String getName() {
+        return Realisers.SIMPLENLG;
+    }
+
+    public SPhraseSpec handleDesignPatternClass(DesignPatternClassMessage cm) {
+        String className = cm.getClassName();
+        String designPattern = cm.getDesignPattern();
+        String relatedClassName = cm.getRelatedClassName();
+        String relatedClassDesignPattern = cm.getRelatedClassDesignPattern();
+
+        SPhraseSpec designPatternDescription = nlgFactory.createClause();
+
+        NPPhraseSpec subject = nlgFactory.createNounPhrase(className);
+        VPPhraseSpec verbAct = nlgFactory.createVerbPhrase("act");
+        PPPhraseSpec ppAs = nlgFactory.createPrepositionPhrase("as");
+        NPPhraseSpec object = nlgFactory.createNounPhrase(designPattern);
+
+        PPPhraseSpec ppFor = nlgFactory.createPrepositionPhrase("for");
+
+        object.setDeterminer("a");
+        ppAs.addComplement(object);
+
+        if (relatedClassName != null) {
+            NPPhraseSpec relatedClass = nlgFactory.createNounPhrase(relatedClassName);
+
+            if (relatedClassDesignPattern != null) {
+                relatedClass.addPreModifier(relatedClassDesignPattern);
+            }
+            ppFor.addComplement(relatedClass);
+            object.addPostModifier(ppFor);
+        }
+
+        designPatternDescription.setSubject(subject);
+        designPatternDescription.setVerb(verbAct);
+        designPatternDescription.setObject(ppAs);
+
+        return designPatternDescription;
+    }
+
+    public ArrayList<SPhraseSpec> handleDesignPatternMethod(ArrayList<DesignPatternMethodMessage> mmal) {
+        ArrayList<SPhraseSpec> designPatternMethodSPhraseArray = new ArrayList<>();
+
+        for (DesignPatternMethodMessage mm : mmal) {
+
+            SPhraseSpec designPatternMethodDescription = nlgFactory.createClause();
+            PPPhraseSpec ppTo = nlgFactory.createPrepositionPhrase("to");
+
+            if (mm.getMethodVerb() != null) {
+                VPPhraseSpec methodVerb = nlgFactory.createVerbPhrase(mm.getMethodVerb());
+                designPatternMethodDescription.setVerb(methodVerb);
+            }
+
+            if (mm.getMethodReturn() != null) {
+                NPPhraseSpec methodReturn = nlgFactory.createNounPhrase(mm.getMethodReturn());
+                designPatternMethodDescription.setObject(methodReturn);
+            }
+
+            if (mm.getMethodAction() != null) {
+                NPPhraseSpec object = nlgFactory.createNounPhrase(mm.getMethodAction());
+                object.setPreModifier(mm.getMethodReturn());
+                object.setDeterminer("a");
+
+                object.addComplement(ppTo);
+                designPatternMethodDescription.setObject(object);
+            }
+
+            if (mm.getOverrideMethod() != null) {
+                VPPhraseSpec methodVerb = nlgFactory.createVerbPhrase(mm.getMethodVerb());
+                String object = String.join(", ", mm.getOverrideMethod());
+                designPatternMethodDescription.setVerb(methodVerb);
+                designPatternMethodDescription.setObject(object);
+            }
+
+            if (mm.getIncomingMethod() != null) {
+                String complementObjectStr = String.join(", ", mm.getIncomingMethod());
+                NPPhraseSpec complementObject = nlgFactory.createNounPhrase(complementObjectStr);
+                ppTo.addComplement(complementObject);
+            }
+
+            if (mm.getMethodName() != null) {
+                VPPhraseSpec methodVerb = nlgFactory.createVerbPhrase(mm.getMethodVerb());
+                NPPhraseSpec methodName = nlgFactory.createNounPhrase(mm.getMethodName());
+
+                designPatternMethodDescription.setVerb(methodVerb);
+                designPatternMethodDescription.setObject(methodName);
+            }
+
+            if (mm.getTarget() != null) {
+                VPPhraseSpec methodVerb = nlgFactory.createVerbPhrase(mm.getMethodVerb());
+                NPPhraseSpec object = nlgFactory.createNounPhrase();
+                if (mm.getMethodName() != null) {
+                    object = nlgFactory.createNounPhrase(mm.getMethodName());
+                }
+
+                if (mm.getParameter() != null) {
+                    String parameters = String.join(", ", mm.getParameter());
+                    object = nlgFactory.createNounPhrase(parameters);
+                }
+
+                NPPhraseSpec complementObject = nlgFactory.createNounPhrase(mm.getTarget());
+
+                methodVerb.setPostModifier(object);
+                complementObject.setPreModifier(ppTo);
+
+                designPatternMethodDescription.setVerb(methodVerb);
+                designPatternMethodDescription.setObject(complementObject);
+            }
+
+            if (mm.getParameter() != null) {
+                VPPhraseSpec methodVerb = nlgFactory.createVerbPhrase(mm.getMethodVerb());
+                String parameters = String.join(", ", mm.getParameter());
+
+                NPPhraseSpec object = nlgFactory.createNounPhrase(parameters);
+
+                if (mm.getMethodAction() != null) {
+                    NPPhraseSpec complementObject = nlgFactory.createNounPhrase(mm.getMethodAction());
+                    object.setPostModifier(complementObject);
+                }
+
+                designPatternMethodDescription.setVerb(methodVerb);
+                designPatternMethodDescription.setObject(object);
+            }
+
+            if (mm.getCalledMethod() != null && mm.getCallerMethodArr() != null) {
+                VPPhraseSpec methodVerb = nlgFactory.createVerbPhrase(mm.getMethodVerb());
+
+                String callerMethods = String.join(", ", mm.getCallerMethodArr());
+                String calledMethod = mm.getCalledMethod();
+
+                NPPhraseSpec subject = nlgFactory.createNounPhrase(callerMethods);
+
+                designPatternMethodDescription.setVerb(methodVerb);
+                methodVerb.addPreModifier(subject);
+                designPatternMethodDescription.setObject(calledMethod);
+
+            }
+
+            if (mm.getCalledMethodArr() != null && mm.getCallerMethod() != null) {
+                VPPhraseSpec methodVerb = nlgFactory.createVerbPhrase(mm.getMethodVerb());
+
+                String calledMethods = String.join(", ", mm.getCalledMethodArr());
+                String callerMethod = mm.getCallerMethod();
+
+                NPPhraseSpec object = nlgFactory.createNounPhrase(callerMethod);
+
+                designPatternMethodDescription.setVerb(methodVerb);
+                methodVerb.addPreModifier(object);
+                designPatternMethodDescription.setObject(calledMethods);
+            }
+            designPatternMethodSPhraseArray.add(designPatternMethodDescription);
+        }
+
+        return designPatternMethodSPhraseArray;
+    }
+
+    public SPhraseSpec handleDesignPatternInheritClassMessage(DesignPatternInheritClassMessage icm) {
+        String inheritClass = icm.getInheritClass();
+        SPhraseSpec designPatternInheritClassDescription = nlgFactory.createClause();
+
+        NPPhraseSpec object = nlgFactory.createNounPhrase(inheritClass);
+        VPPhraseSpec verbInherit = nlgFactory.createVerbPhrase("inherit");
+
+        verbInherit.addPostModifier("by");
+        verbInherit.setFeature(Feature.PASSIVE, true);
+
+        designPatternInheritClassDescription.setVerb(verbInherit);
+        designPatternInheritClassDescription.setObject(object);
+
+        return designPatternInheritClassDescription;
+    }
+
+    @Override
+    public synchronized String realiseSentence(DesignPatternClassMessage cm,
+            ArrayList<DesignPatternMethodMessage> mmal, DesignPatternInheritClassMessage icm) {
+        SPhraseSpec designPatternDescription;
+        ArrayList<SPhraseSpec> designPatternMethodSPhraseArray = new ArrayList<>();
+        SPhraseSpec designPatternInheritClassDescription;
+
+        designPatternDescription = handleDesignPatternClass(cm);
+
+        if (mmal != null) {
+            designPatternMethodSPhraseArray = handleDesignPatternMethod(mmal);
+        }
+
+        NLGElement newPhrase = designPatternDescription;
+
+        if (icm != null) {
+            designPatternInheritClassDescription = handleDesignPatternInheritClassMessage(icm);
+            newPhrase = mergeSentence(newPhrase, designPatternInheritClassDescription, ", which");
+        }
+
+        for (SPhraseSpec designPatternMethodSPhrase : designPatternMethodSPhraseArray) {
+            newPhrase = mergeSentence(newPhrase, designPatternMethodSPhrase, ", which");
+        }
+
+        String sentence = realiser.realiseSentence(newPhrase);
+        return sentence;
+    }
+
+    private NLGElement mergeSentence(NLGElement nlgElement, SPhraseSpec phraseSpec, String conjunctionWord) {
+        SPhraseSpec clause = nlgFactory.createClause();
+        clause.setVerb(phraseSpec.getVerb());
+        clause.setObject(phraseSpec.getObject());
+
+        CoordinatedPhraseElement coordinatedPhraseElement = nlgFactory.createCoordinatedPhrase();
+        coordinatedPhraseElement.addCoordinate(nlgElement);
+        coordinatedPhraseElement.addCoordinate(clause);
+        coordinatedPhraseElement.setConjunction(conjunctionWord);
+
+        return coordinatedPhraseElement;
+    }
+
+    @Override
+    public synchronized String realiseClassDescription(String classModifier, String classExtends,
+            String classImplements, boolean isInterfaceOrNot) {
+        SPhraseSpec classDescription = nlgFactory.createClause();
+        VPPhraseSpec verbBe = nlgFactory.createVerbPhrase("be");
+
+        NPPhraseSpec classType;
+
+        // if it is an interface
+        if (isInterfaceOrNot) {
+            classType = nlgFactory.createNounPhrase("interface");
+        } else {
+            classType = nlgFactory.createNounPhrase("class");
+        }
+
+        // add details to the sentence
+        classType.addPreModifier(classModifier);
+        classType.setDeterminer("a");
+        classDescription.setSubject("It");
+        classDescription.setVerb(verbBe);
+        classDescription.setObject(classType);
+
+        CoordinatedPhraseElement implementsAndExtends = nlgFactory.createCoordinatedPhrase();
+
+        // if the class is extended from another class, add the base class
+        if (!classExtends.equals("")) {
+            SPhraseSpec classExtendsPhrase = nlgFactory.createClause();
+
+            VPPhraseSpec verbExtend = nlgFactory.createVerbPhrase("extend");
+            NPPhraseSpec objectExtend = nlgFactory.createNounPhrase(classExtends);
+
+            classExtendsPhrase.setVerb(verbExtend);
+            classExtendsPhrase.setObject(objectExtend);
+            implementsAndExtends.addCoordinate(classExtendsPhrase);
+        }
+
+        // if the class implements an interface, add the interface details
+        if (!classImplements.equals("")) {
+            SPhraseSpec classImplementsPhrase = nlgFactory.createClause();
+
+            VPPhraseSpec verbImplement = nlgFactory.createVerbPhrase("implement");
+            NPPhraseSpec objectImplement = nlgFactory.createNounPhrase(classImplements);
+
+            classImplementsPhrase.setVerb(verbImplement);
+            classImplementsPhrase.setObject(objectImplement);
+            implementsAndExtends.addCoordinate(classImplementsPhrase);
+        }
+
+        classDescription.addComplement(implementsAndExtends);
+
+        return realiser.realiseSentence(classDescription);
+    }
+
+    @Override
+    public synchronized String realiseMethodsSummary(String className, List<String> methodNames,
+            List<String> returnTypes) {
+
+        /* Method summary */
+        SPhraseSpec methodSummary = nlgFactory.createClause();
+        VPPhraseSpec verbBe = nlgFactory.createVerbPhrase("be");
+        NPPhraseSpec methodCount = nlgFactory.createNounPhrase();
+        CoordinatedPhraseElement methodList = nlgFactory.createCoordinatedPhrase();
+
+        /* Subject: the ... methods of ... */
+        Integer numMethods = methodNames.size();
+
+        methodCount.setDeterminer("the");
+        methodCount.setNoun("method");
+
+        if (numMethods > 1) {
+            methodCount.setFeature(Feature.NUMBER, NumberAgreement.PLURAL);
+            methodCount.addPreModifier(numMethods.toString());
+        } else {
+            methodCount.addPreModifier("only");
+        }
+
+        PPPhraseSpec genitiveClass = nlgFactory.createPrepositionPhrase("of");
+        genitiveClass.addComplement(className);
+        methodCount.addComplement(genitiveClass);
+
+        for (int i = 0; i < methodNames.size(); i++) {
+            NPPhraseSpec methodName = nlgFactory.createNounPhrase();
+
+            methodName.setNoun(methodNames.get(i));
+            methodName.addPostModifier("(" + returnTypes.get(i) + ")");
+
+            methodList.addCoordinate(methodName);
+
+        }
+        methodSummary.setSubject(methodCount);
+        methodSummary.setVerb(verbBe);
+        methodSummary.setObject(methodList);
+        String methodSummaryOutput = realiser.realiseSentence(methodSummary);
+
+        return methodSummaryOutput;
+    }
+
+    @Override
+    public synchronized String realiseMethodUsage(List<String> methodNames, List<List<String>> outgoingMethods,
+            List<List<String>> incomingMethods) {
+        List<DocumentElement> methodDescriptions = new ArrayList<DocumentElement>();
+
+        for (int i = 0; i < methodNames.size(); i++) {
+            NLGElement methodUsageDescription = generateMethodUsage(methodNames.get(i), outgoingMethods.get(i),
+                    incomingMethods.get(i));
+            DocumentElement methodDescriptionSentence = nlgFactory.createSentence(methodUsageDescription);
+            methodDescriptions.add(methodDescriptionSentence);
+        }
+        DocumentElement methodDescriptionParagraph = nlgFactory.createParagraph(methodDescriptions);
+        String methodDescription = realiser.realise(methodDescriptionParagraph).getRealisation();
+
+        return methodDescription;
+    }
+
+    // summarise the usage of a method, look into the incoming/outgoing methods, as
+    // well as the classes that these method belongs to
+    private NLGElement generateMethodUsage(String name, List<String> outgoingMethods, List<String> incomingMethods) {
+
+        NPPhraseSpec methodName = nlgFactory.createNounPhrase();
+        methodName.setNoun(name);
+
+        SPhraseSpec methodOutgoing = nlgFactory.createClause();
+        VPPhraseSpec verbCall = nlgFactory.createVerbPhrase("call");
+        methodOutgoing.setSubject(methodName);
+        methodOutgoing.setVerb(verbCall);
+
+        /* Outgoing methods */
+        CoordinatedPhraseElement outgoingList = nlgFactory.createCoordinatedPhrase();
+
+        Integer numOutgoing = outgoingMethods.size();
+        NPPhraseSpec outgoingCount = nlgFactory.createNounPhrase();
+        outgoingCount.setNoun("method");
+
+        if (numOutgoing == 0) {
+            outgoingCount.setFeature(Feature.NUMBER, NumberAgreement.PLURAL);
+            outgoingCount.addPreModifier("no");
+        } else if (numOutgoing > 1) {
+            outgoingCount.setFeature(Feature.NUMBER, NumberAgreement.PLURAL);
+            outgoingCount.addPreModifier(numOutgoing.toString());
+            outgoingList.addPreModifier(":");
+
+        } else {
+            outgoingCount.addPreModifier("only one");
+            outgoingList.addPreModifier(":");
+        }
+
+        /* actual list of methods */
+        for (String outgoing : outgoingMethods) {
+            NPPhraseSpec outgoingName = nlgFactory.createNounPhrase();
+            outgoingName.setNoun(outgoing);
+            outgoingList.addCoordinate(outgoingName);
+        }
+
+        outgoingCount.addPostModifier(outgoingList);
+        methodOutgoing.setObject(outgoingCount);
+
+        /* coordinate clause: Incoming methods */
+        SPhraseSpec methodIncoming = nlgFactory.createClause();
+        methodIncoming.setObject(methodName);
+        methodIncoming.setVerb(verbCall);
+
+        CoordinatedPhraseElement incomingList = nlgFactory.createCoordinatedPhrase();
+
+        Integer numIncoming = incomingMethods.size();
+        NPPhraseSpec incomingCount = nlgFactory.createNounPhrase();
+        incomingCount.setNoun("method");
+
+        if (numIncoming == 0) {
+            incomingCount.setFeature(Feature.NUMBER, NumberAgreement.PLURAL);
+            incomingCount.addPreModifier("no");
+        } else if (numIncoming > 1) {
+            incomingCount.setFeature(Feature.NUMBER, NumberAgreement.PLURAL);
+            incomingCount.addPreModifier(numIncoming.toString());
+            incomingList.addPreModifier("(");
+            incomingList.addPostModifier(")");
+        } else {
+            incomingCount.addPreModifier("only one");
+            incomingList.addPreModifier("(");
+            incomingList.addPostModifier(")");
+        }
+
+        /* actual list of methods */
+        for (String incoming : incomingMethods) {
+            NPPhraseSpec incomingName = nlgFactory.createNounPhrase();
+            incomingName.setNoun(incoming);
+            incomingList.addCoordinate(incomingName);
+        }
+        incomingCount.addPostModifier(incomingList);
+        methodIncoming.setSubject(incomingCount);
+
+        CoordinatedPhraseElement methodUsage = nlgFactory.createCoordinatedPhrase();
+        methodUsage.addCoordinate(methodIncoming);
+        methodUsage.addCoordinate(methodOutgoing);
+
+        return methodUsage;
+    }
+}
@@ -4,12 +4,12 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.*;
+import java.util.function.Consumer;
 
 import org.apache.commons.collections4.MultiValuedMap;
 
-import simplenlg.framework.NLGFactory;
-import simplenlg.lexicon.Lexicon;
-import simplenlg.realiser.english.Realiser;
+import dps.designpatternidentifier.DetectorMetrics;
+import dps.projectparser.CallGraph;
 import dps.utils.Utils;
 
 public class Summarise {
@@ -17,113 +17,172 @@ public class Summarise {
     // Static CSV writer to accumulate all summaries
     private static FileWriter csvWriter = null;
     private static boolean csvHeaderWritten = false;
+
+    // When set (batch worker processes), CSV rows are handed over instead of written to the file
+    private static Consumer<String> csvRowSink = null;
+
+    public static void setCsvRowSink(Consumer<String> rowSink) {
+        csvRowSink = rowSink;
+    }
+
+    private final ClassInterfaceSummariser classInterfaceSummariser = new ClassInterfaceSummariser();
+    private final MethodSummariser methodSummariser = new MethodSummariser();
+    private final DesignPatternSummarise designPatternSummarise = new DesignPatternSummarise();
+
+    // file summaries of the last summarise call
+    private LinkedHashMap<String, String> fileSummaries = new LinkedHashMap<>();
     
+    /**
+     * Measures the design pattern summaries in the given metrics, see DetectorMetrics.
+     */
+    public void setMetrics(DetectorMetrics metrics) {
+        designPatternSummarise.setMetrics(metrics);
+    }
+
     public String summarise(HashMap<String, HashMap> fileDetails,
             ArrayList<HashMap> designPatternDetails,
             HashMap<String, MultiValuedMap<String, String>> summary, String projectName) throws IOException {
+        return summarise(fileDetails, designPatternDetails, summary, projectName, null);
+    }
 
-        ClassInterfaceSummariser classInterfaceSummariser = new ClassInterfaceSummariser();
-        DesignPatternSummarise designPatternSummarise = new DesignPatternSummarise();
-        MethodSummariser methodSummariser = new MethodSummariser();
-
-        Lexicon lexicon = Lexicon.getDefaultLexicon();
-        NLGFactory nlgFactory = new NLGFactory(lexicon);
-        Realiser realiser = new Realiser(lexicon);
-
-        String projectSummary = "";
+    /**
+     * Same as above, resolving call edges of each file on demand when a lazy call graph is given.
+     */
+    public String summarise(HashMap<String, HashMap> fileDetails,
+            ArrayList<HashMap> designPatternDetails,
+            HashMap<String, MultiValuedMap<String, String>> summary, String projectName,
+            CallGraph callGraph) throws IOException {
 
         // Initialize CSV file if not already done
-        initializeCsvWriter();
+        if (csvRowSink == null) {
+            initializeCsvWriter();
+        }
 
         // if the project has a design pattern, include the multivalue map to store values
         if (!designPatternDetails.isEmpty()) {
-            designPatternSummarise.summarise(fileDetails, designPatternDetails, summary);
+            designPatternSummarise.summarise(fileDetails, designPatternDetails, summary, callGraph);
         }
         
         // Process each file individually and write separate CSV rows
+        HashMap<String, LinkedHashMap<String, HashSet<String>>> sentencesByFile = indexByFile(summary);
+        fileSummaries = new LinkedHashMap<>();
         for (Map.Entry<String, HashMap> fileEntry : fileDetails.entrySet()) {
             String file = fileEntry.getKey();
-            String fileSummary = "";
-            
-            // Check if this file has any design pattern summaries
-            boolean hasDesignPatterns = false;
-            for (String designPattern : summary.keySet()) {
-                if (summary.get(designPattern).containsKey(file) && 
-                    !summary.get(designPattern).get(file).isEmpty()) {
-                    hasDesignPatterns = true;
-                    break;
-                }
+
+            // method summaries describe incoming and outgoing calls
+            if (callGraph != null) {
+                callGraph.resolveClass(file);
             }
-            
-            if (hasDesignPatterns) {
-                // Generate summary for files with design patterns
-                for (String designPattern : summary.keySet()) {
-                    if (summary.get(designPattern).containsKey(file) && 
-                        !summary.get(designPattern).get(file).isEmpty()) {
-                        
-                        HashSet<String> fileSummarySet = new HashSet<>();
-                        for (String summary_text : summary.get(designPattern).get(file))
-                            fileSummarySet.add(summary_text);
-
-                        // generate class detail description, put summary as a parameter so that
-                        // design pattern details shall be included.
-                        ArrayList classDetails = Utils.getClassOrInterfaceDetails(fileEntry.getValue());
-                        if (classDetails.size() == 0) {
-                            continue;
-                        }
-                        HashMap classDetail = (HashMap) Utils.getClassOrInterfaceDetails(fileEntry.getValue()).get(0);
-                        String classDescription = classInterfaceSummariser.generateClassDescription(nlgFactory,
-                                realiser, classDetail, fileSummarySet);
-                        // generate method description, as well as method usage description, merge into
-                        // method summary
-                        ArrayList<HashMap> methodDetails = Utils.getMethodDetails(fileEntry.getValue());
-                        if (methodDetails.size() != 0) {
-                            String methodDescription = methodSummariser.generateMethodsSummary(nlgFactory, realiser,
-                                    methodDetails, file);
-                            String methodUsageDescription = methodSummariser.generateMethodDescription(nlgFactory, realiser,
-                                    methodDetails);
-                            String methodSummary = methodDescription + " " + methodUsageDescription;
-                            classDescription += " " + methodSummary;
-                        }
-                        
-                        if (!fileSummary.isEmpty()) {
-                            fileSummary += " ";
-                        }
-                        fileSummary += designPattern + ": " + classDescription;
-                    }
-                }
-            } else {
-                // Generate summary for files without design patterns
-                ArrayList classDetails = Utils.getClassOrInterfaceDetails(fileEntry.getValue());
-                if (classDetails.size() > 0) {
-                    HashMap classDetail = (HashMap) classDetails.get(0);
-                    String classDescription = classInterfaceSummariser.generateClassDescription(nlgFactory,
-                            realiser, classDetail, new HashSet<>());
-                    
-                    ArrayList<HashMap> methodDetails = Utils.getMethodDetails(fileEntry.getValue());
-                    if (methodDetails.size() != 0) {
-                        String methodDescription = methodSummariser.generateMethodsSummary(nlgFactory, realiser,
-                                methodDetails, file);
-                        String methodUsageDescription = methodSummariser.generateMethodDescription(nlgFactory, realiser,
-                                methodDetails);
-                        String methodSummary = methodDescription + " " + methodUsageDescription;
-                        classDescription += " " + methodSummary;
-                    }
-                    
-                    fileSummary = classDescription;
+
+            String fileSummary = summariseFile(file, fileEntry.getValue(),
+                    sentencesByFile.getOrDefault(file, new LinkedHashMap<>()));
+            if (!fileSummary.isEmpty()) {
+                fileSummaries.put(file, fileSummary);
+            }
+        }
+
+        return writeFileSummaries(projectName, fileSummaries);
+    }
+
+    /**
+     * Summaries by file of the last summarise call, files without a summary left out.
+     */
+    public LinkedHashMap<String, String> getFileSummaries() {
+        return fileSummaries;
+    }
+
+    /**
+     * Writes a CSV row per file summary and returns the project summary. Also used for
+     * summaries taken from the result cache.
+     */
+    public static String writeFileSummaries(String projectName, Map<String, String> fileSummaries)
+            throws IOException {
+        StringBuilder projectSummary = new StringBuilder();
+        for (Map.Entry<String, String> fileSummary : fileSummaries.entrySet()) {
+            // Convert class name to Java filename (e.g., "VideoConversionFacade" -> "VideoConversionFacade.java")
+            String javaFilename = fileSummary.getKey() + ".java";
+            writeToCsv(projectName, javaFilename, fileSummary.getValue());
+            projectSummary.append(javaFilename).append(": ").append(fileSummary.getValue()).append('\n');
+        }
+        return projectSummary.toString();
+    }
+
+    /**
+     * Inverts the design pattern sentences by pattern and file into sentences by file and
+     * pattern, so each file is looked up once. The patterns of a file keep the order of
+     * summary; files without sentences are left out.
+     */
+    public static HashMap<String, LinkedHashMap<String, HashSet<String>>> indexByFile(
+            HashMap<String, MultiValuedMap<String, String>> summary) {
+        HashMap<String, LinkedHashMap<String, HashSet<String>>> sentencesByFile = new HashMap<>();
+        for (Map.Entry<String, MultiValuedMap<String, String>> patternEntry : summary.entrySet()) {
+            for (Map.Entry<String, Collection<String>> fileEntry : patternEntry.getValue().asMap().entrySet()) {
+                if (fileEntry.getValue().isEmpty()) {
+                    continue;
                 }
+                sentencesByFile.computeIfAbsent(fileEntry.getKey(), file -> new LinkedHashMap<>())
+                        .put(patternEntry.getKey(), new HashSet<>(fileEntry.getValue()));
             }
-            
-            // Write individual file summary to CSV
-            if (!fileSummary.isEmpty()) {
-                // Convert class name to Java filename (e.g., "VideoConversionFacade" -> "VideoConversionFacade.java")
-                String javaFilename = file + ".java";
-                writeToCsv(projectName, javaFilename, fileSummary);
-                projectSummary += javaFilename + ": " + fileSummary + "\n";
+        }
+        return sentencesByFile;
+    }
+
+    /**
+     * Summary of a single file, prefixed per design pattern the file takes part in. Empty for
+     * files without a class or interface. summary holds the design pattern sentences, as
+     * filled by DesignPatternSummarise; call edges must already be resolved.
+     */
+    public String summariseFile(String file, HashMap classDetails,
+            HashMap<String, MultiValuedMap<String, String>> summary) {
+        LinkedHashMap<String, HashSet<String>> patternSentences = new LinkedHashMap<>();
+        for (Map.Entry<String, MultiValuedMap<String, String>> patternEntry : summary.entrySet()) {
+            Collection<String> sentences = patternEntry.getValue().get(file);
+            if (!sentences.isEmpty()) {
+                patternSentences.put(patternEntry.getKey(), new HashSet<>(sentences));
             }
         }
+        return summariseFile(file, classDetails, patternSentences);
+    }
 
-        return projectSummary;
+    /**
+     * Same as above, with the sentences of the file by design pattern, see indexByFile.
+     */
+    public String summariseFile(String file, HashMap classDetails,
+            LinkedHashMap<String, HashSet<String>> patternSentences) {
+        ArrayList classDetailList = Utils.getClassOrInterfaceDetails(classDetails);
+        if (classDetailList.size() == 0) {
+            return "";
+        }
+        HashMap classDetail = (HashMap) classDetailList.get(0);
+
+        // generate method description, as well as method usage description, merge into
+        // method summary. The same for every design pattern of the file.
+        String methodSummary = "";
+        ArrayList<HashMap> methodDetails = Utils.getMethodDetails(classDetails);
+        if (methodDetails.size() != 0) {
+            String methodDescription = methodSummariser.generateMethodsSummary(methodDetails, file);
+            String methodUsageDescription = methodSummariser.generateMethodDescription(methodDetails);
+            methodSummary = " " + methodDescription + " " + methodUsageDescription;
+        }
+
+        if (patternSentences.isEmpty()) {
+            // Generate summary for files without design patterns
+            return classInterfaceSummariser.generateClassDescription(classDetail, new HashSet<>()) + methodSummary;
+        }
+
+        // Generate summary for files with design patterns
+        StringBuilder fileSummary = new StringBuilder();
+        for (Map.Entry<String, HashSet<String>> patternEntry : patternSentences.entrySet()) {
+            // generate class detail description, put summary as a parameter so that
+            // design pattern details shall be included.
+            String classDescription = classInterfaceSummariser.generateClassDescription(classDetail,
+                    patternEntry.getValue());
+            if (fileSummary.length() > 0) {
+                fileSummary.append(' ');
+            }
+            fileSummary.append(patternEntry.getKey()).append(": ").append(classDescription).append(methodSummary);
+        }
+        return fileSummary.toString();
     }
 
     /**
@@ -154,10 +213,6 @@ public class Summarise {
      * Write a single project summary to the CSV file
      */
     private static void writeToCsv(String projectName, String fileName, String summary) throws IOException {
-        if (csvWriter == null) {
-            initializeCsvWriter();
-        }
-
         // Clean up the summary for CSV format
         String cleanSummary = summary.replace("\"", "\"\""); // Escape quotes
         cleanSummary = cleanSummary.replace("\r\n", " ").replace("\n", " ").replace("\r", " "); // Remove newlines
@@ -169,15 +224,30 @@ public class Summarise {
         }
 
         // Write CSV row
-        csvWriter.write(String.format("\"%s\",\"%s\",\"%s\"\n", 
-            projectName, fileName, cleanSummary));
+        String row = String.format("\"%s\",\"%s\",\"%s\"\n", projectName, fileName, cleanSummary);
+        if (csvRowSink != null) {
+            csvRowSink.accept(row);
+        } else {
+            writeCsvRow(row);
+        }
+    }
+
+    /**
+     * Append an already formatted CSV row. Used directly by the batch coordinator for rows
+     * streamed back from worker processes.
+     */
+    public static synchronized void writeCsvRow(String row) throws IOException {
+        if (csvWriter == null) {
+            initializeCsvWriter();
+        }
+        csvWriter.write(row);
         csvWriter.flush(); // Ensure data is written immediately
     }
 
     /**
      * Close the CSV writer - call this when all processing is complete
      */
-    public static void closeCsvWriter() throws IOException {
+    public static synchronized void closeCsvWriter() throws IOException {
         if (csvWriter != null) {
             csvWriter.close();
             csvWriter = null;
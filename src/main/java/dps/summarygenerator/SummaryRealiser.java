@@ -0,0 +1,46 @@
+package dps.summarygenerator;
+
+import dps.summarygenerator.messages.DesignPatternClassMessage;
+import dps.summarygenerator.messages.DesignPatternInheritClassMessage;
+import dps.summarygenerator.messages.DesignPatternMethodMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns the content of a summary into text. Every sentence shape DPS emits has a method
+ * here; the summarisers extract the content from the facts and take the text from the
+ * realiser Realisers selects, through the RealisationCache.
+ */
+public interface SummaryRealiser {
+
+    /** Name of the realiser, as in the realiser key of the run profile. */
+    String getName();
+
+    /**
+     * "X acts as a ... for ..., which ..., which ..." of a class in a pattern, mmal and icm
+     * may be null.
+     */
+    String realiseSentence(DesignPatternClassMessage cm, ArrayList<DesignPatternMethodMessage> mmal,
+            DesignPatternInheritClassMessage icm);
+
+    /**
+     * "It is a public class that extends X and that implements Y." The strings are empty
+     * when the class has no such part; classModifier may end with a space.
+     */
+    String realiseClassDescription(String classModifier, String classExtends, String classImplements,
+            boolean isInterface);
+
+    /**
+     * "The 2 methods of X are a (int) and b (void)." of at least one method.
+     */
+    String realiseMethodsSummary(String className, List<String> methodNames, List<String> returnTypes);
+
+    /**
+     * Paragraph with a "N methods (...) call m and m calls N methods: ..." sentence per method.
+     * The lists hold the distinct calls of each method as "name method of class C", in the
+     * order they are listed.
+     */
+    String realiseMethodUsage(List<String> methodNames, List<List<String>> outgoingMethods,
+            List<List<String>> incomingMethods);
+}
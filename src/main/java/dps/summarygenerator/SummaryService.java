@@ -0,0 +1,128 @@
+package dps.summarygenerator;
+
+import dps.projectparser.ParseProject;
+import dps.projectparser.ProjectSession;
+import dps.projectparser.RunProfile;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Summaries of single classes on request, for clients that only need a few of them (IDE
+ * plugins, review bots, Application --summarise). The first request for a project parses it
+ * and detects its patterns once (see ProjectSession); summaries are then only generated for
+ * the classes asked for, and kept. The text is the same as in final_summary and summary_NLG
+ * of a batch run with the same profile.
+ *
+ * Projects are the directories under the input directory. They are loaded one at a time;
+ * requests for different loaded projects can run at the same time, requests for the same
+ * project wait for each other.
+ */
+public class SummaryService {
+
+    private final File inputDirectory;
+    private final ParseProject parseProject;
+    private final HashMap<String, ProjectSession> sessions = new HashMap<>();
+
+    public SummaryService(File inputDirectory, RunProfile profile) {
+        this.inputDirectory = inputDirectory;
+        this.parseProject = new ParseProject();
+        parseProject.setProfile(profile);
+    }
+
+    /**
+     * Names of the projects under the input directory.
+     */
+    public List<String> getProjectNames() {
+        List<String> projectNames = new ArrayList<>();
+        File[] projects = inputDirectory.listFiles(File::isDirectory);
+        if (projects != null) {
+            for (File project : projects) {
+                projectNames.add(project.getName());
+            }
+        }
+        return projectNames;
+    }
+
+    /**
+     * Names of the classes and interfaces of a project.
+     */
+    public List<String> getClassNames(String project) throws IOException {
+        ProjectSession session = getSession(project);
+        synchronized (session) {
+            return session.getClassNames();
+        }
+    }
+
+    /**
+     * Summary of a class as in final_summary: its pattern sentences, class description and
+     * methods. Null if the project has no such class.
+     */
+    public String summarise(String project, String className) throws IOException {
+        ProjectSession session = getSession(project);
+        synchronized (session) {
+            return session.getFileSummary(className);
+        }
+    }
+
+    /**
+     * Sentences of every design pattern a class takes part in, by pattern. Null if the
+     * project has no such class.
+     */
+    public LinkedHashMap<String, HashSet<String>> summarisePatterns(String project, String className)
+            throws IOException {
+        ProjectSession session = getSession(project);
+        synchronized (session) {
+            return session.getPatternSentences(className);
+        }
+    }
+
+    /**
+     * Brings a loaded project up to date with its sources. Only the summaries that read a
+     * changed class are generated again, when next asked for. Returns whether anything
+     * changed; a project that was never loaded is left alone.
+     */
+    public boolean refresh(String project) throws IOException {
+        ProjectSession session;
+        synchronized (sessions) {
+            session = sessions.get(project);
+        }
+        if (session == null)
+            return false;
+        synchronized (session) {
+            return !session.refresh().isEmpty();
+        }
+    }
+
+    /**
+     * Forgets a loaded project and its summaries.
+     */
+    public void close(String project) {
+        synchronized (sessions) {
+            sessions.remove(project);
+        }
+    }
+
+    // opened on first use; the lock is held while parsing, so a project is never parsed twice
+    private ProjectSession getSession(String project) throws IOException {
+        synchronized (sessions) {
+            ProjectSession session = sessions.get(project);
+            if (session == null) {
+                File directory = new File(inputDirectory, project);
+                if (project.isEmpty() || project.contains("/") || project.contains("\\") || project.startsWith(".")
+                        || !directory.isDirectory()) {
+                    throw new FileNotFoundException("Project not found: " + project);
+                }
+                session = parseProject.openSession(directory, true);
+                sessions.put(project, session);
+            }
+            return session;
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package dps.summarygenerator;
+
+import dps.summarygenerator.messages.DesignPatternClassMessage;
+import dps.summarygenerator.messages.DesignPatternInheritClassMessage;
+import dps.summarygenerator.messages.DesignPatternMethodMessage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Fills a fixed template per sentence shape of SimpleNLGRealiser, giving the same text
+ * without building phrase trees or loading the lexicon.
+ *
+ * What SimpleNLG takes from its lexicon is reproduced with small tables: a single-word noun
+ * phrase given in an inflected form is realised in its base form (the method fits is listed
+ * as fit), verbs are put in the third person singular, irregular ones from PRESENT_3S, and
+ * "a" becomes "an" before a vowel. Words missing from the tables follow SimpleNLG's regular
+ * rules; realiser-parity=true compares both realisers on a corpus, see ParityRealiser.
+ */
+public class TemplateRealiser implements SummaryRealiser {
+
+    // third person singular of the irregular verbs
+    private static final HashMap<String, String> PRESENT_3S = pairs(
+            "be", "is", "have", "has", "do", "does", "go", "goes", "echo", "echoes", "veto", "vetoes");
+
+    // inflected verb forms looked up by their base form, e.g. the verb of an equalsX method
+    private static final HashMap<String, String> VERB_BASE = pairs(
+            "is", "be", "are", "be", "was", "be", "were", "be", "been", "be",
+            "has", "have", "had", "have", "does", "do", "did", "do", "done", "do", "goes", "go", "went", "go",
+            "equals", "equal", "contains", "contain", "exists", "exist", "matches", "match", "needs", "need",
+            "uses", "use", "includes", "include", "starts", "start", "ends", "end", "belongs", "belong",
+            "supports", "support", "requires", "require", "allows", "allow");
+
+    // plural nouns looked up by their singular, e.g. as a method name
+    private static final HashMap<String, String> NOUN_BASE = pairs(
+            "fits", "fit", "values", "value", "keys", "key", "items", "item", "entries", "entry",
+            "elements", "element", "children", "child", "names", "name", "results", "result",
+            "details", "detail", "options", "option", "settings", "setting", "parameters", "parameter",
+            "properties", "property", "fields", "field", "methods", "method", "objects", "object",
+            "events", "event", "listeners", "listener", "observers", "observer", "tasks", "task",
+            "words", "word", "lines", "line", "files", "file", "rows", "row", "columns", "column",
+            "points", "point", "steps", "step", "parts", "part", "runs", "run", "calls", "call");
+
+    @Override
+    public String getName() {
+        return Realisers.TEMPLATE;
+    }
+
+    @Override
+    public String realiseSentence(DesignPatternClassMessage cm, ArrayList<DesignPatternMethodMessage> mmal,
+            DesignPatternInheritClassMessage icm) {
+        String designPattern = noun(cm.getDesignPattern());
+        String object = words(article(designPattern), designPattern);
+        if (cm.getRelatedClassName() != null) {
+            object = words(object, "for", cm.getRelatedClassDesignPattern(), noun(cm.getRelatedClassName()));
+        }
+        StringBuilder sentence = new StringBuilder(words(noun(cm.getClassName()), "acts", "as", object));
+
+        if (icm != null) {
+            appendWhich(sentence, words("is inherited by", noun(icm.getInheritClass())));
+        }
+        if (mmal != null) {
+            for (DesignPatternMethodMessage mm : mmal) {
+                appendWhich(sentence, realiseMethodClause(mm));
+            }
+        }
+        return toSentence(sentence.toString());
+    }
+
+    // ", which clause", the comma is not doubled after a list ending in one
+    private static void appendWhich(StringBuilder sentence, String clause) {
+        sentence.append(sentence.charAt(sentence.length() - 1) == ',' ? " " : ", ").append(words("which", clause));
+    }
+
+    /**
+     * Helper method to realise the clause of a method message. The branches set the verb and
+     * the object in the order SimpleNLGRealiser.handleDesignPatternMethod does, later ones
+     * replacing earlier ones.
+     */
+    private static String realiseMethodClause(DesignPatternMethodMessage mm) {
+        String verb = "";
+        String object = "";
+        String to = "to";
+        if (mm.getIncomingMethod() != null) {
+            to = words(to, noun(String.join(", ", mm.getIncomingMethod())));
+        }
+
+        if (mm.getMethodVerb() != null) {
+            verb = present3s(mm.getMethodVerb());
+        }
+        if (mm.getMethodReturn() != null) {
+            object = noun(mm.getMethodReturn());
+        }
+        if (mm.getMethodAction() != null) {
+            // the return type is the first premodifier, "a" when there is none
+            String premodifier = mm.getMethodReturn() == null ? "" : mm.getMethodReturn();
+            object = words(article(premodifier), premodifier, noun(mm.getMethodAction()), to);
+        }
+        if (mm.getOverrideMethod() != null) {
+            verb = present3s(mm.getMethodVerb());
+            object = noun(String.join(", ", mm.getOverrideMethod()));
+        }
+        if (mm.getMethodName() != null) {
+            verb = present3s(mm.getMethodVerb());
+            object = noun(mm.getMethodName());
+        }
+        if (mm.getTarget() != null) {
+            String adapted = "";
+            if (mm.getMethodName() != null) {
+                adapted = noun(mm.getMethodName());
+            }
+            if (mm.getParameter() != null) {
+                adapted = noun(String.join(", ", mm.getParameter()));
+            }
+            verb = words(present3s(mm.getMethodVerb()), adapted);
+            object = words(to, noun(mm.getTarget()));
+        }
+        if (mm.getParameter() != null) {
+            verb = present3s(mm.getMethodVerb());
+            object = noun(String.join(", ", mm.getParameter()));
+            if (mm.getMethodAction() != null) {
+                object = words(object, noun(mm.getMethodAction()));
+            }
+        }
+        if (mm.getCalledMethod() != null && mm.getCallerMethodArr() != null) {
+            verb = words(noun(String.join(", ", mm.getCallerMethodArr())), present3s(mm.getMethodVerb()));
+            object = noun(mm.getCalledMethod());
+        }
+        if (mm.getCalledMethodArr() != null && mm.getCallerMethod() != null) {
+            verb = words(noun(mm.getCallerMethod()), present3s(mm.getMethodVerb()));
+            object = noun(String.join(", ", mm.getCalledMethodArr()));
+        }
+        return words(verb, object);
+    }
+
+    @Override
+    public String realiseClassDescription(String classModifier, String classExtends, String classImplements,
+            boolean isInterface) {
+        List<String> complements = new ArrayList<>();
+        if (!classExtends.equals("")) {
+            complements.add(words("that", "extends", noun(classExtends)));
+        }
+        if (!classImplements.equals("")) {
+            complements.add(words("that", "implements", noun(classImplements)));
+        }
+        return toSentence(words("It", "is", article(classModifier), classModifier, isInterface ? "interface" : "class",
+                coordinate(complements)));
+    }
+
+    @Override
+    public String realiseMethodsSummary(String className, List<String> methodNames, List<String> returnTypes) {
+        String subject = methodNames.size() > 1 ? words("the", String.valueOf(methodNames.size()), "methods")
+                : words("the", "only", "method");
+        List<String> methods = new ArrayList<>();
+        for (int i = 0; i < methodNames.size(); i++) {
+            methods.add(words(noun(methodNames.get(i)), "(" + returnTypes.get(i) + ")"));
+        }
+        return toSentence(words(subject, "of", className, methodNames.size() > 1 ? "are" : "is", coordinate(methods)));
+    }
+
+    @Override
+    public String realiseMethodUsage(List<String> methodNames, List<List<String>> outgoingMethods,
+            List<List<String>> incomingMethods) {
+        StringBuilder paragraph = new StringBuilder();
+        for (int i = 0; i < methodNames.size(); i++) {
+            String methodName = noun(methodNames.get(i));
+            List<String> incoming = incomingMethods.get(i);
+            List<String> outgoing = outgoingMethods.get(i);
+
+            String callers = words(count(incoming.size()),
+                    incoming.isEmpty() ? "" : words("(", coordinate(incoming), ")"));
+            String callees = words(count(outgoing.size()), outgoing.isEmpty() ? "" : words(":", coordinate(outgoing)));
+            if (i > 0) {
+                paragraph.append(' ');
+            }
+            paragraph.append(toSentence(words(callers, incoming.size() == 1 ? "calls" : "call", methodName, "and",
+                    methodName, "calls", callees)));
+        }
+        return paragraph.append("\n\n").toString();
+    }
+
+    // "no methods", "only one method" or "N methods"
+    private static String count(int methods) {
+        if (methods == 0)
+            return "no methods";
+        if (methods == 1)
+            return "only one method";
+        return methods + " methods";
+    }
+
+    /**
+     * Helper method to join the non-empty parts with single spaces, as SimpleNLG joins the
+     * words of a phrase.
+     */
+    private static String words(String... parts) {
+        StringBuilder text = new StringBuilder();
+        for (String part : parts) {
+            if (part == null || part.trim().isEmpty())
+                continue;
+            if (text.length() > 0)
+                text.append(' ');
+            text.append(part.trim());
+        }
+        return text.toString();
+    }
+
+    // "a", "a and b", "a, b and c"
+    private static String coordinate(List<String> coordinates) {
+        List<String> trimmed = new ArrayList<>();
+        for (String coordinate : coordinates)
+            trimmed.add(coordinate.trim());
+        if (trimmed.size() < 2)
+            return trimmed.isEmpty() ? "" : trimmed.get(0);
+        return String.join(", ", trimmed.subList(0, trimmed.size() - 1)) + " and " + trimmed.get(trimmed.size() - 1);
+    }
+
+    private static String toSentence(String text) {
+        if (text.isEmpty())
+            return text;
+        return Character.toUpperCase(text.charAt(0)) + text.substring(1) + ".";
+    }
+
+    private static String noun(String noun) {
+        return noun == null ? null : NOUN_BASE.getOrDefault(noun, noun);
+    }
+
+    /**
+     * Helper method to inflect a verb for the third person singular, with the rules of
+     * SimpleNLG's MorphologyRules for the verbs missing from PRESENT_3S.
+     */
+    static String present3s(String verb) {
+        if (verb == null)
+            return "";
+        String base = VERB_BASE.getOrDefault(verb, baseOfParticiple(verb));
+        if (PRESENT_3S.containsKey(base))
+            return PRESENT_3S.get(base);
+        if (base.matches(".*[szx(ch)(sh)]\\b"))
+            return base + "es";
+        if (base.matches(".*[b-z&&[^eiou]]y\\b"))
+            return base.substring(0, base.length() - 1) + "ies";
+        return base + "s";
+    }
+
+    /**
+     * Helper method to find the verb of a present participle, as the lexicon would for
+     * "growing" or "running"; other words are returned as they are.
+     */
+    private static String baseOfParticiple(String verb) {
+        if (verb.length() < 6 || !verb.endsWith("ing"))
+            return verb;
+        String stem = verb.substring(0, verb.length() - 3);
+        if (!stem.matches(".*[aeiou].*"))
+            return verb;
+        if (stem.matches(".*([b-df-hj-np-tv-z])\\1") && !stem.matches(".*(ss|ll|ff|zz)"))
+            return stem.substring(0, stem.length() - 1);
+        if (stem.matches(".*[b-df-hj-np-tv-z][aeiou][cgksvz]"))
+            return stem + "e";
+        return stem;
+    }
+
+    /**
+     * The indefinite article before the given word, "an" before a vowel and before eight,
+     * eleven, eighteen and eighty-something.
+     */
+    static String article(String next) {
+        String word = next == null ? "" : next.trim().toLowerCase();
+        if (word.matches("\\A(a|e|i|o|u).*") && !word.startsWith("one"))
+            return "an";
+        String digits = word.replaceFirst("^([0-9]{1,9}).*$", "$1");
+        if (!digits.isEmpty() && digits.length() <= 9 && Character.isDigit(digits.charAt(0))
+                && digits.matches("^(8|11|18).*$"))
+            return needsAn(Integer.parseInt(digits)) ? "an" : "a";
+        return "a";
+    }
+
+    private static boolean needsAn(int number) {
+        if (number == 8 || number == 11 || number == 18 || (number >= 80 && number < 90))
+            return true;
+        return number > 1000 && needsAn(number / 1000);
+    }
+
+    private static HashMap<String, String> pairs(String... keysAndValues) {
+        HashMap<String, String> map = new HashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            map.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return map;
+    }
+}
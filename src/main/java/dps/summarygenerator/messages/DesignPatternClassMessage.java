@@ -42,5 +42,9 @@ public class DesignPatternClassMessage extends Message {
     public void setRelatedClassDesignPattern(String relatedClassDesignPattern) {
         this.relatedClassDesignPattern = relatedClassDesignPattern;
     }
-}
 
+    @Override
+    protected Object[] getContent() {
+        return new Object[] {className, designPattern, relatedClassName, relatedClassDesignPattern};
+    }
+}
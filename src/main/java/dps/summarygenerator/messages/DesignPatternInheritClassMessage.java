@@ -10,5 +10,9 @@ public class DesignPatternInheritClassMessage extends Message {
     public void setInheritClass(String inheritClass) {
         this.inheritClass = inheritClass;
     }
-}
 
+    @Override
+    protected Object[] getContent() {
+        return new Object[] {inheritClass};
+    }
+}
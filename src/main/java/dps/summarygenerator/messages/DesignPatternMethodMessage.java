@@ -138,5 +138,11 @@ public class DesignPatternMethodMessage extends Message {
     public void setCalledMethodArr(ArrayList<String> calledMethodArr) {
         this.calledMethodArr = calledMethodArr;
     }
-}
 
+    @Override
+    protected Object[] getContent() {
+        return new Object[] {methodVerb, methodAction, methodModifier, methodReturn, incomingMethod,
+                outgoingMethod, overrideMethod, methodName, target, originateClass, parameter, calledMethod,
+                callerMethodArr, callerMethod, calledMethodArr};
+    }
+}
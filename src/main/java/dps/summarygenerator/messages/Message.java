@@ -1,5 +1,31 @@
 package dps.summarygenerator.messages;
 
+import java.util.Arrays;
+
+/**
+ * Messages are equal when they are of the same kind and have equal content, so the
+ * realised text of a message can be cached (see RealisationCache).
+ */
 public class Message {
-}
 
+    /** The fields of the message, in declaration order. */
+    protected Object[] getContent() {
+        return new Object[0];
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other != null && other.getClass() == getClass()
+                && Arrays.equals(getContent(), ((Message) other).getContent());
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * getClass().hashCode() + Arrays.hashCode(getContent());
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + Arrays.toString(getContent());
+    }
+}
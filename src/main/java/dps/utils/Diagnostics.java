@@ -0,0 +1,246 @@
+package dps.utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Warnings of the pipeline (unresolved symbols, unparseable files, duplicate types), instead
+ * of a console line per item. On projects with an incomplete classpath the symbol solver
+ * fails on most method calls, and printing each failure slowed parsing down.
+ *
+ * report only puts the warning on a queue; a background thread groups identical warnings
+ * (same kind and message) of a project and counts them, keeping the first few locations.
+ * When the project is done, finishProject writes them to output/diagnostics/<project>.jsonl,
+ * one line per distinct warning, and prints a one-line summary.
+ *
+ * Limits: at most maxPerSecond warnings are taken per second and at most maxDistinct distinct
+ * warnings are kept per project, the rest are only counted (rate_limited and suppressed in
+ * the summary). When the queue is full warnings are dropped and counted the same way.
+ */
+public class Diagnostics {
+
+    // kinds of warnings and their console names
+    public static final String UNRESOLVED_CALL = "unresolved_call";
+    public static final String UNRESOLVED_DECLARATION = "unresolved_declaration";
+    public static final String PARSE_ERROR = "parse_error";
+    public static final String DUPLICATE_DEFINITION = "duplicate_definition";
+    public static final String FIELD_TYPE_MISMATCH = "field_type_mismatch";
+    public static final String SOURCE_PATH = "source_path";
+
+    private static final LinkedHashMap<String, String> LABELS = new LinkedHashMap<>();
+    static {
+        LABELS.put(UNRESOLVED_CALL, "unresolved calls");
+        LABELS.put(UNRESOLVED_DECLARATION, "unresolved declarations");
+        LABELS.put(PARSE_ERROR, "parse errors");
+        LABELS.put(DUPLICATE_DEFINITION, "duplicate definitions");
+        LABELS.put(FIELD_TYPE_MISMATCH, "skipped fields");
+        LABELS.put(SOURCE_PATH, "source paths");
+    }
+
+    // locations kept per distinct warning
+    private static final int MAX_LOCATIONS = 5;
+
+    private static final Diagnostics SHARED = new Diagnostics(65536, 100000, 10000);
+
+    private final BlockingQueue<Object> queue;
+    private final int maxPerSecond;
+    private final int maxDistinct;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    // project -> warnings by kind and message, filled by the background thread
+    private final HashMap<String, ProjectDiagnostics> projects = new HashMap<>();
+    // warnings taken in the current second
+    private long second = 0;
+    private int taken = 0;
+
+    // output/diagnostics, null to write no files (server mode)
+    private volatile File directory = null;
+
+    private static class Warning {
+        final String project;
+        final String kind;
+        final String message;
+        final String location;
+
+        Warning(String project, String kind, String message, String location) {
+            this.project = project;
+            this.kind = kind;
+            this.message = message;
+            this.location = location;
+        }
+    }
+
+    // put on the queue by finishProject, counted down once everything before it was grouped
+    private static class Flush {
+        final CountDownLatch done = new CountDownLatch(1);
+    }
+
+    private static class ProjectDiagnostics {
+        // kind + "\t" + message -> entry
+        final LinkedHashMap<String, LinkedHashMap<String, Object>> entries = new LinkedHashMap<>();
+        // kind -> {count, distinct}
+        final TreeMap<String, long[]> counts = new TreeMap<>();
+        long suppressed = 0;
+        long rateLimited = 0;
+    }
+
+    public Diagnostics(int capacity, int maxPerSecond, int maxDistinct) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxPerSecond = maxPerSecond;
+        this.maxDistinct = maxDistinct;
+        Thread thread = new Thread(this::run, "dps-diagnostics");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public static Diagnostics getShared() {
+        return SHARED;
+    }
+
+    public void setDirectory(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Reports a warning of the project analysed by the current thread (see
+     * PipelineEvents.setProject). location is e.g. "File.java:12", or null.
+     */
+    public void report(String kind, String message, String location) {
+        String project = PipelineEvents.getProject();
+        Warning warning = new Warning(project == null ? "unknown" : project, kind, String.valueOf(message),
+                location);
+        if (!take() || !queue.offer(warning)) {
+            synchronized (projects) {
+                getProject(warning.project).rateLimited++;
+            }
+        }
+    }
+
+    // token bucket of one second
+    private synchronized boolean take() {
+        long now = System.nanoTime() / 1000000000L;
+        if (now != second) {
+            second = now;
+            taken = 0;
+        }
+        return ++taken <= maxPerSecond;
+    }
+
+    private void run() {
+        while (true) {
+            try {
+                Object item = queue.take();
+                if (item instanceof Flush) {
+                    ((Flush) item).done.countDown();
+                } else {
+                    add((Warning) item);
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void add(Warning warning) {
+        synchronized (projects) {
+            ProjectDiagnostics project = getProject(warning.project);
+            long[] counts = project.counts.computeIfAbsent(warning.kind, kind -> new long[2]);
+            counts[0]++;
+            String key = warning.kind + "\t" + warning.message;
+            LinkedHashMap<String, Object> entry = project.entries.get(key);
+            if (entry == null) {
+                if (project.entries.size() >= maxDistinct) {
+                    project.suppressed++;
+                    return;
+                }
+                entry = new LinkedHashMap<>();
+                entry.put("kind", warning.kind);
+                entry.put("message", warning.message);
+                entry.put("count", 0L);
+                entry.put("locations", new ArrayList<String>());
+                project.entries.put(key, entry);
+                counts[1]++;
+            }
+            entry.put("count", (Long) entry.get("count") + 1);
+            List<String> locations = (List<String>) entry.get("locations");
+            if (warning.location != null && locations.size() < MAX_LOCATIONS) {
+                locations.add(warning.location);
+            }
+        }
+    }
+
+    private ProjectDiagnostics getProject(String project) {
+        return projects.computeIfAbsent(project, name -> new ProjectDiagnostics());
+    }
+
+    /**
+     * Waits until the warnings reported so far are grouped, then writes those of the project
+     * to its JSONL file (if a directory is set), adds their counts to the MetricsRegistry,
+     * prints the summary and forgets them.
+     */
+    public void finishProject(String project) throws IOException {
+        Flush flush = new Flush();
+        try {
+            queue.put(flush);
+            flush.done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing the diagnostics of " + project, e);
+        }
+
+        ProjectDiagnostics diagnostics;
+        synchronized (projects) {
+            diagnostics = projects.remove(project);
+        }
+        if (diagnostics == null)
+            return;
+
+        File file = null;
+        if (directory != null) {
+            if (!directory.exists() && !directory.mkdirs()) {
+                throw new IOException("Failed to create directory: " + directory);
+            }
+            file = new File(directory, project + ".jsonl");
+            try (Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+                for (LinkedHashMap<String, Object> entry : diagnostics.entries.values()) {
+                    out.write(mapper.writeValueAsString(entry) + "\n");
+                }
+            }
+        }
+
+        List<String> parts = new ArrayList<>();
+        for (Map.Entry<String, long[]> kind : diagnostics.counts.entrySet()) {
+            MetricsRegistry.getShared().increment("dps_diagnostics_total", kind.getValue()[0], "project", project,
+                    "kind", kind.getKey());
+            if (kind.getKey().equals(SOURCE_PATH))
+                continue;
+            parts.add(kind.getValue()[0] + " " + LABELS.getOrDefault(kind.getKey(), kind.getKey()) + " ("
+                    + kind.getValue()[1] + " distinct)");
+        }
+        if (diagnostics.suppressed > 0) {
+            parts.add(diagnostics.suppressed + " suppressed");
+        }
+        if (diagnostics.rateLimited > 0) {
+            parts.add(diagnostics.rateLimited + " rate_limited");
+        }
+        if (!parts.isEmpty()) {
+            System.out.println("\tDiagnostics: " + String.join(", ", parts)
+                    + (file == null ? "" : " (see " + file.getPath() + ")"));
+        }
+    }
+}
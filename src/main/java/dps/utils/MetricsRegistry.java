@@ -0,0 +1,345 @@
+package dps.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.util.DefaultIndenter;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Counters, gauges and latency histograms of a run, by metric name and labels (e.g. project
+ * and phase). Written at the end of a run as a JSON run report and as a Prometheus text
+ * exposition file, which the node exporter's textfile collector can pick up.
+ *
+ * Histograms are in seconds with the buckets of BUCKETS. Batch workers stream their series
+ * back to the coordinator with takeRows/addRow, like DetectorMetrics.
+ */
+public class MetricsRegistry {
+    public static final String COUNTER = "counter";
+    public static final String GAUGE = "gauge";
+    public static final String HISTOGRAM = "histogram";
+
+    // pipeline phases, label phase of PHASE_SECONDS
+    public static final String DISCOVERY = "discovery";
+    public static final String PARSE = "parse";
+    public static final String EXTRACT = "extract";
+    public static final String RESOLVE = "resolve";
+    public static final String MERGE = "merge";
+    public static final String SUMMARISE = "summarise";
+    public static final String CSV_WRITE = "csv_write";
+    public static final String JSON_WRITE = "json_write";
+    public static final String SWUM = "swum";
+    public static final String EVALUATION = "evaluation";
+
+    public static final String PHASE_SECONDS = "dps_phase_seconds";
+    public static final String DETECTOR_SECONDS = "dps_detector_seconds";
+
+    // upper bounds in seconds, +Inf is implied
+    private static final double[] BUCKETS = {0.001, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60,
+            300};
+
+    private static final MetricsRegistry SHARED = new MetricsRegistry();
+
+    // name -> {type, help}
+    private final LinkedHashMap<String, String[]> descriptions = new LinkedHashMap<>();
+    // name + "{" + labels + "}" -> series
+    private final LinkedHashMap<String, Series> series = new LinkedHashMap<>();
+    // labels left out of the series, see dropLabel
+    private final HashSet<String> droppedLabels = new HashSet<>();
+
+    private static class Series {
+        final String name;
+        final LinkedHashMap<String, String> labels;
+        // counter and gauge: {value}; histogram: bucket counts, then count and sum
+        final double[] values;
+
+        Series(String name, LinkedHashMap<String, String> labels, double[] values) {
+            this.name = name;
+            this.labels = labels;
+            this.values = values;
+        }
+    }
+
+    public MetricsRegistry() {
+        describe(PHASE_SECONDS, HISTOGRAM, "Time spent in a pipeline phase, by project and phase.");
+        describe(DETECTOR_SECONDS, HISTOGRAM, "Time spent in a detector, by project, phase and pattern.");
+        describe("dps_projects_total", COUNTER, "Projects processed, by status (done, failed, skipped).");
+        describe("dps_files_total", COUNTER, "Source files parsed, by project.");
+        describe("dps_parse_failures_total", COUNTER, "Source files that could not be parsed, by project.");
+        describe("dps_symbol_table_symbols", GAUGE, "Names interned in the SymbolTable of a project.");
+        describe("dps_pattern_instances_total", COUNTER, "Design pattern instances found, by project and pattern.");
+        describe("dps_truncated_projects_total", COUNTER, "Projects whose detection ran out of budget.");
+        describe("dps_budget_pruned_total", COUNTER,
+                "Candidates a detector rejected because it ran out of budget, by project and pattern.");
+        describe("dps_csv_rows_total", COUNTER, "Rows written to the summary CSV.");
+        describe("dps_diagnostics_total", COUNTER, "Warnings reported to Diagnostics, by project and kind.");
+        describe("dps_http_request_seconds", HISTOGRAM, "Latency of server requests, by endpoint and status.");
+        describe("dps_run_start_time_seconds", GAUGE, "Start of the run, in seconds since the epoch.");
+        describe("dps_run_duration_seconds", GAUGE, "Duration of the run so far.");
+    }
+
+    public static MetricsRegistry getShared() {
+        return SHARED;
+    }
+
+    public synchronized void describe(String name, String type, String help) {
+        descriptions.put(name, new String[] {type, help});
+    }
+
+    /**
+     * Leaves the label out of the series updated from now on, so series differing only in it
+     * are merged. The server drops "project": every archive it analyses has a new name, and
+     * its series would otherwise grow without bound.
+     */
+    public synchronized void dropLabel(String label) {
+        droppedLabels.add(label);
+    }
+
+    /**
+     * Adds delta to a counter. labels are name/value pairs, e.g. "project", "Foo".
+     */
+    public void increment(String name, double delta, String... labels) {
+        update(COUNTER, name, labels, values -> values[0] += delta);
+    }
+
+    public void set(String name, double value, String... labels) {
+        update(GAUGE, name, labels, values -> values[0] = value);
+    }
+
+    /**
+     * Adds an observation in seconds to a histogram.
+     */
+    public void observe(String name, double seconds, String... labels) {
+        update(HISTOGRAM, name, labels, values -> {
+            for (int i = 0; i < BUCKETS.length; i++) {
+                if (seconds <= BUCKETS[i]) {
+                    values[i]++;
+                    break;
+                }
+            }
+            values[BUCKETS.length + 1]++;
+            values[BUCKETS.length + 2] += seconds;
+        });
+    }
+
+    /**
+     * Helper method to observe the time since startNanos (System.nanoTime) in a phase of a
+     * project.
+     */
+    public void recordPhase(String phase, String project, long startNanos) {
+        observe(PHASE_SECONDS, (System.nanoTime() - startNanos) / 1e9, "project", project, "phase", phase);
+    }
+
+    private interface Update {
+        void apply(double[] values);
+    }
+
+    private synchronized void update(String type, String name, String[] labels, Update update) {
+        if (!descriptions.containsKey(name)) {
+            describe(name, type, name);
+        }
+        LinkedHashMap<String, String> labelMap = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < labels.length; i += 2) {
+            if (!droppedLabels.contains(labels[i])) {
+                labelMap.put(labels[i], labels[i + 1]);
+            }
+        }
+        String key = name + "{" + formatLabels(labelMap) + "}";
+        Series values = series.computeIfAbsent(key, k -> new Series(name, labelMap,
+                new double[type.equals(HISTOGRAM) ? BUCKETS.length + 3 : 1]));
+        update.apply(values.values);
+    }
+
+    /**
+     * Returns the series as rows of "type name labels values", tab separated, and clears them.
+     * Used by batch workers after each project.
+     */
+    public synchronized List<String> takeRows() {
+        List<String> rows = new ArrayList<>();
+        for (Series values : series.values()) {
+            StringBuilder row = new StringBuilder(descriptions.get(values.name)[0]).append('\t').append(values.name)
+                    .append('\t');
+            for (Map.Entry<String, String> label : values.labels.entrySet()) {
+                row.append(escapeRowLabel(label.getKey())).append('=').append(escapeRowLabel(label.getValue()))
+                        .append(',');
+            }
+            row.append('\t');
+            for (double value : values.values) {
+                row.append(value).append(' ');
+            }
+            rows.add(row.toString().trim());
+        }
+        series.clear();
+        return rows;
+    }
+
+    /**
+     * Adds a row written by takeRows: counters and histograms are summed, gauges replaced.
+     */
+    public void addRow(String row) {
+        String[] parts = row.split("\t", -1);
+        if (parts.length != 4)
+            throw new IllegalArgumentException("Malformed metrics row: " + row);
+        // name=value pairs separated by commas, escaped by escapeRowLabel
+        List<String> labels = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        String labelName = null;
+        for (int i = 0; i < parts[2].length(); i++) {
+            char c = parts[2].charAt(i);
+            if (c == '\\' && i + 1 < parts[2].length()) {
+                char escaped = parts[2].charAt(++i);
+                text.append(escaped == 't' ? '\t' : escaped == 'n' ? '\n' : escaped);
+            } else if (c == '=' && labelName == null) {
+                labelName = text.toString();
+                text.setLength(0);
+            } else if (c == ',') {
+                if (labelName != null) {
+                    labels.add(labelName);
+                    labels.add(text.toString());
+                }
+                labelName = null;
+                text.setLength(0);
+            } else {
+                text.append(c);
+            }
+        }
+        String[] values = parts[3].split(" ");
+        update(parts[0], parts[1], labels.toArray(new String[0]), current -> {
+            for (int i = 0; i < current.length && i < values.length; i++) {
+                current[i] = parts[0].equals(GAUGE) ? Double.parseDouble(values[i])
+                        : current[i] + Double.parseDouble(values[i]);
+            }
+        });
+    }
+
+    /**
+     * Helper method to build the JSON structure of the run report: name -> type, help and
+     * series with their labels and values.
+     */
+    public synchronized LinkedHashMap<String, Object> toMap() {
+        LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+        for (Series values : series.values()) {
+            String[] description = descriptions.get(values.name);
+            LinkedHashMap<String, Object> metric = (LinkedHashMap<String, Object>) map.computeIfAbsent(values.name,
+                    name -> {
+                        LinkedHashMap<String, Object> m = new LinkedHashMap<>();
+                        m.put("type", description[0]);
+                        m.put("help", description[1]);
+                        m.put("series", new ArrayList<>());
+                        return m;
+                    });
+            LinkedHashMap<String, Object> entry = new LinkedHashMap<>();
+            entry.put("labels", values.labels);
+            if (description[0].equals(HISTOGRAM)) {
+                double count = values.values[BUCKETS.length + 1];
+                double sum = values.values[BUCKETS.length + 2];
+                entry.put("count", (long) count);
+                entry.put("sum_seconds", round(sum));
+                entry.put("mean_seconds", count == 0 ? 0 : round(sum / count));
+            } else {
+                entry.put("value", values.values[0]);
+            }
+            ((List<Object>) metric.get("series")).add(entry);
+        }
+        return map;
+    }
+
+    /**
+     * The series in the Prometheus text exposition format (version 0.0.4).
+     */
+    public synchronized String toPrometheus() {
+        // series grouped by metric name, as the format requires
+        LinkedHashMap<String, List<Series>> byName = new LinkedHashMap<>();
+        for (Series values : series.values()) {
+            byName.computeIfAbsent(values.name, name -> new ArrayList<>()).add(values);
+        }
+
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, List<Series>> metric : byName.entrySet()) {
+            String name = metric.getKey();
+            String[] description = descriptions.get(name);
+            text.append("# HELP ").append(name).append(' ')
+                    .append(description[1].replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+            text.append("# TYPE ").append(name).append(' ').append(description[0]).append('\n');
+            for (Series values : metric.getValue()) {
+                String labels = formatLabels(values.labels);
+                if (!description[0].equals(HISTOGRAM)) {
+                    text.append(name).append(labels.isEmpty() ? "" : "{" + labels + "}").append(' ')
+                            .append(format(values.values[0])).append('\n');
+                    continue;
+                }
+                String prefix = labels.isEmpty() ? "" : labels + ",";
+                double cumulative = 0;
+                for (int i = 0; i < BUCKETS.length; i++) {
+                    cumulative += values.values[i];
+                    text.append(name).append("_bucket{").append(prefix).append("le=\"").append(format(BUCKETS[i]))
+                            .append("\"} ").append(format(cumulative)).append('\n');
+                }
+                text.append(name).append("_bucket{").append(prefix).append("le=\"+Inf\"} ")
+                        .append(format(values.values[BUCKETS.length + 1])).append('\n');
+                text.append(name).append("_sum").append(labels.isEmpty() ? "" : "{" + labels + "}").append(' ')
+                        .append(format(values.values[BUCKETS.length + 2])).append('\n');
+                text.append(name).append("_count").append(labels.isEmpty() ? "" : "{" + labels + "}").append(' ')
+                        .append(format(values.values[BUCKETS.length + 1])).append('\n');
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Writes the run report and the Prometheus file. The Prometheus file is written to a
+     * temporary file first and moved into place, so a collector never reads half of it.
+     */
+    public void write(File runReport, File prometheusFile) throws IOException {
+        new ObjectMapper().writer(new DefaultPrettyPrinter().withObjectIndenter(new DefaultIndenter("\t", "\n")))
+                .writeValue(runReport, toMap());
+
+        File directory = prometheusFile.getAbsoluteFile().getParentFile();
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Failed to create directory: " + directory);
+        }
+        File temporary = new File(directory, "." + prometheusFile.getName() + ".tmp");
+        Files.write(temporary.toPath(), toPrometheus().getBytes(StandardCharsets.UTF_8));
+        Files.move(temporary.toPath(), prometheusFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Helper method to escape a label name or value in a row of takeRows, where tabs, newlines,
+     * commas and equal signs are separators.
+     */
+    private static String escapeRowLabel(String text) {
+        return text.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace(",", "\\,")
+                .replace("=", "\\=");
+    }
+
+    private static String formatLabels(Map<String, String> labels) {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, String> label : labels.entrySet()) {
+            if (text.length() > 0) {
+                text.append(',');
+            }
+            text.append(label.getKey()).append("=\"").append(label.getValue().replace("\\", "\\\\")
+                    .replace("\"", "\\\"").replace("\n", "\\n")).append('"');
+        }
+        return text.toString();
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) && Math.abs(value) < 1e15 ? String.valueOf((long) value)
+                : String.valueOf(value);
+    }
+
+    private static double round(double seconds) {
+        return Math.round(seconds * 1e6) / 1e6;
+    }
+}
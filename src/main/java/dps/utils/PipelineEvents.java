@@ -0,0 +1,222 @@
+package dps.utils;
+
+import java.util.List;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder events of the pipeline, for profiling whole runs in JDK Mission Control
+ * (profile key jfr-events=true, see src/main/resources/jfr/dps.jfc for the settings).
+ *
+ * The events are only created when enabled, so a run without the flag doesn't pay for them.
+ * Each event carries the project being analysed by the current thread, see setProject.
+ */
+public class PipelineEvents {
+
+    private static volatile boolean enabled = false;
+
+    // project analysed by the current thread, set by ParseProject and ProjectSession; also
+    // read by Diagnostics
+    private static final ThreadLocal<String> project = new ThreadLocal<>();
+
+    public static void setEnabled(boolean enabled) {
+        PipelineEvents.enabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setProject(String projectName) {
+        project.set(projectName);
+    }
+
+    public static String getProject() {
+        return project.get();
+    }
+
+    @Name("dps.Project")
+    @Label("Project")
+    @Category("DPS")
+    @Description("Analysis of a project, from finding its files to its summaries")
+    @StackTrace(false)
+    public static class ProjectEvent extends Event {
+        @Label("Project")
+        String project;
+
+        @Label("Files")
+        int files;
+
+        @Label("Status")
+        @Description("done, empty or cached")
+        String status;
+
+        public void finish(int files, String status) {
+            end();
+            this.project = PipelineEvents.project.get();
+            this.files = files;
+            this.status = status;
+            commit();
+        }
+    }
+
+    @Name("dps.FileParse")
+    @Label("File Parse")
+    @Category("DPS")
+    @Description("Parsing a source file and extracting its facts, including resolving its method calls "
+            + "when the call graph is eager")
+    @StackTrace(false)
+    public static class FileParseEvent extends Event {
+        @Label("Project")
+        String project;
+
+        @Label("File")
+        String file;
+
+        @Label("Class")
+        String className;
+
+        @Label("Parsed")
+        boolean parsed;
+
+        public void finish(String file, String className, boolean parsed) {
+            end();
+            if (!shouldCommit())
+                return;
+            this.project = PipelineEvents.project.get();
+            this.file = file;
+            this.className = className;
+            this.parsed = parsed;
+            commit();
+        }
+    }
+
+    @Name("dps.SymbolResolutionFailure")
+    @Label("Symbol Resolution Failure")
+    @Category("DPS")
+    @Description("A method call or declaration the symbol solver could not resolve")
+    @StackTrace(false)
+    public static class SymbolResolutionFailureEvent extends Event {
+        @Label("Project")
+        String project;
+
+        @Label("File")
+        String file;
+
+        @Label("Class")
+        String className;
+
+        @Label("Line")
+        int line;
+
+        @Label("Symbol")
+        String symbol;
+
+        @Label("Message")
+        String message;
+    }
+
+    @Name("dps.Detector")
+    @Label("Detector")
+    @Category("DPS")
+    @Description("One run of a detector's checkPattern over the classes of a project")
+    @StackTrace(false)
+    public static class DetectorEvent extends Event {
+        @Label("Project")
+        String project;
+
+        @Label("Pattern")
+        String pattern;
+
+        @Label("Candidates")
+        long candidates;
+
+        @Label("Matches")
+        long matches;
+
+        public void finish(String pattern, long candidates, long matches) {
+            end();
+            if (!shouldCommit())
+                return;
+            this.project = PipelineEvents.project.get();
+            this.pattern = pattern;
+            this.candidates = candidates;
+            this.matches = matches;
+            commit();
+        }
+    }
+
+    @Name("dps.Realisation")
+    @Label("Realisation")
+    @Category("DPS")
+    @Description("Realising a summary sentence that was not in the realisation cache")
+    @StackTrace(false)
+    public static class RealisationEvent extends Event {
+        @Label("Project")
+        String project;
+
+        @Label("Kind")
+        @Description("What was realised, the first part of the realisation cache key")
+        String kind;
+
+        @Label("Length")
+        int length;
+
+        public void finish(Object key, String text) {
+            end();
+            if (!shouldCommit())
+                return;
+            this.project = PipelineEvents.project.get();
+            this.kind = key instanceof List && !((List) key).isEmpty() ? String.valueOf(((List) key).get(0))
+                    : key.getClass().getSimpleName();
+            this.length = text == null ? 0 : text.length();
+            commit();
+        }
+    }
+
+    private static <T extends Event> T begin(T event) {
+        event.begin();
+        return event;
+    }
+
+    // the begin methods return null unless events are enabled
+    public static ProjectEvent beginProject() {
+        return enabled ? begin(new ProjectEvent()) : null;
+    }
+
+    public static FileParseEvent beginFileParse() {
+        return enabled ? begin(new FileParseEvent()) : null;
+    }
+
+    public static DetectorEvent beginDetector() {
+        return enabled ? begin(new DetectorEvent()) : null;
+    }
+
+    public static RealisationEvent beginRealisation() {
+        return enabled ? begin(new RealisationEvent()) : null;
+    }
+
+    /**
+     * Records a symbol the solver could not resolve, if events are enabled.
+     */
+    public static void symbolResolutionFailed(String file, String className, int line, String symbol,
+            String message) {
+        if (!enabled)
+            return;
+        SymbolResolutionFailureEvent event = new SymbolResolutionFailureEvent();
+        if (!event.shouldCommit())
+            return;
+        event.project = project.get();
+        event.file = file;
+        event.className = className;
+        event.line = line;
+        event.symbol = symbol;
+        event.message = message;
+        event.commit();
+    }
+}
@@ -1,5 +1,8 @@
 package dps.utils;
 
+import com.github.javaparser.resolution.TypeSolver;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.resolution.model.SymbolReference;
 import com.github.javaparser.symbolsolver.JavaSymbolSolver;
 import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
 import com.github.javaparser.symbolsolver.resolution.typesolvers.JarTypeSolver;
@@ -8,7 +11,9 @@ import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeS
 
 import java.io.*;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 // referenced from Java Callgraph
 /**
@@ -17,6 +22,20 @@ import java.util.List;
  * @author allen
  */
 public class SymbolSolverFactory {
+
+    // Type solvers that don't depend on the sources of a project are built once per JVM and
+    // shared by the symbol solvers of all projects (batch runs, server requests): the JDK,
+    // and the JDK with the jars of a lib folder, by jar paths and versions. Both only read
+    // after they are built.
+    private static final int MAX_LIBRARY_SOLVERS = 16;
+    private static final TypeSolver jdkTypeSolver = new ReflectionTypeSolver(false); // false: classpath too
+    private static final LinkedHashMap<String, TypeSolver> libraryTypeSolvers =
+            new LinkedHashMap<String, TypeSolver>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, TypeSolver> eldest) {
+                    return size() > MAX_LIBRARY_SOLVERS;
+                }
+            };
     // referenced from Java Callgraph
     /**
      * 获取符号推理器，以便获取某个类的具体来源
@@ -29,20 +48,20 @@ public class SymbolSolverFactory {
         CombinedTypeSolver combinedTypeSolver = new CombinedTypeSolver();
         
         // Add reflection type solver first for JDK classes (most reliable)
-        ReflectionTypeSolver reflectionTypeSolver = new ReflectionTypeSolver(false); // Set false to prevent caching issues
-        combinedTypeSolver.add(reflectionTypeSolver);
+        combinedTypeSolver.add(new SharedTypeSolver(jdkTypeSolver));
         
         // Enhanced Java parser type solvers
         List<JavaParserTypeSolver> javaParserTypeSolvers = makeJavaParserTypeSolvers(srcPaths);
         for (JavaParserTypeSolver solver : javaParserTypeSolvers) {
             combinedTypeSolver.add(solver);
-            System.out.println("Added source path for symbol resolution: " + solver.toString());
+            Diagnostics.getShared().report(Diagnostics.SOURCE_PATH, "Added source path for symbol resolution: "
+                    + solver, null);
         }
         
-        // Add jar type solvers
-        List<JarTypeSolver> jarTypeSolvers = makeJarTypeSolvers(libPaths);
-        for (JarTypeSolver solver : jarTypeSolvers) {
-            combinedTypeSolver.add(solver);
+        // Add jar type solvers, with the JDK so that jar classes resolve their JDK types
+        List<String> jarPaths = Utils.getFilesBySuffixInPaths("jar", libPaths);
+        if (!jarPaths.isEmpty()) {
+            combinedTypeSolver.add(new SharedTypeSolver(getLibraryTypeSolver(jarPaths)));
         }
         
         // Add common library type solvers for typical dependencies
@@ -62,15 +81,40 @@ public class SymbolSolverFactory {
         // These are already covered by the main ReflectionTypeSolver, but this ensures consistency
     }
 
+    /**
+     * Helper method to return the shared type solver of the JDK and the given jars, built on
+     * first use. A rebuilt or replaced jar gets a new solver.
+     */
+    private static TypeSolver getLibraryTypeSolver(List<String> jarPaths) throws IOException {
+        StringBuilder key = new StringBuilder();
+        for (String jarPath : jarPaths) {
+            File jar = new File(jarPath);
+            key.append(jar.getAbsolutePath()).append(' ').append(jar.length()).append(' ')
+                    .append(jar.lastModified()).append('\n');
+        }
+        synchronized (libraryTypeSolvers) {
+            TypeSolver libraryTypeSolver = libraryTypeSolvers.get(key.toString());
+            if (libraryTypeSolver == null) {
+                CombinedTypeSolver combinedTypeSolver = new CombinedTypeSolver();
+                combinedTypeSolver.add(new SharedTypeSolver(jdkTypeSolver));
+                for (JarTypeSolver solver : makeJarTypeSolvers(jarPaths)) {
+                    combinedTypeSolver.add(solver);
+                }
+                libraryTypeSolver = combinedTypeSolver;
+                libraryTypeSolvers.put(key.toString(), libraryTypeSolver);
+            }
+            return libraryTypeSolver;
+        }
+    }
+
     // referenced from Java Callgraph
     /**
      * 获取jar包的符号推理器
      * 
-     * @param libPaths
+     * @param jarPaths
      * @return
      */
-    private static List<JarTypeSolver> makeJarTypeSolvers(List<String> libPaths) throws IOException {
-        List<String> jarPaths = Utils.getFilesBySuffixInPaths("jar", libPaths);
+    private static List<JarTypeSolver> makeJarTypeSolvers(List<String> jarPaths) throws IOException {
         List<JarTypeSolver> jarTypeSolvers = new ArrayList<>(jarPaths.size());
         for (String jarPath : jarPaths) {
             jarTypeSolvers.add(new JarTypeSolver(jarPath));
@@ -78,6 +122,35 @@ public class SymbolSolverFactory {
         return jarTypeSolvers;
     }
 
+    /**
+     * A shared type solver inside the CombinedTypeSolver of a project. A type solver takes
+     * only one parent, so each project gets its own wrapper; the shared solver stays its own
+     * root, which is enough as JDK and jar classes don't refer to project sources.
+     */
+    private static class SharedTypeSolver implements TypeSolver {
+        private final TypeSolver shared;
+        private TypeSolver parent;
+
+        SharedTypeSolver(TypeSolver shared) {
+            this.shared = shared;
+        }
+
+        @Override
+        public TypeSolver getParent() {
+            return parent;
+        }
+
+        @Override
+        public void setParent(TypeSolver parent) {
+            this.parent = parent;
+        }
+
+        @Override
+        public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveType(String name) {
+            return shared.tryToSolveType(name);
+        }
+    }
+
     // referenced from Java Callgraph
     /**
      * 获取工程源代码src的符号推理器
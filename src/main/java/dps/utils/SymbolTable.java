@@ -0,0 +1,58 @@
+package dps.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-project table of canonical class, method, type and signature names.
+ *
+ * The extractors create the same names over and over (every "String", every caller class,
+ * every "x method of Y"). Interning them keeps one instance per name, so the duplicates
+ * disappear from the heap and equal names are the same object: String.equals in the
+ * detectors returns on its identity check instead of comparing characters.
+ *
+ * A table belongs to the project being analysed: ParseProject creates one per project and
+ * ProjectSession one per session, and they bind it to the threads working on the project
+ * with setCurrent (shard threads included). intern uses the table of the current thread and
+ * returns the name unchanged when there is none, so nothing outlives its project.
+ */
+public class SymbolTable {
+
+    private static final ThreadLocal<SymbolTable> current = new ThreadLocal<>();
+
+    private final ConcurrentHashMap<String, String> symbols = new ConcurrentHashMap<>();
+
+    /**
+     * Binds a table to the current thread, null to unbind it.
+     */
+    public static void setCurrent(SymbolTable table) {
+        if (table == null) {
+            current.remove();
+        } else {
+            current.set(table);
+        }
+    }
+
+    public static SymbolTable getCurrent() {
+        return current.get();
+    }
+
+    public static String intern(String symbol) {
+        SymbolTable table = current.get();
+        return table == null ? symbol : table.internSymbol(symbol);
+    }
+
+    public String internSymbol(String symbol) {
+        if (symbol == null)
+            return null;
+        String canonical = symbols.putIfAbsent(symbol, symbol);
+        return canonical == null ? symbol : canonical;
+    }
+
+    public int size() {
+        return symbols.size();
+    }
+
+    public void clear() {
+        symbols.clear();
+    }
+}
@@ -50,9 +50,9 @@ public class Utils {
     public static String splitByDot(String parsedString, int part) {
         if (parsedString.contains(".")) {
             String[] parsedStringList = parsedString.split("\\.", -1);
-            return parsedStringList[parsedStringList.length - part];
+            return SymbolTable.intern(parsedStringList[parsedStringList.length - part]);
         } else {
-            return parsedString;
+            return SymbolTable.intern(parsedString);
         }
     }
 
@@ -127,7 +127,7 @@ public class Utils {
     public static ArrayList<String> nodeListToArrayList(NodeList nodeList) {
         ArrayList<String> arrayList = new ArrayList<String>();
         for (Object node : nodeList) {
-            arrayList.add(node.toString().strip());
+            arrayList.add(SymbolTable.intern(node.toString().strip()));
         }
         return arrayList;
     }
@@ -210,8 +210,8 @@ public class Utils {
             if (parameterString.length < 1)
                 continue;
             HashMap resultMap = new HashMap<>();
-            resultMap.put("PARAMETERTYPE", parameterString[0]);
-            resultMap.put("PARAMETERNAME", parameterString[1]);
+            resultMap.put("PARAMETERTYPE", SymbolTable.intern(parameterString[0]));
+            resultMap.put("PARAMETERNAME", SymbolTable.intern(parameterString[1]));
             resultArray.add(resultMap);
         }
         return resultArray;
@@ -260,7 +260,7 @@ public class Utils {
             String incomingMethodClass = (String) incomingMethod.get("CALLEDCLASS");
             String incomingMethodName = (String) incomingMethod.get("CALLEDMETHODNAME");
 
-            String resultString = incomingMethodName + " method of " + incomingMethodClass;
+            String resultString = SymbolTable.intern(incomingMethodName + " method of " + incomingMethodClass);
             if (!resultArray.contains(resultString)) {
                 resultArray.add(resultString);
             }
@@ -275,7 +275,7 @@ public class Utils {
             String outgoingMethodClass = (String) outgoingMethod.get("CALLEECLASS");
             String outgoingMethodName = (String) outgoingMethod.get("CALLEEMETHODNAME");
 
-            String resultString = outgoingMethodName + " method of " + outgoingMethodClass;
+            String resultString = SymbolTable.intern(outgoingMethodName + " method of " + outgoingMethodClass);
             if (!resultArray.contains(resultString)) {
                 resultArray.add(resultString);
             }
@@ -371,7 +371,7 @@ public class Utils {
         ArrayList<String> resultArrayList = new ArrayList<>();
         for (HashMap incomingMethod : (ArrayList<HashMap>) Utils.getIncomingMethod(methodDetail)) {
             if (className.equals(Utils.getIncomingMethodClass(incomingMethod))) {
-                resultArrayList.add(Utils.getMethodName(methodDetail) + " method of " + originClass);
+                resultArrayList.add(SymbolTable.intern(Utils.getMethodName(methodDetail) + " method of " + originClass));
             }
         }
         return resultArrayList;
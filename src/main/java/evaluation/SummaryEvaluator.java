@@ -3,6 +3,7 @@ package evaluation;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import dps.utils.MetricsRegistry;
 
 import java.io.File;
 import java.io.FileWriter;
@@ -113,7 +114,10 @@ public class SummaryEvaluator {
             }
             
             try {
+                long start = System.nanoTime();
                 EvaluationResult result = evaluateProject(originalFile.getAbsolutePath(), swumFile.getAbsolutePath());
+                MetricsRegistry.getShared().recordPhase(MetricsRegistry.EVALUATION,
+                        originalFile.getName().replace(".json", ""), start);
                 results.add(result);
                 System.out.println("Evaluated: " + result.getProjectName());
             } catch (Exception e) {
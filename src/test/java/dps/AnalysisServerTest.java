@@ -0,0 +1,69 @@
+package dps;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+
+public class AnalysisServerTest {
+
+    // a zip archive of the given entries, each of size bytes of spaces
+    private static byte[] zip(int entries, int size, String suffix) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] content = new byte[size];
+        Arrays.fill(content, (byte) ' ');
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (int i = 0; i < entries; i++) {
+                zip.putNextEntry(new ZipEntry("p/C" + i + suffix));
+                zip.write(content);
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static boolean unzip(byte[] archive) throws IOException {
+        Path directory = Files.createTempDirectory("dps-test-");
+        try {
+            return AnalysisServer.unzip(new ByteArrayInputStream(archive), directory.resolve("project"));
+        } finally {
+            try (Stream<Path> paths = Files.walk(directory)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    @Test
+    public void unzipExtractsSources() throws IOException {
+        assertTrue(unzip(zip(3, 100, ".java")));
+        assertFalse(unzip(zip(3, 100, ".txt")));
+    }
+
+    @Test
+    public void unzipStopsAtExtractedBytes() throws IOException {
+        // compresses to about 250 KB, extracts to more than MAX_EXTRACTED_BYTES
+        int size = 1024 * 1024;
+        int entries = (int) (AnalysisServer.MAX_EXTRACTED_BYTES / size) + 1;
+        byte[] archive = zip(entries, size, ".java");
+        assertTrue(archive.length < AnalysisServer.MAX_UPLOAD_BYTES);
+        assertThrows(AnalysisServer.ArchiveTooLargeException.class, () -> unzip(archive));
+    }
+
+    @Test
+    public void unzipStopsAtEntries() throws IOException {
+        byte[] archive = zip(AnalysisServer.MAX_ENTRIES + 1, 0, ".java");
+        assertThrows(AnalysisServer.ArchiveTooLargeException.class, () -> unzip(archive));
+    }
+}
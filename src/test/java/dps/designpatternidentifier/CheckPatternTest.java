@@ -0,0 +1,68 @@
+package dps.designpatternidentifier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import dps.projectparser.ParseProject;
+import dps.projectparser.RunProfile;
+import dps.utils.Diagnostics;
+import dps.utils.Utils;
+
+public class CheckPatternTest {
+
+    // reach the class adapter check of AdapterPattern and the concrete publisher check of ObserverPattern
+    private static final String[] PROJECTS = {"AbdurRKhalid-Visitor", "shusheng007-observer", "AbdurRKhalid-Adapter"};
+
+    private static HashMap<String, HashMap> getFacts(String name) throws IOException {
+        File project = new File("input", name);
+        assertTrue(project.isDirectory(), "No project " + project);
+        RunProfile profile = new RunProfile();
+        profile.set("summaries", "false");
+        profile.set("json", RunProfile.JSON_NONE);
+        ParseProject parseProject = new ParseProject();
+        parseProject.setProfile(profile);
+        HashMap<String, Object> parsedProject = parseProject.parseProject(project);
+        Diagnostics.getShared().finishProject(name);
+        return (HashMap<String, HashMap>) parsedProject.get(name);
+    }
+
+    // class name -> a copy of its EXTENDSFROM list
+    private static HashMap<String, ArrayList<String>> getExtendsFrom(HashMap<String, HashMap> fileDetails) {
+        HashMap<String, ArrayList<String>> extendsFrom = new HashMap<>();
+        for (Map.Entry<String, HashMap> fileEntry : fileDetails.entrySet()) {
+            for (HashMap classDetail : Utils.getClassOrInterfaceDetails(fileEntry.getValue())) {
+                extendsFrom.put(fileEntry.getKey() + "." + classDetail.get("CLASSNAME"),
+                        new ArrayList<>(Utils.getExtendsFrom(classDetail)));
+            }
+        }
+        return extendsFrom;
+    }
+
+    /**
+     * The detectors only read the facts: AdapterPattern and ObserverPattern once added the
+     * implemented interfaces to EXTENDSFROM, so every rerun (as in --watch) saw other facts.
+     */
+    @Test
+    public void detectorsDoNotChangeFacts() throws IOException {
+        for (String project : PROJECTS) {
+            HashMap<String, HashMap> fileDetails = getFacts(project);
+            HashMap<String, ArrayList<String>> before = getExtendsFrom(fileDetails);
+
+            ArrayList first = new ArrayList();
+            new CheckPattern().extractDesignPattern(fileDetails, first);
+            assertEquals(before, getExtendsFrom(fileDetails), project);
+
+            ArrayList second = new ArrayList();
+            new CheckPattern().extractDesignPattern(fileDetails, second);
+            assertEquals(first, second, project);
+        }
+    }
+}
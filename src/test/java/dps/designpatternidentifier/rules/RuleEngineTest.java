@@ -0,0 +1,110 @@
+package dps.designpatternidentifier.rules;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+public class RuleEngineTest {
+
+    private static RuleEngine evaluate(String rules) {
+        RuleEngine engine = new RuleEngine();
+        engine.addRules(RuleParser.parse(rules));
+        engine.evaluate();
+        return engine;
+    }
+
+    private static Set<List<String>> tuples(String... tuples) {
+        Set<List<String>> set = new HashSet<>();
+        for (String tuple : tuples) {
+            set.add(Arrays.asList(tuple.split(",")));
+        }
+        return set;
+    }
+
+    @Test
+    public void recursiveRuleReachesFixpoint() {
+        RuleEngine engine = evaluate(
+                "extends(\"a\", \"b\"). extends(\"b\", \"c\"). extends(\"c\", \"d\").\n"
+                + "supertype(C, S) :- extends(C, S).\n"
+                + "supertype(C, S) :- extends(C, P), supertype(P, S).");
+
+        assertEquals(tuples("a,b", "b,c", "c,d", "a,c", "b,d", "a,d"),
+                engine.getRelation("supertype").getTuples());
+    }
+
+    @Test
+    public void recursiveRuleOnCycleTerminates() {
+        RuleEngine engine = evaluate(
+                "edge(\"a\", \"b\"). edge(\"b\", \"a\").\n"
+                + "path(X, Y) :- edge(X, Y).\n"
+                + "path(X, Z) :- path(X, Y), path(Y, Z).");
+
+        assertEquals(tuples("a,b", "b,a", "a,a", "b,b"), engine.getRelation("path").getTuples());
+    }
+
+    @Test
+    public void negationReadsCompleteLowerStratum() {
+        // leaf is declared before the recursive supertype rules it negates, so it only sees
+        // every supertype if supertype is evaluated in an earlier stratum
+        RuleEngine engine = evaluate(
+                "class(\"a\"). class(\"b\"). class(\"c\"). class(\"d\").\n"
+                + "extends(\"b\", \"a\"). extends(\"c\", \"b\"). extends(\"d\", \"a\").\n"
+                + "leaf(C) :- class(C), not hasSubclass(C).\n"
+                + "hasSubclass(S) :- supertype(_, S).\n"
+                + "supertype(C, S) :- extends(C, S).\n"
+                + "supertype(C, S) :- extends(C, P), supertype(P, S).");
+
+        assertEquals(tuples("a", "b"), engine.getRelation("hasSubclass").getTuples());
+        assertEquals(tuples("c", "d"), engine.getRelation("leaf").getTuples());
+    }
+
+    @Test
+    public void negationOfEmptyRelationKeepsEveryTuple() {
+        RuleEngine engine = evaluate(
+                "class(\"a\"). class(\"b\").\n"
+                + "plain(C) :- class(C), not annotated(C).");
+
+        assertEquals(0, engine.getRelation("annotated").size());
+        assertEquals(tuples("a", "b"), engine.getRelation("plain").getTuples());
+    }
+
+    @Test
+    public void joinWithEmptyRelationDerivesNothing() {
+        RuleEngine engine = evaluate(
+                "class(\"a\").\n"
+                + "adapter(A, T) :- class(A), implements(A, T).\n"
+                + "wrapped(A) :- adapter(A, _).");
+
+        assertEquals(0, engine.getRelation("implements").size());
+        assertEquals(0, engine.getRelation("adapter").size());
+        assertEquals(0, engine.getRelation("wrapped").size());
+    }
+
+    @Test
+    public void builtInsFilterBindings() {
+        RuleEngine engine = evaluate(
+                "position(\"a\", \"1\"). position(\"b\", \"2\"). position(\"c\", \"10\").\n"
+                + "earlier(X, Y) :- position(X, I), position(Y, J), I < J, X != Y.");
+
+        assertEquals(tuples("a,b", "a,c", "b,c"), engine.getRelation("earlier").getTuples());
+    }
+
+    @Test
+    public void negativeCycleIsRejected() {
+        RuleEngine engine = new RuleEngine();
+        engine.addRules(RuleParser.parse(
+                "class(\"a\").\n"
+                + "p(C) :- class(C), not q(C).\n"
+                + "q(C) :- class(C), not p(C)."));
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, engine::evaluate);
+        assertTrue(e.getMessage().contains("not stratifiable"), e.getMessage());
+    }
+}
@@ -0,0 +1,56 @@
+package dps.designpatternidentifier.rules;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import dps.designpatternidentifier.CheckPattern;
+import dps.projectparser.ParseProject;
+import dps.projectparser.RunProfile;
+import dps.utils.Diagnostics;
+
+/**
+ * The roles derived by patterns.rules equal the output of the Java detectors on every sample
+ * project in input/ (the tests run from the repository root).
+ */
+public class RuleParityTest {
+
+    @Test
+    public void rulesMatchDetectorsOnSampleProjects() throws IOException {
+        File[] projects = new File("input").listFiles(File::isDirectory);
+        assertTrue(projects != null && projects.length > 0, "No projects in input/");
+        Arrays.sort(projects);
+
+        // the detectors run on facts with resolved call edges, as in ParseProject
+        RunProfile profile = new RunProfile();
+        profile.set("callgraph", "eager");
+        profile.set("summaries", "false");
+        profile.set("json", RunProfile.JSON_NONE);
+
+        List<String> failures = new ArrayList<>();
+        for (File project : projects) {
+            ParseProject parseProject = new ParseProject();
+            parseProject.setProfile(profile);
+            HashMap<String, Object> parsedProject = parseProject.parseProject(project);
+            Diagnostics.getShared().finishProject(project.getName());
+            HashMap<String, HashMap> fileDetails = (HashMap<String, HashMap>) parsedProject.get(project.getName());
+            if (fileDetails == null)
+                continue;
+
+            CheckPattern checkPattern = new CheckPattern();
+            ArrayList designPatterns = new ArrayList();
+            checkPattern.extractDesignPattern(fileDetails, designPatterns);
+            for (String difference : RuleParity.compare(fileDetails, designPatterns, checkPattern.getPatternNames())) {
+                failures.add(project.getName() + ": " + difference);
+            }
+        }
+        assertTrue(failures.isEmpty(), failures.size() + " differences:\n" + String.join("\n", failures));
+    }
+}
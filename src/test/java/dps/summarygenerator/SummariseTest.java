@@ -0,0 +1,171 @@
+package dps.summarygenerator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import org.apache.commons.collections4.MultiValuedMap;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Re-summarises the committed facts and pattern results of output/json-output, which were
+ * summarised with SimpleNLG before the summaries were indexed by file.
+ */
+public class SummariseTest {
+
+    private static final File JSON_OUTPUT = new File("output/json-output");
+
+    // the adapter, memento, observer and visitor results hold HashSets, written as arrays; the
+    // summaries iterate them, so they are read back as HashSets to keep the sentence order
+    private static final Pattern SET_PATTERNS = Pattern.compile("adapter|memento|observer|visitor",
+            Pattern.CASE_INSENSITIVE);
+
+    private static final List<String> OUTPUT_KEYS = Arrays.asList("design_pattern", "summary_NLG", "final_summary",
+            "ranked_candidates", "truncated", "budget_pruned");
+
+    private static File[] getOutputs() {
+        File[] outputs = JSON_OUTPUT.listFiles((directory, name) -> name.endsWith(".json"));
+        assertTrue(outputs != null && outputs.length > 0, "No outputs in " + JSON_OUTPUT);
+        Arrays.sort(outputs);
+        return outputs;
+    }
+
+    private static String getProjectName(HashMap<String, Object> output) {
+        for (String key : output.keySet()) {
+            if (!OUTPUT_KEYS.contains(key))
+                return key;
+        }
+        throw new IllegalArgumentException("No project in " + output.keySet());
+    }
+
+    private static ArrayList<HashMap> getPatterns(HashMap<String, Object> output) {
+        ArrayList<HashMap> patterns = new ArrayList<>();
+        for (Map<String, Object> patternOutput : (List<Map<String, Object>>) output.get("design_pattern")) {
+            HashMap pattern = new HashMap();
+            for (Map.Entry<String, Object> entry : patternOutput.entrySet()) {
+                pattern.put(entry.getKey(), restoreSets(entry.getValue(), SET_PATTERNS.matcher(entry.getKey()).find()));
+            }
+            patterns.add(pattern);
+        }
+        return patterns;
+    }
+
+    private static Object restoreSets(Object value, boolean sets) {
+        if (value instanceof Map) {
+            HashMap map = new HashMap();
+            for (Map.Entry entry : ((Map<?, ?>) value).entrySet()) {
+                map.put(entry.getKey(), restoreSets(entry.getValue(), sets));
+            }
+            return map;
+        }
+        if (value instanceof List) {
+            List list = (List) value;
+            if (sets && list.stream().allMatch(element -> element instanceof String))
+                return new HashSet<>(list);
+            ArrayList copy = new ArrayList();
+            for (Object element : list) {
+                copy.add(restoreSets(element, sets));
+            }
+            return copy;
+        }
+        return value;
+    }
+
+    // file name -> its part of final_summary
+    private static HashMap<String, String> splitFinalSummary(String finalSummary) {
+        HashMap<String, String> fileSummaries = new HashMap<>();
+        for (String part : finalSummary.split("\n(?=[^\n :]+\\.java: )")) {
+            fileSummaries.put(part.substring(0, Math.max(0, part.indexOf(".java: "))), part);
+        }
+        return fileSummaries;
+    }
+
+    /**
+     * The template realiser and the file index reproduce the SimpleNLG text of the old path.
+     */
+    @Test
+    public void templateRealiserReproducesCommittedSummaries() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        Summarise.setCsvRowSink(row -> {});
+        Realisers.select(Realisers.TEMPLATE, false);
+        List<String> failures = new ArrayList<>();
+        try {
+            for (File json : getOutputs()) {
+                HashMap<String, Object> output = mapper.readValue(json, HashMap.class);
+                String project = getProjectName(output);
+                HashMap<String, MultiValuedMap<String, String>> summaries = new HashMap<>();
+                String finalSummary = new Summarise().summarise((HashMap<String, HashMap>) output.get(project),
+                        getPatterns(output), summaries, project);
+
+                HashMap<String, String> actual = splitFinalSummary(finalSummary);
+                for (Map.Entry<String, String> expected : splitFinalSummary((String) output.get("final_summary"))
+                        .entrySet()) {
+                    if (!expected.getValue().equals(actual.get(expected.getKey())))
+                        failures.add(project + "/" + expected.getKey() + ": " + actual.get(expected.getKey()));
+                }
+
+                Map<String, Map<String, List<String>>> summaryNLG = (Map) output.get("summary_NLG");
+                for (Map.Entry<String, Map<String, List<String>>> pattern : summaryNLG.entrySet()) {
+                    for (Map.Entry<String, List<String>> sentences : pattern.getValue().entrySet()) {
+                        TreeSet<String> actualSentences = summaries.containsKey(pattern.getKey())
+                                ? new TreeSet<>(summaries.get(pattern.getKey()).get(sentences.getKey()))
+                                : new TreeSet<>();
+                        if (!new TreeSet<>(sentences.getValue()).equals(actualSentences))
+                            failures.add(project + " " + pattern.getKey() + " " + sentences.getKey() + ": "
+                                    + actualSentences);
+                    }
+                }
+            }
+        } finally {
+            Realisers.select(Realisers.SIMPLENLG, false);
+            Summarise.setCsvRowSink(null);
+        }
+        assertTrue(failures.isEmpty(), failures.size() + " differences:\n" + String.join("\n", failures));
+    }
+
+    /**
+     * summariseFile with the sentences indexed by file equals the lookup in the sentences by
+     * pattern.
+     */
+    @Test
+    public void indexedFileSummariesEqualPerFileLookup() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        Summarise.setCsvRowSink(row -> {});
+        Realisers.select(Realisers.TEMPLATE, false);
+        try {
+            for (File json : getOutputs()) {
+                HashMap<String, Object> output = mapper.readValue(json, HashMap.class);
+                String project = getProjectName(output);
+                HashMap<String, HashMap> facts = (HashMap<String, HashMap>) output.get(project);
+                HashMap<String, MultiValuedMap<String, String>> summaries = new HashMap<>();
+                Summarise summarise = new Summarise();
+                summarise.summarise(facts, getPatterns(output), summaries, project);
+
+                HashMap<String, LinkedHashMap<String, HashSet<String>>> sentencesByFile = Summarise
+                        .indexByFile(summaries);
+                for (Map.Entry<String, HashMap> file : facts.entrySet()) {
+                    assertEquals(summarise.summariseFile(file.getKey(), file.getValue(), summaries),
+                            summarise.summariseFile(file.getKey(), file.getValue(),
+                                    sentencesByFile.getOrDefault(file.getKey(), new LinkedHashMap<>())),
+                            project + "/" + file.getKey());
+                }
+            }
+        } finally {
+            Realisers.select(Realisers.SIMPLENLG, false);
+            Summarise.setCsvRowSink(null);
+        }
+    }
+}
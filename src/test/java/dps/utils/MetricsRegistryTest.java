@@ -0,0 +1,38 @@
+package dps.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void rowsKeepLabelsWithSeparators() {
+        MetricsRegistry worker = new MetricsRegistry();
+        worker.increment("dps_files_total", 3, "project", "a,b=c\td\ne\\f");
+        List<String> rows = worker.takeRows();
+        assertEquals(1, rows.size());
+        assertTrue(worker.takeRows().isEmpty());
+
+        MetricsRegistry coordinator = new MetricsRegistry();
+        coordinator.addRow(rows.get(0));
+        coordinator.addRow(rows.get(0));
+        assertTrue(coordinator.toPrometheus()
+                .contains("dps_files_total{project=\"a,b=c\td\\ne\\\\f\"} 6\n"));
+    }
+
+    @Test
+    public void droppedLabelMergesSeries() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.dropLabel("project");
+        registry.increment("dps_budget_pruned_total", 1, "project", "A", "pattern", "adapter");
+        registry.increment("dps_budget_pruned_total", 2, "project", "B", "pattern", "adapter");
+        String text = registry.toPrometheus();
+        assertTrue(text.contains("dps_budget_pruned_total{pattern=\"adapter\"} 3\n"));
+        assertFalse(text.contains("project="));
+    }
+}